@@ -0,0 +1,253 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.repository.PatientSummaryDao;
+import com.nirwan.dentalclinic.repository.PaymentRollupDao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * The database every benchmark runs against: in-memory H2 in MySQL mode by default, the embedded
+ * on-disk H2 database of the single-workstation profile with -Dbench.database=embedded, or a
+ * scratch MySQL database with -Dbench.database=mysql. It is set up once per benchmark JVM and seeded with
+ * a clinic's worth of history (-Dbench.patients, default 5000): about three treatments per
+ * patient, each with a cost row and zero to four payments spread over the last three years.
+ *
+ * Settings come from benchmark/&lt;database&gt;.properties and are applied as system properties,
+ * so they win over any ~/.nirwan/database.properties on the machine; -D options still win over them.
+ * The schema comes from the application's migrations for the database's dialect. DAOs read their
+ * settings when their class loads, so benchmarks create them after {@link #start()}.
+ */
+public final class BenchmarkDatabase {
+    public static final String DATABASE = System.getProperty("bench.database", "h2");
+    private static final int PATIENTS = Integer.getInteger("bench.patients", 5000);
+    private static final String NAME_PREFIX = "Bench ";
+    private static final long SEED = 20240601L;
+
+    static final String[] TREATMENT_NAMES = {
+        "Root Canal Treatment", "Scaling and Polishing", "Composite Filling", "Tooth Extraction",
+        "Wisdom Tooth Surgery", "Ceramic Crown", "Dental Implant", "Orthodontic Braces",
+        "Teeth Whitening", "Complete Denture", "Bridge (3 unit)", "Gum Treatment",
+        "Pulpectomy", "Fluoride Application", "Consultation and X-Ray"
+    };
+    static final String[] METHODS = {"CASH", "UPI", "CARD", "BANK_TRANSFER"};
+    private static final String[] FIRST_NAMES = {
+        "Aarav", "Vivaan", "Aditya", "Ishaan", "Reyansh", "Ananya", "Diya", "Saanvi", "Aadhya", "Kavya",
+        "Rohan", "Priya", "Neha", "Rahul", "Sneha", "Vikram", "Pooja", "Arjun", "Meera", "Karan"
+    };
+    private static final String[] LAST_NAMES = {
+        "Sharma", "Verma", "Patel", "Nirwan", "Gupta", "Singh", "Reddy", "Iyer", "Joshi", "Mehta",
+        "Chopra", "Kulkarni", "Deshmukh", "Rao", "Bhat", "Kapoor", "Malhotra", "Jain", "Das", "Nair"
+    };
+
+    private static String started;
+    private static int[] patientIds;
+    private static int[] treatmentIds;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Connects to the database named by bench.database, migrates and seeds it; later calls return at once
+     */
+    public static void start() {
+        start(DATABASE);
+    }
+
+    /**
+     * Connects to the named database (h2, embedded or mysql), migrates and seeds it. A JVM holds one
+     * database, so benchmarks comparing databases must run each in its own fork.
+     */
+    public static synchronized void start(String database) {
+        if (started != null) {
+            if (started.equals(database)) return;
+            throw new IllegalStateException("This JVM already uses the " + started + " benchmark database; "
+                    + "compare databases in separate forks, not with -f 0");
+        }
+        try {
+            applySettings(database);
+            DatabaseConnection.initializeDatabase();
+            if (DatabaseConnection.getInstance() == null) {
+                throw new IllegalStateException("Could not connect to the " + database + " benchmark database");
+            }
+            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                if (countPatients(conn) == 0) {
+                    seed(conn);
+                } else if (countPatients(conn) != countBenchmarkPatients(conn)) {
+                    throw new IllegalStateException("The benchmark database holds patients that were not seeded "
+                            + "by the benchmarks; point db.url at a scratch database");
+                }
+                patientIds = readIds(conn, "SELECT id FROM Patient WHERE is_deleted = false ORDER BY id");
+                treatmentIds = readIds(conn, "SELECT id FROM Treatment WHERE is_deleted = false ORDER BY id");
+            }
+            started = database;
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Could not set up the benchmark database: " + e.getMessage(), e);
+        }
+    }
+
+    /** IDs of the seeded patients */
+    public static int[] patientIds() {
+        return patientIds;
+    }
+
+    /** IDs of the seeded treatments */
+    public static int[] treatmentIds() {
+        return treatmentIds;
+    }
+
+    private static void applySettings(String database) throws IOException {
+        Properties settings = new Properties();
+        try (InputStream in = resource("/benchmark/" + database + ".properties")) {
+            settings.load(in);
+        }
+        for (String key : settings.stringPropertyNames()) {
+            if (System.getProperty(key) == null) {
+                System.setProperty(key, settings.getProperty(key));
+            }
+        }
+    }
+
+    private static InputStream resource(String name) throws IOException {
+        InputStream in = BenchmarkDatabase.class.getResourceAsStream(name);
+        if (in == null) throw new IOException("Benchmark resource not found: " + name);
+        return in;
+    }
+
+    private static int countPatients(Connection conn) throws SQLException {
+        return count(conn, "SELECT COUNT(*) FROM Patient");
+    }
+
+    private static int countBenchmarkPatients(Connection conn) throws SQLException {
+        return count(conn, "SELECT COUNT(*) FROM Patient WHERE name LIKE '" + NAME_PREFIX + "%'");
+    }
+
+    private static int count(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static int[] readIds(Connection conn, String sql) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Writes the seed data with batched plain inserts, then builds PatientSummary and
+     * PaymentDailyRollup through their DAOs as --rebuild-summaries / --rebuild-payment-rollup do
+     */
+    private static void seed(Connection conn) throws SQLException {
+        long start = System.nanoTime();
+        Random random = new Random(SEED);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        LocalDateTime firstDay = now.minusYears(3);
+        long spanSeconds = java.time.Duration.between(firstDay, now).getSeconds();
+        int treatments = 0;
+        int payments = 0;
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement patient = conn.prepareStatement(
+                     "INSERT INTO Patient (id, name, is_deleted, created_at, updated_at) VALUES (?, ?, false, ?, ?)");
+             PreparedStatement treatment = conn.prepareStatement(
+                     "INSERT INTO Treatment (id, treatment_id, patient_id, treatment_name, total_amount, amount_paid, "
+                             + "is_active, is_deleted, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, false, ?, ?)");
+             PreparedStatement cost = conn.prepareStatement(
+                     "INSERT INTO TreatmentCost (treatment_pk, treatment_id, cost, status, effective_from, notes) "
+                             + "VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement payment = conn.prepareStatement(
+                     "INSERT INTO Payment (treatment_pk, treatment_id, amount, payment_date, payment_method, notes) "
+                             + "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int p = 1; p <= PATIENTS; p++) {
+                LocalDateTime since = firstDay.plusSeconds((long) (random.nextDouble() * spanSeconds * 0.9));
+                patient.setInt(1, p);
+                patient.setString(2, NAME_PREFIX + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                        + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + p);
+                patient.setTimestamp(3, Timestamp.valueOf(since));
+                patient.setTimestamp(4, Timestamp.valueOf(since));
+                patient.addBatch();
+
+                int count = 1 + random.nextInt(5);
+                for (int t = 0; t < count; t++) {
+                    int id = ++treatments;
+                    String code = String.format("BENCH-%07d", id);
+                    long total = Money.parse(Integer.toString(500 + random.nextInt(80) * 500));
+                    LocalDateTime created = since.plusSeconds((long) (random.nextDouble()
+                            * java.time.Duration.between(since, now).getSeconds()));
+
+                    int paymentCount = random.nextInt(5);
+                    long paid = 0;
+                    LocalDateTime last = created;
+                    for (int i = 0; i < paymentCount && paid < total; i++) {
+                        long amount = Math.min(total - paid, Money.parse(Integer.toString(500 + random.nextInt(20) * 500)));
+                        last = last.plusDays(random.nextInt(30)).plusMinutes(random.nextInt(600));
+                        if (last.isAfter(now)) last = now;
+                        payment.setInt(1, id);
+                        payment.setString(2, code);
+                        Money.bind(payment, 3, amount);
+                        payment.setTimestamp(4, Timestamp.valueOf(last));
+                        payment.setString(5, METHODS[random.nextInt(METHODS.length)]);
+                        payment.setString(6, i == 0 ? "Advance" : "Installment " + (i + 1));
+                        payment.addBatch();
+                        paid += amount;
+                        payments++;
+                    }
+
+                    treatment.setInt(1, id);
+                    treatment.setString(2, code);
+                    treatment.setInt(3, p);
+                    treatment.setString(4, TREATMENT_NAMES[random.nextInt(TREATMENT_NAMES.length)]);
+                    Money.bind(treatment, 5, total);
+                    Money.bind(treatment, 6, paid);
+                    treatment.setBoolean(7, paid < total);
+                    treatment.setTimestamp(8, Timestamp.valueOf(created));
+                    treatment.setTimestamp(9, Timestamp.valueOf(last));
+                    treatment.addBatch();
+
+                    cost.setInt(1, id);
+                    cost.setString(2, code);
+                    Money.bind(cost, 3, total);
+                    cost.setString(4, paid >= total ? "PAID" : paid > 0 ? "PARTIALLY_PAID" : "PENDING");
+                    cost.setTimestamp(5, Timestamp.valueOf(created));
+                    cost.setString(6, "Initial treatment cost");
+                    cost.addBatch();
+                }
+
+                if (p % 500 == 0 || p == PATIENTS) {
+                    patient.executeBatch();
+                    treatment.executeBatch();
+                    cost.executeBatch();
+                    payment.executeBatch();
+                    conn.commit();
+                }
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        new PatientSummaryDao().rebuild();
+        new PaymentRollupDao().rebuild();
+        System.out.printf("Seeded %d patients, %d treatments and %d payments in %d ms%n",
+                PATIENTS, treatments, payments, (System.nanoTime() - start) / 1_000_000);
+    }
+}
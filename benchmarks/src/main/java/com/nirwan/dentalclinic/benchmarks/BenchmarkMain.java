@@ -0,0 +1,32 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the benchmarks with JMH's usual command line, writing the results as JSON to
+ * target/jmh-result.json unless -rf / -rff say otherwise, so that runs can be compared
+ * (for example with jmh.morethan.me or by diffing the scores).
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            Files.createDirectories(Paths.get("target"));
+            options.add("-rff");
+            options.add("target/jmh-result.json");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,131 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import com.nirwan.dentalclinic.controllers.cells.CellStyles;
+import com.nirwan.dentalclinic.controllers.cells.CurrencyText;
+import com.nirwan.dentalclinic.models.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scrolling the main patient table: each operation is one frame, in which the table moves down
+ * a few rows and every visible cell of the three money columns and the status column is updated,
+ * as TableCell.updateItem does. Compares the text and styling work of the old cells (inline
+ * styles, with Money.format or, in the patient view, NumberFormat) with the cells in
+ * controllers.cells (cached text, pseudo-classes). Run with -prof gc for the allocation rate.
+ *
+ * No JavaFX scene is involved, since the benchmarks run without a display, so the CSS pass that
+ * an inline style change triggers on the next pulse is not part of the score; the scores are a
+ * lower bound on what the pseudo-class cells save per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellRenderingBenchmark {
+    private static final String[] STATUSES = {"PAID", "PARTIALLY_PAID", "PENDING"};
+    private static final int VISIBLE_ROWS = 30;
+    private static final int ROWS_PER_FRAME = 3;
+
+    @Param({"50000"})
+    public int rows;
+
+    private long[] total;
+    private long[] paid;
+    private long[] pending;
+    private String[] status;
+    private int top;
+
+    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+
+    @Setup
+    public void setUp() {
+        // Fees are a few hundred distinct prices in whole rupees; payments are often partial
+        Random random = new Random(42);
+        total = new long[rows];
+        paid = new long[rows];
+        pending = new long[rows];
+        status = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            total[i] = Money.ofRupees(500 + 100L * random.nextInt(300));
+            int kind = random.nextInt(3);
+            paid[i] = kind == 0 ? total[i] : kind == 1 ? Money.ofRupees(100L * random.nextInt(5)) : 0;
+            pending[i] = total[i] - paid[i];
+            status[i] = STATUSES[kind];
+        }
+    }
+
+    private int nextFrame() {
+        top += ROWS_PER_FRAME;
+        if (top + VISIBLE_ROWS > rows) top = 0;
+        return top;
+    }
+
+    /** MainController before the cells toolkit: Money.format and an inline style per cell */
+    @Benchmark
+    public void inlineStyles(Blackhole bh) {
+        int first = nextFrame();
+        for (int i = first; i < first + VISIBLE_ROWS; i++) {
+            bh.consume(Money.format(total[i]));
+            bh.consume(Money.format(paid[i]));
+            bh.consume(Money.format(pending[i]));
+            bh.consume(pending[i] > 0 ? "-fx-text-fill: red; -fx-font-weight: bold;" : "");
+            bh.consume(status[i]);
+            switch (status[i]) {
+                case "PAID":
+                    bh.consume("-fx-text-fill: green; -fx-font-weight: bold;");
+                    break;
+                case "PARTIALLY_PAID":
+                    bh.consume("-fx-text-fill: orange; -fx-font-weight: bold;");
+                    break;
+                case "PENDING":
+                    bh.consume("-fx-text-fill: red; -fx-font-weight: bold;");
+                    break;
+                default:
+                    bh.consume("");
+            }
+        }
+    }
+
+    /** PatientViewController before the cells toolkit: NumberFormat over BigDecimal per cell */
+    @Benchmark
+    public void numberFormat(Blackhole bh) {
+        int first = nextFrame();
+        for (int i = first; i < first + VISIBLE_ROWS; i++) {
+            bh.consume(currencyFormat.format(Money.toDecimal(total[i])));
+            bh.consume(currencyFormat.format(Money.toDecimal(paid[i])));
+            bh.consume(currencyFormat.format(Money.toDecimal(pending[i])));
+            bh.consume(pending[i] > 0 ? "-fx-text-fill: #d32f2f; -fx-font-weight: bold;" : "");
+        }
+    }
+
+    /** MoneyCell and StatusCell: cached text and a pseudo-class per cell */
+    @Benchmark
+    public void pseudoClasses(Blackhole bh) {
+        int first = nextFrame();
+        for (int i = first; i < first + VISIBLE_ROWS; i++) {
+            bh.consume(CurrencyText.of(total[i]));
+            bh.consume(CurrencyText.of(paid[i]));
+            bh.consume(CurrencyText.of(pending[i]));
+            bh.consume(pending[i] > 0);
+            bh.consume(status[i]);
+            bh.consume(CellStyles.paymentStatus(status[i]));
+        }
+    }
+}
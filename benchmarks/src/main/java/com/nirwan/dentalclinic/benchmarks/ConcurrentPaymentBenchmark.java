@@ -0,0 +1,256 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import com.nirwan.dentalclinic.concurrent.Retry;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.Payment;
+import com.nirwan.dentalclinic.models.Treatment;
+import com.nirwan.dentalclinic.repository.ConcurrentUpdateException;
+import com.nirwan.dentalclinic.repository.TreatmentDao;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Several terminals writing to the same few treatments at once, the case the deadlock retries
+ * and row versions exist for. recordPayment only records payments; mixedWrites also edits and
+ * deletes payments and changes costs, each thread working from its own (possibly stale) reads.
+ * Throughput is reported with the refused writes as extra counters, and Retry's counts are
+ * printed after every iteration. After the run, the benchmark fails unless:
+ * every treatment's amount_paid equals the sum of its live payments; no payment was deleted
+ * twice; no cost change was lost; and the payment rollup holds the same total as the payments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ConcurrentPaymentBenchmark {
+    private static final long AMOUNT = Money.parse("1");
+    private static final long COST_STEP = Money.parse("10");
+
+    /** Number of treatments every thread writes to */
+    @Param({"4"})
+    public int hotTreatments;
+
+    private TreatmentDao dao;
+    private int[] hot;
+    // Per hot treatment: its total at the start, and for each successful cost change the total
+    // it was based on mapped to the total it wrote
+    private long[] startTotals;
+    private List<Map<Long, Long>> costChanges;
+    private final AtomicLong costSequence = new AtomicLong();
+    private final LongAdder lostCostChanges = new LongAdder();
+    private final Set<Integer> deletedPayments = ConcurrentHashMap.newKeySet();
+    private final LongAdder deletedTwice = new LongAdder();
+    private long retriesBefore;
+    private long exhaustedBefore;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long failed;
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            failed = 0;
+        }
+    }
+
+    /** Writes per kind in mixedWrites, and those refused because another thread changed the row first */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Mix {
+        public long payments;
+        public long edits;
+        public long deletes;
+        public long costChanges;
+        public long treatmentUpdates;
+        public long conflicts;
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            payments = edits = deletes = costChanges = treatmentUpdates = conflicts = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.start();
+        dao = new TreatmentDao();
+        int[] treatments = BenchmarkDatabase.treatmentIds();
+        hot = new int[Math.min(hotTreatments, treatments.length)];
+        System.arraycopy(treatments, 0, hot, 0, hot.length);
+        startTotals = new long[hot.length];
+        for (int i = 0; i < hot.length; i++) {
+            startTotals[i] = dao.findById(hot[i]).orElseThrow().getTotalAmount();
+        }
+        costChanges = new ArrayList<>(hot.length);
+        for (int i = 0; i < hot.length; i++) {
+            costChanges.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void markRetries() {
+        retriesBefore = Retry.getRetryCount();
+        exhaustedBefore = Retry.getExhaustedCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printRetries() {
+        System.out.println("  retries: " + (Retry.getRetryCount() - retriesBefore)
+                + ", gave up: " + (Retry.getExhaustedCount() - exhaustedBefore));
+    }
+
+    @Benchmark
+    public boolean recordPayment(Outcome outcome) {
+        Treatment treatment = new Treatment();
+        treatment.setId(hot[outcome.random.nextInt(hot.length)]);
+        boolean recorded = dao.recordPayment(treatment, AMOUNT, "CASH", "Benchmark", LocalDateTime.now());
+        if (!recorded) outcome.failed++;
+        return recorded;
+    }
+
+    /**
+     * One write by one terminal: a payment, an edit or delete of one of the treatment's payments
+     * as last read, or a cost change through addTreatmentCost or updateTreatment. Every cost
+     * change writes a total no other write uses, so the successful ones must form one chain from
+     * the starting total: two that started from the same total mean one overwrote the other.
+     */
+    @Benchmark
+    public boolean mixedWrites(Mix mix) {
+        int slot = mix.random.nextInt(hot.length);
+        int treatmentPk = hot[slot];
+        int kind = mix.random.nextInt(10);
+        boolean written;
+        try {
+            if (kind < 3) {
+                Treatment treatment = new Treatment();
+                treatment.setId(treatmentPk);
+                written = dao.recordPayment(treatment, AMOUNT, "CASH", "Benchmark", LocalDateTime.now());
+                mix.payments++;
+            } else if (kind < 7) {
+                List<Payment> payments = dao.getPaymentsForTreatment(treatmentPk);
+                if (payments.isEmpty()) return false;
+                Payment payment = payments.get(mix.random.nextInt(payments.size()));
+                if (kind < 5) {
+                    Payment edited = new Payment(payment.getId(), payment.getTreatmentPk(), payment.getTreatmentId(),
+                            payment.getAmount() + AMOUNT, payment.getPaymentDate(), payment.getPaymentMethod(),
+                            payment.getTransactionReference(), "Edited", false, null, null, payment.getVersion());
+                    written = dao.editPayment(payment, edited);
+                    mix.edits++;
+                } else {
+                    written = dao.deletePayment(payment);
+                    if (written && !deletedPayments.add(payment.getId())) deletedTwice.increment();
+                    mix.deletes++;
+                }
+            } else {
+                Treatment treatment = dao.findById(treatmentPk).orElseThrow();
+                long read = treatment.getTotalAmount();
+                long total = startTotals[slot] + COST_STEP * costSequence.incrementAndGet();
+                if (kind < 9) {
+                    written = dao.addTreatmentCost(treatment, total, "Benchmark");
+                    mix.costChanges++;
+                } else {
+                    treatment.setTotalAmount(total);
+                    written = dao.updateTreatment(treatment);
+                    mix.treatmentUpdates++;
+                }
+                if (written && costChanges.get(slot).putIfAbsent(read, total) != null) lostCostChanges.increment();
+            }
+        } catch (ConcurrentUpdateException e) {
+            written = false;
+        }
+        if (!written) mix.conflicts++;
+        return written;
+    }
+
+    @TearDown
+    public void checkTotals() throws SQLException {
+        System.out.println("Retries: " + Retry.getRetryCount() + ", gave up: " + Retry.getExhaustedCount());
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            long wrong = count(stmt, "SELECT COUNT(*) FROM Treatment t WHERE t.amount_paid <> "
+                    + "(SELECT COALESCE(SUM(p.amount), 0) FROM Payment p "
+                    + "WHERE p.treatment_pk = t.id AND p.is_deleted = false)");
+            if (wrong > 0) {
+                throw new IllegalStateException(wrong + " treatments have amount_paid out of step with their payments");
+            }
+            if (deletedTwice.sum() > 0) {
+                throw new IllegalStateException(deletedTwice.sum() + " payments were deleted twice");
+            }
+            if (lostCostChanges.sum() > 0) {
+                throw new IllegalStateException(lostCostChanges.sum()
+                        + " cost changes succeeded from a total another change had already replaced");
+            }
+            for (int i = 0; i < hot.length; i++) {
+                // Follow the chain of changes from the starting total; it must use every change
+                Map<Long, Long> changes = costChanges.get(i);
+                long expected = startTotals[i];
+                int steps = 0;
+                for (Long next = changes.get(expected); next != null && steps < changes.size(); next = changes.get(expected)) {
+                    expected = next;
+                    steps++;
+                }
+                long actual = money(stmt, "SELECT total_amount FROM Treatment WHERE id = " + hot[i]);
+                if (actual != expected || steps != changes.size()) {
+                    throw new IllegalStateException("Treatment " + hot[i] + " has total " + Money.format(actual)
+                            + ", but its " + changes.size() + " cost changes lead to " + Money.format(expected)
+                            + " in " + steps + " steps");
+                }
+            }
+            long rolledUp = money(stmt, "SELECT COALESCE(SUM(total_amount), 0) FROM PaymentDailyRollup");
+            long paid = money(stmt, "SELECT COALESCE(SUM(amount), 0) FROM Payment WHERE is_deleted = false");
+            if (rolledUp != paid) {
+                throw new IllegalStateException("Payment rollup totals " + Money.format(rolledUp)
+                        + " but live payments " + Money.format(paid));
+            }
+        }
+    }
+
+    private static long count(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static long money(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return Money.read(rs, 1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.PatientListQuery;
+import com.nirwan.dentalclinic.models.PatientPage;
+import com.nirwan.dentalclinic.models.PaymentReportRow;
+import com.nirwan.dentalclinic.models.Treatment;
+import com.nirwan.dentalclinic.repository.PatientListDao;
+import com.nirwan.dentalclinic.repository.PaymentReportDao;
+import com.nirwan.dentalclinic.repository.TreatmentDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same front-desk operations on the embedded on-disk H2 database and on a MySQL server:
+ * the first patient list page, opening a patient (caches off, so every call reads the
+ * database), a month of the payments report and recording a payment. Without a MySQL server
+ * run with -p database=embedded. Each database needs its own fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseModeBenchmark {
+    private static final int PAGE_SIZE = 200;
+    private static final long AMOUNT = Money.parse("1");
+
+    @Param({"embedded", "mysql"})
+    public String database;
+
+    private PatientListDao listDao;
+    private TreatmentDao treatmentDao;
+    private PaymentReportDao reportDao;
+    private int[] patients;
+    private int[] treatments;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom(11);
+    }
+
+    @Setup
+    public void setUp() {
+        System.setProperty("cache.treatment-max-patients", "0");
+        System.setProperty("cache.patient-max-size", "0");
+        BenchmarkDatabase.start(database);
+        listDao = new PatientListDao();
+        treatmentDao = new TreatmentDao();
+        reportDao = new PaymentReportDao();
+        patients = BenchmarkDatabase.patientIds();
+        treatments = BenchmarkDatabase.treatmentIds();
+        to = LocalDate.now().plusDays(1).atStartOfDay();
+        from = to.minusDays(30);
+    }
+
+    @Benchmark
+    public PatientPage firstPage() throws SQLException {
+        return listDao.findPage(PatientListQuery.DEFAULT, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Treatment> openPatient(Picker picker) {
+        return treatmentDao.findByPatientId(patients[picker.random.nextInt(patients.length)]);
+    }
+
+    @Benchmark
+    public List<PaymentReportRow> monthReport() throws SQLException {
+        return reportDao.findPayments(from, to, "All", "");
+    }
+
+    @Benchmark
+    public boolean recordPayment(Picker picker) {
+        Treatment treatment = new Treatment();
+        treatment.setId(treatments[picker.random.nextInt(treatments.length)]);
+        return treatmentDao.recordPayment(treatment, AMOUNT, "CASH", "Benchmark", LocalDateTime.now());
+    }
+}
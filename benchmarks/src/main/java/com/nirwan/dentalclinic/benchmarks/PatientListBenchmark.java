@@ -0,0 +1,86 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import com.nirwan.dentalclinic.models.PatientListQuery;
+import com.nirwan.dentalclinic.models.PatientPage;
+import com.nirwan.dentalclinic.models.PatientTreatmentDto;
+import com.nirwan.dentalclinic.repository.PatientListDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The main patient list (MainController.loadPatientData through PatientListPager): the first
+ * page in each sort order, a page deep into the list, a filtered page, and the full unpaged
+ * list that findPatientTreatments still returns for exports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientListBenchmark {
+    /** Same as PatientListPager.PAGE_SIZE */
+    private static final int PAGE_SIZE = 200;
+
+    private PatientListDao dao;
+    private final PatientListQuery byPending = PatientListQuery.DEFAULT
+            .withSort(PatientListQuery.SortKey.AMOUNT_PENDING, false);
+    private final PatientListQuery byDate = PatientListQuery.DEFAULT
+            .withSort(PatientListQuery.SortKey.TREATMENT_DATE, false);
+    private final PatientListQuery filtered = PatientListQuery.DEFAULT.withFilter("sharma");
+    private PatientPage middle;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.start();
+        dao = new PatientListDao();
+        PatientPage page = dao.findPage(PatientListQuery.DEFAULT, null, PAGE_SIZE);
+        int pages = BenchmarkDatabase.patientIds().length / PAGE_SIZE / 2;
+        for (int i = 1; i < pages && !page.isLast(); i++) {
+            page = dao.findPage(PatientListQuery.DEFAULT, page, PAGE_SIZE);
+        }
+        middle = page;
+    }
+
+    @Benchmark
+    public PatientPage firstPageByName() throws SQLException {
+        return dao.findPage(PatientListQuery.DEFAULT, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public PatientPage firstPageByPending() throws SQLException {
+        return dao.findPage(byPending, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public PatientPage firstPageByDate() throws SQLException {
+        return dao.findPage(byDate, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public PatientPage middlePageByName() throws SQLException {
+        return dao.findPage(PatientListQuery.DEFAULT, middle, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public PatientPage filteredPage() throws SQLException {
+        return dao.findPage(filtered, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PatientTreatmentDto> fullList() throws SQLException {
+        return dao.findPatientTreatments();
+    }
+}
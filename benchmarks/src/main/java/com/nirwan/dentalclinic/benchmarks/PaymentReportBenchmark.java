@@ -0,0 +1,77 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import com.nirwan.dentalclinic.concurrent.QueryCancellation;
+import com.nirwan.dentalclinic.models.PaymentReportRow;
+import com.nirwan.dentalclinic.models.PaymentTotals;
+import com.nirwan.dentalclinic.repository.PaymentReportDao;
+import com.nirwan.dentalclinic.repository.PaymentRollupDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The payments report (PaymentsReportController): the row query over the last {@code days} days,
+ * unfiltered and filtered by method and treatment, the streaming path the CSV export uses, and
+ * the totals read from PaymentDailyRollup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentReportBenchmark {
+
+    @Param({"30", "365"})
+    public int days;
+
+    private PaymentReportDao reportDao;
+    private PaymentRollupDao rollupDao;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.start();
+        reportDao = new PaymentReportDao();
+        rollupDao = new PaymentRollupDao();
+        to = LocalDate.now().plusDays(1).atStartOfDay();
+        from = to.minusDays(days);
+    }
+
+    @Benchmark
+    public List<PaymentReportRow> rows() throws SQLException {
+        return reportDao.findPayments(from, to, "All", "");
+    }
+
+    @Benchmark
+    public List<PaymentReportRow> filteredRows() throws SQLException {
+        return reportDao.findPayments(from, to, "UPI", "root canal");
+    }
+
+    @Benchmark
+    public long streamRows(Blackhole blackhole) throws SQLException {
+        return reportDao.streamPayments(from, to, "All", "", new QueryCancellation(),
+                (dateTime, patient, treatment, amount, method) -> blackhole.consume(amount));
+    }
+
+    @Benchmark
+    public PaymentTotals totals() throws SQLException {
+        return rollupDao.findTotals(from.toLocalDate(), to.toLocalDate().minusDays(1), "All", "");
+    }
+}
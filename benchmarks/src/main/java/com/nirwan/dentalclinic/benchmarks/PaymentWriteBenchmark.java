@@ -0,0 +1,98 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.Payment;
+import com.nirwan.dentalclinic.models.Treatment;
+import com.nirwan.dentalclinic.repository.BatchItemResult;
+import com.nirwan.dentalclinic.repository.TreatmentDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording payments. recordPayment is measured as a latency distribution (p50, p99 in the JSON
+ * results); it takes the record_payment procedure path when payments.use-procedure is true, which
+ * needs -Dbench.database=mysql, and the statement path otherwise. The batch benchmarks compare
+ * recordPayments with the same {@value #BATCH} payments recorded one call at a time; scores are
+ * per payment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentWriteBenchmark {
+    static final int BATCH = 50;
+    private static final long AMOUNT = Money.parse("1");
+
+    private TreatmentDao dao;
+    private final SplittableRandom random = new SplittableRandom(7);
+    private int[] treatments;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.start();
+        dao = new TreatmentDao();
+        treatments = BenchmarkDatabase.treatmentIds();
+    }
+
+    private int pickTreatment() {
+        return treatments[random.nextInt(treatments.length)];
+    }
+
+    private String pickMethod() {
+        return BenchmarkDatabase.METHODS[random.nextInt(BenchmarkDatabase.METHODS.length)];
+    }
+
+    @Benchmark
+    public boolean recordPayment() {
+        Treatment treatment = new Treatment();
+        treatment.setId(pickTreatment());
+        return dao.recordPayment(treatment, AMOUNT, pickMethod(), "Benchmark", LocalDateTime.now());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OperationsPerInvocation(BATCH)
+    public List<BatchItemResult> recordPaymentsBatch() {
+        List<Payment> payments = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            Payment payment = new Payment();
+            payment.setTreatmentPk(pickTreatment());
+            payment.setAmount(AMOUNT);
+            payment.setPaymentMethod(pickMethod());
+            payment.setNotes("Benchmark");
+            payments.add(payment);
+        }
+        return dao.recordPayments(payments);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OperationsPerInvocation(BATCH)
+    public int recordPaymentsOneByOne() {
+        int recorded = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < BATCH; i++) {
+            Treatment treatment = new Treatment();
+            treatment.setId(pickTreatment());
+            if (dao.recordPayment(treatment, AMOUNT, pickMethod(), "Benchmark", now)) recorded++;
+        }
+        return recorded;
+    }
+}
@@ -0,0 +1,58 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.PatientListQuery;
+import com.nirwan.dentalclinic.models.PatientPage;
+import com.nirwan.dentalclinic.repository.PatientListDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from nothing open to the first patient list page, as at application start: opening the
+ * pool (and, for the embedded database, the file), checking the schema version and reading the
+ * page. The pool is closed after every call, which also closes the embedded database. The first
+ * measured call of each fork includes class loading, as a real start does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 10)
+@Fork(3)
+public class StartupBenchmark {
+
+    @Param({"embedded", "mysql"})
+    public String database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Migrate and seed once, so that the measured calls find the schema current
+        BenchmarkDatabase.start(database);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    public PatientPage startUp() throws SQLException {
+        DatabaseConnection.initializeDatabase();
+        return new PatientListDao().findPage(PatientListQuery.DEFAULT, null, 200);
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() {
+        DatabaseConnection.getInstance().closeConnection();
+    }
+}
@@ -0,0 +1,80 @@
+package com.nirwan.dentalclinic.benchmarks;
+
+import com.nirwan.dentalclinic.models.Patient;
+import com.nirwan.dentalclinic.models.Treatment;
+import com.nirwan.dentalclinic.repository.PatientDao;
+import com.nirwan.dentalclinic.repository.TreatmentDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening a patient: TreatmentDao.findByPatientId (treatments with payments and cost history)
+ * and PatientDao.findById, with the read-through caches on and off. Patients are picked at
+ * random from a working set of {@code workingSet} patients, so with the cache on the score is
+ * the mix of hits and misses a clinic day produces rather than all hits.
+ *
+ * The caches are static and sized when first used, so each cache setting needs its own fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreatmentReadBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    @Param({"100"})
+    public int workingSet;
+
+    private TreatmentDao treatmentDao;
+    private PatientDao patientDao;
+    private int[] patients;
+
+    @State(Scope.Thread)
+    public static class Picker {
+        final SplittableRandom random = new SplittableRandom(42);
+    }
+
+    @Setup
+    public void setUp() {
+        if (!cache) {
+            System.setProperty("cache.treatment-max-patients", "0");
+            System.setProperty("cache.patient-max-size", "0");
+        }
+        BenchmarkDatabase.start();
+        int[] all = BenchmarkDatabase.patientIds();
+        patients = new int[Math.min(workingSet, all.length)];
+        for (int i = 0; i < patients.length; i++) {
+            patients[i] = all[(int) ((long) i * all.length / patients.length)];
+        }
+        treatmentDao = new TreatmentDao();
+        patientDao = new PatientDao();
+    }
+
+    @Benchmark
+    public List<Treatment> findByPatientId(Picker picker) {
+        return treatmentDao.findByPatientId(patients[picker.random.nextInt(patients.length)]);
+    }
+
+    @Benchmark
+    public Optional<Patient> findPatientById(Picker picker) {
+        return patientDao.findById((long) patients[picker.random.nextInt(patients.length)]);
+    }
+}
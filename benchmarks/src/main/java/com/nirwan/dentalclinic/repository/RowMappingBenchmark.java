@@ -0,0 +1,96 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.benchmarks.BenchmarkDatabase;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Payment;
+import com.nirwan.dentalclinic.models.Treatment;
+import com.nirwan.dentalclinic.models.TreatmentCost;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning rows into models, apart from the query: TreatmentDao's mappers over
+ * {@value #ROWS} rows held in memory, selected with the DAO's own column lists. Column positions
+ * are resolved once per pass, as the DAO does once per result set. Lives in the repository
+ * package because the mappers are package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+    static final int ROWS = 1000;
+
+    private TreatmentDao dao;
+    private CachedRowSet treatments;
+    private CachedRowSet payments;
+    private CachedRowSet costs;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.start();
+        dao = new TreatmentDao();
+        treatments = load("SELECT " + TreatmentDao.TREATMENT_COLUMNS + " FROM Treatment ORDER BY id LIMIT " + ROWS);
+        payments = load("SELECT " + TreatmentDao.PAYMENT_COLUMNS + " FROM Payment ORDER BY id LIMIT " + ROWS);
+        costs = load("SELECT " + TreatmentDao.COST_COLUMNS + " FROM TreatmentCost ORDER BY id LIMIT " + ROWS);
+    }
+
+    private static CachedRowSet load(String sql) throws SQLException {
+        CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            rows.populate(rs);
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public void mapTreatments(Blackhole bh) throws SQLException {
+        treatments.beforeFirst();
+        TreatmentDao.TreatmentColumns columns = new TreatmentDao.TreatmentColumns(treatments);
+        while (treatments.next()) {
+            Treatment treatment = dao.mapResultSetToTreatment(treatments, columns);
+            bh.consume(treatment);
+        }
+    }
+
+    @Benchmark
+    public void mapPayments(Blackhole bh) throws SQLException {
+        payments.beforeFirst();
+        TreatmentDao.PaymentColumns columns = new TreatmentDao.PaymentColumns(payments);
+        while (payments.next()) {
+            Payment payment = dao.mapResultSetToPayment(payments, columns);
+            bh.consume(payment);
+        }
+    }
+
+    @Benchmark
+    public void mapCosts(Blackhole bh) throws SQLException {
+        costs.beforeFirst();
+        TreatmentDao.CostColumns columns = new TreatmentDao.CostColumns(costs);
+        while (costs.next()) {
+            TreatmentCost cost = dao.mapResultSetToTreatmentCost(costs, columns);
+            bh.consume(cost);
+        }
+    }
+}
@@ -1,68 +1,126 @@
 package com.nirwan.dentalclinic;
 
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.FxExecutor;
+import com.nirwan.dentalclinic.concurrent.Retry;
+import com.nirwan.dentalclinic.controllers.LoadedView;
+import com.nirwan.dentalclinic.controllers.MainController;
+import com.nirwan.dentalclinic.controllers.UiResources;
+import com.nirwan.dentalclinic.controllers.ViewManager;
 import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.repository.PatientDao;
+import com.nirwan.dentalclinic.repository.TreatmentCodeGenerator;
+import com.nirwan.dentalclinic.repository.TreatmentDao;
+import com.nirwan.dentalclinic.search.PatientSearchService;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.scene.control.Alert;
-import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The JavaFX application. A splash screen is shown as soon as the toolkit is up; the main view
+ * is loaded on a background thread while the database initializes (see {@link Startup}), and the
+ * main window replaces the splash screen once both are ready.
+ */
 public class JavaFXApplication extends Application {
     @Override
     public void start(Stage stage) {
+        Startup.mark("JavaFX started");
+        SplashScreen splash = new SplashScreen();
+        splash.setStatus("Connecting to the database...");
+        splash.show(() -> Startup.mark("first frame"));
+
+        CompletableFuture<Void> database = Startup.database();
+        // Nodes may be built off the JavaFX thread until they are shown
+        CompletableFuture<LoadedView<MainController>> mainView =
+                CompletableFuture.supplyAsync(this::loadMainView, Startup.BACKGROUND);
+
+        database.thenRunAsync(() -> splash.setStatus("Loading patients..."), FxExecutor.INSTANCE);
+        database.thenCombine(mainView, (ready, view) -> view)
+                .whenCompleteAsync((view, error) -> {
+                    if (error == null) {
+                        try {
+                            showMainWindow(stage, view);
+                        } catch (Exception e) {
+                            error = e;
+                        }
+                    }
+                    splash.close();
+                    if (error != null) {
+                        showStartupError(DbExecutor.unwrap(error));
+                    }
+                }, FxExecutor.INSTANCE);
+    }
+
+    private LoadedView<MainController> loadMainView() {
+        System.out.println("Loading FXML...");
+        LoadedView<MainController> view;
         try {
-            System.out.println("Loading FXML...");
-            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/views/main-view.fxml"));
-            Parent root = fxmlLoader.load();
-            
-            // Get the controller and set the primary stage and main view root
-            com.nirwan.dentalclinic.controllers.MainController controller = fxmlLoader.getController();
-            controller.setPrimaryStage(stage);
-            controller.setMainViewRoot(root);
-            
-            System.out.println("FXML loaded and controller initialized successfully");
+            view = LoadedView.load("/views/main-view.fxml");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Read the stylesheet and icon here too, rather than on the JavaFX thread
+        UiResources.mainStylesheet();
+        UiResources.icon();
+        System.out.println("FXML loaded and controller initialized successfully");
+        return view;
+    }
+
+    private void showMainWindow(Stage stage, LoadedView<MainController> mainView) {
+        ViewManager views = new ViewManager(stage, mainView);
+        views.showMain();
+        stage.show();
+        Startup.mark("main window shown");
 
-            // Create scene
-            Scene scene = new Scene(root, 900, 600);
-            
-            // Apply CSS styles
-            String css = getClass().getResource("/styles/main.css").toExternalForm();
-            if (css != null) {
-                scene.getStylesheets().add(css);
-                System.out.println("CSS styles applied successfully");
-            } else {
-                System.err.println("Warning: Could not load CSS file");
+        // Interactive once the first page of patients is in the table; the patient view is
+        // loaded after that, so that it does not compete with the first page
+        MainController controller = mainView.getController();
+        controller.patientListLoadingProperty().addListener(new ChangeListener<>() {
+            @Override
+            public void changed(ObservableValue<? extends Boolean> obs, Boolean wasLoading, Boolean loading) {
+                if (!loading) {
+                    obs.removeListener(this);
+                    Startup.mark("interactive");
+                    views.preload();
+                }
             }
-            
-            stage.setTitle("Nirwan Dental Clinic - Account Management");
-            stage.getIcons().add(
-                    new Image(getClass().getResourceAsStream("/icons/icon.png"))
-            );
-            stage.setScene(scene);
-            stage.show();
-            System.out.println("Stage shown successfully");
+        });
+        controller.startLoading();
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error in JavaFX Application start method:");
-            e.printStackTrace();
+    private void showStartupError(Throwable e) {
+        System.err.println("Error in JavaFX Application start method:");
+        e.printStackTrace();
 
-            // Show error dialog
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("Application Error");
-            alert.setHeaderText("Failed to start application");
-            alert.setContentText("An error occurred while starting the application:\n" + e.getMessage());
-            alert.showAndWait();
+        // Show error dialog
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Application Error");
+        alert.setHeaderText("Failed to start application");
+        alert.setContentText("An error occurred while starting the application:\n" + e.getMessage());
+        alert.showAndWait();
 
-            // Exit the application
-            System.exit(1);
-        }
+        // Exit the application
+        System.exit(1);
     }
+
     @Override
     public void stop() throws Exception {
         super.stop();
-        DatabaseConnection.getInstance().closeConnection();
+        PatientSearchService.shutdown();
+        System.out.println(PatientDao.getCache().report());
+        System.out.println(TreatmentDao.getCache().report());
+        System.out.println("Write retries: " + Retry.getRetryCount() + " (gave up " + Retry.getExhaustedCount() + ")");
+        DbExecutor.shutdown();
+        TreatmentCodeGenerator.releaseNode();
+        if (DatabaseConnection.getInstance() != null) {
+            DatabaseConnection.getInstance().closeConnection();
+        }
         System.exit(0);
     }
 }
@@ -1,6 +1,13 @@
 package com.nirwan.dentalclinic;
 
+import com.nirwan.dentalclinic.concurrent.QueryCancellation;
 import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.export.LedgerExporter;
+import com.nirwan.dentalclinic.importer.LedgerImporter;
+import com.nirwan.dentalclinic.repository.LedgerExportDao;
+import com.nirwan.dentalclinic.repository.PatientSummaryDao;
+import com.nirwan.dentalclinic.repository.PaymentRollupDao;
+import com.nirwan.dentalclinic.repository.TreatmentCodeGenerator;
 import javafx.application.Application;
 
 import javafx.fxml.FXMLLoader;
@@ -8,19 +15,64 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 
 
 
 public class Main {
+    /** Recomputes the PatientSummary table from existing data and exits without starting the UI */
+    private static final String REBUILD_SUMMARIES_FLAG = "--rebuild-summaries";
+    /** Recomputes the PaymentDailyRollup table from existing payments and exits without starting the UI */
+    private static final String REBUILD_PAYMENT_ROLLUP_FLAG = "--rebuild-payment-rollup";
+    /**
+     * Exports a ledger table and exits without starting the UI:
+     * {@code --export <table> <file> [--from yyyy-mm-dd] [--to yyyy-mm-dd] [--include-deleted]}.
+     * The file extension picks the format: .csv, .jsonl, .csv.gz or .jsonl.gz
+     */
+    private static final String EXPORT_FLAG = "--export";
+    /**
+     * Imports a legacy ledger sheet and exits without starting the UI:
+     * {@code --import <file.csv|file.xlsx> [--sheet <name>] [--match-only] [--restart]}.
+     * An interrupted import resumes when the same command is run again
+     */
+    private static final String IMPORT_FLAG = "--import";
+
+    /** Flags that run a command instead of the UI */
+    private static final List<String> COMMAND_FLAGS =
+            List.of(REBUILD_SUMMARIES_FLAG, REBUILD_PAYMENT_ROLLUP_FLAG, EXPORT_FLAG, IMPORT_FLAG);
+
     public static void main(String[] args) {
         try {
-            // Initialize the database first
+            List<String> arguments = Arrays.asList(args);
+            if (COMMAND_FLAGS.stream().noneMatch(arguments::contains)) {
+                // The UI: the database initializes in the background while JavaFX starts
+                Startup.mark("main");
+                Startup.database();
+                System.out.println("Initializing database and starting JavaFX application...");
+                Application.launch(JavaFXApplication.class, args);
+                return;
+            }
+
+            // Commands need the database before anything else
             System.out.println("Initializing database...");
             DatabaseConnection.initializeDatabase();
-            System.out.println("Database initialized successfully. Starting JavaFX application...");
+            if (DatabaseConnection.getInstance() == null) {
+                throw new IllegalStateException("Could not connect to the database");
+            }
 
-            // If we get here, database is initialized, so start the JavaFX application
-            Application.launch(JavaFXApplication.class, args);
+            if (arguments.contains(REBUILD_SUMMARIES_FLAG)) {
+                rebuildSummaries();
+            } else if (arguments.contains(REBUILD_PAYMENT_ROLLUP_FLAG)) {
+                rebuildPaymentRollup();
+            } else if (arguments.contains(EXPORT_FLAG)) {
+                exportLedger(args);
+            } else {
+                importLedger(args);
+            }
         } catch (Exception e) {
             System.err.println("Failed to initialize the application:");
             e.printStackTrace();
@@ -39,4 +91,75 @@ public class Main {
             System.exit(1); // Exit with error code
         }
     }
+
+    private static void rebuildSummaries() throws SQLException {
+        System.out.println("Rebuilding patient summaries...");
+        long start = System.nanoTime();
+        int rows = new PatientSummaryDao().rebuild();
+        System.out.printf("Rebuilt %d patient summaries in %d ms%n", rows, (System.nanoTime() - start) / 1_000_000);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void exportLedger(String[] args) throws SQLException, IOException {
+        int at = Arrays.asList(args).indexOf(EXPORT_FLAG);
+        if (at + 2 >= args.length) {
+            throw new IllegalArgumentException("Usage: --export <table> <file> [--from yyyy-mm-dd] [--to yyyy-mm-dd] [--include-deleted]");
+        }
+        LedgerExportDao.Table table = LedgerExportDao.Table.fromName(args[at + 1]);
+        Path file = Path.of(args[at + 2]);
+        LocalDate from = null;
+        LocalDate to = null;
+        boolean includeDeleted = false;
+        for (int i = at + 3; i < args.length; i++) {
+            switch (args[i]) {
+                case "--from" -> from = LocalDate.parse(args[++i]);
+                case "--to" -> to = LocalDate.parse(args[++i]);
+                case "--include-deleted" -> includeDeleted = true;
+                default -> { }
+            }
+        }
+
+        System.out.println("Exporting " + table.getTableName() + " to " + file + "...");
+        LedgerExporter.Result result = new LedgerExporter().export(table, from, to, includeDeleted, file,
+                new QueryCancellation(), rows -> System.out.println("  " + rows + " rows"));
+        System.out.println("Exported " + result);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void importLedger(String[] args) throws SQLException, IOException {
+        int at = Arrays.asList(args).indexOf(IMPORT_FLAG);
+        if (at + 1 >= args.length) {
+            throw new IllegalArgumentException("Usage: --import <file.csv|file.xlsx> [--sheet <name>] [--match-only] [--restart]");
+        }
+        Path file = Path.of(args[at + 1]);
+        String sheet = null;
+        boolean matchOnly = false;
+        boolean restart = false;
+        for (int i = at + 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sheet" -> sheet = args[++i];
+                case "--match-only" -> matchOnly = true;
+                case "--restart" -> restart = true;
+                default -> { }
+            }
+        }
+
+        System.out.println("Importing " + file + "...");
+        LedgerImporter.Result result = new LedgerImporter().importFile(file, sheet, matchOnly, restart,
+                rows -> System.out.println("  " + rows + " rows"));
+        System.out.println("Imported " + result);
+        if (result.getRejectedFile() != null) {
+            System.out.println("Rejected rows: " + result.getRejectedFile());
+        }
+        TreatmentCodeGenerator.releaseNode();
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void rebuildPaymentRollup() throws SQLException {
+        System.out.println("Rebuilding payment rollup...");
+        long start = System.nanoTime();
+        int rows = new PaymentRollupDao().rebuild();
+        System.out.printf("Rebuilt %d payment rollup rows in %d ms%n", rows, (System.nanoTime() - start) / 1_000_000);
+        DatabaseConnection.getInstance().closeConnection();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.nirwan.dentalclinic;
+
+import com.nirwan.dentalclinic.controllers.UiResources;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+
+/**
+ * The window shown while the application starts: the clinic's name and what startup is
+ * waiting for. It is built from plain controls and no stylesheet, so it draws quickly.
+ */
+final class SplashScreen {
+    private final Stage stage = new Stage(StageStyle.UNDECORATED);
+    private final Label status = new Label();
+
+    SplashScreen() {
+        Label title = new Label("Nirwan Dental Clinic");
+        title.setStyle("-fx-font-size: 20px; -fx-font-weight: bold;");
+        ProgressBar progress = new ProgressBar(ProgressBar.INDETERMINATE_PROGRESS);
+        progress.setPrefWidth(280);
+
+        VBox root = new VBox(14, title, progress, status);
+        root.setAlignment(Pos.CENTER);
+        root.setPadding(new Insets(24));
+        root.setStyle("-fx-background-color: white; -fx-border-color: #c8c8c8;");
+
+        stage.setScene(new Scene(root, 360, 170));
+        stage.setTitle("Nirwan Dental Clinic");
+        UiResources.applyIcon(stage);
+    }
+
+    /**
+     * Shows the splash screen and runs the given action once its first frame has been laid out
+     */
+    void show(Runnable onFirstFrame) {
+        Scene scene = stage.getScene();
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                onFirstFrame.run();
+            }
+        });
+        stage.centerOnScreen();
+        stage.show();
+    }
+
+    void setStatus(String text) {
+        status.setText(text);
+    }
+
+    void close() {
+        stage.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.nirwan.dentalclinic;
+
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.repository.PatientDao;
+import com.nirwan.dentalclinic.repository.TreatmentDao;
+import com.nirwan.dentalclinic.search.PatientSearchService;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Application startup. The database comes up on its own thread (pool, schema version check,
+ * DAO settings, search index build) while the JavaFX toolkit starts and the main view loads.
+ * Milestones are logged in milliseconds since JVM start, among them the first frame (the splash
+ * screen) and the time to interactive (the first page of patients shown).
+ */
+final class Startup {
+    private static CompletableFuture<Void> database;
+
+    private Startup() {
+    }
+
+    /** Runs startup work on a thread of its own, so it never waits behind other work */
+    static final Executor BACKGROUND = work -> {
+        Thread t = new Thread(work, "startup");
+        t.setDaemon(true);
+        t.start();
+    };
+
+    /**
+     * Starts initializing the database in the background; later calls return the same future.
+     * The future fails if the database could not be reached or migrated.
+     */
+    static synchronized CompletableFuture<Void> database() {
+        if (database == null) {
+            database = CompletableFuture.runAsync(Startup::initializeDatabase, BACKGROUND);
+        }
+        return database;
+    }
+
+    private static void initializeDatabase() {
+        DatabaseConnection.initializeDatabase();
+        if (DatabaseConnection.getInstance() == null) {
+            throw new IllegalStateException("Could not connect to the database; check the connection settings");
+        }
+        mark("database ready");
+
+        // Read the DAO settings here rather than on the JavaFX thread, and start the search index
+        // build now so that it overlaps loading the main view
+        new PatientDao();
+        new TreatmentDao();
+        PatientSearchService.getInstance();
+    }
+
+    /**
+     * Logs a startup milestone
+     */
+    static void mark(String milestone) {
+        System.out.println("Startup: " + milestone + " at " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms");
+    }
+}
@@ -0,0 +1,149 @@
+package com.nirwan.dentalclinic.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Small bounded read-through cache that evicts the least recently used entry, with hit, miss and
+ * eviction counters. A maximum size of 0 turns caching off (every lookup loads), which keeps the
+ * call sites identical when comparing cached and uncached behaviour. Entries can also expire a
+ * fixed time after they were loaded, so that changes made from another terminal show up.
+ * Thread-safe; loads run outside the lock.
+ */
+public class LruCache<K, V> {
+    private final String name;
+    private final int maxSize;
+    private final UnaryOperator<V> copier;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Slot<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    // Bumped by every invalidation; a load that raced with one is not cached
+    private long generation;
+
+    private static final class Slot<V> {
+        final V value;
+        final long loadedAtNanos;
+
+        Slot(V value, long loadedAtNanos) {
+            this.value = value;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+
+    /**
+     * @param copier copies values on the way in and out so callers cannot modify cached objects,
+     *               or {@link UnaryOperator#identity()} for immutable values
+     */
+    public LruCache(String name, int maxSize, UnaryOperator<V> copier) {
+        this(name, maxSize, 0, copier);
+    }
+
+    /**
+     * @param ttlSeconds seconds after loading that an entry is reloaded; 0 keeps entries until evicted
+     */
+    public LruCache(String name, int maxSize, long ttlSeconds, UnaryOperator<V> copier) {
+        this.name = name;
+        this.maxSize = Math.max(0, maxSize);
+        this.copier = copier;
+        this.ttlNanos = ttlSeconds > 0 ? ttlSeconds * 1_000_000_000L : Long.MAX_VALUE;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Slot<V>> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, or loads it and caches the result.
+     * @param loader returns null when there is no value; null results are not cached
+     */
+    public V get(K key, Function<K, V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Slot<V> cached = entries.get(key);
+            if (cached != null) {
+                if (System.nanoTime() - cached.loadedAtNanos <= ttlNanos) {
+                    hits.increment();
+                    return copier.apply(cached.value);
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        long loadedAt = System.nanoTime();
+        V loaded = loader.apply(key);
+        if (loaded != null && maxSize > 0) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    entries.put(key, new Slot<>(copier.apply(loaded), loadedAt));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Write-through update of a cached value; does nothing if the key is not cached. The entry
+     * keeps its load time, so it still expires on schedule.
+     * @param update returns the new value, or null to drop the entry
+     */
+    public synchronized void update(K key, UnaryOperator<V> update) {
+        generation++;
+        Slot<V> current = entries.get(key);
+        if (current == null) return;
+        V updated = update.apply(current.value);
+        if (updated == null) {
+            entries.remove(key);
+        } else {
+            entries.put(key, new Slot<>(copier.apply(updated), current.loadedAtNanos));
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() { return maxSize; }
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+    public long getExpirationCount() { return expirations.sum(); }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : h / (double) total;
+    }
+
+    /**
+     * One-line summary for logs, e.g. on shutdown
+     */
+    public String report() {
+        return String.format("Cache %s: size=%d max=%d | hits=%d misses=%d evictions=%d expirations=%d hitRate=%.1f%%",
+                name, size(), maxSize, getHitCount(), getMissCount(), getEvictionCount(), getExpirationCount(),
+                getHitRate() * 100);
+    }
+}
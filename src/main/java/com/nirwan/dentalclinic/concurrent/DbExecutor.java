@@ -0,0 +1,136 @@
+package com.nirwan.dentalclinic.concurrent;
+
+import com.nirwan.dentalclinic.database.DatabaseConfig;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for JDBC work, so that database calls never run on the JavaFX thread.
+ * Thread count and queue capacity come from pool.async-threads / pool.async-queue-capacity.
+ */
+public final class DbExecutor {
+    private static volatile ThreadPoolExecutor executor;
+
+    private DbExecutor() {
+    }
+
+    /**
+     * Work that talks to the database and may throw checked exceptions
+     */
+    @FunctionalInterface
+    public interface SqlSupplier<T> {
+        T get() throws Exception;
+    }
+
+    private static ThreadPoolExecutor executor() {
+        ThreadPoolExecutor result = executor;
+        if (result == null) {
+            synchronized (DbExecutor.class) {
+                result = executor;
+                if (result == null) {
+                    executor = result = createExecutor();
+                }
+            }
+        }
+        return result;
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        DatabaseConfig config = db != null ? db.getConfig() : null;
+        int threads = config != null ? config.getInt("pool.async-threads", 4) : 4;
+        int capacity = config != null ? config.getInt("pool.async-queue-capacity", 200) : 200;
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity), r -> {
+                    Thread t = new Thread(r, "db-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Runs the given work on a database worker thread.
+     * Cancelling the returned future interrupts the worker if the work has already started.
+     */
+    public static <T> CompletableFuture<T> supply(SqlSupplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            Future<?> task = executor().submit(() -> {
+                if (future.isDone()) return;
+                try {
+                    future.complete(work.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+                }
+            });
+            future.whenComplete((r, e) -> {
+                if (future.isCancelled()) task.cancel(true);
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Like {@link #supply}, but cancelling the returned future also cancels the query the work has
+     * registered with the given {@link QueryCancellation}, stopping it on the server
+     */
+    public static <T> CompletableFuture<T> supplyCancellable(CancellableSqlSupplier<T> work) {
+        QueryCancellation cancellation = new QueryCancellation();
+        CompletableFuture<T> future = supply(() -> work.get(cancellation));
+        future.whenComplete((r, e) -> {
+            if (future.isCancelled()) cancellation.cancel();
+        });
+        return future;
+    }
+
+    @FunctionalInterface
+    public interface CancellableSqlSupplier<T> {
+        T get(QueryCancellation cancellation) throws Exception;
+    }
+
+    /**
+     * Runs work without a result on a database worker thread
+     */
+    public static CompletableFuture<Void> run(SqlRunnable work) {
+        return supply(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    public interface SqlRunnable {
+        void run() throws Exception;
+    }
+
+    /**
+     * Returns the underlying cause of a failed future, skipping CompletionException wrappers
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    public static void shutdown() {
+        ThreadPoolExecutor pool = executor;
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
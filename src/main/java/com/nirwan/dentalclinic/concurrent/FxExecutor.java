@@ -0,0 +1,25 @@
+package com.nirwan.dentalclinic.concurrent;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executor that runs tasks on the JavaFX application thread; use it to marshal
+ * the results of {@link DbExecutor} work back to the UI.
+ */
+public final class FxExecutor implements Executor {
+    public static final FxExecutor INSTANCE = new FxExecutor();
+
+    private FxExecutor() {
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (Platform.isFxApplicationThread()) {
+            command.run();
+        } else {
+            Platform.runLater(command);
+        }
+    }
+}
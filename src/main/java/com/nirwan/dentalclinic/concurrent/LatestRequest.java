@@ -0,0 +1,61 @@
+package com.nirwan.dentalclinic.concurrent;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the most recent asynchronous request for a piece of UI (a table load, a report query).
+ * Submitting a new request cancels the previous one, and results of superseded requests are
+ * dropped instead of being applied to the UI. Must be used from the JavaFX thread.
+ */
+public class LatestRequest<T> {
+    private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper(false);
+    private CompletableFuture<T> current;
+
+    /**
+     * Starts tracking the given request; the callbacks run on the JavaFX thread
+     * only if the request is still the latest one when it completes
+     */
+    public void submit(CompletableFuture<T> request, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        cancel();
+        current = request;
+        loading.set(true);
+        request.whenCompleteAsync((result, error) -> {
+            if (request != current) return; // superseded
+            current = null;
+            loading.set(false);
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                Throwable cause = DbExecutor.unwrap(error);
+                if (!(cause instanceof CancellationException)) {
+                    onError.accept(cause);
+                }
+            }
+        }, FxExecutor.INSTANCE);
+    }
+
+    /**
+     * Cancels the in-flight request, if any
+     */
+    public void cancel() {
+        CompletableFuture<T> previous = current;
+        current = null;
+        loading.set(false);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+    }
+
+    public boolean isLoading() {
+        return loading.get();
+    }
+
+    public ReadOnlyBooleanProperty loadingProperty() {
+        return loading.getReadOnlyProperty();
+    }
+}
@@ -0,0 +1,46 @@
+package com.nirwan.dentalclinic.concurrent;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Lets a running query be stopped on the database server. Interrupting a worker thread does not
+ * stop a query that MySQL is already executing, so DAO methods register their statement here and
+ * {@link #cancel()} calls {@link Statement#cancel()} on it.
+ */
+public final class QueryCancellation {
+    private Statement statement;
+    private boolean cancelled;
+
+    /**
+     * Registers the statement about to run; cancels it straight away if cancellation was already requested
+     */
+    public synchronized void register(Statement statement) throws SQLException {
+        this.statement = statement;
+        if (cancelled) {
+            statement.cancel();
+        }
+    }
+
+    /**
+     * Called once the statement is closed, so a late cancel does not touch a pooled connection's next query
+     */
+    public synchronized void unregister() {
+        statement = null;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public synchronized void cancel() {
+        cancelled = true;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                System.err.println("Error cancelling query: " + e.getMessage());
+            }
+        }
+    }
+}
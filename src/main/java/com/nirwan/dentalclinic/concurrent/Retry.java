@@ -0,0 +1,132 @@
+package com.nirwan.dentalclinic.concurrent;
+
+import com.nirwan.dentalclinic.database.DatabaseConfig;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.database.SqlDialect;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a database transaction again when it lost a race with another writer: a deadlock or lock
+ * wait timeout reported by the database, or a {@link Conflict} thrown by an optimistic version check that
+ * can safely be redone. Any other failure is returned to the caller straight away.
+ *
+ * Attempts are bounded and spaced by exponential backoff with jitter, so two writers that collided
+ * do not collide again in lockstep. Limits come from db.retry.max-attempts,
+ * db.retry.base-delay-millis and db.retry.max-delay-millis.
+ */
+public final class Retry {
+    private static final LongAdder RETRIES = new LongAdder();
+    private static final LongAdder EXHAUSTED = new LongAdder();
+
+    private static volatile int[] limits;
+
+    private Retry() {
+    }
+
+    /**
+     * One attempt of a transaction. Each attempt must start from scratch: borrow its own
+     * connection (or roll back) and re-read anything it compares against.
+     */
+    @FunctionalInterface
+    public interface SqlAttempt<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Thrown by an attempt whose version check failed because of a change that does not affect
+     * what it writes, so running it again against the fresh row is safe
+     */
+    public static class Conflict extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        public Conflict(String reason) {
+            super(reason, "40001");
+        }
+    }
+
+    /**
+     * Runs the attempt, retrying transient failures
+     * @param action what is being done, for the log
+     * @throws SQLException the last failure once the attempts run out, or the first one that is
+     *                      not transient
+     */
+    public static <T> T run(String action, SqlAttempt<T> attempt) throws SQLException {
+        int maxAttempts = limits()[0];
+        for (int n = 1; ; n++) {
+            try {
+                return attempt.run();
+            } catch (SQLException e) {
+                if (!isTransient(e)) throw e;
+                if (n >= maxAttempts) {
+                    EXHAUSTED.increment();
+                    System.err.println("Giving up on " + action + " after " + n + " attempts: " + e.getMessage());
+                    throw e;
+                }
+                RETRIES.increment();
+                try {
+                    Thread.sleep(backoffMillis(n));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Deadlocks and lock wait timeouts roll back (part of) the transaction, so it can be run again
+     */
+    public static boolean isTransient(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransactionRollbackException || t instanceof Conflict) return true;
+            if (t instanceof SQLException sql) {
+                if (dialect().isLockFailure(sql) || "40001".equals(sql.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static SqlDialect dialect() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        return db != null ? db.getDialect() : SqlDialect.MYSQL;
+    }
+
+    /**
+     * Delay before attempt n + 1: half of base * 2^(n-1) (capped) plus a random share of the other half
+     */
+    static long backoffMillis(int n) {
+        int[] l = limits();
+        long ceiling = Math.min(l[2], (long) l[1] << Math.min(n - 1, 16));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    /** Transactions run again since startup */
+    public static long getRetryCount() {
+        return RETRIES.sum();
+    }
+
+    /** Transactions that still failed transiently on their last attempt */
+    public static long getExhaustedCount() {
+        return EXHAUSTED.sum();
+    }
+
+    private static int[] limits() {
+        int[] result = limits;
+        if (result == null) {
+            DatabaseConnection db = DatabaseConnection.getInstance();
+            DatabaseConfig config = db != null ? db.getConfig() : null;
+            int attempts = config != null ? config.getInt("db.retry.max-attempts", 4) : 4;
+            int base = config != null ? config.getInt("db.retry.base-delay-millis", 10) : 10;
+            int max = config != null ? config.getInt("db.retry.max-delay-millis", 200) : 200;
+            limits = result = new int[]{Math.max(1, attempts), Math.max(1, base), Math.max(1, max)};
+        }
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+package com.nirwan.dentalclinic.controllers;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A view loaded from FXML: its root node and controller, kept so the view can be shown again
+ * instead of being loaded anew. Views can be loaded in the background, on a single low-priority
+ * thread, since nodes may be built off the JavaFX thread until they are shown.
+ */
+public final class LoadedView<C> {
+    private static final ExecutorService PRELOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "view-preload");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private final Parent root;
+    private final C controller;
+
+    private LoadedView(Parent root, C controller) {
+        this.root = root;
+        this.controller = controller;
+    }
+
+    /**
+     * Loads a view on the calling thread
+     * @param fxml resource path, e.g. /views/patient-view.fxml
+     */
+    public static <C> LoadedView<C> load(String fxml) throws IOException {
+        FXMLLoader loader = new FXMLLoader(LoadedView.class.getResource(fxml));
+        Parent root = loader.load();
+        return new LoadedView<>(root, loader.getController());
+    }
+
+    /**
+     * Loads a view on the preload thread
+     */
+    public static <C> CompletableFuture<LoadedView<C>> loadInBackground(String fxml) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return LoadedView.<C>load(fxml);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load " + fxml, e);
+            }
+        }, PRELOADER);
+    }
+
+    public Parent getRoot() {
+        return root;
+    }
+
+    public C getController() {
+        return controller;
+    }
+}
@@ -1,13 +1,19 @@
 package com.nirwan.dentalclinic.controllers;
 
-import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.FxExecutor;
+import com.nirwan.dentalclinic.concurrent.LatestRequest;
+import com.nirwan.dentalclinic.controllers.cells.Cells;
 import com.nirwan.dentalclinic.models.Patient;
+import com.nirwan.dentalclinic.models.PatientListQuery;
 import com.nirwan.dentalclinic.models.PatientTreatmentDto;
-import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.beans.property.SimpleLongProperty;
-import javafx.scene.image.Image;
 import javafx.stage.Stage;
 import com.nirwan.dentalclinic.repository.PatientDao;
+import com.nirwan.dentalclinic.repository.PatientListDao;
+import com.nirwan.dentalclinic.search.PatientSearchService;
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
@@ -19,14 +25,18 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Modality;
+import javafx.util.Duration;
 import javafx.stage.Stage;
 
 import java.io.IOException;
-import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class MainController {
     @FXML private TableView<PatientTreatmentDto> patientTable;
@@ -42,12 +52,29 @@ public class MainController {
     @FXML private Button btnAddPatient;
     @FXML private Button btnExportData;
     @FXML private TextField searchField;
+    @FXML private ProgressIndicator loadingIndicator;
+
+    /** Wait for a pause in typing before searching */
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(150);
+    /** Largest search result that is loaded in full to sort in memory */
+    private static final int MAX_IN_MEMORY_SORT = 5000;
 
     private final ObservableList<PatientTreatmentDto> patientData = FXCollections.observableArrayList();
     private Stage primaryStage;
     private Parent mainViewRoot;
+    private ViewManager viewManager;
     private FilteredList<PatientTreatmentDto> filtered;
     private SortedList<PatientTreatmentDto> sorted;
+    private final PatientListDao patientListDao = new PatientListDao();
+    // Set by startLoading: both read the database's settings, which may still be loading while this view is built
+    private PatientDao patientDao;
+    private final PatientListPager pager = new PatientListPager(patientListDao, patientData,
+            e -> showError("Database Error", "Error loading patient treatment data: " + e.getMessage()));
+    private final Map<TableColumn<PatientTreatmentDto, ?>, PatientListQuery.SortKey> sortKeys = new HashMap<>();
+    private final LatestRequest<Optional<Patient>> patientOpen = new LatestRequest<>();
+    private PatientSearchService searchService;
+    private final LatestRequest<long[]> searchRequest = new LatestRequest<>();
+    private final PauseTransition searchDebounce = new PauseTransition(SEARCH_DEBOUNCE);
 
     /**
      * Sets the primary stage for this controller
@@ -65,6 +92,13 @@ public class MainController {
         this.mainViewRoot = root;
     }
 
+    /**
+     * Sets the navigation of the window this view is shown in
+     */
+    void setViewManager(ViewManager viewManager) {
+        this.viewManager = viewManager;
+    }
+
     /**
      * Safely gets the current Stage by deriving it from any available control.
      */
@@ -86,31 +120,139 @@ public class MainController {
 
     @FXML
     public void initialize() {
+        if (loadingIndicator != null) {
+            loadingIndicator.visibleProperty().bind(pager.loadingProperty()
+                    .or(patientOpen.loadingProperty())
+                    .or(searchRequest.loadingProperty()));
+        }
         setupTableColumns();
         setupFiltering();
-        loadPatientData();
         setupButtonActions();
     }
 
+    /**
+     * Connects the view to the database and loads the first page of patients. The view itself
+     * needs no database, so at startup it is loaded while the database is still initializing and
+     * this is called once it is ready.
+     */
+    public void startLoading() {
+        patientDao = new PatientDao();
+        searchService = PatientSearchService.getInstance();
+        loadPatientData();
+    }
+
+    /**
+     * True while a page of the patient list is being fetched
+     */
+    public ReadOnlyBooleanProperty patientListLoadingProperty() {
+        return pager.loadingProperty();
+    }
+
+    /**
+     * Rows arrive a page at a time from the pager. While every row of the current query is resident,
+     * filtering and sorting happen in memory through the filtered and sorted lists; otherwise a new
+     * query is pushed down to SQL and the list restarts from its first page.
+     * Search text is matched against the in-memory search index off the FX thread once typing pauses.
+     */
     private void setupFiltering() {
         // Initialize filtered and sorted lists
         filtered = new FilteredList<>(patientData, dto -> true);
         sorted = new SortedList<>(filtered);
-        sorted.comparatorProperty().bind(patientTable.comparatorProperty());
         patientTable.setItems(sorted);
 
+        sortKeys.put(colPatientName, PatientListQuery.SortKey.NAME);
+        sortKeys.put(colTreatmentId, PatientListQuery.SortKey.TREATMENT_ID);
+        sortKeys.put(colDescription, PatientListQuery.SortKey.DESCRIPTION);
+        sortKeys.put(colTotalAmount, PatientListQuery.SortKey.TOTAL_AMOUNT);
+        sortKeys.put(colAmountPaid, PatientListQuery.SortKey.AMOUNT_PAID);
+        sortKeys.put(colAmountPending, PatientListQuery.SortKey.AMOUNT_PENDING);
+        sortKeys.put(colStatus, PatientListQuery.SortKey.STATUS);
+        sortKeys.put(colTreatmentDate, PatientListQuery.SortKey.TREATMENT_DATE);
+
+        patientTable.setSortPolicy(table -> {
+            if (pager.isComplete()) {
+                sorted.setComparator(table.getComparator());
+            } else if (pager.isShowingResults() && pager.getResultCount() <= MAX_IN_MEMORY_SORT) {
+                pager.loadAllResults(() -> sorted.setComparator(table.getComparator()));
+            } else {
+                // Too many search results to sort in memory: fall back to a SQL name search
+                searchRequest.cancel();
+                resetQuery();
+            }
+            return true;
+        });
+
         if (searchField != null) {
-            searchField.textProperty().addListener((obs, oldV, newV) -> {
-                final String q = newV == null ? "" : newV.trim().toLowerCase();
-                filtered.setPredicate(dto -> {
-                    if (q.isEmpty()) return true;
-                    String name = dto.getName() != null ? dto.getName().toLowerCase() : "";
-                    return name.contains(q);
-                });
-            });
+            searchDebounce.setOnFinished(e -> applySearch(false));
+            searchField.textProperty().addListener((obs, oldV, newV) -> searchDebounce.playFromStart());
         }
     }
 
+    /**
+     * Runs the current search text against the search index and shows the matching patients
+     * @param forceReload reload the rows from the database even if every patient is resident
+     */
+    private void applySearch(boolean forceReload) {
+        String text = searchField != null ? searchField.getText() : null;
+        if (text == null || text.isBlank()) {
+            searchRequest.cancel();
+            if (pager.isFullyResident() && !forceReload) {
+                filtered.setPredicate(dto -> true);
+            } else {
+                resetQuery();
+            }
+            return;
+        }
+        if (!searchService.isReady()) {
+            // Index is still being built, or may be missing other terminals' changes: search in SQL instead
+            resetQuery();
+            return;
+        }
+        PatientListQuery query = currentQuery();
+        // A reload (after a dialog closes) first syncs the index, to include other terminals' changes
+        searchRequest.submit(searchService.searchAsync(text, forceReload),
+                ids -> showSearchResults(query, ids, forceReload),
+                e -> showError("Search Error", "Error searching patients: " + e.getMessage()));
+    }
+
+    private void showSearchResults(PatientListQuery query, long[] ids, boolean forceReload) {
+        if (pager.isFullyResident() && !forceReload) {
+            Set<Long> matches = new HashSet<>(ids.length * 2);
+            for (long id : ids) {
+                matches.add(id);
+            }
+            filtered.setPredicate(dto -> matches.contains(dto.getPatientId()));
+        } else {
+            filtered.setPredicate(dto -> true);
+            sorted.setComparator(null); // results arrive in name order
+            pager.resetToIds(query, ids);
+        }
+    }
+
+    /**
+     * Builds the query for the current search text and table sort order
+     */
+    private PatientListQuery currentQuery() {
+        PatientListQuery query = PatientListQuery.DEFAULT.withFilter(searchField != null ? searchField.getText() : null);
+        if (!patientTable.getSortOrder().isEmpty()) {
+            TableColumn<PatientTreatmentDto, ?> column = patientTable.getSortOrder().get(0);
+            PatientListQuery.SortKey key = sortKeys.get(column);
+            if (key != null) {
+                query = query.withSort(key, column.getSortType() == TableColumn.SortType.ASCENDING);
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Pushes the current filter and sort order down to SQL and starts again from the first page
+     */
+    private void resetQuery() {
+        filtered.setPredicate(dto -> true);
+        sorted.setComparator(null); // rows already arrive in query order
+        pager.reset(currentQuery());
+    }
+
     private void setupTableColumns() {
         colPatientId.setCellValueFactory(cellData -> new SimpleLongProperty(cellData.getValue().getPatientId()).asObject());
         colPatientId.setVisible(false);
@@ -119,232 +261,57 @@ public class MainController {
 
         // Treatment date column with formatting
         colTreatmentDate.setCellValueFactory(cellData -> cellData.getValue().treatmentDateProperty());
-        colTreatmentDate.setCellFactory(column -> new TableCell<>() {
-            private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            
-            @Override
-            protected void updateItem(LocalDate date, boolean empty) {
-                super.updateItem(date, empty);
-                if (empty || date == null) {
-                    setText("");
-                } else {
-                    setText(formatter.format(date));
-                }
-            }
-        });
+        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        colTreatmentDate.setCellFactory(Cells.formatted(dateFormat::format));
         
         // Description column
         colDescription.setCellValueFactory(cellData -> cellData.getValue().descriptionProperty());
         
-        // Amount columns with currency formatting
-        colTotalAmount.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getTotalAmount()));
-        colTotalAmount.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(Number item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? "" : String.format("₹%.2f", item.doubleValue()));
-            }
-        });
-
-        colAmountPaid.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getAmountPaid()));
-        colAmountPaid.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(Number item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? "" : String.format("₹%.2f", item.doubleValue()));
-            }
-        });
-
-        colAmountPending.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getAmountPending()));
-        colAmountPending.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(Number item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? "" : String.format("₹%.2f", item.doubleValue()));
-            }
-        });
-        colAmountPending.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(Number item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText("");
-                } else {
-                    double amount = item.doubleValue();
-                    setText(String.format("₹%.2f", amount));
-                    // Highlight pending amounts in red
-                    if (amount > 0) {
-                        setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-                    } else {
-                        setStyle("");
-                    }
-                }
-            }
-        });
-        
-        // Status column with color coding
-        colStatus.setCellValueFactory(cellData -> cellData.getValue().statusProperty());
-        colStatus.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(String item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText("");
-                    setStyle("");
-                } else {
-                    setText(item);
-                    switch (item) {
-                        case "PAID":
-                            setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
-                            break;
-                        case "PARTIALLY_PAID":
-                            setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
-                            break;
-                        case "PENDING":
-                            setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-                            break;
-                        default:
-                            setStyle("");
-                    }
-                }
-            }
-        });
-        
         // Numeric columns with currency formatting
         colTotalAmount.setCellValueFactory(cellData -> cellData.getValue().totalAmountProperty());
-        colTotalAmount.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(Number item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? "" : String.format("₹%.2f", item.doubleValue()));
-            }
-        });
+        colTotalAmount.setCellFactory(Cells.money());
         
         colAmountPaid.setCellValueFactory(cellData -> cellData.getValue().amountPaidProperty());
-        colAmountPaid.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(Number item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? "" : String.format("₹%.2f", item.doubleValue()));
-            }
-        });
+        colAmountPaid.setCellFactory(Cells.money());
         
+        // Pending amounts are highlighted
         colAmountPending.setCellValueFactory(cellData -> cellData.getValue().amountPendingProperty());
-        colAmountPending.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(Number item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText("");
-                } else {
-                    double amount = item.doubleValue();
-                    setText(String.format("₹%.2f", amount));
-                    // Optional: Highlight negative amounts in red
-                    if (amount > 0) {
-                        setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-                    } else {
-                        setStyle("");
-                    }
-                }
-            }
-        });
+        colAmountPending.setCellFactory(Cells.moneyDue());
         
         // Status column with color coding
         colStatus.setCellValueFactory(cellData -> cellData.getValue().statusProperty());
-        colStatus.setCellFactory(column -> new TableCell<>() {
-            @Override
-            protected void updateItem(String item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText("");
-                    setStyle("");
-                } else {
-                    setText(item);
-                    switch (item) {
-                        case "PAID":
-                            setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
-                            break;
-                        case "PARTIALLY_PAID":
-                            setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
-                            break;
-                        case "PENDING":
-                            setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-                            break;
-                        default:
-                            setStyle("");
-                    }
-                }
-            }
-        });
+        colStatus.setCellFactory(Cells.paymentStatus());
     }
 
     private void loadPatientData() {
         System.out.println("Loading patient data...");
-        patientData.clear();
-        // Query to get the latest treatment for each patient with the most recent treatment date
-        String sql = """
-            WITH LatestTreatment AS (
-                SELECT t.*,
-                       ROW_NUMBER() OVER (PARTITION BY p.id ORDER BY t.updated_at DESC) as rn,
-                       (
-                           SELECT status
-                           FROM TreatmentCost tc
-                           WHERE tc.treatment_id = t.treatment_id
-                           ORDER BY tc.effective_from DESC
-                           LIMIT 1
-                       ) as status
-                FROM Patient p
-                JOIN Treatment t ON p.id = t.patient_id
-                WHERE p.is_deleted = FALSE AND t.is_deleted = FALSE
-            ),
-            LatestTreatmentWithDate AS (
-                SELECT t.*,
-                       (SELECT MAX(p.payment_date) FROM Payment p WHERE p.treatment_id = t.treatment_id) as last_payment_date,
-                       t.updated_at as treatment_updated
-                FROM LatestTreatment t
-                WHERE t.rn = 1
-            )
-            SELECT p.id,
-                   p.name,
-                   t.treatment_id,
-                   t.treatment_name,
-                   t.total_amount,
-                   t.amount_paid,
-                   t.amount_pending,
-                   t.status,
-                   COALESCE(t.last_payment_date, t.treatment_updated) as treatment_date
-            FROM Patient p
-            LEFT JOIN LatestTreatmentWithDate t ON p.id = t.patient_id
-            ORDER BY p.name
-            """;
+        if (searchField != null && !searchField.getText().isBlank() && searchService.isReady()) {
+            applySearch(true);
+        } else {
+            resetQuery();
+        }
+    }
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+    /**
+     * Inserts a row for a newly created patient at its name-ordered position. If it sorts after the
+     * last resident row it is left for a later page; any other filter or order reloads the list.
+     */
+    private void addPatientRow(Patient patient) {
+        if (patient == null || !PatientListQuery.DEFAULT.equals(pager.getQuery())) {
+            loadPatientData();
+            return;
+        }
+        PatientTreatmentDto dto = new PatientTreatmentDto();
+        dto.patientIdProperty().set(patient.getId());
+        dto.nameProperty().set(patient.getName());
 
-            while (rs.next()) {
-                PatientTreatmentDto dto = new PatientTreatmentDto();
-                dto.patientIdProperty().set(rs.getLong("id"));
-                dto.nameProperty().set(rs.getString("name"));
-                dto.treatmentIdProperty().set(rs.getString("treatment_id"));
-                dto.descriptionProperty().set(rs.getString("treatment_name"));
-                dto.totalAmountProperty().set(rs.getDouble("total_amount"));
-                dto.amountPaidProperty().set(rs.getDouble("amount_paid"));
-                dto.amountPendingProperty().set(rs.getDouble("amount_pending"));
-                dto.statusProperty().set(rs.getString("status"));
-                
-                // Convert SQL date to LocalDate
-                java.sql.Timestamp timestamp = rs.getTimestamp("treatment_date");
-                if (timestamp != null) {
-                    dto.treatmentDateProperty().set(timestamp.toLocalDateTime().toLocalDate());
-                }
-                
-                patientData.add(dto);
-            }
-            // Items already set to sorted list; just refresh backing list
-            // patientTable.setItems(sorted) was set in setupFiltering()
-        } catch (SQLException e) {
-            showError("Database Error", "Error loading patient treatment data: " + e.getMessage());
+        int index = 0;
+        while (index < patientData.size()
+                && String.CASE_INSENSITIVE_ORDER.compare(patientData.get(index).getName(), patient.getName()) <= 0) {
+            index++;
+        }
+        if (index < patientData.size() || pager.isComplete()) {
+            patientData.add(index, dto);
         }
     }
 
@@ -366,9 +333,7 @@ public class MainController {
             // Create the dialog Stage
             Stage dialogStage = new Stage();
             dialogStage.setTitle("Add New Patient");
-            dialogStage.getIcons().add(
-                    new Image(getClass().getResourceAsStream("/icons/icon.png"))
-            );
+            UiResources.applyIcon(dialogStage);
             dialogStage.initModality(Modality.WINDOW_MODAL);
             // Derive owner from an existing node to avoid null primaryStage
             Stage ownerStage = (Stage) patientTable.getScene().getWindow();
@@ -382,9 +347,9 @@ public class MainController {
             // Show the dialog and wait until the user closes it
             dialogStage.showAndWait();
             
-            // Refresh the patient list if a patient was added
+            // A new patient has no treatments yet, so add its row directly instead of reloading the list
             if (controller.isSaveClicked()) {
-                loadPatientData();
+                addPatientRow(controller.getPatient());
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -400,6 +365,8 @@ public class MainController {
         // Add double-click handler to the patient table
         patientTable.setRowFactory(tv -> {
             TableRow<PatientTreatmentDto> row = new TableRow<>();
+            // Rows are virtualized and reused while scrolling; fetch the next page near the end
+            row.indexProperty().addListener((obs, oldIndex, newIndex) -> pager.onRowShown(newIndex.intValue()));
             row.setOnMouseClicked(event -> {
                 if (event.getClickCount() == 2 && !row.isEmpty()) {
                     PatientTreatmentDto selected = row.getItem();
@@ -411,63 +378,52 @@ public class MainController {
     }
     
     private void openPatientView(PatientTreatmentDto patientDto) {
-        try {
-            // Load the patient view FXML
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(getClass().getResource("/views/patient-view.fxml"));
-            Parent root = loader.load();
-            
-            // Get the controller and set the patient
-            PatientViewController controller = loader.getController();
-            
-            // Fetch the complete patient data using patient ID
-            try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
-                PatientDao patientDao = new PatientDao();
-                Long patientId = patientDto.getPatientId();
-                if ( patientId != null) {
-                    Optional<Patient> patientOpt = patientDao.findById(patientId);
+        Long patientId = patientDto.getPatientId();
+        if (patientId == null) {
+            showError("Error", "Could not load patient details.");
+            return;
+        }
+        // Fetch the complete patient data off the FX thread, then switch views
+        patientOpen.submit(patientDao.findByIdAsync(patientId),
+                patientOpt -> {
                     if (patientOpt.isPresent()) {
-                        Patient patient = patientOpt.get();
-                        controller.setPatient(patient);
-                        
-                        // Derive the stage from an existing control instead of relying on primaryStage
-                        Stage stage = (Stage) patientTable.getScene().getWindow();
-                        Scene currentScene = stage.getScene();
-                        if (currentScene == null) {
-                            currentScene = new Scene(root);
-                            stage.setScene(currentScene);
-                        } else {
-                            currentScene.setRoot(root);
-                        }
-                        stage.setTitle("Patient Details - " + patient.getName());
-                        stage.sizeToScene();
-                        stage.getIcons().add(
-                                new Image(getClass().getResourceAsStream("/icons/icon.png"))
-                        );
-                        stage.centerOnScreen();
-                        return;
+                        showPatientView(patientOpt.get());
+                    } else {
+                        showError("Error", "Could not load patient details.");
                     }
-                }
-                showError("Error", "Could not load patient details.");
-            } catch (SQLException e) {
-                showError("Database Error", "Error loading patient details: " + e.getMessage());
+                },
+                e -> showError("Database Error", "Error loading patient details: " + e.getMessage()));
+    }
+
+    private void showPatientView(Patient patient) {
+        viewManager.showPatient(patient).whenCompleteAsync((shown, e) -> {
+            if (e != null) {
+                showError("Error", "Could not load patient view: " + DbExecutor.unwrap(e).getMessage());
             }
-        } catch (IOException e) {
-            showError("Error", "Could not load patient view: " + e.getMessage());
-        }
+        }, FxExecutor.INSTANCE);
     }
-    
-    private String getPatientIdByTreatmentId(Connection conn, String treatmentId) throws SQLException {
-        String sql = "SELECT patient_id FROM treatment WHERE treatment_id = ? AND is_deleted = false";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, treatmentId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getString("patient_id");
+
+    /**
+     * Re-reads one patient's row in place, e.g. on returning from the patient view, keeping the
+     * rest of the list and its scroll position. A patient no longer listed is removed.
+     */
+    void refreshPatientRow(long patientId) {
+        patientListDao.findByIdsAsync(new long[]{patientId}).whenCompleteAsync((rows, e) -> {
+            if (e != null) {
+                showError("Database Error", "Error refreshing patient: " + DbExecutor.unwrap(e).getMessage());
+                return;
+            }
+            for (int i = 0; i < patientData.size(); i++) {
+                if (patientData.get(i).getPatientId() == patientId) {
+                    if (rows.isEmpty()) {
+                        patientData.remove(i);
+                    } else {
+                        patientData.set(i, rows.get(0));
+                    }
+                    return;
                 }
             }
-        }
-        return null;
+        }, FxExecutor.INSTANCE);
     }
     
     private void showAddTreatmentDialog() {
@@ -549,9 +505,7 @@ public class MainController {
             Stage stage = new Stage();
             stage.setTitle("Payments Report");
             stage.initModality(Modality.WINDOW_MODAL);
-            stage.getIcons().add(
-                    new Image(getClass().getResourceAsStream("/icons/icon.png"))
-            );
+            UiResources.applyIcon(stage);
             Stage owner = getStage();
             if (owner != null) stage.initOwner(owner);
             stage.setScene(new Scene(root));
@@ -1,10 +1,13 @@
 package com.nirwan.dentalclinic.controllers;
 
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.FxExecutor;
 import com.nirwan.dentalclinic.models.Patient;
 import com.nirwan.dentalclinic.repository.PatientDao;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.scene.Node;
 
@@ -13,6 +16,7 @@ import java.sql.SQLException;
 public class PatientDialogController {
     @FXML private TextField firstNameField;
     @FXML private TextField lastNameField;
+    @FXML private VBox root;
 
     private Stage dialogStage;
     private boolean saveClicked = false;
@@ -31,6 +35,13 @@ public class PatientDialogController {
     public boolean isSaveClicked() {
         return saveClicked;
     }
+
+    /**
+     * The patient saved by this dialog (with its generated ID), or null if nothing was saved
+     */
+    public Patient getPatient() {
+        return saveClicked ? patient : null;
+    }
     
     @FXML
     private void handleCancel() {
@@ -47,17 +58,23 @@ public class PatientDialogController {
             patient = new Patient();
             patient.setName(firstNameField.getText().trim()+" "+lastNameField.getText().trim());
             
-            // Save to database
+            // Save to database off the FX thread; keep the form disabled until it finishes
             patientDao = new PatientDao();
-            boolean saved = patientDao.savePatient(patient);
-            
-            if (saved) {
-                saveClicked = true;
-                dialogStage.close();
-                showAlert(Alert.AlertType.INFORMATION, "Success", "Patient saved successfully!");
-            } else {
-                showAlert(Alert.AlertType.ERROR, "Error", "Failed to save patient. Please try again.");
-            }
+            root.setDisable(true);
+            patientDao.savePatientAsync(patient).whenCompleteAsync((saved, ex) -> {
+                root.setDisable(false);
+                if (ex != null) {
+                    Throwable cause = DbExecutor.unwrap(ex);
+                    cause.printStackTrace();
+                    showAlert(Alert.AlertType.ERROR, "Error", "An error occurred while saving patient: " + cause.getMessage());
+                } else if (Boolean.TRUE.equals(saved)) {
+                    saveClicked = true;
+                    dialogStage.close();
+                    showAlert(Alert.AlertType.INFORMATION, "Success", "Patient saved successfully!");
+                } else {
+                    showAlert(Alert.AlertType.ERROR, "Error", "Failed to save patient. Please try again.");
+                }
+            }, FxExecutor.INSTANCE);
         }  catch (Exception e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "An error occurred while saving patient: " + e.getMessage());
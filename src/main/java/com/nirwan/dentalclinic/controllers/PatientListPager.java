@@ -0,0 +1,159 @@
+package com.nirwan.dentalclinic.controllers;
+
+import com.nirwan.dentalclinic.concurrent.LatestRequest;
+import com.nirwan.dentalclinic.models.PatientListQuery;
+import com.nirwan.dentalclinic.models.PatientPage;
+import com.nirwan.dentalclinic.models.PatientTreatmentDto;
+import com.nirwan.dentalclinic.repository.PatientListDao;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.collections.ObservableList;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Feeds the main patient table one keyset page at a time. Rows are appended to the backing
+ * list as the user scrolls towards the end, so only the pages actually viewed are held in memory.
+ * While search results are shown, pages are instead slices of the matching patient IDs.
+ * Must be used from the JavaFX thread.
+ */
+class PatientListPager {
+    static final int PAGE_SIZE = 200;
+    /** Start fetching the next page when the user is this many rows from the end */
+    static final int PREFETCH_ROWS = PAGE_SIZE / 2;
+
+    private final PatientListDao dao;
+    private final ObservableList<PatientTreatmentDto> rows;
+    private final Consumer<Throwable> onError;
+    private final LatestRequest<PatientPage> pageLoad = new LatestRequest<>();
+
+    private PatientListQuery query = PatientListQuery.DEFAULT;
+    private PatientPage lastPage;
+    private boolean complete;
+    // Matching patient IDs while a search is shown, otherwise null
+    private long[] resultIds;
+    private int resultOffset;
+
+    PatientListPager(PatientListDao dao, ObservableList<PatientTreatmentDto> rows, Consumer<Throwable> onError) {
+        this.dao = dao;
+        this.rows = rows;
+        this.onError = onError;
+    }
+
+    /**
+     * Drops the resident rows and starts again from the first page of the given query
+     */
+    void reset(PatientListQuery query) {
+        start(query, null);
+    }
+
+    /**
+     * Shows the given search results (patient IDs in display order), loading their rows a page at a time
+     */
+    void resetToIds(PatientListQuery query, long[] ids) {
+        start(query, ids);
+    }
+
+    private void start(PatientListQuery query, long[] ids) {
+        this.query = query;
+        resultIds = ids;
+        resultOffset = 0;
+        lastPage = null;
+        complete = false;
+        rows.clear();
+        pageLoad.cancel();
+        loadNextPage();
+    }
+
+    /**
+     * Reloads from the first page, keeping the current filter and sort order
+     */
+    void reload() {
+        start(query, resultIds);
+    }
+
+    /**
+     * Fetches the next page unless one is already loading or the end has been reached
+     */
+    void loadNextPage() {
+        if (complete || pageLoad.isLoading()) return;
+        if (resultIds != null) {
+            loadResults(Math.min(resultIds.length, resultOffset + PAGE_SIZE), null);
+            return;
+        }
+        pageLoad.submit(dao.findPageAsync(query, lastPage, PAGE_SIZE),
+                page -> {
+                    rows.addAll(page.getRows());
+                    if (!page.getRows().isEmpty()) lastPage = page;
+                    complete = page.isLast();
+                },
+                onError);
+    }
+
+    /**
+     * Loads every remaining search result row, then runs the callback (e.g. to sort in memory)
+     */
+    void loadAllResults(Runnable onLoaded) {
+        if (resultIds == null || complete) {
+            onLoaded.run();
+            return;
+        }
+        loadResults(resultIds.length, onLoaded);
+    }
+
+    private void loadResults(int to, Runnable onLoaded) {
+        long[] ids = resultIds;
+        long[] slice = Arrays.copyOfRange(ids, resultOffset, to);
+        pageLoad.submit(dao.findByIdsAsync(slice).thenApply(found -> new PatientPage(found, null, 0, to == ids.length)),
+                page -> {
+                    rows.addAll(page.getRows());
+                    resultOffset = to;
+                    complete = page.isLast();
+                    if (onLoaded != null) onLoaded.run();
+                },
+                onError);
+    }
+
+    /**
+     * Called as table rows are laid out; prefetches once the user gets near the last resident row
+     */
+    void onRowShown(int index) {
+        if (index >= 0 && index >= rows.size() - PREFETCH_ROWS) {
+            loadNextPage();
+        }
+    }
+
+    boolean isShowingResults() {
+        return resultIds != null;
+    }
+
+    int getResultCount() {
+        return resultIds != null ? resultIds.length : 0;
+    }
+
+    PatientListQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * True when every row of the query has been loaded
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * True when every patient is resident, so filtering and sorting can be done in memory
+     */
+    boolean isFullyResident() {
+        return complete && !query.hasFilter();
+    }
+
+    ReadOnlyBooleanProperty loadingProperty() {
+        return pageLoad.loadingProperty();
+    }
+
+    void cancel() {
+        pageLoad.cancel();
+    }
+}
@@ -1,11 +1,14 @@
 package com.nirwan.dentalclinic.controllers;
 
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.FxExecutor;
+import com.nirwan.dentalclinic.concurrent.LatestRequest;
+import com.nirwan.dentalclinic.controllers.cells.Cells;
 import com.nirwan.dentalclinic.controllers.dialogs.NewTreatmentGridController;
 import com.nirwan.dentalclinic.controllers.dialogs.TreatmentDetailsDialogController;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import com.nirwan.dentalclinic.models.Money;
 import com.nirwan.dentalclinic.models.Patient;
 import com.nirwan.dentalclinic.models.Treatment;
 import com.nirwan.dentalclinic.repository.TreatmentDao;
@@ -17,17 +20,15 @@ import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.image.Image;
 import javafx.scene.input.MouseEvent;
-import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.net.URL;
-import java.text.NumberFormat;
 import java.time.format.DateTimeFormatter;
-import java.util.Locale;
+import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 public class PatientViewController implements Initializable {
     @FXML private Label patientNameLabel;
@@ -46,24 +47,54 @@ public class PatientViewController implements Initializable {
     @FXML private TableColumn<Treatment, String> treatmentIdCol;
     @FXML private TableColumn<Treatment, String> descriptionCol;
     @FXML private TableColumn<Treatment, String> dateCol;
-    @FXML private TableColumn<Treatment, Double> totalAmountCol;
-    @FXML private TableColumn<Treatment, Double> paidAmountCol;
-    @FXML private TableColumn<Treatment, Double> pendingAmountCol;
+    @FXML private TableColumn<Treatment, Long> totalAmountCol;
+    @FXML private TableColumn<Treatment, Long> paidAmountCol;
+    @FXML private TableColumn<Treatment, Long> pendingAmountCol;
     @FXML private TableColumn<Treatment, Boolean> statusCol;
     
+    @FXML private ProgressIndicator loadingIndicator;
+    
+    private static final String TREATMENT_DETAILS_DIALOG = "/views/dialogs/treatment-details-dialog.fxml";
+
     private final TreatmentDao treatmentDao = new TreatmentDao();
+    private final LatestRequest<List<Treatment>> treatmentLoad = new LatestRequest<>();
     private Patient currentPatient;
+    private ViewManager viewManager;
+    private CompletableFuture<LoadedView<TreatmentDetailsDialogController>> treatmentDetails;
     private final ObservableList<Treatment> treatments = FXCollections.observableArrayList();
-    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
+        if (loadingIndicator != null) {
+            loadingIndicator.visibleProperty().bind(treatmentLoad.loadingProperty());
+        }
         setupTableColumns();
         loadPatientData();
     }
     
+    /**
+     * Sets the navigation of the window this view is shown in
+     */
+    void setViewManager(ViewManager viewManager) {
+        this.viewManager = viewManager;
+    }
+
+    /**
+     * Loads the dialogs opened from this view in the background, so the first one opens quickly
+     */
+    void preloadDialogs() {
+        treatmentDetails = LoadedView.loadInBackground(TREATMENT_DETAILS_DIALOG);
+    }
+
+    /**
+     * Shows the given patient. The view is reused for every patient, so the previous patient's
+     * treatments are cleared first rather than shown until the new ones have loaded.
+     */
     public void setPatient(Patient patient) {
+        treatmentLoad.cancel();
+        treatments.clear();
+        totalBalanceLabel.setText("");
         this.currentPatient = patient;
         loadPatientData();
         loadTreatments();
@@ -91,63 +122,30 @@ public class PatientViewController implements Initializable {
         pendingAmountCol.setCellValueFactory(new PropertyValueFactory<>("amountPending"));
         statusCol.setCellValueFactory(new PropertyValueFactory<>("active"));
 
-        // Format currency columns
-        totalAmountCol.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(Double amount, boolean empty) {
-                super.updateItem(amount, empty);
-                setText(empty || amount == null ? "" : currencyFormat.format(amount));
-            }
-        });
-
-        paidAmountCol.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(Double amount, boolean empty) {
-                super.updateItem(amount, empty);
-                setText(empty || amount == null ? "" : currencyFormat.format(amount));
-            }
-        });
-
-        pendingAmountCol.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(Double amount, boolean empty) {
-                super.updateItem(amount, empty);
-                if (empty || amount == null) {
-                    setText("");
-                } else {
-                    setText(currencyFormat.format(amount));
-                    setStyle(amount > 0 ? "-fx-text-fill: #d32f2f; -fx-font-weight: bold;" : "");
-                }
-            }
-        });
+        // Format currency columns; pending amounts are highlighted
+        totalAmountCol.setCellFactory(Cells.money());
+        paidAmountCol.setCellFactory(Cells.money());
+        pendingAmountCol.setCellFactory(Cells.moneyDue());
 
         // Format status column
-        statusCol.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(Boolean active, boolean empty) {
-                super.updateItem(active, empty);
-                if (empty || active == null) {
-                    setText("");
-                } else {
-                    setText(active ? "Active" : "Completed");
-                    setStyle(active ? "-fx-text-fill: #2e7d32; -fx-font-weight: bold;" : "-fx-text-fill: #757575;");
-                }
-            }
-        });
+        statusCol.setCellFactory(Cells.activeStatus());
     }
 
     private void handleTreatmentDoubleClick(TableRow<Treatment> row) {
         if (row.isEmpty()) return;
 
         Treatment treatment = row.getItem();
-        try {
-            FXMLLoader loader = new FXMLLoader();
-            // Load the correct FXML which already specifies fx:controller
-            loader.setLocation(getClass().getResource("/views/dialogs/treatment-details-dialog.fxml"));
-            loader.load();
-
-            // Get controller created by FXML and pass the selected treatment
-            TreatmentDetailsDialogController controller = loader.getController();
+        if (treatmentDetails == null || treatmentDetails.isCompletedExceptionally()) {
+            preloadDialogs();
+        }
+        treatmentDetails.whenCompleteAsync((dialog, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+                showError("Error", "Failed to load treatment details: " + DbExecutor.unwrap(e).getMessage());
+                return;
+            }
+            // The dialog is reused; pass the selected treatment
+            TreatmentDetailsDialogController controller = dialog.getController();
             controller.setTreatment(treatment);
 
             // Show the dialog, owned by the current window, and refresh if data changed
@@ -157,10 +155,9 @@ public class PatientViewController implements Initializable {
                 loadPatientData();
                 loadTreatments();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        }, FxExecutor.INSTANCE);
     }
+
     private void loadPatientData() {
         if (currentPatient == null) return;
         
@@ -174,16 +171,22 @@ public class PatientViewController implements Initializable {
     private void loadTreatments() {
         if (currentPatient == null) return;
         
-        treatments.setAll(treatmentDao.findByPatientId(currentPatient.getId()));
-        treatmentsTable.setItems(treatments);
-        updateTotalBalance();
+        treatmentLoad.submit(treatmentDao.findByPatientIdAsync(currentPatient.getId()),
+                loaded -> {
+                    treatments.setAll(loaded);
+                    treatmentsTable.setItems(treatments);
+                    updateTotalBalance();
+                },
+                e -> showError("Database Error", "Error loading treatments: " + e.getMessage()));
     }
     
     private void updateTotalBalance() {
-        double totalBalance = treatments.stream()
-            .mapToDouble(Treatment::getAmountPending)
-            .sum();
-        totalBalanceLabel.setText(currencyFormat.format(totalBalance));
+        // Plain loop over primitive paise: exact, and no boxing per row
+        long totalBalance = Money.ZERO;
+        for (int i = 0, n = treatments.size(); i < n; i++) {
+            totalBalance += treatments.get(i).getAmountPending();
+        }
+        totalBalanceLabel.setText(Money.format(totalBalance));
     }
     
     @FXML
@@ -245,39 +248,8 @@ public class PatientViewController implements Initializable {
     
     @FXML
     private void handleBackToList() {
-        try {
-            // Get the current stage
-            Stage stage = (Stage) patientNameLabel.getScene().getWindow();
-            stage.getIcons().add(new Image(getClass().getResourceAsStream("/icons/icon.png")));
-            
-            // Get the main controller and its root
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/main-view.fxml"));
-            Parent root = loader.load();
-            MainController mainController = loader.getController();
-            
-            // IMPORTANT: provide the current Stage to the (new) MainController instance
-            mainController.setPrimaryStage(stage);
-            mainController.setMainViewRoot(root);
-            
-            // Set the main view as the root of the current scene
-            Scene currentScene = stage.getScene();
-            if (currentScene == null) {
-                currentScene = new Scene(root);
-                stage.setScene(currentScene);
-            } else {
-                currentScene.setRoot(root);
-            }
-            
-            // Update the stage
-            stage.setTitle("Dental Clinic - Patient Accounts");
-            stage.sizeToScene();
-            stage.centerOnScreen();
-        } catch (IOException e) {
-            e.printStackTrace();
-            // Fallback to just close the window if there's an error
-            Stage stage = (Stage) patientNameLabel.getScene().getWindow();
-            stage.close();
-        }
+        treatmentLoad.cancel();
+        viewManager.showMain(currentPatient.getId());
     }
     
     @FXML
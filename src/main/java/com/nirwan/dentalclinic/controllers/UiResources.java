@@ -0,0 +1,45 @@
+package com.nirwan.dentalclinic.controllers;
+
+import javafx.scene.image.Image;
+import javafx.stage.Stage;
+
+import java.net.URL;
+
+/**
+ * Images and stylesheets shared by every window, each loaded once. Windows get the icon through
+ * {@link #applyIcon}, which replaces the stage's icons rather than adding to them, so showing a
+ * window again never piles up copies.
+ */
+public final class UiResources {
+    private static Image icon;
+    private static String mainStylesheet;
+
+    private UiResources() {
+    }
+
+    /** The application icon */
+    public static synchronized Image icon() {
+        if (icon == null) {
+            icon = new Image(UiResources.class.getResourceAsStream("/icons/icon.png"));
+        }
+        return icon;
+    }
+
+    /** URL of /styles/main.css, or null if it is missing */
+    public static synchronized String mainStylesheet() {
+        if (mainStylesheet == null) {
+            URL css = UiResources.class.getResource("/styles/main.css");
+            if (css == null) {
+                System.err.println("Warning: Could not load CSS file");
+                return null;
+            }
+            mainStylesheet = css.toExternalForm();
+        }
+        return mainStylesheet;
+    }
+
+    /** Sets the application icon as the stage's only icon */
+    public static void applyIcon(Stage stage) {
+        stage.getIcons().setAll(icon());
+    }
+}
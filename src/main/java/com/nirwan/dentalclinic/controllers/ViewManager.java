@@ -0,0 +1,93 @@
+package com.nirwan.dentalclinic.controllers;
+
+import com.nirwan.dentalclinic.concurrent.FxExecutor;
+import com.nirwan.dentalclinic.models.Patient;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Navigation in the main window, which shows either the patient list or one patient. Both views
+ * are loaded once and swapped as the root of the window's scene: going back to the list keeps
+ * its rows, search, sort order, selection and scroll position, and each patient opened reuses
+ * the same patient view. The patient view is preloaded in the background once startup is idle.
+ */
+public final class ViewManager {
+    private static final String PATIENT_VIEW = "/views/patient-view.fxml";
+    private static final String MAIN_TITLE = "Nirwan Dental Clinic - Account Management";
+
+    private final Stage stage;
+    private final LoadedView<MainController> mainView;
+    private CompletableFuture<LoadedView<PatientViewController>> patientView;
+
+    public ViewManager(Stage stage, LoadedView<MainController> mainView) {
+        this.stage = stage;
+        this.mainView = mainView;
+        MainController controller = mainView.getController();
+        controller.setPrimaryStage(stage);
+        controller.setMainViewRoot(mainView.getRoot());
+        controller.setViewManager(this);
+    }
+
+    /**
+     * Loads the views the user is likely to open next, off the JavaFX thread
+     */
+    public void preload() {
+        patientView();
+    }
+
+    private CompletableFuture<LoadedView<PatientViewController>> patientView() {
+        if (patientView == null || patientView.isCompletedExceptionally()) {
+            patientView = LoadedView.<PatientViewController>loadInBackground(PATIENT_VIEW)
+                    .thenApply(view -> {
+                        view.getController().setViewManager(this);
+                        view.getController().preloadDialogs();
+                        return view;
+                    });
+        }
+        return patientView;
+    }
+
+    /**
+     * Shows the patient list
+     */
+    public void showMain() {
+        show(mainView.getRoot(), MAIN_TITLE);
+    }
+
+    /**
+     * Returns to the patient list from a patient, re-reading that patient's row in case it changed
+     */
+    void showMain(long patientId) {
+        showMain();
+        mainView.getController().refreshPatientRow(patientId);
+    }
+
+    /**
+     * Shows the given patient, once the patient view has loaded
+     */
+    CompletableFuture<Void> showPatient(Patient patient) {
+        return patientView().thenAcceptAsync(view -> {
+            view.getController().setPatient(patient);
+            show(view.getRoot(), "Patient Details - " + patient.getName());
+        }, FxExecutor.INSTANCE);
+    }
+
+    private void show(Parent root, String title) {
+        Scene scene = stage.getScene();
+        if (scene == null) {
+            scene = new Scene(root, 900, 600);
+            String css = UiResources.mainStylesheet();
+            if (css != null) {
+                scene.getStylesheets().add(css);
+            }
+            stage.setScene(scene);
+        } else if (scene.getRoot() != root) {
+            scene.setRoot(root);
+        }
+        stage.setTitle(title);
+        UiResources.applyIcon(stage);
+    }
+}
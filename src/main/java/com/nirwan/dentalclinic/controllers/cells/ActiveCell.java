@@ -0,0 +1,25 @@
+package com.nirwan.dentalclinic.controllers.cells;
+
+import javafx.scene.control.TableCell;
+
+/**
+ * A treatment's active flag, shown as "Active" (with the :active pseudo-class) or "Completed"
+ */
+public class ActiveCell<S> extends TableCell<S, Boolean> {
+    public ActiveCell() {
+        getStyleClass().add("active-cell");
+    }
+
+    @Override
+    protected void updateItem(Boolean active, boolean empty) {
+        super.updateItem(active, empty);
+        boolean shown = !empty && active != null;
+        setText(shown ? (active ? "Active" : "Completed") : null);
+        pseudoClassStateChanged(CellStyles.ACTIVE, shown && active);
+    }
+
+    @Override
+    public String getUserAgentStylesheet() {
+        return CellStyles.STYLESHEET;
+    }
+}
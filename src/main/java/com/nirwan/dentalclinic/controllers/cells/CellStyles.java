@@ -0,0 +1,43 @@
+package com.nirwan.dentalclinic.controllers.cells;
+
+import javafx.css.PseudoClass;
+
+/**
+ * The pseudo-classes the cells style themselves with, and the stylesheet that colours them
+ * (/styles/cells.css). Kept apart from the cell classes, which need a running JavaFX toolkit to
+ * load, so the styling rules can be used and measured without one.
+ */
+public final class CellStyles {
+    static final String STYLESHEET = CellStyles.class.getResource("/styles/cells.css").toExternalForm();
+
+    /** A money amount still owed */
+    public static final PseudoClass DUE = PseudoClass.getPseudoClass("due");
+    /** A money amount received */
+    public static final PseudoClass RECEIVED = PseudoClass.getPseudoClass("received");
+    /** An active treatment */
+    public static final PseudoClass ACTIVE = PseudoClass.getPseudoClass("active");
+
+    private static final PseudoClass PAID = PseudoClass.getPseudoClass("paid");
+    private static final PseudoClass PARTIAL = PseudoClass.getPseudoClass("partial");
+    private static final PseudoClass PENDING = PseudoClass.getPseudoClass("pending");
+
+    private CellStyles() {
+    }
+
+    /**
+     * The pseudo-class for a payment status (PAID, PARTIALLY_PAID or PENDING), or null if it has none
+     */
+    public static PseudoClass paymentStatus(String status) {
+        if (status == null) return null;
+        switch (status) {
+            case "PAID":
+                return PAID;
+            case "PARTIALLY_PAID":
+                return PARTIAL;
+            case "PENDING":
+                return PENDING;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.nirwan.dentalclinic.controllers.cells;
+
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.util.Callback;
+
+import java.util.function.Function;
+
+/**
+ * Cell factories for the application's tables. The cells keep per-row work small: money text
+ * comes from {@link CurrencyText}, and colours are pseudo-classes ({@link CellStyles}) rather
+ * than inline styles.
+ */
+public final class Cells {
+    private Cells() {
+    }
+
+    /** Money, unstyled */
+    public static <S, T extends Number> Callback<TableColumn<S, T>, TableCell<S, T>> money() {
+        return column -> new MoneyCell<>(null);
+    }
+
+    /** Money still owed, highlighted when above zero */
+    public static <S, T extends Number> Callback<TableColumn<S, T>, TableCell<S, T>> moneyDue() {
+        return column -> new MoneyCell<>(CellStyles.DUE);
+    }
+
+    /** Money received, highlighted when above zero */
+    public static <S, T extends Number> Callback<TableColumn<S, T>, TableCell<S, T>> moneyReceived() {
+        return column -> new MoneyCell<>(CellStyles.RECEIVED);
+    }
+
+    /** A payment status such as PAID or PENDING */
+    public static <S> Callback<TableColumn<S, String>, TableCell<S, String>> paymentStatus() {
+        return column -> new StatusCell<>();
+    }
+
+    /** A treatment's active flag */
+    public static <S> Callback<TableColumn<S, Boolean>, TableCell<S, Boolean>> activeStatus() {
+        return column -> new ActiveCell<>();
+    }
+
+    /**
+     * Any other value, shown through the given formatter; null values show as empty
+     */
+    public static <S, T> Callback<TableColumn<S, T>, TableCell<S, T>> formatted(Function<? super T, String> formatter) {
+        return column -> new TableCell<>() {
+            @Override
+            protected void updateItem(T item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : formatter.apply(item));
+            }
+        };
+    }
+}
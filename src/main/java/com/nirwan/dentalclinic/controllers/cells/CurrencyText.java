@@ -0,0 +1,42 @@
+package com.nirwan.dentalclinic.controllers.cells;
+
+import com.nirwan.dentalclinic.models.Money;
+
+/**
+ * {@link Money#format} with a small cache, for table cells that show the same few amounts over
+ * and over while a table scrolls. The cache is direct-mapped on the amount: a hit returns the
+ * string made last time without allocating, a miss formats and replaces whatever shared the slot.
+ * Entries are immutable, so the cache needs no locking.
+ */
+public final class CurrencyText {
+    private static final int SLOTS = 4096;
+    private static final Entry[] CACHE = new Entry[SLOTS];
+
+    private CurrencyText() {
+    }
+
+    private static final class Entry {
+        final long paise;
+        final String text;
+
+        Entry(long paise, String text) {
+            this.paise = paise;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Display form with the rupee symbol, e.g. "₹1500.50"
+     */
+    public static String of(long paise) {
+        // Amounts are mostly whole rupees, so hash the rupees and the paise apart
+        int slot = (int) ((paise / 100) * 31 + paise % 100) & (SLOTS - 1);
+        Entry entry = CACHE[slot];
+        if (entry != null && entry.paise == paise) {
+            return entry.text;
+        }
+        String text = Money.format(paise);
+        CACHE[slot] = new Entry(paise, text);
+        return text;
+    }
+}
@@ -0,0 +1,39 @@
+package com.nirwan.dentalclinic.controllers.cells;
+
+import javafx.css.PseudoClass;
+import javafx.scene.control.TableCell;
+
+/**
+ * A money column: the amount in paise shown as rupees. Positive amounts may be highlighted with a
+ * pseudo-class (such as {@link CellStyles#DUE}) instead of an inline style, so a cell that
+ * scrolls onto another row only flips a flag rather than having its style re-parsed.
+ */
+public class MoneyCell<S, T extends Number> extends TableCell<S, T> {
+    private final PseudoClass positive;
+
+    /**
+     * @param positive set while the amount is above zero, or null for no highlight
+     */
+    public MoneyCell(PseudoClass positive) {
+        this.positive = positive;
+        getStyleClass().add("money-cell");
+    }
+
+    @Override
+    protected void updateItem(T amount, boolean empty) {
+        super.updateItem(amount, empty);
+        if (empty || amount == null) {
+            setText(null);
+            if (positive != null) pseudoClassStateChanged(positive, false);
+        } else {
+            long paise = amount.longValue();
+            setText(CurrencyText.of(paise));
+            if (positive != null) pseudoClassStateChanged(positive, paise > 0);
+        }
+    }
+
+    @Override
+    public String getUserAgentStylesheet() {
+        return CellStyles.STYLESHEET;
+    }
+}
@@ -0,0 +1,33 @@
+package com.nirwan.dentalclinic.controllers.cells;
+
+import javafx.css.PseudoClass;
+import javafx.scene.control.TableCell;
+
+/**
+ * A payment status column (PAID, PARTIALLY_PAID or PENDING), coloured through one pseudo-class
+ * per status (see {@link CellStyles#paymentStatus}). Any other text is shown unstyled.
+ */
+public class StatusCell<S> extends TableCell<S, String> {
+    private PseudoClass current;
+
+    public StatusCell() {
+        getStyleClass().add("status-cell");
+    }
+
+    @Override
+    protected void updateItem(String status, boolean empty) {
+        super.updateItem(status, empty);
+        setText(empty ? null : status);
+        PseudoClass next = empty ? null : CellStyles.paymentStatus(status);
+        if (next != current) {
+            if (current != null) pseudoClassStateChanged(current, false);
+            if (next != null) pseudoClassStateChanged(next, true);
+            current = next;
+        }
+    }
+
+    @Override
+    public String getUserAgentStylesheet() {
+        return CellStyles.STYLESHEET;
+    }
+}
@@ -1,5 +1,9 @@
 package com.nirwan.dentalclinic.controllers.dialogs;
 
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.FxExecutor;
+import com.nirwan.dentalclinic.controllers.UiResources;
+import com.nirwan.dentalclinic.models.Money;
 import com.nirwan.dentalclinic.models.Patient;
 import com.nirwan.dentalclinic.models.Treatment;
 import com.nirwan.dentalclinic.repository.TreatmentDao;
@@ -7,7 +11,6 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
 import javafx.stage.Modality;
@@ -34,6 +37,7 @@ public class NewTreatmentGridController {
     @FXML private TextField treatment1Text;
     @FXML private TextField treatment2Text;
     @FXML private TextField treatment3Text;
+    @FXML private GridPane root;
     
     private final TreatmentDao treatmentDao = new TreatmentDao();
     private Patient patient;
@@ -143,9 +147,7 @@ public class NewTreatmentGridController {
             Stage dialogStage = new Stage();
             dialogStage.setTitle("New Treatment");
             dialogStage.initModality(Modality.APPLICATION_MODAL);
-            dialogStage.getIcons().add(
-                    new Image(NewTreatmentGridController.class.getResourceAsStream("/icons/icon.png"))
-            );
+            UiResources.applyIcon(dialogStage);
             dialogStage.initStyle(StageStyle.DECORATED);
             dialogStage.setResizable(false);
 
@@ -176,9 +178,9 @@ public class NewTreatmentGridController {
 
             // Get form values
             String description = buildTreatmentDescription();
-            double cost = Double.parseDouble(costField.getText());
-            double initialPayment = initialPaymentField.getText().trim().isEmpty() ? 0 :
-                    Double.parseDouble(initialPaymentField.getText().trim());
+            long cost = Money.parse(costField.getText());
+            long initialPayment = initialPaymentField.getText().trim().isEmpty() ? Money.ZERO :
+                    Money.parse(initialPaymentField.getText().trim());
             String paymentMethod = paymentMethodCombo.getValue();
             String notes = notesField.getText().trim();
             LocalDate date = datePicker.getValue();
@@ -196,18 +198,28 @@ public class NewTreatmentGridController {
             treatment.setCreatedAt(LocalDateTime.now());
             treatment.setUpdatedAt(LocalDateTime.now());
 
-            // Save to database
-            createdTreatment = treatmentDao.saveTreatment(treatment);
-
-            if (createdTreatment == null) {
-                errorLabel.setText("Failed to save treatment. Please try again.");
-                return;
-            }
+            // Save to database off the FX thread; keep the form disabled until it finishes
+            root.setDisable(true);
+            errorLabel.setText("Saving...");
+            treatmentDao.saveTreatmentAsync(treatment).whenCompleteAsync((saved, ex) -> {
+                root.setDisable(false);
+                if (ex != null) {
+                    Throwable cause = DbExecutor.unwrap(ex);
+                    cause.printStackTrace();
+                    errorLabel.setText("Error saving treatment: " + cause.getMessage());
+                    return;
+                }
+                createdTreatment = saved;
+                if (createdTreatment == null) {
+                    errorLabel.setText("Failed to save treatment. Please try again.");
+                    return;
+                }
 
-            // Close the dialog
-            if (dialogStage != null) {
-                dialogStage.close();
-            }
+                // Close the dialog
+                if (dialogStage != null) {
+                    dialogStage.close();
+                }
+            }, FxExecutor.INSTANCE);
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -230,7 +242,7 @@ public class NewTreatmentGridController {
         }
         
         try {
-            Double.parseDouble(costField.getText());
+            Money.parse(costField.getText());
         } catch (NumberFormatException e) {
             errorLabel.setText("Please enter a valid cost");
             return false;
@@ -239,7 +251,7 @@ public class NewTreatmentGridController {
         // Validate initial payment if provided
         if (!initialPaymentField.getText().trim().isEmpty()) {
             try {
-                Double.parseDouble(initialPaymentField.getText());
+                Money.parse(initialPaymentField.getText());
             } catch (NumberFormatException e) {
                 errorLabel.setText("Please enter a valid initial payment");
                 return false;
@@ -1,8 +1,16 @@
 package com.nirwan.dentalclinic.controllers.dialogs;
 
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.FxExecutor;
+import com.nirwan.dentalclinic.concurrent.LatestRequest;
+import com.nirwan.dentalclinic.controllers.UiResources;
+import com.nirwan.dentalclinic.controllers.cells.Cells;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.Patient;
 import com.nirwan.dentalclinic.models.Payment;
 import com.nirwan.dentalclinic.models.Treatment;
 import com.nirwan.dentalclinic.models.TreatmentCost;
+import com.nirwan.dentalclinic.repository.ConcurrentUpdateException;
 import com.nirwan.dentalclinic.repository.PatientDao;
 import com.nirwan.dentalclinic.repository.TreatmentDao;
 import javafx.beans.property.ReadOnlyStringWrapper;
@@ -12,7 +20,6 @@ import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.image.Image;
 import javafx.scene.layout.HBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
@@ -21,15 +28,14 @@ import javafx.scene.layout.GridPane;
 import javafx.geometry.Insets;
 
 import java.net.URL;
-import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 public class TreatmentDetailsDialogController implements Initializable {
     @FXML private Label titleLabel;
@@ -45,12 +51,12 @@ public class TreatmentDetailsDialogController implements Initializable {
     @FXML private Label amountPendingLabel;
     @FXML private TableView<Payment> paymentsTable;
     @FXML private TableColumn<Payment, String> paymentDateCol;
-    @FXML private TableColumn<Payment, Double> amountCol;
+    @FXML private TableColumn<Payment, Long> amountCol;
     @FXML private TableColumn<Payment, String> methodCol;
     @FXML private TableColumn<Payment, String> notesCol;
     @FXML private TableView<TreatmentCost> costHistoryTable;
     @FXML private TableColumn<TreatmentCost, String> effectiveDateCol;
-    @FXML private TableColumn<TreatmentCost, Double> costCol;
+    @FXML private TableColumn<TreatmentCost, Long> costCol;
     // fx:id in FXML is "statusCol"; align the controller field name to avoid NPE
     @FXML private TableColumn<TreatmentCost, String> statusCol;
     @FXML private TableColumn<TreatmentCost, String> costNotesCol;
@@ -63,12 +69,73 @@ public class TreatmentDetailsDialogController implements Initializable {
     
     private final TreatmentDao treatmentDao = new TreatmentDao();
     private final PatientDao patientDao = new PatientDao();
-    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
     
+    private final LatestRequest<Optional<Patient>> patientLoad = new LatestRequest<>();
+    private final LatestRequest<List<Payment>> paymentsLoad = new LatestRequest<>();
+    private final LatestRequest<List<TreatmentCost>> costsLoad = new LatestRequest<>();
+    
     private Treatment treatment;
     private boolean dataChanged = false;
     private Payment selectedPayment;
+    private Dialog<ButtonType> dialog;
+    private PaymentForm paymentForm;
+
+    /**
+     * The Add Payment dialog, built on first use and cleared each time it is shown again
+     */
+    private static final class PaymentForm {
+        final Dialog<ButtonType> dialog = new Dialog<>();
+        final TextField amountField = new TextField();
+        final ChoiceBox<String> methodChoice = new ChoiceBox<>();
+        final DatePicker datePicker = new DatePicker();
+        final TextArea notesArea = new TextArea();
+
+        PaymentForm(Window owner) {
+            dialog.initOwner(owner);
+            dialog.setTitle("Add Payment");
+            UiResources.applyIcon((Stage) dialog.getDialogPane().getScene().getWindow());
+
+            DialogPane pane = new DialogPane();
+            pane.getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+            GridPane grid = new GridPane();
+            grid.setHgap(10);
+            grid.setVgap(10);
+            grid.setPadding(new Insets(10));
+
+            amountField.setPromptText("Amount");
+            amountField.setTextFormatter(new TextFormatter<>(c -> {
+                // allow numbers and dot
+                if (c.getControlNewText().matches("^\\d*(\\.\\d{0,2})?$")) return c;
+                return null;
+            }));
+
+            methodChoice.getItems().addAll("CASH", "UPI");
+            datePicker.setPromptText("Date");
+
+            HBox hbox = new HBox();
+            hbox.setSpacing(5);
+            hbox.getChildren().addAll(methodChoice,
+                    new Label("Date:"), datePicker);
+            notesArea.setPromptText("Notes (optional)");
+            notesArea.setPrefRowCount(3);
+
+            grid.addRow(0, new Label("Amount:"), amountField);
+            grid.addRow(1, new Label("Method:"), hbox);
+            grid.addRow(2, new Label("Notes:"), notesArea);
+
+            pane.setContent(grid);
+            dialog.setDialogPane(pane);
+        }
+
+        void reset(String method) {
+            amountField.clear();
+            methodChoice.getSelectionModel().select(method);
+            datePicker.setValue(LocalDate.now());
+            notesArea.clear();
+        }
+    }
     
     @Override
     public void initialize(URL url, ResourceBundle rb) {
@@ -109,7 +176,7 @@ public class TreatmentDetailsDialogController implements Initializable {
 
         TextField costField = new TextField();
         costField.setPromptText("New total cost");
-        costField.setText(String.format("%.2f", treatment.getTotalAmount()));
+        costField.setText(Money.toPlainString(treatment.getTotalAmount()));
         costField.setTextFormatter(new TextFormatter<>(c -> {
             if (c.getControlNewText().matches("^\\d*(\\.\\d{0,2})?$")) return c;
             return null;
@@ -129,7 +196,7 @@ public class TreatmentDetailsDialogController implements Initializable {
         if (result.isPresent() && result.get() == ButtonType.OK) {
             try {
                 String text = costField.getText();
-                double newCost = (text == null || text.isBlank()) ? treatment.getTotalAmount() : Double.parseDouble(text);
+                long newCost = (text == null || text.isBlank()) ? treatment.getTotalAmount() : Money.parse(text);
                 if (newCost <= 0) {
                     errorLabel.setText("Cost must be greater than 0.");
                     return;
@@ -137,16 +204,15 @@ public class TreatmentDetailsDialogController implements Initializable {
 
                 String notes = notesArea.getText() != null ? notesArea.getText().trim() : "";
 
-                boolean ok = treatmentDao.addTreatmentCost(treatment, newCost, notes.isEmpty() ? "Cost updated" : notes);
-                if (ok) {
-                    // Update local model and UI
-                    treatment.updateCost(newCost);
-                    dataChanged = true;
-                    updateUI();
-                    loadCostHistory();
-                } else {
-                    errorLabel.setText("Failed to update treatment cost. Please try again.");
-                }
+                submitChange(treatmentDao.addTreatmentCostAsync(treatment, newCost, notes.isEmpty() ? "Cost updated" : notes),
+                        () -> {
+                            // Update local model and UI
+                            treatment.updateCost(newCost);
+                            dataChanged = true;
+                            updateUI();
+                        },
+                        "Failed to update treatment cost. Please try again.",
+                        "Error updating cost: ");
             } catch (NumberFormatException nfe) {
                 errorLabel.setText("Invalid cost entered.");
             } catch (Exception ex) {
@@ -155,7 +221,20 @@ public class TreatmentDetailsDialogController implements Initializable {
         }
     }
     
+    /**
+     * Shows the given treatment. The dialog is reused, so whatever the previous treatment left
+     * behind (pending loads, rows, selection, messages) is cleared first.
+     */
     public void setTreatment(Treatment treatment) {
+        patientLoad.cancel();
+        paymentsLoad.cancel();
+        costsLoad.cancel();
+        paymentsTable.getSelectionModel().clearSelection();
+        paymentsTable.getItems().clear();
+        costHistoryTable.getItems().clear();
+        subtitleLabel.setText("");
+        errorLabel.setText("");
+        dataChanged = false;
         this.treatment = treatment;
         updateUI();
     }
@@ -170,20 +249,8 @@ public class TreatmentDetailsDialogController implements Initializable {
         notesCol.setCellValueFactory(new PropertyValueFactory<>("notes"));
         
         // Format amount column
-        amountCol.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(Double amount, boolean empty) {
-                super.updateItem(amount, empty);
-                if (empty || amount == null) {
-                    setText("");
-                    setStyle("");
-                } else {
-                    setText(currencyFormat.format(amount));
-                    setStyle(amount > 0 ? "-fx-text-fill: #2e7d32; -fx-font-weight: bold;" : "");
-                }
-            }
-        });
-        
+        amountCol.setCellFactory(Cells.moneyReceived());
+
         // Cost history table columns
         effectiveDateCol.setCellValueFactory(cd -> new ReadOnlyStringWrapper(
                 cd.getValue().getEffectiveFrom() != null ? dateFormatter.format(cd.getValue().getEffectiveFrom()) : ""
@@ -193,13 +260,7 @@ public class TreatmentDetailsDialogController implements Initializable {
         costNotesCol.setCellValueFactory(new PropertyValueFactory<>("notes"));
         
         // Format cost column
-        costCol.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(Double cost, boolean empty) {
-                super.updateItem(cost, empty);
-                setText(empty || cost == null ? "" : currencyFormat.format(cost));
-            }
-        });
+        costCol.setCellFactory(Cells.money());
     }
     
     private void setupDialogButtons() {
@@ -219,9 +280,9 @@ public class TreatmentDetailsDialogController implements Initializable {
         
         // Update header
         titleLabel.setText("Treatment #" + treatment.getTreatmentId());
-        subtitleLabel.setText("For: " + patientDao
-                .findById((long)treatment.getPatientId()).orElseThrow(
-                        ()-> new RuntimeException("Patient not found")).getName());
+        patientLoad.submit(patientDao.findByIdAsync((long) treatment.getPatientId()),
+                patient -> subtitleLabel.setText(patient.map(p -> "For: " + p.getName()).orElse("Patient not found")),
+                ex -> errorLabel.setText("Failed to load patient: " + ex.getMessage()));
         
         // Update treatment details
         treatmentIdLabel.setText(treatment.getTreatmentId());
@@ -252,9 +313,9 @@ public class TreatmentDetailsDialogController implements Initializable {
         lastUpdatedLabel.setText(treatment.getUpdatedAt().format(dateFormatter));
         
         // Update financial information
-        totalCostLabel.setText(currencyFormat.format(treatment.getTotalAmount()));
-        amountPaidLabel.setText(currencyFormat.format(treatment.getAmountPaid()));
-        amountPendingLabel.setText(currencyFormat.format(treatment.getAmountPending()));
+        totalCostLabel.setText(Money.format(treatment.getTotalAmount()));
+        amountPaidLabel.setText(Money.format(treatment.getAmountPaid()));
+        amountPendingLabel.setText(Money.format(treatment.getAmountPending()));
         
         // Load payment history
         loadPaymentHistory();
@@ -265,34 +326,131 @@ public class TreatmentDetailsDialogController implements Initializable {
     
     private void loadPaymentHistory() {
         if (treatment == null) return;
-        try {
-            List<Payment> payments = treatmentDao.getPaymentsForTreatment(treatment.getTreatmentId());
-            paymentsTable.getItems().setAll(payments);
-            if (deletePaymentBtn != null) {
-                deletePaymentBtn.setDisable(paymentsTable.getSelectionModel().getSelectedItem() == null);
-            }
-        } catch (Exception ex) {
-            errorLabel.setText("Failed to load payments: " + ex.getMessage());
-        }
+        paymentsLoad.submit(treatmentDao.getPaymentsForTreatmentAsync(treatment.getId()),
+                payments -> {
+                    paymentsTable.getItems().setAll(payments);
+                    if (deletePaymentBtn != null) {
+                        deletePaymentBtn.setDisable(paymentsTable.getSelectionModel().getSelectedItem() == null);
+                    }
+                },
+                ex -> errorLabel.setText("Failed to load payments: " + ex.getMessage()));
     }
     
     private void loadCostHistory() {
         if (treatment == null) return;
-        try {
-            List<TreatmentCost> costs = treatmentDao.getCostHistoryForTreatment(treatment.getTreatmentId());
-            costHistoryTable.getItems().setAll(costs);
-        } catch (Exception ex) {
-            errorLabel.setText("Failed to load cost history: " + ex.getMessage());
+        costsLoad.submit(treatmentDao.getCostHistoryForTreatmentAsync(treatment.getId()),
+                costs -> costHistoryTable.getItems().setAll(costs),
+                ex -> errorLabel.setText("Failed to load cost history: " + ex.getMessage()));
+    }
+
+    /**
+     * Runs a change on the database worker and applies the UI update on the FX thread.
+     * Editing buttons stay disabled while the change is in flight to avoid double submits.
+     */
+    private void submitChange(CompletableFuture<Boolean> change, Runnable onSuccess,
+                              String failureMessage, String errorPrefix) {
+        submitChange(change, onSuccess, () -> { }, failureMessage, errorPrefix);
+    }
+
+    /**
+     * As above, running onFailure first to undo local edits made ahead of the change
+     */
+    private void submitChange(CompletableFuture<Boolean> change, Runnable onSuccess, Runnable onFailure,
+                              String failureMessage, String errorPrefix) {
+        setEditingDisabled(true);
+        errorLabel.setText("");
+        change.whenCompleteAsync((ok, ex) -> {
+            setEditingDisabled(false);
+            if (ex == null && Boolean.TRUE.equals(ok)) {
+                onSuccess.run();
+                return;
+            }
+            onFailure.run();
+            if (isConflict(ex)) {
+                reloadAfterConflict();
+            } else {
+                errorLabel.setText(ex != null ? errorPrefix + DbExecutor.unwrap(ex).getMessage() : failureMessage);
+                updateUI();
+            }
+        }, FxExecutor.INSTANCE);
+    }
+
+    private static boolean isConflict(Throwable ex) {
+        return ex != null && DbExecutor.unwrap(ex) instanceof ConcurrentUpdateException;
+    }
+
+    /**
+     * Another terminal changed the treatment or payment since it was read here. Shows the current
+     * values, so the user can review them and the next attempt is checked against them.
+     */
+    private void reloadAfterConflict() {
+        int treatmentId = treatment.getId();
+        treatmentDao.findByIdAsync(treatmentId).whenCompleteAsync((fresh, ex) -> {
+            if (treatment == null || treatment.getId() != treatmentId) return;
+            if (ex == null && fresh.isPresent()) {
+                treatment.setTreatmentName(fresh.get().getTreatmentName());
+                applyFreshTotals(fresh, 0);
+            }
+            errorLabel.setText("This treatment was changed on another terminal. "
+                    + "The latest values are shown; please check them and try again.");
+            dataChanged = true;
+            updateUI();
+        }, FxExecutor.INSTANCE);
+    }
+
+    private void setEditingDisabled(boolean disabled) {
+        if (disabled) {
+            if (addPaymentBtn != null) addPaymentBtn.setDisable(true);
+            if (deletePaymentBtn != null) deletePaymentBtn.setDisable(true);
+            if (editPaymentBtn != null) editPaymentBtn.setDisable(true);
+            if (updateCostBtn != null) updateCostBtn.setDisable(true);
+            if (markCompletedBtn != null) markCompletedBtn.setDisable(true);
+        } else {
+            if (markCompletedBtn != null) markCompletedBtn.setDisable(false);
+            if (editPaymentBtn != null) editPaymentBtn.setDisable(paymentsTable.getSelectionModel().getSelectedItem() == null);
+            // Remaining buttons depend on treatment status and are reset by updateUI()
         }
     }
+
+    /**
+     * Copies the latest persisted amounts into the local treatment after a payment change.
+     * Falls back to adjusting locally by the given paid-amount delta if the fresh read failed.
+     */
+    private void applyFreshTotals(Optional<Treatment> fresh, long paidDelta) {
+        if (fresh.isPresent()) {
+            Treatment t = fresh.get();
+            treatment.setTotalAmount(t.getTotalAmount());
+            treatment.setAmountPaid(t.getAmountPaid());
+            treatment.setAmountPending(t.getAmountPending());
+            treatment.setActive(t.isActive());
+            treatment.setUpdatedAt(t.getUpdatedAt());
+            treatment.setVersion(t.getVersion());
+        } else {
+            long newPaid = Math.max(Money.ZERO, treatment.getAmountPaid() + paidDelta);
+            treatment.setAmountPaid(newPaid);
+            treatment.setAmountPending(Math.max(Money.ZERO, treatment.getTotalAmount() - newPaid));
+            treatment.setUpdatedAt(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Runs a payment change and then re-reads the treatment so generated columns are consistent.
+     * Completes with null if the change itself failed.
+     */
+    private CompletableFuture<Optional<Treatment>> changeThenReload(CompletableFuture<Boolean> change) {
+        int treatmentId = treatment.getId();
+        return change.thenCompose(ok -> Boolean.TRUE.equals(ok)
+                ? treatmentDao.findByIdAsync(treatmentId)
+                : CompletableFuture.completedFuture(null));
+    }
     
     @FXML
     private void handleMarkCompleted() {
         if (treatment == null || !treatment.isActive()) return;
 
         // Confirm complete and close message (include pending info if any)
-        String pendingMsg = treatment.getAmountPending() > 0.005
-                ? String.format("\nPending: %s", currencyFormat.format(treatment.getAmountPending()))
+        String pendingMsg = treatment.getAmountPending() > Money.ZERO
+                ? String.format("\nPending: %s", Money.format(treatment.getAmountPending()))
                 : "";
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Complete Treatment");
@@ -303,13 +461,14 @@ public class TreatmentDetailsDialogController implements Initializable {
 
         // Mark inactive (completed) and persist
         treatment.setActive(false);
-        boolean ok = treatmentDao.updateTreatment(treatment);
-        if (ok) {
-            dataChanged = true;
-            updateUI();
-        } else {
-            errorLabel.setText("Failed to mark completed. Please try again.");
-        }
+        submitChange(treatmentDao.updateTreatmentAsync(treatment),
+                () -> {
+                    dataChanged = true;
+                    updateUI();
+                },
+                () -> treatment.setActive(true),
+                "Failed to mark completed. Please try again.",
+                "Failed to mark completed: ");
     }
 
     private void handleReopenTreatment() {
@@ -323,13 +482,14 @@ public class TreatmentDetailsDialogController implements Initializable {
         if (res.isEmpty() || res.get() != ButtonType.OK) return;
 
         treatment.setActive(true);
-        boolean ok = treatmentDao.updateTreatment(treatment);
-        if (ok) {
-            dataChanged = true;
-            updateUI();
-        } else {
-            errorLabel.setText("Failed to reopen treatment. Please try again.");
-        }
+        submitChange(treatmentDao.updateTreatmentAsync(treatment),
+                () -> {
+                    dataChanged = true;
+                    updateUI();
+                },
+                () -> treatment.setActive(false),
+                "Failed to reopen treatment. Please try again.",
+                "Failed to reopen treatment: ");
     }
     
     @FXML
@@ -339,58 +499,21 @@ public class TreatmentDetailsDialogController implements Initializable {
             return;
         }
 
-        Dialog<ButtonType> dialog = new Dialog<>();
-        dialog.initOwner(dialogPane.getScene() != null ? dialogPane.getScene().getWindow() : null);
-        dialog.setTitle("Add Payment");
-        Stage dialogStage = (Stage) dialog.getDialogPane()
-                .getScene().getWindow();
-        dialogStage.getIcons().add(
-                new Image(getClass().getResourceAsStream("/icons/icon.png")));
-
-        DialogPane pane = new DialogPane();
-        pane.getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
-
-        GridPane grid = new GridPane();
-        grid.setHgap(10);
-        grid.setVgap(10);
-        grid.setPadding(new Insets(10));
-
-        TextField amountField = new TextField();
-        amountField.setPromptText("Amount");
-        amountField.setTextFormatter(new TextFormatter<>(c -> {
-            // allow numbers and dot
-            if (c.getControlNewText().matches("^\\d*(\\.\\d{0,2})?$")) return c;
-            return null;
-        }));
-
-        ChoiceBox<String> methodChoice = new ChoiceBox<>();
-        methodChoice.getItems().addAll("CASH", "UPI");
-        methodChoice.getSelectionModel().select(treatment.getPaymentMethod() != null ? treatment.getPaymentMethod() : "CASH");
-
-        DatePicker datePicker = new DatePicker();
-        datePicker.setValue(LocalDate.now());
-        datePicker.setPromptText("Date");
-
-        HBox hbox = new HBox();
-        hbox.setSpacing(5);
-        hbox.getChildren().addAll(methodChoice,
-                new Label("Date:"), datePicker);
-        TextArea notesArea = new TextArea();
-        notesArea.setPromptText("Notes (optional)");
-        notesArea.setPrefRowCount(3);
-
-        grid.addRow(0, new Label("Amount:"), amountField);
-        grid.addRow(1,new Label("Method:"), hbox);
-        grid.addRow(2, new Label("Notes:"), notesArea);
-
-        pane.setContent(grid);
-        dialog.setDialogPane(pane);
-
-        Optional<ButtonType> result = dialog.showAndWait();
+        if (paymentForm == null) {
+            paymentForm = new PaymentForm(dialogPane.getScene() != null ? dialogPane.getScene().getWindow() : null);
+        }
+        PaymentForm form = paymentForm;
+        form.reset(treatment.getPaymentMethod() != null ? treatment.getPaymentMethod() : "CASH");
+        TextField amountField = form.amountField;
+        ChoiceBox<String> methodChoice = form.methodChoice;
+        DatePicker datePicker = form.datePicker;
+        TextArea notesArea = form.notesArea;
+
+        Optional<ButtonType> result = form.dialog.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             try {
                 String amtText = amountField.getText();
-                double amount = (amtText == null || amtText.isBlank()) ? 0.0 : Double.parseDouble(amtText);
+                long amount = (amtText == null || amtText.isBlank()) ? Money.ZERO : Money.parse(amtText);
                 if (amount <= 0) {
                     errorLabel.setText("Payment amount must be greater than 0.");
                     return;
@@ -406,27 +529,25 @@ public class TreatmentDetailsDialogController implements Initializable {
                     confirm.setTitle("Confirm Overpayment");
                     confirm.setHeaderText("Payment exceeds pending amount");
                     confirm.setContentText(String.format("Pending: %s, Paying: %s. Continue?",
-                            currencyFormat.format(treatment.getAmountPending()), currencyFormat.format(amount)));
+                            Money.format(treatment.getAmountPending()),
+                            Money.format(amount)));
                     Optional<ButtonType> c = confirm.showAndWait();
                     if (c.isEmpty() || c.get() != ButtonType.OK) {
                         return;
                     }
                 }
 
-                boolean ok = treatmentDao.recordPayment(treatment, amount,
-                        method, notes, paymentDate);
-                if (ok) {
-                    // Update local model and UI
-                    treatment.recordPayment(amount);
-                    treatment.setPaymentMethod(method);
-                    if (!notes.isEmpty()) treatment.setNotes(notes);
-                    dataChanged = true;
-                    updateUI(); // refresh labels and totals
-                    loadPaymentHistory();
-                    loadCostHistory(); // refresh status in cost history
-                } else {
-                    errorLabel.setText("Failed to record payment. Please try again.");
-                }
+                submitChange(treatmentDao.recordPaymentAsync(treatment, amount, method, notes, paymentDate),
+                        () -> {
+                            // Update local model and UI
+                            treatment.recordPayment(amount);
+                            treatment.setPaymentMethod(method);
+                            if (!notes.isEmpty()) treatment.setNotes(notes);
+                            dataChanged = true;
+                            updateUI(); // refresh labels, totals, payments and cost status
+                        },
+                        "Failed to record payment. Please try again.",
+                        "Error adding payment: ");
             } catch (NumberFormatException nfe) {
                 errorLabel.setText("Invalid amount entered.");
             } catch (Exception ex) {
@@ -435,20 +556,25 @@ public class TreatmentDetailsDialogController implements Initializable {
         }
     }
     
+    /**
+     * Shows the dialog and waits for it to close.
+     * @return whether the treatment or its payments were changed
+     */
     public boolean showAndWait(Window owner) {
-        Dialog<ButtonType> dialog = new Dialog<>();
-        dialog.initOwner(owner);
-        dialog.setTitle("Treatment Details");
-        Stage dialogStage = (Stage) dialog.getDialogPane()
-                .getScene().getWindow();
-        dialogStage.getIcons().add(
-                new Image(getClass().getResourceAsStream("/icons/icon.png")));
-        // Set the dialog content
-        dialog.setDialogPane(dialogPane);
-        // Ensure it's large enough and resizable
-        dialog.setResizable(true);
-        dialogPane.setPrefWidth(800);
-        dialogPane.setPrefHeight(600);
+        // The dialog is built once and shown again for every treatment; a dialog's owner
+        // cannot change after it was first shown
+        if (dialog == null || dialog.getOwner() != owner) {
+            dialog = new Dialog<>();
+            dialog.initOwner(owner);
+            dialog.setTitle("Treatment Details");
+            UiResources.applyIcon((Stage) dialog.getDialogPane().getScene().getWindow());
+            // Set the dialog content
+            dialog.setDialogPane(dialogPane);
+            // Ensure it's large enough and resizable
+            dialog.setResizable(true);
+            dialogPane.setPrefWidth(800);
+            dialogPane.setPrefHeight(600);
+        }
         
         // Show the dialog and wait for response
         dialog.showAndWait();
@@ -470,40 +596,26 @@ public class TreatmentDetailsDialogController implements Initializable {
         confirm.setTitle("Delete Payment");
         confirm.setHeaderText("Delete the selected payment?");
         confirm.setContentText(String.format("This will subtract %s from Amount Paid and update status.",
-                currencyFormat.format(selected.getAmount())));
+                Money.format(selected.getAmount())));
         Optional<ButtonType> res = confirm.showAndWait();
         if (res.isEmpty() || res.get() != ButtonType.OK) return;
 
-        boolean ok = treatmentDao.deletePayment(selected);
-        if (ok) {
-            // Prefer reading fresh values from DB so generated columns are consistent
-            try {
-                java.util.Optional<Treatment> fresh = treatmentDao.findById(treatment.getId());
-                if (fresh.isPresent()) {
-                    Treatment t = fresh.get();
-                    treatment.setTotalAmount(t.getTotalAmount());
-                    treatment.setAmountPaid(t.getAmountPaid());
-                    treatment.setAmountPending(t.getAmountPending());
-                    treatment.setActive(t.isActive());
-                    treatment.setUpdatedAt(t.getUpdatedAt());
-                } else {
-                    // Fallback: adjust locally
-                    double amt = selected.getAmount();
-                    double newPaid = Math.max(0, treatment.getAmountPaid() - amt);
-                    treatment.setAmountPaid(newPaid);
-                    treatment.setAmountPending(Math.max(0, treatment.getTotalAmount() - newPaid));
-                    treatment.setUpdatedAt(java.time.LocalDateTime.now());
-                }
-            } catch (Exception ignored) {
-                // If refresh fails, keep local fallback values
+        setEditingDisabled(true);
+        changeThenReload(treatmentDao.deletePaymentAsync(selected)).whenCompleteAsync((fresh, ex) -> {
+            setEditingDisabled(false);
+            if (ex == null && fresh != null) {
+                applyFreshTotals(fresh, -selected.getAmount());
+                dataChanged = true;
+            } else if (isConflict(ex)) {
+                reloadAfterConflict();
+                return;
+            } else {
+                errorLabel.setText(ex != null
+                        ? "Error deleting payment: " + DbExecutor.unwrap(ex).getMessage()
+                        : "Failed to delete payment. Please try again.");
             }
-            dataChanged = true;
             updateUI();
-            loadPaymentHistory();
-            loadCostHistory();
-        } else {
-            errorLabel.setText("Failed to delete payment. Please try again.");
-        }
+        }, FxExecutor.INSTANCE);
     }
 
     @FXML
@@ -520,13 +632,10 @@ public class TreatmentDetailsDialogController implements Initializable {
         dialog.setTitle("Edit Payment");
         dialog.initModality(Modality.APPLICATION_MODAL);
         dialog.initOwner(deletePaymentBtn.getScene().getWindow());
-        Stage dialogStage = (Stage) dialog.getDialogPane()
-                .getScene().getWindow();
-        dialogStage.getIcons().add(
-                new Image(getClass().getResourceAsStream("/icons/icon.png")));
+        UiResources.applyIcon((Stage) dialog.getDialogPane().getScene().getWindow());
 
         // Create form fields
-        TextField amountField = new TextField(String.format("%.2f", payment.getAmount()));
+        TextField amountField = new TextField(Money.toPlainString(payment.getAmount()));
         DatePicker datePicker = new DatePicker();
         datePicker.setValue(payment.getPaymentDate().toLocalDate());
 
@@ -564,7 +673,7 @@ public class TreatmentDetailsDialogController implements Initializable {
         Node addButton = dialog.getDialogPane().lookupButton(ButtonType.OK);
         addButton.addEventFilter(ActionEvent.ACTION, event -> {
             try {
-                Double.parseDouble(amountField.getText());
+                Money.parse(amountField.getText());
             } catch (NumberFormatException e) {
                 event.consume();
                 showAlert("Invalid Amount", "Please enter a valid amount", Alert.AlertType.ERROR);
@@ -577,42 +686,28 @@ public class TreatmentDetailsDialogController implements Initializable {
             try {
                 Payment updatedPayment = new Payment();
                 updatedPayment.setId(payment.getId());
+                updatedPayment.setTreatmentPk(payment.getTreatmentPk());
                 updatedPayment.setTreatmentId(payment.getTreatmentId());
-                updatedPayment.setAmount(Double.parseDouble(amountField.getText()));
+                updatedPayment.setAmount(Money.parse(amountField.getText()));
                 updatedPayment.setPaymentMethod(methodChoice.getValue());
                 updatedPayment.setNotes(notesArea.getText().trim());
                 updatedPayment.setPaymentDate(datePicker.getValue().atTime(
                         LocalTime.now()));
 
-                if (treatmentDao.editPayment(payment, updatedPayment)) {
-                    // Prefer reading fresh values from DB so generated columns are consistent
-                    try {
-                        java.util.Optional<Treatment> fresh = treatmentDao.findById(treatment.getId());
-                        if (fresh.isPresent()) {
-                            Treatment t = fresh.get();
-                            treatment.setTotalAmount(t.getTotalAmount());
-                            treatment.setAmountPaid(t.getAmountPaid());
-                            treatment.setAmountPending(t.getAmountPending());
-                            treatment.setActive(t.isActive());
-                            treatment.setUpdatedAt(t.getUpdatedAt());
-                        } else {
-                            // Fallback: adjust locally
-                            double amt = updatedPayment.getAmount()-payment.getAmount();
-                            double newPaid = Math.max(0, treatment.getAmountPaid() +amt);
-                            treatment.setAmountPaid(newPaid);
-                            treatment.setAmountPending(Math.max(0, treatment.getTotalAmount() - newPaid));
-                            treatment.setUpdatedAt(java.time.LocalDateTime.now());
-                        }
-                    } catch (Exception ignored) {
-                        // If refresh fails, keep local fallback values
+                setEditingDisabled(true);
+                changeThenReload(treatmentDao.editPaymentAsync(payment, updatedPayment)).whenCompleteAsync((fresh, ex) -> {
+                    setEditingDisabled(false);
+                    if (ex == null && fresh != null) {
+                        applyFreshTotals(fresh, updatedPayment.getAmount() - payment.getAmount());
+                        dataChanged = true;
+                    } else if (isConflict(ex)) {
+                        reloadAfterConflict();
+                        return;
+                    } else {
+                        showAlert("Error", "Failed to update payment", Alert.AlertType.ERROR);
                     }
-                    dataChanged = true;
                     updateUI();
-                    loadPaymentHistory();
-                    loadCostHistory();
-                } else {
-                    showAlert("Error", "Failed to update payment", Alert.AlertType.ERROR);
-                }
+                }, FxExecutor.INSTANCE);
             } catch (NumberFormatException e) {
                 showAlert("Error", "Invalid amount format", Alert.AlertType.ERROR);
             }
@@ -1,34 +1,31 @@
 package com.nirwan.dentalclinic.controllers.reports;
 
-import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.concurrent.FxExecutor;
+import com.nirwan.dentalclinic.concurrent.LatestRequest;
+import com.nirwan.dentalclinic.controllers.cells.Cells;
+import com.nirwan.dentalclinic.export.PaymentsXlsxExporter;
+import com.nirwan.dentalclinic.models.Money;
 import com.nirwan.dentalclinic.models.PaymentReportRow;
+import com.nirwan.dentalclinic.models.PaymentTotals;
+import com.nirwan.dentalclinic.repository.PaymentReportDao;
+import com.nirwan.dentalclinic.repository.PaymentRollupDao;
+import javafx.animation.PauseTransition;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.util.Duration;
 
-import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import javafx.stage.FileChooser;
 import java.util.prefs.Preferences;
-import org.apache.poi.ss.usermodel.BorderStyle;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.FillPatternType;
-import org.apache.poi.ss.usermodel.Font;
-import org.apache.poi.ss.usermodel.HorizontalAlignment;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 public class PaymentsReportController {
     @FXML private ComboBox<String> datePresetCombo;
@@ -47,20 +44,36 @@ public class PaymentsReportController {
     @FXML private Label totalEarningsLabel;
     @FXML private Label totalCashLabel;
     @FXML private Label totalOnlineLabel;
+    @FXML private ProgressIndicator loadingIndicator;
+    @FXML private HBox exportPane;
+    @FXML private ProgressBar exportProgress;
+    @FXML private Label exportStatusLabel;
 
     private final ObservableList<PaymentReportRow> rows = FXCollections.observableArrayList();
+    private final PaymentReportDao paymentReportDao = new PaymentReportDao();
+    private final PaymentRollupDao paymentRollupDao = new PaymentRollupDao();
+    private final LatestRequest<List<PaymentReportRow>> reportLoad = new LatestRequest<>();
+    private final LatestRequest<PaymentTotals> totalsLoad = new LatestRequest<>();
+    private final PaymentsXlsxExporter xlsxExporter = new PaymentsXlsxExporter();
+    private final LatestRequest<Long> exportRequest = new LatestRequest<>();
+    private PaymentTotals lastTotals = PaymentTotals.EMPTY;
     private final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
     private final Preferences prefs = Preferences.userNodeForPackage(PaymentsReportController.class);
     private static final String PREF_LAST_EXPORT_DIR = "payments_report_last_dir";
+    private final PauseTransition filterDebounce = new PauseTransition(Duration.millis(300));
 
     @FXML
     public void initialize() {
+        if (loadingIndicator != null) {
+            loadingIndicator.visibleProperty().bind(reportLoad.loadingProperty().or(totalsLoad.loadingProperty()));
+        }
         setupControls();
         setupTable();
         loadData();
 
-        // Auto refresh when filters change
-        treatmentFilterField.textProperty().addListener((o, a, b) -> loadData());
+        // Auto refresh when filters change; typing waits for a pause so each keystroke does not start a query
+        filterDebounce.setOnFinished(e -> loadData());
+        treatmentFilterField.textProperty().addListener((o, a, b) -> filterDebounce.playFromStart());
         paymentModeCombo.valueProperty().addListener((o, a, b) -> loadData());
         datePresetCombo.valueProperty().addListener((o, a, b) -> { toggleDatePickers(); loadData(); });
         if (fromDatePicker != null) fromDatePicker.valueProperty().addListener((o,a,b)-> loadData());
@@ -99,18 +112,7 @@ public class PaymentsReportController {
         // basic properties via PropertyValueFactory as per FXML
         paymentsTable.setItems(rows);
         // amount formatting
-        colAmount.setCellFactory(tc -> new TableCell<>() {
-            @Override
-            protected void updateItem(Number value, boolean empty) {
-                super.updateItem(value, empty);
-                if (empty || value == null) {
-                    setText("");
-                } else {
-                    setText(String.format("₹%.2f", value.doubleValue()));
-                    setStyle("-fx-text-fill: #2e7d32; -fx-font-weight: bold;");
-                }
-            }
-        });
+        colAmount.setCellFactory(Cells.moneyReceived());
     }
 
     private LocalDateTime[] computeRange() {
@@ -146,69 +148,39 @@ public class PaymentsReportController {
 
     @FXML
     private void handleClose() {
+        filterDebounce.stop();
+        reportLoad.cancel();
+        totalsLoad.cancel();
+        exportRequest.cancel();
         ((Control) paymentsTable).getScene().getWindow().hide();
     }
 
+    /**
+     * Starts the report query for the current filters. A query still running for earlier filters is
+     * cancelled on the server and its results are dropped.
+     */
     private void loadData() {
-        rows.clear();
+        filterDebounce.stop();
         LocalDateTime[] range = computeRange();
         LocalDateTime from = range[0];
         LocalDateTime to = range[1];
         String modeFilter = paymentModeCombo.getValue();
         String treatmentLike = treatmentFilterField.getText() != null ? treatmentFilterField.getText().trim() : "";
 
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT p.name AS patient_name, t.treatment_name AS treatment_desc, ")
-           .append("pay.amount, pay.payment_method, pay.payment_date, t.treatment_name AS treatment ")
-           .append("FROM Payment pay ")
-           .append("JOIN Treatment t ON pay.treatment_id = t.treatment_id ")
-           .append("JOIN Patient p ON t.patient_id = p.id ")
-           .append("WHERE pay.is_deleted = false AND pay.payment_date >= ? AND pay.payment_date <= ? ");
-        if (modeFilter != null && !modeFilter.equals("All")) {
-            sql.append("AND pay.payment_method = ? ");
-        }
-        if (!treatmentLike.isEmpty()) {
-            sql.append("AND LOWER(t.treatment_name) LIKE ? ");
-        }
-        sql.append("ORDER BY pay.payment_date DESC");
-
-        double total = 0.0, cash = 0.0, online = 0.0;
-
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
-            int idx = 1;
-            ps.setTimestamp(idx++, Timestamp.valueOf(from));
-            ps.setTimestamp(idx++, Timestamp.valueOf(to));
-            if (modeFilter != null && !modeFilter.equals("All")) {
-                ps.setString(idx++, modeFilter);
-            }
-            if (!treatmentLike.isEmpty()) {
-                ps.setString(idx++, "%" + treatmentLike.toLowerCase() + "%");
-            }
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    PaymentReportRow row = new PaymentReportRow();
-                    row.setPatientName(rs.getString("patient_name"));
-                    row.setTreatmentDescription(rs.getString("treatment_desc"));
-                    row.setTreatmentId(rs.getString("treatment"));
-                    row.setAmount(rs.getDouble("amount"));
-                    row.setPaymentMethod(rs.getString("payment_method"));
-                    Timestamp ts = rs.getTimestamp("payment_date");
-                    row.setDateTime(ts != null ? ts.toLocalDateTime() : null);
-                    rows.add(row);
-
-                    total += row.getAmount();
-                    if ("CASH".equalsIgnoreCase(row.getPaymentMethod())) cash += row.getAmount();
-                    else online += row.getAmount();
-                }
-            }
-        } catch (SQLException ex) {
-            new Alert(Alert.AlertType.ERROR, "Error loading payments: " + ex.getMessage()).showAndWait();
-        }
+        reportLoad.submit(paymentReportDao.findPaymentsAsync(from, to, modeFilter, treatmentLike),
+                rows::setAll,
+                ex -> new Alert(Alert.AlertType.ERROR, "Error loading payments: " + ex.getMessage()).showAndWait());
+        // Header totals come from the daily rollup instead of summing every row of the range
+        totalsLoad.submit(paymentRollupDao.findTotalsAsync(from.toLocalDate(), to.toLocalDate(), modeFilter, treatmentLike),
+                this::showTotals,
+                ex -> new Alert(Alert.AlertType.ERROR, "Error loading payment totals: " + ex.getMessage()).showAndWait());
+    }
 
-        totalEarningsLabel.setText(String.format("₹%.2f", total));
-        totalCashLabel.setText(String.format("₹%.2f", cash));
-        totalOnlineLabel.setText(String.format("₹%.2f", online));
+    private void showTotals(PaymentTotals totals) {
+        lastTotals = totals;
+        totalEarningsLabel.setText(Money.format(totals.getTotal()));
+        totalCashLabel.setText(Money.format(totals.getCash()));
+        totalOnlineLabel.setText(Money.format(totals.getOnline()));
     }
 
     private void toggleDatePickers() {
@@ -235,6 +207,7 @@ public class PaymentsReportController {
 
     @FXML
     private void handleExport() {
+        if (exportRequest.isLoading()) return;
         if (paymentsTable == null || paymentsTable.getItems() == null || paymentsTable.getItems().isEmpty()) {
             new Alert(Alert.AlertType.INFORMATION, "Nothing to export. Adjust filters to show some rows.").showAndWait();
             return;
@@ -256,83 +229,49 @@ public class PaymentsReportController {
         } catch (Exception ignored) {}
         File file = fc.showSaveDialog(paymentsTable.getScene().getWindow());
         if (file == null) return;
+        // Remember the chosen directory
+        try {
+            File parent = file.getParentFile();
+            if (parent != null) prefs.put(PREF_LAST_EXPORT_DIR, parent.getAbsolutePath());
+        } catch (Exception ignored) {}
 
-        try (XSSFWorkbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("Payments");
-
-            // Header style
-            CellStyle headerStyle = wb.createCellStyle();
-            Font headerFont = wb.createFont();
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
-            headerStyle.setFillForegroundColor((short) 22); // light grey
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            headerStyle.setAlignment(HorizontalAlignment.CENTER);
-            headerStyle.setBorderBottom(BorderStyle.THIN);
-
-            // Amount style
-            CellStyle amountStyle = wb.createCellStyle();
-            amountStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("#,##0.00"));
-
-            int rowIdx = 0;
-            Row header = sheet.createRow(rowIdx++);
-            String[] headers = {"Date", "Patient", "Treatment", "Amount", "Mode"};
-            for (int i = 0; i < headers.length; i++) {
-                Cell c = header.createCell(i);
-                c.setCellValue(headers[i]);
-                c.setCellStyle(headerStyle);
-            }
-
-            for (PaymentReportRow r : paymentsTable.getItems()) {
-                Row row = sheet.createRow(rowIdx++);
-                row.createCell(0).setCellValue(r.getDateTime() != null ? dtf.format(r.getDateTime()) : "");
-                row.createCell(1).setCellValue(r.getPatientName() != null ? r.getPatientName() : "");
-                row.createCell(2).setCellValue(r.getTreatmentDescription() != null ? r.getTreatmentDescription() : "");
-                Cell amountCell = row.createCell(3);
-                amountCell.setCellValue(r.getAmount());
-                amountCell.setCellStyle(amountStyle);
-                row.createCell(4).setCellValue(r.getPaymentMethod() != null ? r.getPaymentMethod() : "");
-            }
-
-            // Total row (sum of Amount column)
-            Row totalRow = sheet.createRow(rowIdx+2);
-            // Bold style for total label
-            CellStyle totalLabelStyle = wb.createCellStyle();
-            Font totalFont = wb.createFont();
-            totalFont.setBold(true);
-            totalLabelStyle.setFont(totalFont);
-            totalLabelStyle.setFillForegroundColor((short) 22);
-            totalLabelStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            Cell totalLabelCell = totalRow.createCell(2); // column C: "Treatment" column position for label
-            totalLabelCell.setCellValue("Total");
-            totalLabelCell.setCellStyle(totalLabelStyle);
+        // Export with the current filters, read again from the database rather than from the table
+        LocalDateTime[] range = computeRange();
+        String modeFilter = paymentModeCombo.getValue();
+        String treatmentLike = treatmentFilterField.getText() != null ? treatmentFilterField.getText().trim() : "";
+        long expected = lastTotals.getCount();
 
-            // Amount total with bold amount style
-            CellStyle totalAmountStyle = wb.createCellStyle();
-            totalAmountStyle.cloneStyleFrom(amountStyle);
-            Font totalAmountFont = wb.createFont();
-            totalAmountFont.setBold(true);
-            totalAmountStyle.setFont(totalAmountFont);
-            Cell totalAmountCell = totalRow.createCell(3); // column D: Amount
-            int dataEndRow = rowIdx; // last data row index (1-based in Excel is +1)
-            // In Excel rows are 1-based; header is row 1, data starts at row 2
-            String formula = String.format("SUM(D2:D%d)", dataEndRow);
-            totalAmountCell.setCellFormula(formula);
-            totalAmountCell.setCellStyle(totalAmountStyle);
+        showExportProgress(true);
+        exportProgress.setProgress(expected > 0 ? 0 : ProgressBar.INDETERMINATE_PROGRESS);
+        exportRequest.submit(xlsxExporter.exportAsync(file.toPath(), range[0], range[1], modeFilter, treatmentLike,
+                        written -> FxExecutor.INSTANCE.execute(() -> updateExportProgress(written, expected))),
+                count -> {
+                    showExportProgress(false);
+                    new Alert(Alert.AlertType.INFORMATION, "Exported " + count + " payments to " + file.getName()).showAndWait();
+                },
+                ex -> {
+                    showExportProgress(false);
+                    new Alert(Alert.AlertType.ERROR, "Failed to export: " + ex.getMessage()).showAndWait();
+                });
+    }
 
-            // Autosize
-            for (int i = 0; i < 5; i++) sheet.autoSizeColumn(i);
+    @FXML
+    private void handleCancelExport() {
+        exportRequest.cancel();
+        showExportProgress(false);
+    }
 
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                wb.write(fos);
-            }
-            // Remember the chosen directory
-            try {
-                File parent = file.getParentFile();
-                if (parent != null) prefs.put(PREF_LAST_EXPORT_DIR, parent.getAbsolutePath());
-            } catch (Exception ignored) {}
-        } catch (IOException ex) {
-            new Alert(Alert.AlertType.ERROR, "Failed to export: " + ex.getMessage()).showAndWait();
+    private void updateExportProgress(long written, long expected) {
+        if (!exportRequest.isLoading()) return;
+        if (expected > 0) {
+            exportProgress.setProgress(Math.min(1.0, written / (double) expected));
         }
+        exportStatusLabel.setText("Exported " + written + " rows...");
+    }
+
+    private void showExportProgress(boolean show) {
+        exportPane.setVisible(show);
+        exportPane.setManaged(show);
+        exportStatusLabel.setText("");
     }
 }
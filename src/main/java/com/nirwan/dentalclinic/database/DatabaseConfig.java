@@ -0,0 +1,133 @@
+package com.nirwan.dentalclinic.database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Database and connection pool settings.
+ * Values are layered: classpath defaults, then an optional profile file, then an optional
+ * external file, and finally JVM system properties with the same key.
+ */
+public class DatabaseConfig {
+    private static final String DEFAULTS_RESOURCE = "/db/database.properties";
+    private static final String PROFILE_PROPERTY = "dentalclinic.profile";
+    private static final String EXTERNAL_FILE_PROPERTY = "dentalclinic.db.config";
+    private static final Path USER_CONFIG = Paths.get(System.getProperty("user.home"), ".nirwan", "database.properties");
+    private static final String DRIVER_PREFIX = "driver.";
+
+    private final Properties props;
+
+    private DatabaseConfig(Properties props) {
+        this.props = props;
+    }
+
+    /**
+     * Loads the configuration from all sources in precedence order
+     */
+    public static DatabaseConfig load() {
+        Properties props = new Properties();
+        loadResource(props, DEFAULTS_RESOURCE, true);
+
+        String profile = System.getProperty(PROFILE_PROPERTY);
+        if (profile != null && !profile.isBlank()) {
+            loadResource(props, "/db/database-" + profile.trim() + ".properties", true);
+        }
+
+        String external = System.getProperty(EXTERNAL_FILE_PROPERTY);
+        if (external != null && !external.isBlank()) {
+            loadFile(props, Paths.get(external.trim()), true);
+        } else if (Files.isRegularFile(USER_CONFIG)) {
+            loadFile(props, USER_CONFIG, false);
+        }
+
+        // System properties win over every file
+        for (String key : props.stringPropertyNames()) {
+            String override = System.getProperty(key);
+            if (override != null) props.setProperty(key, override);
+        }
+        return new DatabaseConfig(props);
+    }
+
+    private static void loadResource(Properties props, String resource, boolean required) {
+        try (InputStream in = DatabaseConfig.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                if (required) System.err.println("Database config resource not found: " + resource);
+                return;
+            }
+            props.load(in);
+            System.out.println("Loaded database config: " + resource);
+        } catch (IOException e) {
+            System.err.println("Failed to read database config " + resource + ": " + e.getMessage());
+        }
+    }
+
+    private static void loadFile(Properties props, Path file, boolean required) {
+        if (!Files.isRegularFile(file)) {
+            if (required) System.err.println("Database config file not found: " + file);
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+            System.out.println("Loaded database config: " + file);
+        } catch (IOException e) {
+            System.err.println("Failed to read database config " + file + ": " + e.getMessage());
+        }
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    public String getUrl() { return get("db.url", null); }
+    public String getUser() { return get("db.user", null); }
+    public String getPassword() { return get("db.password", null); }
+    public String getDriver() { return get("db.driver", null); }
+
+    /**
+     * Driver properties in the semicolon separated form expected by
+     * {@link org.apache.commons.dbcp2.BasicDataSource#setConnectionProperties(String)}
+     */
+    public String getDriverProperties() {
+        StringBuilder sb = new StringBuilder();
+        for (String key : props.stringPropertyNames()) {
+            if (!key.startsWith(DRIVER_PREFIX)) continue;
+            if (sb.length() > 0) sb.append(';');
+            sb.append(key.substring(DRIVER_PREFIX.length())).append('=').append(props.getProperty(key).trim());
+        }
+        return sb.toString();
+    }
+}
@@ -1,50 +1,106 @@
 package com.nirwan.dentalclinic.database;
 
+import java.io.PrintWriter;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.dbcp2.BasicDataSource;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/patient-accounts-db";
-    private static final String USER = "patient-accounts-user";
-    private static final String PASSWORD = "patient-accounts-user";
-    private static final String driver = "com.mysql.cj.jdbc.Driver";
-//private static final String URL = "jdbc:h2:file:C:/Nirwan/db/patient-accounts;DB_CLOSE_ON_EXIT=FALSE";
-//    private static final String USER = "sa";
-//    private static final String PASSWORD = "sa";
-//    private static final String driver = "org.h2.Driver";
     private static DatabaseConnection instance;
+    private final DatabaseConfig config;
+    private final SqlDialect dialect;
     private final BasicDataSource dataSource;
+    private final BasicDataSource streamingDataSource;
+    private final PoolMetrics metrics;
+    private ScheduledExecutorService metricsLogger;
 
-    private DatabaseConnection() {
-        dataSource = new BasicDataSource();
-        dataSource.setUrl(URL);
-        dataSource.setUsername(USER);
-        dataSource.setPassword(PASSWORD);
-        dataSource.setMinIdle(5);
-        dataSource.setMaxIdle(10);
-        dataSource.setMaxOpenPreparedStatements(100);
+    DatabaseConnection(DatabaseConfig config) {
+        this.config = config;
+        this.dialect = SqlDialect.of(config);
+        dataSource = createDataSource(config, dialect);
+
+        // Sizing
+        dataSource.setInitialSize(config.getInt("pool.initial-size", 2));
+        dataSource.setMinIdle(config.getInt("pool.min-idle", 2));
+        dataSource.setMaxIdle(config.getInt("pool.max-idle", 10));
+        dataSource.setMaxTotal(config.getInt("pool.max-total", 20));
+
+        // Leak detection: reclaim connections held past the timeout and log where they were borrowed
+        int leakTimeout = config.getInt("pool.leak-detection-timeout-seconds", 0);
+        if (leakTimeout > 0) {
+            dataSource.setRemoveAbandonedOnBorrow(true);
+            dataSource.setRemoveAbandonedOnMaintenance(true);
+            dataSource.setRemoveAbandonedTimeout(Duration.ofSeconds(leakTimeout));
+            dataSource.setLogAbandoned(true);
+            dataSource.setAbandonedLogWriter(new PrintWriter(System.err, true));
+        }
+
+        // Streaming exports hold one connection for as long as the file takes to write, and reading
+        // rows does not count as use, so they get their own small pool without leak detection
+        streamingDataSource = createDataSource(config, dialect);
+        streamingDataSource.setInitialSize(0);
+        streamingDataSource.setMinIdle(0);
+        streamingDataSource.setMaxIdle(1);
+        streamingDataSource.setMaxTotal(config.getInt("pool.streaming-max-total", 2));
+
+        metrics = new PoolMetrics(dataSource);
+    }
+
+    /**
+     * A pool with the connection, wait, validation and eviction settings shared by both pools
+     */
+    private static BasicDataSource createDataSource(DatabaseConfig config, SqlDialect dialect) {
+        BasicDataSource ds = new BasicDataSource();
+        ds.setDriverClassName(config.getDriver());
+        ds.setUrl(config.getUrl());
+        ds.setUsername(config.getUser());
+        ds.setPassword(config.getPassword());
+        ds.setConnectionProperties(dialect.connectionProperties(config));
+        ds.setMaxWait(Duration.ofMillis(config.getLong("pool.max-wait-millis", 5000)));
+
+        // Validation (JDBC4 isValid, i.e. a protocol ping) and idle eviction
+        ds.setTestOnBorrow(config.getBoolean("pool.test-on-borrow", true));
+        ds.setTestWhileIdle(config.getBoolean("pool.test-while-idle", true));
+        ds.setValidationQueryTimeout(Duration.ofSeconds(config.getInt("pool.validation-query-timeout-seconds", 2)));
+        ds.setDurationBetweenEvictionRuns(Duration.ofMillis(config.getLong("pool.eviction-interval-millis", 30000)));
+        ds.setMinEvictableIdle(Duration.ofMillis(config.getLong("pool.min-evictable-idle-millis", 300000)));
+        ds.setMaxConn(Duration.ofMillis(config.getLong("pool.max-conn-lifetime-millis", 1800000)));
+        return ds;
     }
 
     public static void initializeDatabase() {
+        long start = System.nanoTime();
         try {
-            // Load MySQL JDBC Driver
-            Class.forName(driver);
+            DatabaseConfig config = DatabaseConfig.load();
+
+            // Load the JDBC driver
+            Class.forName(config.getDriver());
             
             // Initialize the connection pool
-            instance = new DatabaseConnection();
+            instance = new DatabaseConnection(config);
             
             // Test the connection
             try (Connection conn = instance.getConnection()) {
-                System.out.println("Connected to MySQL Database successfully.");
-                instance.createTables();
-                System.out.println("DB initialized successfully");
+                System.out.println("Connected to " + instance.dialect + " database successfully: " + config.getUrl());
+                if (config.getBoolean("db.migrate", true)) {
+                    instance.createTables();
+                }
+                System.out.println("DB initialized successfully in " + (System.nanoTime() - start) / 1_000_000 + " ms");
             }
+            instance.startMetricsLogging();
         } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found: " + e.getMessage());
+            System.err.println("JDBC Driver not found: " + e.getMessage());
         } catch (SQLException e) {
             System.err.println("Database connection failed: " + e.getMessage());
+            // Leave no half-open pool behind, so getInstance() tells callers the database is unavailable
+            if (instance != null) {
+                instance.closeConnection();
+                instance = null;
+            }
         }
     }
 
@@ -53,147 +109,89 @@ public class DatabaseConnection {
     }
 
     public static void createTableIfNotExists(String createTableSQL) {
-        try {
-            try (var stmt = instance.dataSource.getConnection().createStatement()) {
-                stmt.execute(createTableSQL);
-            }
+        try (Connection conn = instance.getConnection();
+             var stmt = conn.createStatement()) {
+            stmt.execute(createTableSQL);
         } catch (SQLException e) {
             System.err.println("Failed to create table " + ": " + e.getMessage());
         }
     }
 
     public Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        long start = System.nanoTime();
+        try {
+            Connection conn = dataSource.getConnection();
+            metrics.recordBorrow(System.nanoTime() - start);
+            return conn;
+        } catch (SQLException e) {
+            metrics.recordFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * A connection for reading a large result set row by row (exports). It comes from a separate
+     * pool that never reclaims connections as abandoned, so a long stream is not closed midway.
+     */
+    public Connection getStreamingConnection() throws SQLException {
+        return streamingDataSource.getConnection();
+    }
+
+    /** Connections currently borrowed from the streaming pool */
+    int getStreamingActiveCount() {
+        return streamingDataSource.getNumActive();
+    }
+
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * Live pool metrics: borrow-wait histogram, active and idle counts
+     */
+    public PoolMetrics getPoolMetrics() {
+        return metrics;
+    }
+
+    private void startMetricsLogging() {
+        int interval = config.getInt("pool.metrics-log-interval-seconds", 0);
+        if (interval <= 0) return;
+        metricsLogger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        metricsLogger.scheduleAtFixedRate(() -> System.out.println(metrics.report()),
+                interval, interval, TimeUnit.SECONDS);
     }
 
     public void closeConnection() {
+        if (metricsLogger != null) {
+            metricsLogger.shutdownNow();
+        }
         if (dataSource != null) {
+            System.out.println(metrics.report());
             try {
                 dataSource.close();
+                streamingDataSource.close();
             } catch (SQLException e) {
                 System.err.println("Failed to close connection pool: " + e.getMessage());
             }
         }
     }
 
+    /**
+     * Brings the schema up to date by applying pending migrations from /db/migrations
+     */
     public void createTables() {
-        try (Connection conn = dataSource.getConnection()) {
-            // Save the current auto-commit state
-            boolean initialAutoCommit = conn.getAutoCommit();
-            conn.setAutoCommit(false);
-            
-            try {
-                // Create Patient table
-                String patientTableSQL = "CREATE TABLE IF NOT EXISTS Patient (\n" +
-                        "    id INT PRIMARY KEY AUTO_INCREMENT,\n" +
-                        "    name VARCHAR(255) UNIQUE NOT NULL,\n" +
-                        "    is_deleted BOOLEAN DEFAULT FALSE,\n" +
-                        "    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n" +
-                        "    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP\n" +
-                        ")";
-                try (var stmt = conn.createStatement()) {
-                    stmt.execute(patientTableSQL);
-                }
-
-                // Create Treatment table
-                String treatmentTableSQL = "CREATE TABLE IF NOT EXISTS Treatment (\n" +
-                        "    id INT PRIMARY KEY AUTO_INCREMENT,\n" +
-                        "    treatment_id VARCHAR(255) UNIQUE NOT NULL,\n" +
-                        "    patient_id INT NOT NULL,\n" +
-                        "    treatment_name TEXT,\n" +
-                        "    total_amount DOUBLE NOT NULL,\n" +
-                        "    amount_paid DOUBLE DEFAULT 0.0,\n" +
-                        "    amount_pending DOUBLE GENERATED ALWAYS AS (total_amount - amount_paid) STORED,\n" +
-                        "    is_deleted BOOLEAN DEFAULT FALSE,\n" +
-                        "    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n" +
-                        "    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,\n" +
-                        "    is_active BOOLEAN DEFAULT TRUE,\n" +
-                        "    FOREIGN KEY (patient_id) REFERENCES Patient(id) ON DELETE CASCADE\n" +
-                        ")";
-                try (var stmt = conn.createStatement()) {
-                    stmt.execute(treatmentTableSQL);
-                }
-
-                // Create TreatmentCost table to track cost history and status
-                String treatmentCostTableSQL = "CREATE TABLE IF NOT EXISTS TreatmentCost (\n" +
-                        "    id INT PRIMARY KEY AUTO_INCREMENT,\n" +
-                        "    treatment_id VARCHAR(255) NOT NULL,\n" +
-                        "    cost DOUBLE NOT NULL,\n" +
-                        "    status ENUM('PENDING', 'PARTIALLY_PAID', 'PAID') NOT NULL,\n" +
-                        "    notes TEXT,\n" +
-                        "    effective_from TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n" +
-                        "    is_deleted BOOLEAN DEFAULT FALSE,\n" +
-                        "    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n" +
-                        "    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,\n" +
-                        "    FOREIGN KEY (treatment_id) REFERENCES Treatment(treatment_id) ON DELETE CASCADE\n" +
-                        ")";
-                try (var stmt = conn.createStatement()) {
-                    stmt.execute(treatmentCostTableSQL);
-                }
-
-                // Create Payment table to track payments
-                String paymentTableSQL = "CREATE TABLE IF NOT EXISTS Payment (\n" +
-                        "    id INT PRIMARY KEY AUTO_INCREMENT,\n" +
-                        "    treatment_id VARCHAR(255) NOT NULL,\n" +
-                        "    amount DOUBLE NOT NULL,\n" +
-                        "    payment_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n" +
-                        "    payment_method ENUM('CASH', 'CARD', 'UPI', 'BANK_TRANSFER') NOT NULL,\n" +
-                        "    transaction_reference VARCHAR(255),\n" +
-                        "    notes TEXT,\n" +
-                        "    is_deleted BOOLEAN DEFAULT FALSE,\n" +
-                        "    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n" +
-                        "    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,\n" +
-                        "    FOREIGN KEY (treatment_id) REFERENCES Treatment(treatment_id) ON DELETE CASCADE\n" +
-                        ")";
-                try (var stmt = conn.createStatement()) {
-                    stmt.execute(paymentTableSQL);
-                }
-
-                // Create a simplified view that shows patient information with their treatments
-                String viewSql = "CREATE OR REPLACE VIEW PatientList AS " +
-                        "SELECT " +
-                        "    p.id as patientId, " +
-                        "    p.name as patientName, " +
-                        "    t.id as treatmentId, " +
-                        "    t.treatment_id as treatmentReference, " +
-                        "    t.treatment_name as treatmentDescription, " +
-                        "    t.total_amount as totalAmount, " +
-                        "    t.amount_paid as amountPaid, " +
-                        "    t.amount_pending as balancePayment, " +
-                        "    t.created_at as treatmentDate, " +
-                        "    p.created_at as patientSince " +
-                        "FROM Patient p " +
-                        "LEFT JOIN Treatment t ON p.id = t.patient_id " +
-                        "WHERE p.is_deleted = FALSE AND (t.is_deleted = FALSE OR t.id IS NULL)";
-
-                try (var stmt = conn.createStatement()) {
-                    stmt.execute("DROP VIEW IF EXISTS PatientList");
-                    stmt.execute(viewSql);
-                } catch (SQLException e) {
-                    System.err.println("Failed to create PatientList view: " + e.getMessage());
-                    throw e;
-                }
-
-                // If we get here, commit all changes
-                conn.commit();
-            } catch (SQLException e) {
-                // If there's an error, rollback the transaction
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    e.addSuppressed(ex);
-                }
-                throw e;
-            } finally {
-                // Restore the original auto-commit state
-                try {
-                    conn.setAutoCommit(initialAutoCommit);
-                } catch (SQLException e) {
-                    System.err.println("Failed to restore auto-commit state: " + e.getMessage());
-                }
-            }
+        try {
+            new MigrationRunner(this).migrate();
         } catch (SQLException e) {
-            System.err.println("Failed to create tables: " + e.getMessage());
+            System.err.println("Failed to migrate schema: " + e.getMessage());
             throw new RuntimeException("Failed to initialize database tables", e);
         }
     }
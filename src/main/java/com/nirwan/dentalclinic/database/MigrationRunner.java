@@ -0,0 +1,364 @@
+package com.nirwan.dentalclinic.database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Applies versioned SQL scripts from /db/migrations (/db/migrations/h2 for H2) in order and
+ * records each one in the schema_version table, so that only pending scripts run on startup.
+ * When terminals start together after an upgrade, a database lock lets one of them migrate while
+ * the others wait and then find the schema up to date.
+ *
+ * A script's statements and its schema_version row are not one transaction (MySQL and H2 commit
+ * DDL as it runs), so the row is written before the script with execution_ms = -1 and completed
+ * after it. A row left at -1 means the script failed or the terminal stopped partway, and the
+ * schema may be partly changed. Startup then refuses to migrate until an operator recovers:
+ * <ol>
+ *   <li>compare the database with the script and undo the statements that did run (or run the
+ *       remaining ones by hand);</li>
+ *   <li>if the schema is now as before the script, DELETE FROM schema_version WHERE version = N
+ *       so it runs again on the next start; if every statement has been run by hand, UPDATE
+ *       schema_version SET execution_ms = 0 WHERE version = N to mark it applied.</li>
+ * </ol>
+ */
+public class MigrationRunner {
+    private static final String MIGRATIONS_PATH = "/db/migrations/";
+    private static final String H2_MIGRATIONS_PATH = "/db/migrations/h2/";
+    private static final String LOCK_NAME = "schema_migration";
+
+    /** Every migration script, in the order it must be applied. Add new scripts at the end. */
+    private static final String[] MIGRATIONS = {
+            "V1__baseline.sql",
+            "V2__add_is_active_to_treatment.sql",
+            "V3__performance_indexes.sql",
+            "V4__integer_treatment_foreign_keys.sql",
+            "V5__decimal_money_columns.sql",
+            "V6__patient_summary.sql",
+            "V7__payment_daily_rollup.sql",
+            "V8__record_payment_procedure.sql",
+            "V9__row_versions.sql",
+            "V10__id_nodes.sql",
+            "V11__record_payment_projections.sql",
+            "V12__change_watermark_indexes.sql",
+            "V13__incremental_payment_rollup.sql",
+            "V14__record_payment_core_writes.sql",
+    };
+
+    /**
+     * The H2 scripts. H2 databases start at V11, the schema above as of that version; a new
+     * migration is added to both lists under the same version (and may be empty for one of them).
+     */
+    private static final String[] H2_MIGRATIONS = {
+            "V11__baseline.sql",
+            "V12__change_watermark_indexes.sql",
+            "V13__incremental_payment_rollup.sql",
+            "V14__record_payment_core_writes.sql",
+    };
+
+    private static final String CREATE_VERSION_TABLE_SQL =
+        "CREATE TABLE IF NOT EXISTS schema_version (" +
+        "    version INT PRIMARY KEY," +
+        "    description VARCHAR(255) NOT NULL," +
+        "    script VARCHAR(255) NOT NULL," +
+        "    checksum BIGINT NOT NULL," +
+        "    execution_ms INT NOT NULL," +
+        "    installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+        ")";
+
+    private static final String SELECT_APPLIED_SQL = "SELECT version, checksum FROM schema_version";
+
+    private static final String SELECT_LATEST_VERSION_SQL = "SELECT MAX(version), MIN(execution_ms) FROM schema_version";
+
+    private static final String SELECT_UNFINISHED_SQL =
+        "SELECT version, script, installed_at FROM schema_version WHERE execution_ms < 0 ORDER BY version";
+
+    private static final String INSERT_VERSION_SQL =
+        "INSERT INTO schema_version (version, description, script, checksum, execution_ms) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String FINISH_VERSION_SQL = "UPDATE schema_version SET execution_ms = ? WHERE version = ?";
+
+    /** execution_ms of a script that was started and has not finished */
+    private static final int UNFINISHED = -1;
+
+    private final DatabaseConnection database;
+
+    public MigrationRunner(DatabaseConnection database) {
+        this.database = database;
+    }
+
+    /**
+     * A migration script on the classpath
+     */
+    static final class Migration {
+        final int version;
+        final String description;
+        final String script;
+        final String sql;
+        final long checksum;
+
+        Migration(int version, String description, String script, String sql) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            this.sql = sql;
+            CRC32 crc = new CRC32();
+            crc.update(sql.getBytes(StandardCharsets.UTF_8));
+            this.checksum = crc.getValue();
+        }
+    }
+
+    /**
+     * Applies all pending migrations.
+     * @return the number of scripts applied
+     */
+    public int migrate() throws SQLException {
+        SqlDialect dialect = database.getDialect();
+        try (Connection conn = database.getConnection()) {
+            // The usual startup: nothing pending, so skip reading and checksumming the scripts.
+            // Changed scripts are then only reported the next time a migration is applied.
+            String[] scripts = scripts(dialect);
+            int latest = versionOf(scripts[scripts.length - 1]);
+            if (appliedVersion(conn) == latest) {
+                System.out.println("Schema is up to date (version " + latest + ")");
+                return 0;
+            }
+
+            int timeoutSeconds = database.getConfig().getInt("db.migrate-lock-timeout-seconds", 300);
+            if (!dialect.lock(conn, LOCK_NAME, timeoutSeconds)) {
+                throw new SQLException("Timed out after " + timeoutSeconds
+                        + " s waiting for another terminal to finish migrating the schema");
+            }
+            try {
+                // Another terminal may have applied the pending scripts while this one waited
+                if (appliedVersion(conn) == latest) {
+                    System.out.println("Schema is up to date (version " + latest + ")");
+                    return 0;
+                }
+                return applyPending(conn, dialect);
+            } finally {
+                dialect.unlock(conn, LOCK_NAME);
+            }
+        }
+    }
+
+    private int applyPending(Connection conn, SqlDialect dialect) throws SQLException {
+        List<Migration> migrations = loadMigrations(dialect);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_VERSION_TABLE_SQL);
+        }
+
+        refuseIfUnfinished(conn);
+        Map<Integer, Long> applied = findApplied(conn);
+        if (applied.isEmpty()) {
+            baselineLegacySchema(conn, migrations, applied);
+        }
+
+        int count = 0;
+        for (Migration migration : migrations) {
+            Long checksum = applied.get(migration.version);
+            if (checksum != null) {
+                if (checksum != 0 && checksum != migration.checksum) {
+                    System.err.println("Warning: migration " + migration.script + " changed after it was applied");
+                }
+                continue;
+            }
+            apply(conn, migration);
+            count++;
+        }
+
+        if (count == 0) {
+            System.out.println("Schema is up to date (version " + currentVersion(migrations) + ")");
+        }
+        return count;
+    }
+
+    /**
+     * The newest version recorded in schema_version, or -1 if there is none (or no table yet) or
+     * a script did not finish, which migrate() then reports
+     */
+    private static int appliedVersion(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_LATEST_VERSION_SQL)) {
+            if (!rs.next() || rs.getObject(1) == null || rs.getInt(2) < 0) return -1;
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Stops with the recovery steps if a script was left partly applied; see the class comment
+     */
+    private static void refuseIfUnfinished(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_UNFINISHED_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) return;
+            int version = rs.getInt("version");
+            throw new SQLException("Migration " + rs.getString("script") + " started at "
+                    + rs.getTimestamp("installed_at") + " but did not finish, so the schema may be partly"
+                    + " changed. Compare the database with the script, undo or complete its statements by"
+                    + " hand, then run DELETE FROM schema_version WHERE version = " + version
+                    + " to apply it again, or UPDATE schema_version SET execution_ms = 0 WHERE version = "
+                    + version + " if it is now fully applied. Not migrating until then.");
+        }
+    }
+
+    private Map<Integer, Long> findApplied(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_APPLIED_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Databases created before the migration runner already have the tables that
+     * createTables() used to build (including Treatment.is_active). Record those versions as
+     * applied instead of running scripts that would fail on existing objects.
+     */
+    private void baselineLegacySchema(Connection conn, List<Migration> migrations,
+                                      Map<Integer, Long> applied) throws SQLException {
+        if (!tableExists(conn, "Patient")) return;
+
+        int baseline = columnExists(conn, "Treatment", "is_active") ? 2 : 1;
+        System.out.println("Existing schema found; baselining at version " + baseline);
+        for (Migration migration : migrations) {
+            if (migration.version > baseline) break;
+            record(conn, migration, 0, 0);
+            applied.put(migration.version, 0L);
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        System.out.println("Applying migration " + migration.script + "...");
+        long start = System.nanoTime();
+        // Recorded first, so a failure or crash partway leaves a row that says so
+        record(conn, migration, migration.checksum, UNFINISHED);
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : splitStatements(migration.sql)) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Migration " + migration.script + " failed and is left marked unfinished: "
+                    + e.getMessage(), e.getSQLState(), e);
+        }
+        int elapsedMs = (int) ((System.nanoTime() - start) / 1_000_000);
+        try (PreparedStatement stmt = conn.prepareStatement(FINISH_VERSION_SQL)) {
+            stmt.setInt(1, elapsedMs);
+            stmt.setInt(2, migration.version);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void record(Connection conn, Migration migration, long checksum, int elapsedMs) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_VERSION_SQL)) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.setString(3, migration.script);
+            stmt.setLong(4, checksum);
+            stmt.setInt(5, elapsedMs);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static int currentVersion(List<Migration> migrations) {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String name : new String[]{table, table.toLowerCase(), table.toUpperCase()}) {
+            try (ResultSet rs = meta.getTables(conn.getCatalog(), null, name, new String[]{"TABLE"})) {
+                if (rs.next()) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String name : new String[]{table, table.toLowerCase(), table.toUpperCase()}) {
+            try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, name, null)) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static List<Migration> loadMigrations(SqlDialect dialect) {
+        String path = dialect == SqlDialect.H2 ? H2_MIGRATIONS_PATH : MIGRATIONS_PATH;
+        List<Migration> migrations = new ArrayList<>();
+        for (String script : scripts(dialect)) {
+            int separator = script.indexOf("__");
+            String description = script.substring(separator + 2, script.length() - 4).replace('_', ' ');
+            migrations.add(new Migration(versionOf(script), description, script, readScript(path + script)));
+        }
+        return migrations;
+    }
+
+    private static String[] scripts(SqlDialect dialect) {
+        return dialect == SqlDialect.H2 ? H2_MIGRATIONS : MIGRATIONS;
+    }
+
+    private static int versionOf(String script) {
+        // File names follow V<version>__<description>.sql
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static String readScript(String script) {
+        try (InputStream in = MigrationRunner.class.getResourceAsStream(script)) {
+            if (in == null) {
+                throw new IllegalStateException("Migration script not found: " + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read migration " + script, e);
+        }
+    }
+
+    /**
+     * Splits a script into statements: full-line "--" comments are dropped and statements end
+     * with a ";" at the end of a line. As in the mysql client, a "DELIMITER xx" line changes the
+     * terminator, so stored routines containing ";" can be written as one statement.
+     */
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        String delimiter = ";";
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) continue;
+            if (trimmed.regionMatches(true, 0, "DELIMITER ", 0, 10)) {
+                delimiter = trimmed.substring(10).trim();
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(delimiter)) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - delimiter.length()).trim());
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,90 @@
+package com.nirwan.dentalclinic.database;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live metrics for the connection pool: a histogram of how long callers waited to borrow
+ * a connection, borrow failures, and the current active / idle counts.
+ */
+public class PoolMetrics {
+    /** Upper bounds (inclusive, in milliseconds) of the borrow-wait histogram buckets */
+    private static final long[] BUCKET_BOUNDS_MS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    private final BasicDataSource dataSource;
+    // One extra bucket for waits longer than the last bound
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+    PoolMetrics(BasicDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    void recordBorrow(long waitNanos) {
+        borrows.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+        long waitMs = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        int bucket = BUCKET_BOUNDS_MS.length;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (waitMs <= BUCKET_BOUNDS_MS[i]) {
+                bucket = i;
+                break;
+            }
+        }
+        buckets.incrementAndGet(bucket);
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    public int getActiveCount() { return dataSource.getNumActive(); }
+    public int getIdleCount() { return dataSource.getNumIdle(); }
+    public int getMaxTotal() { return dataSource.getMaxTotal(); }
+    public long getBorrowCount() { return borrows.sum(); }
+    public long getFailureCount() { return failures.sum(); }
+
+    public double getAverageWaitMillis() {
+        long count = borrows.sum();
+        return count == 0 ? 0.0 : totalWaitNanos.sum() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Returns the bucket counts of the borrow-wait histogram; the last element counts
+     * waits above the largest bound
+     */
+    public long[] getWaitHistogram() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) counts[i] = buckets.get(i);
+        return counts;
+    }
+
+    /**
+     * Human readable one-line-per-section summary for logs
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Pool: active=%d idle=%d max=%d | borrows=%d failures=%d avgWait=%.2fms maxWait=%.2fms",
+                getActiveCount(), getIdleCount(), getMaxTotal(), getBorrowCount(), getFailureCount(),
+                getAverageWaitMillis(), getMaxWaitMillis()));
+        sb.append(System.lineSeparator()).append("Borrow wait:");
+        long[] counts = getWaitHistogram();
+        for (int i = 0; i < counts.length; i++) {
+            String label = i < BUCKET_BOUNDS_MS.length ? "<=" + BUCKET_BOUNDS_MS[i] + "ms" : ">" + BUCKET_BOUNDS_MS[i - 1] + "ms";
+            sb.append(' ').append(label).append('=').append(counts[i]);
+        }
+        return sb.toString();
+    }
+}
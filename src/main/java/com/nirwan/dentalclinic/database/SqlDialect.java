@@ -0,0 +1,168 @@
+package com.nirwan.dentalclinic.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * What differs between the databases the application runs on: a MySQL server shared by the
+ * clinic's terminals, or an H2 database in a file on a single workstation (see
+ * db/database-embedded.properties). The DAOs write SQL both accept (H2 runs in MySQL mode, which
+ * understands ON DUPLICATE KEY UPDATE, GREATEST and DATE()); only the differences live here.
+ *
+ * The dialect is db.dialect if set, otherwise taken from the JDBC URL.
+ */
+public enum SqlDialect {
+    MYSQL {
+        // MySQL error codes
+        private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+        private static final int ER_LOCK_DEADLOCK = 1213;
+        private static final int ER_DUP_ENTRY = 1062;
+
+        @Override
+        public boolean supportsStoredProcedures() {
+            return true;
+        }
+
+        @Override
+        public int streamingFetchSize() {
+            // Connector/J streams row by row only with this fetch size; any other buffers the whole result
+            return Integer.MIN_VALUE;
+        }
+
+        @Override
+        public String connectionProperties(DatabaseConfig config) {
+            return config.getDriverProperties();
+        }
+
+        @Override
+        public boolean isLockFailure(SQLException e) {
+            return e.getErrorCode() == ER_LOCK_DEADLOCK || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT;
+        }
+
+        @Override
+        boolean isDuplicateKeyCode(int errorCode) {
+            return errorCode == ER_DUP_ENTRY;
+        }
+
+        @Override
+        public boolean lock(Connection conn, String name, int timeoutSeconds) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                stmt.setString(1, name);
+                stmt.setInt(2, timeoutSeconds);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    // 1 = acquired, 0 = timed out, NULL = error (e.g. the thread was killed)
+                    return rs.next() && rs.getInt(1) == 1;
+                }
+            }
+        }
+
+        @Override
+        public void unlock(Connection conn, String name) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                stmt.setString(1, name);
+                stmt.executeQuery().close();
+            }
+        }
+    },
+
+    /**
+     * H2 in MySQL mode. Its schema comes from its own migration scripts, as the MySQL ones use
+     * MySQL-only DDL (MODIFY ... ALGORITHM, STORED generated columns, stored procedures) and
+     * TEXT, which H2 turns into a CLOB that cannot be grouped or compared.
+     */
+    H2 {
+        // H2 error code for "Timeout trying to lock table"; deadlocks are reported as SQLState 40001
+        private static final int LOCK_TIMEOUT_1 = 50200;
+        private static final int DUPLICATE_KEY_1 = 23505;
+
+        @Override
+        public boolean supportsStoredProcedures() {
+            return false;
+        }
+
+        @Override
+        public int streamingFetchSize() {
+            // An embedded H2 result is read lazily in pages of this many rows
+            return 1000;
+        }
+
+        @Override
+        public String connectionProperties(DatabaseConfig config) {
+            // The driver.* settings are Connector/J ones; H2 takes its settings in the URL
+            return "";
+        }
+
+        @Override
+        public boolean isLockFailure(SQLException e) {
+            return e.getErrorCode() == LOCK_TIMEOUT_1;
+        }
+
+        @Override
+        boolean isDuplicateKeyCode(int errorCode) {
+            return errorCode == DUPLICATE_KEY_1;
+        }
+
+        @Override
+        public boolean lock(Connection conn, String name, int timeoutSeconds) {
+            // One workstation, and the application starts one database at a time: nothing to wait for
+            return true;
+        }
+
+        @Override
+        public void unlock(Connection conn, String name) {
+        }
+    };
+
+    /**
+     * The dialect for a configuration: db.dialect (mysql or h2) if set, otherwise from db.url
+     */
+    public static SqlDialect of(DatabaseConfig config) {
+        String configured = config.get("db.dialect", null);
+        if (configured != null) {
+            return valueOf(configured.toUpperCase());
+        }
+        String url = config.getUrl();
+        return url != null && url.startsWith("jdbc:h2:") ? H2 : MYSQL;
+    }
+
+    /** Whether the record_payment procedure (migration V8) can exist */
+    public abstract boolean supportsStoredProcedures();
+
+    /** Fetch size for results read once from start to end without holding them in memory */
+    public abstract int streamingFetchSize();
+
+    /** Connection properties for the pool, in BasicDataSource's "key=value;..." form */
+    public abstract String connectionProperties(DatabaseConfig config);
+
+    /** Whether the error is a deadlock or lock wait timeout, which rolls back and can be retried */
+    public abstract boolean isLockFailure(SQLException e);
+
+    /**
+     * Whether the error is a unique key violation. A failed batch reports the statement's error
+     * as a chained or wrapped exception, which is checked too.
+     */
+    public boolean isDuplicateKey(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql) {
+                for (SQLException next = sql; next != null; next = next.getNextException()) {
+                    if (isDuplicateKeyCode(next.getErrorCode())) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    abstract boolean isDuplicateKeyCode(int errorCode);
+
+    /**
+     * Takes a named lock shared by every connection to the database, waiting up to the timeout.
+     * The lock belongs to the connection and must be released on it with {@link #unlock}.
+     * @return false if another connection still held it when the timeout ran out
+     */
+    public abstract boolean lock(Connection conn, String name, int timeoutSeconds) throws SQLException;
+
+    /** Releases a lock taken with {@link #lock} on the same connection */
+    public abstract void unlock(Connection conn, String name) throws SQLException;
+}
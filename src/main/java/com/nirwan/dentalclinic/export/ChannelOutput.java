@@ -0,0 +1,154 @@
+package com.nirwan.dentalclinic.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Buffered UTF-8 output to a {@link FileChannel} through a large direct buffer, optionally gzip
+ * compressed. Strings are encoded straight into the buffer without intermediate byte arrays.
+ * Not thread-safe.
+ */
+public final class ChannelOutput implements Closeable {
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] NO_INPUT = new byte[0];
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // Only used when gzip compressing
+    private final Deflater deflater;
+    private final ByteBuffer compressed;
+    private final CRC32 crc;
+    private long uncompressedBytes;
+    private long bytesWritten;
+    private boolean closed;
+
+    public ChannelOutput(Path file, boolean gzip) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        if (gzip) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            compressed = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            crc = new CRC32();
+            writeFully(ByteBuffer.wrap(GZIP_HEADER));
+        } else {
+            deflater = null;
+            compressed = null;
+            crc = null;
+        }
+    }
+
+    public void putByte(byte b) throws IOException {
+        if (!buffer.hasRemaining()) drain();
+        buffer.put(b);
+    }
+
+    public void putAscii(char c) throws IOException {
+        putByte((byte) c);
+    }
+
+    /**
+     * Writes the string as UTF-8; unpaired surrogates are written as '?'
+     */
+    public void putString(String s) throws IOException {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                putByte((byte) c);
+            } else {
+                int cp = Character.codePointAt(s, i);
+                if (Character.isSupplementaryCodePoint(cp)) i++;
+                putCodePoint(cp);
+            }
+        }
+    }
+
+    void putCodePoint(int cp) throws IOException {
+        if (buffer.remaining() < 4) drain();
+        if (cp < 0x80) {
+            buffer.put((byte) cp);
+        } else if (cp < 0x800) {
+            buffer.put((byte) (0xc0 | (cp >> 6)));
+            buffer.put((byte) (0x80 | (cp & 0x3f)));
+        } else if (Character.isSurrogate((char) cp) && cp <= 0xffff) {
+            buffer.put((byte) '?');
+        } else if (cp < 0x10000) {
+            buffer.put((byte) (0xe0 | (cp >> 12)));
+            buffer.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+            buffer.put((byte) (0x80 | (cp & 0x3f)));
+        } else {
+            buffer.put((byte) (0xf0 | (cp >> 18)));
+            buffer.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+            buffer.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+            buffer.put((byte) (0x80 | (cp & 0x3f)));
+        }
+    }
+
+    /**
+     * Bytes written to the file so far (compressed size when gzipping)
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        if (deflater == null) {
+            writeFully(buffer);
+        } else {
+            uncompressedBytes += buffer.remaining();
+            crc.update(buffer.duplicate());
+            deflater.setInput(buffer);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+            // The deflater keeps a reference to its input; detach it before the buffer is reused
+            deflater.setInput(NO_INPUT);
+        }
+        buffer.clear();
+    }
+
+    private void deflate() throws IOException {
+        compressed.clear();
+        deflater.deflate(compressed);
+        compressed.flip();
+        writeFully(compressed);
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            bytesWritten += channel.write(source);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            drain();
+            if (deflater != null) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate();
+                }
+                ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                trailer.putInt((int) crc.getValue());
+                trailer.putInt((int) uncompressedBytes);
+                trailer.flip();
+                writeFully(trailer);
+            }
+        } finally {
+            if (deflater != null) deflater.end();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.nirwan.dentalclinic.export;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * RFC 4180 CSV with a header row. Fields are quoted only when they contain a comma, quote or
+ * line break; SQL NULL is written as an empty field.
+ */
+public class CsvEncoder implements RowEncoder {
+    private int columnCount;
+
+    @Override
+    public void begin(ResultSetMetaData meta, ChannelOutput out) throws SQLException, IOException {
+        columnCount = meta.getColumnCount();
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) out.putAscii(',');
+            putField(meta.getColumnLabel(i), out);
+        }
+        out.putAscii('\n');
+    }
+
+    @Override
+    public void encode(ResultSet rs, ChannelOutput out) throws SQLException, IOException {
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) out.putAscii(',');
+            String value = rs.getString(i);
+            if (value != null) putField(value, out);
+        }
+        out.putAscii('\n');
+    }
+
+    private static void putField(String value, ChannelOutput out) throws IOException {
+        if (!needsQuotes(value)) {
+            out.putString(value);
+            return;
+        }
+        out.putAscii('"');
+        int start = 0;
+        int quote;
+        while ((quote = value.indexOf('"', start)) >= 0) {
+            out.putString(value.substring(start, quote + 1));
+            out.putAscii('"');
+            start = quote + 1;
+        }
+        out.putString(start == 0 ? value : value.substring(start));
+        out.putAscii('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+}
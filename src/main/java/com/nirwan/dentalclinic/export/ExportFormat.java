@@ -0,0 +1,48 @@
+package com.nirwan.dentalclinic.export;
+
+import java.util.function.Supplier;
+
+/**
+ * File formats of the ledger export. Either can be gzip compressed by adding ".gz" to the file name.
+ */
+public enum ExportFormat {
+    CSV(".csv", CsvEncoder::new),
+    JSON_LINES(".jsonl", JsonLinesEncoder::new);
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final String extension;
+    private final Supplier<RowEncoder> encoderFactory;
+
+    ExportFormat(String extension, Supplier<RowEncoder> encoderFactory) {
+        this.extension = extension;
+        this.encoderFactory = encoderFactory;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public RowEncoder newEncoder() {
+        return encoderFactory.get();
+    }
+
+    /**
+     * Picks the format from a file name such as "payments.csv" or "payments.jsonl.gz"
+     * @throws IllegalArgumentException if the extension is not recognised
+     */
+    public static ExportFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(GZIP_SUFFIX)) {
+            name = name.substring(0, name.length() - GZIP_SUFFIX.length());
+        }
+        for (ExportFormat format : values()) {
+            if (name.endsWith(format.extension)) return format;
+        }
+        throw new IllegalArgumentException("Unsupported export file type: " + fileName + " (use .csv, .jsonl or add .gz)");
+    }
+
+    public static boolean isGzip(String fileName) {
+        return fileName.toLowerCase().endsWith(GZIP_SUFFIX);
+    }
+}
@@ -0,0 +1,101 @@
+package com.nirwan.dentalclinic.export;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * One JSON object per line, keyed by column label. Numeric columns are written as JSON numbers,
+ * BOOLEAN/BIT columns as true/false and everything else as strings.
+ */
+public class JsonLinesEncoder implements RowEncoder {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private enum Kind { NUMBER, BOOLEAN, STRING }
+
+    private int columnCount;
+    // Pre-escaped "key": prefixes, one per column
+    private String[] keys;
+    private Kind[] kinds;
+
+    @Override
+    public void begin(ResultSetMetaData meta, ChannelOutput out) throws SQLException {
+        columnCount = meta.getColumnCount();
+        keys = new String[columnCount + 1];
+        kinds = new Kind[columnCount + 1];
+        for (int i = 1; i <= columnCount; i++) {
+            keys[i] = (i > 1 ? ",\"" : "{\"") + meta.getColumnLabel(i) + "\":";
+            kinds[i] = kindOf(meta.getColumnType(i));
+        }
+    }
+
+    private static Kind kindOf(int sqlType) {
+        return switch (sqlType) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT,
+                 Types.DECIMAL, Types.NUMERIC, Types.REAL, Types.FLOAT, Types.DOUBLE -> Kind.NUMBER;
+            case Types.BIT, Types.BOOLEAN -> Kind.BOOLEAN;
+            default -> Kind.STRING;
+        };
+    }
+
+    @Override
+    public void encode(ResultSet rs, ChannelOutput out) throws SQLException, IOException {
+        for (int i = 1; i <= columnCount; i++) {
+            out.putString(keys[i]);
+            switch (kinds[i]) {
+                case BOOLEAN -> {
+                    boolean value = rs.getBoolean(i);
+                    out.putString(rs.wasNull() ? "null" : value ? "true" : "false");
+                }
+                case NUMBER -> {
+                    String value = rs.getString(i);
+                    out.putString(value != null ? value : "null");
+                }
+                default -> {
+                    String value = rs.getString(i);
+                    if (value == null) {
+                        out.putString("null");
+                    } else {
+                        putQuoted(value, out);
+                    }
+                }
+            }
+        }
+        if (columnCount == 0) out.putAscii('{');
+        out.putAscii('}');
+        out.putAscii('\n');
+    }
+
+    private static void putQuoted(String value, ChannelOutput out) throws IOException {
+        out.putAscii('"');
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> { out.putAscii('\\'); out.putAscii('"'); }
+                case '\\' -> { out.putAscii('\\'); out.putAscii('\\'); }
+                case '\n' -> { out.putAscii('\\'); out.putAscii('n'); }
+                case '\r' -> { out.putAscii('\\'); out.putAscii('r'); }
+                case '\t' -> { out.putAscii('\\'); out.putAscii('t'); }
+                default -> {
+                    if (c < 0x20) {
+                        out.putAscii('\\');
+                        out.putAscii('u');
+                        out.putAscii('0');
+                        out.putAscii('0');
+                        out.putAscii(HEX[c >> 4]);
+                        out.putAscii(HEX[c & 0xf]);
+                    } else if (c < 0x80) {
+                        out.putAscii(c);
+                    } else {
+                        int cp = Character.codePointAt(value, i);
+                        if (Character.isSupplementaryCodePoint(cp)) i++;
+                        out.putCodePoint(cp);
+                    }
+                }
+            }
+        }
+        out.putAscii('"');
+    }
+}
@@ -0,0 +1,129 @@
+package com.nirwan.dentalclinic.export;
+
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.QueryCancellation;
+import com.nirwan.dentalclinic.repository.LedgerExportDao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+/**
+ * Exports a ledger table (Patient, Treatment, TreatmentCost or Payment) as CSV or JSON Lines,
+ * optionally gzipped. Rows go straight from a streaming result set through a {@link RowEncoder}
+ * into a {@link ChannelOutput}, so the export runs in constant memory whatever the table size.
+ */
+public class LedgerExporter {
+    /** Progress is reported once per this many rows */
+    static final int PROGRESS_INTERVAL = 10_000;
+
+    private final LedgerExportDao ledgerExportDao = new LedgerExportDao();
+
+    /**
+     * Outcome of an export, with its throughput
+     */
+    public static final class Result {
+        private final long rows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        Result(long rows, long bytes, long elapsedNanos) {
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() { return rows; }
+
+        /** Size of the written file */
+        public long getBytes() { return bytes; }
+
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos > 0 ? rows * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows, %d bytes in %d ms (%.0f rows/sec)",
+                    rows, bytes, getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+
+    public CompletableFuture<Result> exportAsync(LedgerExportDao.Table table, LocalDate from, LocalDate to,
+                                                 boolean includeDeleted, Path file, LongConsumer onProgress) {
+        return DbExecutor.supplyCancellable(
+                cancellation -> export(table, from, to, includeDeleted, file, cancellation, onProgress));
+    }
+
+    /**
+     * Exports one table to the given file; the format and compression follow the file name
+     * (see {@link ExportFormat#fromFileName}). The output is written to a temporary file next to
+     * the target and moved into place only once complete.
+     * @param from first day to include, or null
+     * @param to last day to include, or null
+     * @param onProgress receives the number of rows written so far, or null
+     */
+    public Result export(LedgerExportDao.Table table, LocalDate from, LocalDate to, boolean includeDeleted,
+                         Path file, QueryCancellation cancellation, LongConsumer onProgress)
+            throws SQLException, IOException {
+        String fileName = file.getFileName().toString();
+        ExportFormat format = ExportFormat.fromFileName(fileName);
+        RowEncoder encoder = format.newEncoder();
+        Path partial = file.resolveSibling(fileName + ".part");
+
+        long start = System.nanoTime();
+        try {
+            long rows;
+            ChannelOutput out = new ChannelOutput(partial, ExportFormat.isGzip(fileName));
+            try (out) {
+                rows = ledgerExportDao.stream(table, from, to, includeDeleted, cancellation,
+                        new EncodingSink(encoder, out, onProgress));
+                if (cancellation.isCancelled()) {
+                    throw new CancellationException("Export cancelled");
+                }
+            }
+            // Read after close, which writes the last buffer and the gzip trailer
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+            return new Result(rows, out.getBytesWritten(), System.nanoTime() - start);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private static final class EncodingSink implements LedgerExportDao.RowSink {
+        private final RowEncoder encoder;
+        private final ChannelOutput out;
+        private final LongConsumer onProgress;
+        private long rows;
+
+        EncodingSink(RowEncoder encoder, ChannelOutput out, LongConsumer onProgress) {
+            this.encoder = encoder;
+            this.out = out;
+            this.onProgress = onProgress;
+        }
+
+        @Override
+        public void begin(ResultSetMetaData meta) throws SQLException, IOException {
+            encoder.begin(meta, out);
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            encoder.encode(rs, out);
+            rows++;
+            if (onProgress != null && rows % PROGRESS_INTERVAL == 0) {
+                onProgress.accept(rows);
+            }
+        }
+    }
+}
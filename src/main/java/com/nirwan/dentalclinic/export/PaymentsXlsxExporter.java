@@ -0,0 +1,212 @@
+package com.nirwan.dentalclinic.export;
+
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.QueryCancellation;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.repository.PaymentReportDao;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes the payments report to an .xlsx file straight from the database. Rows are streamed from
+ * a forward-only result set into an {@link SXSSFWorkbook}, which keeps only a small window of rows
+ * in memory and flushes the rest to a temporary file, so memory use does not grow with the export.
+ */
+public class PaymentsXlsxExporter {
+    /** Rows kept in memory before SXSSF flushes them to disk */
+    static final int ROW_WINDOW = 200;
+    /** Column widths are estimated from the first rows only, instead of autosizing over every cell */
+    static final int WIDTH_SAMPLE_ROWS = 1000;
+    /** Progress is reported once per this many rows */
+    static final int PROGRESS_INTERVAL = 5000;
+
+    private static final String[] HEADERS = {"Date", "Patient", "Treatment", "Amount", "Mode"};
+    private static final int AMOUNT_COLUMN = 3;
+    private static final int MAX_COLUMN_CHARS = 60;
+    private static final int MAX_SHEET_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final PaymentReportDao paymentReportDao = new PaymentReportDao();
+    private final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
+
+    /**
+     * Runs {@link #export} on a database worker. Cancelling the returned future stops the query,
+     * and the target file is left untouched.
+     * @param onProgress receives the number of rows written so far, on the worker thread
+     */
+    public CompletableFuture<Long> exportAsync(Path file, LocalDateTime from, LocalDateTime to, String paymentMethod,
+                                               String treatmentLike, LongConsumer onProgress) {
+        return DbExecutor.supplyCancellable(
+                cancellation -> export(file, from, to, paymentMethod, treatmentLike, cancellation, onProgress));
+    }
+
+    /**
+     * Exports the payments matching the report filters. The workbook is written to a temporary file
+     * next to the target and moved into place only once complete.
+     * @return the number of payment rows written
+     */
+    public long export(Path file, LocalDateTime from, LocalDateTime to, String paymentMethod, String treatmentLike,
+                       QueryCancellation cancellation, LongConsumer onProgress) throws SQLException, IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW);
+        wb.setCompressTempFiles(true);
+        try {
+            SheetWriter writer = new SheetWriter(wb, onProgress);
+            long count = paymentReportDao.streamPayments(from, to, paymentMethod, treatmentLike, cancellation,
+                    writer::writeRow);
+            if (cancellation.isCancelled()) {
+                throw new CancellationException("Export cancelled");
+            }
+            writer.finish();
+
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                wb.write(out);
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+            return count;
+        } finally {
+            wb.dispose(); // delete SXSSF temp files
+            wb.close();
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * Appends rows to the current sheet, starting a new sheet when one is full
+     */
+    private final class SheetWriter {
+        private final SXSSFWorkbook wb;
+        private final LongConsumer onProgress;
+        private final CellStyle headerStyle;
+        private final CellStyle amountStyle;
+        private final int[] widthChars = new int[HEADERS.length];
+        private Sheet sheet;
+        private int rowIdx;
+        private long written;
+        private long total = Money.ZERO;
+
+        SheetWriter(SXSSFWorkbook wb, LongConsumer onProgress) {
+            this.wb = wb;
+            this.onProgress = onProgress;
+
+            headerStyle = wb.createCellStyle();
+            Font headerFont = wb.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+            headerStyle.setFillForegroundColor((short) 22); // light grey
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            headerStyle.setAlignment(HorizontalAlignment.CENTER);
+            headerStyle.setBorderBottom(BorderStyle.THIN);
+
+            amountStyle = wb.createCellStyle();
+            amountStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("#,##0.00"));
+
+            for (int i = 0; i < HEADERS.length; i++) {
+                widthChars[i] = HEADERS[i].length();
+            }
+            newSheet();
+        }
+
+        private void newSheet() {
+            int number = wb.getNumberOfSheets() + 1;
+            sheet = wb.createSheet(number == 1 ? "Payments" : "Payments (" + number + ")");
+            rowIdx = 0;
+            Row header = sheet.createRow(rowIdx++);
+            for (int i = 0; i < HEADERS.length; i++) {
+                Cell c = header.createCell(i);
+                c.setCellValue(HEADERS[i]);
+                c.setCellStyle(headerStyle);
+            }
+            applyWidths();
+        }
+
+        void writeRow(LocalDateTime dateTime, String patientName, String treatment, long amount, String paymentMethod) {
+            // Leave room for the total row on the last sheet
+            if (rowIdx >= MAX_SHEET_ROWS - 3) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowIdx++);
+            setText(row, 0, dateTime != null ? dtf.format(dateTime) : "");
+            setText(row, 1, patientName);
+            setText(row, 2, treatment);
+            Cell amountCell = row.createCell(AMOUNT_COLUMN);
+            amountCell.setCellValue(Money.toDouble(amount));
+            amountCell.setCellStyle(amountStyle);
+            setText(row, 4, paymentMethod);
+
+            total += amount;
+            written++;
+            if (written <= WIDTH_SAMPLE_ROWS) {
+                widthChars[AMOUNT_COLUMN] = Math.max(widthChars[AMOUNT_COLUMN], Money.toPlainString(amount).length() + 2);
+                if (written == WIDTH_SAMPLE_ROWS) applyWidths();
+            }
+            if (onProgress != null && written % PROGRESS_INTERVAL == 0) {
+                onProgress.accept(written);
+            }
+        }
+
+        private void setText(Row row, int column, String value) {
+            String text = value != null ? value : "";
+            row.createCell(column).setCellValue(text);
+            if (written < WIDTH_SAMPLE_ROWS) {
+                widthChars[column] = Math.max(widthChars[column], text.length());
+            }
+        }
+
+        private void applyWidths() {
+            for (int i = 0; i < widthChars.length; i++) {
+                int chars = Math.min(MAX_COLUMN_CHARS, widthChars[i] + 2);
+                sheet.setColumnWidth(i, chars * 256);
+            }
+        }
+
+        /**
+         * Adds the total row below the last payment
+         */
+        void finish() {
+            applyWidths();
+            Row totalRow = sheet.createRow(rowIdx + 1);
+
+            CellStyle totalLabelStyle = wb.createCellStyle();
+            Font totalFont = wb.createFont();
+            totalFont.setBold(true);
+            totalLabelStyle.setFont(totalFont);
+            totalLabelStyle.setFillForegroundColor((short) 22);
+            totalLabelStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            Cell totalLabelCell = totalRow.createCell(2);
+            totalLabelCell.setCellValue("Total");
+            totalLabelCell.setCellStyle(totalLabelStyle);
+
+            // Summed exactly in paise while streaming; a SUM formula cannot span several sheets
+            CellStyle totalAmountStyle = wb.createCellStyle();
+            totalAmountStyle.cloneStyleFrom(amountStyle);
+            totalAmountStyle.setFont(totalFont);
+            Cell totalAmountCell = totalRow.createCell(AMOUNT_COLUMN);
+            totalAmountCell.setCellValue(Money.toDouble(total));
+            totalAmountCell.setCellStyle(totalAmountStyle);
+
+            if (onProgress != null) {
+                onProgress.accept(written);
+            }
+        }
+    }
+}
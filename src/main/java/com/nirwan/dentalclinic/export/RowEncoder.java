@@ -0,0 +1,17 @@
+package com.nirwan.dentalclinic.export;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Encodes result set rows into a {@link ChannelOutput}. An encoder reads the column layout once in
+ * {@link #begin} and then reuses it for every row, so encoding a row allocates nothing per column
+ * beyond the values the driver returns.
+ */
+public interface RowEncoder {
+    void begin(ResultSetMetaData meta, ChannelOutput out) throws SQLException, IOException;
+
+    void encode(ResultSet rs, ChannelOutput out) throws SQLException, IOException;
+}
@@ -0,0 +1,99 @@
+package com.nirwan.dentalclinic.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV reader: comma separated, double-quoted fields may contain commas, quotes ("")
+ * and line breaks. A leading UTF-8 byte order mark (as written by Excel) is skipped.
+ */
+final class CsvRowSource implements RowSource {
+    private static final String[] EMPTY = new String[0];
+
+    private final Path file;
+
+    CsvRowSource(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void read(RowHandler handler) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                reader.reset();
+            }
+
+            List<String> cells = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean rowStarted = false;
+            int record = 0;
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                    continue;
+                }
+                switch (c) {
+                    case '"' -> {
+                        quoted = true;
+                        rowStarted = true;
+                    }
+                    case ',' -> {
+                        cells.add(field.toString());
+                        field.setLength(0);
+                        rowStarted = true;
+                    }
+                    case '\r' -> {
+                        // Part of \r\n; a bare \r is treated as a line break too
+                        reader.mark(1);
+                        if (reader.read() != '\n') reader.reset();
+                        record++;
+                        emit(handler, record, cells, field, rowStarted);
+                        rowStarted = false;
+                    }
+                    case '\n' -> {
+                        record++;
+                        emit(handler, record, cells, field, rowStarted);
+                        rowStarted = false;
+                    }
+                    default -> {
+                        field.append((char) c);
+                        rowStarted = true;
+                    }
+                }
+            }
+            if (rowStarted) {
+                emit(handler, record + 1, cells, field, true);
+            }
+        }
+    }
+
+    private static void emit(RowHandler handler, int record, List<String> cells, StringBuilder field,
+                             boolean rowStarted) throws IOException {
+        if (rowStarted) {
+            cells.add(field.toString());
+            handler.row(record, cells.toArray(EMPTY));
+        } else {
+            handler.row(record, EMPTY);
+        }
+        cells.clear();
+        field.setLength(0);
+    }
+}
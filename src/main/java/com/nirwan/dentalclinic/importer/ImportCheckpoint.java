@@ -0,0 +1,121 @@
+package com.nirwan.dentalclinic.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Progress of an import, saved next to the source file after every committed block so that an
+ * interrupted import resumes where it stopped. The file is tied to the source's size and
+ * modification time; a changed source starts over. Each sheet of a workbook has its own
+ * checkpoint and its own row markers, as its row numbers start again at 1.
+ */
+final class ImportCheckpoint {
+    private final Path path;
+    private final String fingerprint;
+    private final String markerPrefix;
+
+    int rowsDone;
+    long treatments;
+    long payments;
+    long patientsCreated;
+    long rejected;
+
+    private ImportCheckpoint(Path path, String fingerprint, String markerPrefix) {
+        this.path = path;
+        this.fingerprint = fingerprint;
+        this.markerPrefix = markerPrefix;
+    }
+
+    /**
+     * Loads the checkpoint of the given source, or starts a new one
+     * @param sheet the sheet being imported, or null for a CSV file
+     * @param restart ignore any saved progress
+     */
+    static ImportCheckpoint open(Path source, String sheet, boolean restart) throws IOException {
+        Path path = sibling(source, sheet, ".checkpoint");
+        long size = Files.size(source);
+        String fingerprint = size + ":" + Files.getLastModifiedTime(source).toMillis();
+
+        CRC32 crc = new CRC32();
+        String identity = source.getFileName() + ":" + size;
+        if (sheet != null) {
+            identity += ":" + sheet.toLowerCase(Locale.ROOT);
+        }
+        crc.update(identity.getBytes(StandardCharsets.UTF_8));
+        ImportCheckpoint checkpoint = new ImportCheckpoint(path, fingerprint,
+                String.format("IMP-%08x-", crc.getValue()));
+
+        if (!restart && Files.exists(path)) {
+            Properties saved = new Properties();
+            try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                saved.load(in);
+            }
+            if (fingerprint.equals(saved.getProperty("fingerprint"))) {
+                checkpoint.rowsDone = Integer.parseInt(saved.getProperty("rows-done", "0"));
+                checkpoint.treatments = Long.parseLong(saved.getProperty("treatments", "0"));
+                checkpoint.payments = Long.parseLong(saved.getProperty("payments", "0"));
+                checkpoint.patientsCreated = Long.parseLong(saved.getProperty("patients-created", "0"));
+                checkpoint.rejected = Long.parseLong(saved.getProperty("rejected", "0"));
+            } else {
+                System.out.println("Import source changed since the last checkpoint; starting over");
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * A file next to the source for the given sheet, e.g. ledger.xlsx.2019.checkpoint
+     */
+    static Path sibling(Path source, String sheet, String suffix) {
+        String name = source.getFileName().toString();
+        if (sheet != null) {
+            name += "." + sheet.replaceAll("[^A-Za-z0-9_-]", "_");
+        }
+        return source.resolveSibling(name + suffix);
+    }
+
+    boolean isResuming() {
+        return rowsDone > 0;
+    }
+
+    /**
+     * Treatment code or payment reference for a source row. Stable across runs, so rows that were
+     * committed just before a crash can be recognised and skipped on resume.
+     */
+    String marker(int rowNumber) {
+        return markerPrefix + rowNumber;
+    }
+
+    /**
+     * Writes the checkpoint atomically (temporary file, then rename)
+     */
+    void save() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("fingerprint", fingerprint);
+        props.setProperty("rows-done", Integer.toString(rowsDone));
+        props.setProperty("treatments", Long.toString(treatments));
+        props.setProperty("payments", Long.toString(payments));
+        props.setProperty("patients-created", Long.toString(patientsCreated));
+        props.setProperty("rejected", Long.toString(rejected));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            props.store(out, "Legacy ledger import progress");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Removes the checkpoint once the import has finished
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
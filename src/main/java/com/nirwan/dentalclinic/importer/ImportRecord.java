@@ -0,0 +1,38 @@
+package com.nirwan.dentalclinic.importer;
+
+import java.time.LocalDateTime;
+
+/**
+ * One validated ledger row. A row with a total creates a treatment, with the paid amount as its
+ * initial payment; a row without a total is a later payment towards the patient's most recent
+ * treatment of the same name.
+ */
+final class ImportRecord {
+    final int rowNumber;
+    final String[] cells;
+    final String patientName;
+    final String treatmentName;
+    final LocalDateTime date;
+    /** Total cost in paise, or null for a follow-up payment */
+    final Long total;
+    final long paid;
+    final String paymentMethod;
+    final String notes;
+
+    ImportRecord(int rowNumber, String[] cells, String patientName, String treatmentName, LocalDateTime date,
+                 Long total, long paid, String paymentMethod, String notes) {
+        this.rowNumber = rowNumber;
+        this.cells = cells;
+        this.patientName = patientName;
+        this.treatmentName = treatmentName;
+        this.date = date;
+        this.total = total;
+        this.paid = paid;
+        this.paymentMethod = paymentMethod;
+        this.notes = notes;
+    }
+
+    boolean isFollowUpPayment() {
+        return total == null;
+    }
+}
@@ -0,0 +1,520 @@
+package com.nirwan.dentalclinic.importer;
+
+import com.nirwan.dentalclinic.models.Payment;
+import com.nirwan.dentalclinic.models.Treatment;
+import com.nirwan.dentalclinic.repository.BatchItemResult;
+import com.nirwan.dentalclinic.repository.ImportDao;
+import com.nirwan.dentalclinic.repository.TreatmentDao;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+/**
+ * Imports legacy ledger sheets (CSV or XLSX, see {@link RowValidator} for the columns) into
+ * Patient, Treatment, TreatmentCost and Payment.
+ *
+ * The file is read on the calling thread and cut into blocks of {@link #BLOCK_SIZE} rows. Blocks
+ * are validated in parallel and written strictly in file order by a single writer thread, which
+ * matches patient names, creates missing patients and stores the block through the bulk methods
+ * of {@link TreatmentDao}. After each block the progress is checkpointed, so an interrupted
+ * import continues from the last written block when run again. Rows that cannot be imported are
+ * listed with the reason in {@code <file>.rejected.csv}.
+ */
+public class LedgerImporter {
+    /** Rows validated per task and written per checkpoint */
+    static final int BLOCK_SIZE = 1000;
+
+    private final ImportDao importDao = new ImportDao();
+    private final TreatmentDao treatmentDao = new TreatmentDao();
+
+    /**
+     * Outcome of an import. Counts include earlier runs of a resumed import; the throughput is
+     * for this run only.
+     */
+    public static final class Result {
+        private final long rowsRead;
+        private final long alreadyImported;
+        private final long treatments;
+        private final long payments;
+        private final long patientsCreated;
+        private final long rejected;
+        private final long elapsedNanos;
+        private final Path rejectedFile;
+
+        Result(long rowsRead, long alreadyImported, ImportCheckpoint totals, long elapsedNanos, Path rejectedFile) {
+            this.rowsRead = rowsRead;
+            this.alreadyImported = alreadyImported;
+            this.treatments = totals.treatments;
+            this.payments = totals.payments;
+            this.patientsCreated = totals.patientsCreated;
+            this.rejected = totals.rejected;
+            this.elapsedNanos = elapsedNanos;
+            this.rejectedFile = rejectedFile;
+        }
+
+        /** Rows processed by this run */
+        public long getRowsRead() { return rowsRead; }
+
+        /** Rows skipped because an earlier run had already imported them */
+        public long getAlreadyImported() { return alreadyImported; }
+
+        public long getTreatments() { return treatments; }
+
+        /** Follow-up payments; initial payments come with their treatment */
+        public long getPayments() { return payments; }
+
+        public long getPatientsCreated() { return patientsCreated; }
+
+        public long getRejected() { return rejected; }
+
+        /** The rejected rows report, or null if every row was imported */
+        public Path getRejectedFile() { return rejectedFile; }
+
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos > 0 ? rowsRead * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows in %d ms (%.0f rows/sec): %d treatments, %d payments, "
+                            + "%d new patients, %d rejected, %d already imported",
+                    rowsRead, getElapsedMillis(), getRowsPerSecond(), treatments, payments,
+                    patientsCreated, rejected, alreadyImported);
+        }
+    }
+
+    /**
+     * Imports a ledger file, resuming from its checkpoint if an earlier run was interrupted
+     * @param sheetName the XLSX sheet to import, or null for the first
+     * @param matchOnly reject rows whose patient does not exist instead of creating the patient
+     * @param restart ignore any checkpoint and import the whole file again
+     * @param onProgress receives the number of rows written by this run after every block, or null
+     * @throws IllegalArgumentException if the file type or its header row is not recognised
+     */
+    public Result importFile(Path file, String sheetName, boolean matchOnly, boolean restart,
+                             LongConsumer onProgress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        RowSource source = RowSource.open(file, sheetName);
+        String sheet = source.sheetName();
+        ImportCheckpoint checkpoint = ImportCheckpoint.open(file, sheet, restart);
+        if (checkpoint.isResuming()) {
+            System.out.println("Resuming import after row " + checkpoint.rowsDone);
+        }
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, threadFactory("import-parse"));
+        ExecutorService writer = Executors.newSingleThreadExecutor(threadFactory("import-write"));
+        Run run = new Run(ImportCheckpoint.sibling(file, sheet, ".rejected.csv"), checkpoint, matchOnly, parsers, writer, threads * 2, onProgress);
+        try {
+            try {
+                source.read(run);
+                run.submitBlock();
+            } catch (IOException e) {
+                // The reader stops with a wrapper when the writer failed; report the writer's error
+                if (run.failure.get() == null) throw e;
+            } finally {
+                writer.shutdown();
+                awaitQuietly(writer);
+                if (run.rejected != null) run.rejected.close();
+            }
+            run.rethrowFailure();
+            if (run.validator == null) {
+                throw new IllegalArgumentException("No header row in " + file.getFileName());
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+
+        checkpoint.delete();
+        Path rejectedFile = run.rejectedPath;
+        if (checkpoint.rejected == 0) {
+            Files.deleteIfExists(rejectedFile);
+            rejectedFile = null;
+        }
+        return new Result(run.rowsRead, run.alreadyImported.get(), checkpoint, System.nanoTime() - start,
+                rejectedFile);
+    }
+
+    /**
+     * A rejected row and the reason
+     */
+    private static final class Rejection {
+        final int rowNumber;
+        final String reason;
+        final String[] cells;
+
+        Rejection(int rowNumber, String reason, String[] cells) {
+            this.rowNumber = rowNumber;
+            this.reason = reason;
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * A validated block: its records, its rejected rows and the last source row it covers
+     */
+    private static final class ParsedBlock {
+        final List<ImportRecord> records = new ArrayList<>();
+        final List<Rejection> rejections = new ArrayList<>();
+        int lastRow;
+    }
+
+    /**
+     * State of one import: reads rows, hands blocks to the parsers and the writer, and holds the
+     * first failure, which stops the whole run
+     */
+    private final class Run implements RowSource.RowHandler {
+        final ImportCheckpoint checkpoint;
+        final boolean matchOnly;
+        final Path rejectedPath;
+        final ExecutorService parsers;
+        final ExecutorService writer;
+        final Semaphore inFlight;
+        final LongConsumer onProgress;
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final AtomicLong alreadyImported = new AtomicLong();
+        final AtomicLong written = new AtomicLong();
+
+        // Reader thread only
+        RowValidator validator;
+        RejectedRows rejected;
+        int[] rowNumbers = new int[BLOCK_SIZE];
+        List<String[]> rows = new ArrayList<>(BLOCK_SIZE);
+        long rowsRead;
+        boolean verifyNext;
+
+        // Writer thread only
+        Map<String, ImportDao.PatientRef> patients;
+
+        Run(Path rejectedPath, ImportCheckpoint checkpoint, boolean matchOnly, ExecutorService parsers,
+            ExecutorService writer, int maxBlocksInFlight, LongConsumer onProgress) {
+            this.checkpoint = checkpoint;
+            this.matchOnly = matchOnly;
+            this.rejectedPath = rejectedPath;
+            this.parsers = parsers;
+            this.writer = writer;
+            this.inFlight = new Semaphore(maxBlocksInFlight);
+            this.onProgress = onProgress;
+            // The block after a resume may have been written just before the crash
+            this.verifyNext = checkpoint.isResuming();
+        }
+
+        @Override
+        public void row(int rowNumber, String[] cells) throws IOException {
+            Exception failed = failure.get();
+            if (failed != null) {
+                throw new IOException("Import stopped: " + failed.getMessage(), failed);
+            }
+            if (validator == null) {
+                // The first non-blank row is the header
+                for (String cell : cells) {
+                    if (!cell.isBlank()) {
+                        validator = new RowValidator(cells);
+                        rejected = new RejectedRows(rejectedPath, cells, checkpoint.isResuming());
+                        return;
+                    }
+                }
+                return;
+            }
+            if (rowNumber <= checkpoint.rowsDone) {
+                alreadyImported.incrementAndGet();
+                return;
+            }
+            rowNumbers[rows.size()] = rowNumber;
+            rows.add(cells);
+            rowsRead++;
+            if (rows.size() == BLOCK_SIZE) {
+                submitBlock();
+            }
+        }
+
+        void submitBlock() throws IOException {
+            if (rows.isEmpty()) return;
+            int[] numbers = Arrays.copyOf(rowNumbers, rows.size());
+            List<String[]> block = rows;
+            rows = new ArrayList<>(BLOCK_SIZE);
+            boolean verify = verifyNext;
+            verifyNext = false;
+
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            }
+            RowValidator rowValidator = validator;
+            Future<ParsedBlock> parsed = parsers.submit(() -> parse(rowValidator, numbers, block));
+            writer.execute(() -> {
+                try {
+                    if (failure.get() == null) {
+                        write(parsed.get(), verify);
+                    }
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause() instanceof Exception ex ? ex : e);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        void rethrowFailure() throws IOException, SQLException {
+            Exception e = failure.get();
+            if (e == null) return;
+            if (e instanceof SQLException sql) throw sql;
+            if (e instanceof IOException io) throw io;
+            if (e instanceof RuntimeException runtime) throw runtime;
+            throw new IOException("Import failed: " + e.getMessage(), e);
+        }
+
+        /**
+         * Validates one block; runs on the parser threads
+         */
+        private ParsedBlock parse(RowValidator rowValidator, int[] numbers, List<String[]> block) {
+            ParsedBlock parsed = new ParsedBlock();
+            for (int i = 0; i < numbers.length; i++) {
+                String[] cells = block.get(i);
+                try {
+                    ImportRecord record = rowValidator.validate(numbers[i], cells);
+                    if (record != null) parsed.records.add(record);
+                } catch (IllegalArgumentException e) {
+                    parsed.rejections.add(new Rejection(numbers[i], e.getMessage(), cells));
+                }
+            }
+            parsed.lastRow = numbers[numbers.length - 1];
+            return parsed;
+        }
+
+        /**
+         * Writes one block and checkpoints it; runs on the writer thread, one block at a time in
+         * file order
+         */
+        private void write(ParsedBlock block, boolean verify) throws SQLException, IOException {
+            if (patients == null) {
+                patients = importDao.loadPatients(RowValidator::matchKey);
+            }
+            List<Rejection> rejections = new ArrayList<>(block.rejections);
+
+            // Match patients; create the missing ones in one go
+            List<ImportRecord> accepted = new ArrayList<>(block.records.size());
+            Map<String, String> toCreate = new LinkedHashMap<>();
+            for (ImportRecord record : block.records) {
+                String key = RowValidator.matchKey(record.patientName);
+                ImportDao.PatientRef patient = patients.get(key);
+                if (patient != null && patient.isDeleted()) {
+                    rejections.add(new Rejection(record.rowNumber, "Patient is deleted: " + record.patientName, record.cells));
+                } else if (patient == null && matchOnly) {
+                    rejections.add(new Rejection(record.rowNumber, "No patient named " + record.patientName, record.cells));
+                } else {
+                    if (patient == null) toCreate.putIfAbsent(key, record.patientName);
+                    accepted.add(record);
+                }
+            }
+            if (!toCreate.isEmpty()) {
+                List<String> keys = new ArrayList<>(toCreate.keySet());
+                int[] ids = importDao.createPatients(new ArrayList<>(toCreate.values()));
+                for (int i = 0; i < ids.length; i++) {
+                    patients.put(keys.get(i), new ImportDao.PatientRef(ids[i], false));
+                }
+                checkpoint.patientsCreated += ids.length;
+            }
+
+            if (verify) {
+                accepted = dropAlreadyImported(accepted);
+            }
+
+            List<ImportRecord> treatmentRows = new ArrayList<>();
+            List<ImportRecord> paymentRows = new ArrayList<>();
+            for (ImportRecord record : accepted) {
+                (record.isFollowUpPayment() ? paymentRows : treatmentRows).add(record);
+            }
+
+            // A treatment code that already exists means the row was imported before, e.g. by a
+            // run whose checkpoint was deleted. Its chunk was rolled back: drop the rows that exist
+            // and write the rest of the chunk again.
+            List<ImportRecord> duplicates = saveTreatments(treatmentRows);
+            if (!duplicates.isEmpty()) {
+                List<ImportRecord> stillDuplicate = saveTreatments(dropAlreadyImported(duplicates));
+                if (!stillDuplicate.isEmpty()) {
+                    ImportRecord record = stillDuplicate.get(0);
+                    throw new SQLException("Row " + record.rowNumber + " could not be written: duplicate treatment code "
+                            + checkpoint.marker(record.rowNumber));
+                }
+            }
+
+            // Follow-up payments go to the newest treatment of that name, which may be one just saved
+            if (!paymentRows.isEmpty()) {
+                Set<Integer> patientIds = new HashSet<>();
+                for (ImportRecord record : paymentRows) {
+                    patientIds.add(patientId(record));
+                }
+                Map<String, Integer> latest = importDao.findLatestTreatments(patientIds, RowValidator::matchKey);
+
+                List<ImportRecord> resolved = new ArrayList<>();
+                List<Payment> payments = new ArrayList<>();
+                for (ImportRecord record : paymentRows) {
+                    Integer treatmentPk = latest.get(ImportDao.treatmentKey(patientId(record),
+                            RowValidator.matchKey(record.treatmentName)));
+                    if (treatmentPk == null) {
+                        rejections.add(new Rejection(record.rowNumber,
+                                "No earlier treatment '" + record.treatmentName + "' for " + record.patientName,
+                                record.cells));
+                        continue;
+                    }
+                    resolved.add(record);
+                    payments.add(toPayment(record, treatmentPk));
+                }
+                List<BatchItemResult> recorded = treatmentDao.recordPayments(payments);
+                for (int i = 0; i < recorded.size(); i++) {
+                    BatchItemResult result = recorded.get(i);
+                    if (result.getStatus() == BatchItemResult.Status.NOT_FOUND) {
+                        rejections.add(new Rejection(resolved.get(i).rowNumber, result.getMessage(),
+                                resolved.get(i).cells));
+                        continue;
+                    }
+                    requireWritten(result, resolved.get(i));
+                    checkpoint.payments++;
+                }
+            }
+
+            rejections.sort(Comparator.comparingInt(r -> r.rowNumber));
+            for (Rejection rejection : rejections) {
+                rejected.add(rejection.rowNumber, rejection.reason, rejection.cells);
+            }
+            rejected.flush();
+            checkpoint.rejected += rejections.size();
+            checkpoint.rowsDone = block.lastRow;
+            checkpoint.save();
+
+            long total = written.addAndGet(block.records.size() + block.rejections.size());
+            if (onProgress != null) onProgress.accept(total);
+        }
+
+        /**
+         * Saves the rows' treatments
+         * @return the rows whose chunk was rolled back for a duplicate treatment code
+         */
+        private List<ImportRecord> saveTreatments(List<ImportRecord> rows) throws SQLException {
+            List<Treatment> treatments = new ArrayList<>(rows.size());
+            for (ImportRecord record : rows) {
+                treatments.add(toTreatment(record));
+            }
+            List<BatchItemResult> saved = treatmentDao.saveTreatments(treatments);
+            List<ImportRecord> duplicates = new ArrayList<>();
+            for (int i = 0; i < saved.size(); i++) {
+                if (saved.get(i).getStatus() == BatchItemResult.Status.DUPLICATE) {
+                    duplicates.add(rows.get(i));
+                    continue;
+                }
+                requireWritten(saved.get(i), rows.get(i));
+                checkpoint.treatments++;
+            }
+            return duplicates;
+        }
+
+        /**
+         * Drops rows whose treatment or payment already exists, i.e. rows committed by an
+         * interrupted run after its last checkpoint
+         */
+        private List<ImportRecord> dropAlreadyImported(List<ImportRecord> records) throws SQLException {
+            List<String> codes = new ArrayList<>();
+            List<String> references = new ArrayList<>();
+            for (ImportRecord record : records) {
+                (record.isFollowUpPayment() ? references : codes).add(checkpoint.marker(record.rowNumber));
+            }
+            Set<String> existing = new HashSet<>(importDao.findExistingTreatmentCodes(codes));
+            existing.addAll(importDao.findExistingPaymentReferences(references));
+            if (existing.isEmpty()) return records;
+
+            List<ImportRecord> remaining = new ArrayList<>(records.size());
+            for (ImportRecord record : records) {
+                if (existing.contains(checkpoint.marker(record.rowNumber))) {
+                    alreadyImported.incrementAndGet();
+                } else {
+                    remaining.add(record);
+                }
+            }
+            return remaining;
+        }
+
+        private int patientId(ImportRecord record) {
+            return patients.get(RowValidator.matchKey(record.patientName)).getId();
+        }
+
+        private Treatment toTreatment(ImportRecord record) {
+            Treatment treatment = new Treatment(checkpoint.marker(record.rowNumber), patientId(record),
+                    record.treatmentName, record.total);
+            treatment.setAmountPaid(record.paid);
+            treatment.setAmountPending(Math.max(0, record.total - record.paid));
+            treatment.setActive(record.paid < record.total);
+            treatment.setPaymentDate(record.date);
+            treatment.setCreatedAt(record.date);
+            treatment.setUpdatedAt(record.date);
+            treatment.setPaymentMethod(record.paymentMethod);
+            treatment.setNotes(record.notes);
+            return treatment;
+        }
+
+        private Payment toPayment(ImportRecord record, int treatmentPk) {
+            Payment payment = new Payment();
+            payment.setTreatmentPk(treatmentPk);
+            payment.setAmount(record.paid);
+            payment.setPaymentDate(record.date);
+            payment.setPaymentMethod(record.paymentMethod);
+            payment.setNotes(record.notes.isEmpty() ? "Imported payment" : record.notes);
+            payment.setTransactionReference(checkpoint.marker(record.rowNumber));
+            return payment;
+        }
+
+        /**
+         * A failed write stops the import before the checkpoint moves past the row
+         */
+        private void requireWritten(BatchItemResult result, ImportRecord record) throws SQLException {
+            if (!result.isSaved()) {
+                throw new SQLException("Row " + record.rowNumber + " could not be written: " + result.getMessage());
+            }
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static void awaitQuietly(ExecutorService executor) {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.nirwan.dentalclinic.importer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CSV report of rows that were not imported: source row number, reason, then the original cells,
+ * so the file can be corrected and imported again.
+ */
+final class RejectedRows implements Closeable {
+    private final Path path;
+    private final BufferedWriter out;
+
+    /**
+     * @param append keep the rows rejected by an earlier run (when resuming)
+     */
+    RejectedRows(Path path, String[] header, boolean append) throws IOException {
+        this.path = path;
+        boolean writeHeader = !append || !Files.exists(path);
+        this.out = append
+                ? Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                : Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        if (writeHeader) {
+            String[] columns = new String[header.length + 2];
+            columns[0] = "row";
+            columns[1] = "reason";
+            System.arraycopy(header, 0, columns, 2, header.length);
+            writeLine(columns);
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    void add(int rowNumber, String reason, String[] cells) throws IOException {
+        String[] columns = new String[cells.length + 2];
+        columns[0] = Integer.toString(rowNumber);
+        columns[1] = reason;
+        System.arraycopy(cells, 0, columns, 2, cells.length);
+        writeLine(columns);
+    }
+
+    /**
+     * Flushes before a checkpoint, so the report never lags behind the saved progress
+     */
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeLine(String[] columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) out.write(',');
+            String value = columns[i] != null ? columns[i] : "";
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
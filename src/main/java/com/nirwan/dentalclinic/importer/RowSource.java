@@ -0,0 +1,50 @@
+package com.nirwan.dentalclinic.importer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * A spreadsheet-like file read row by row, header row included, without loading it into memory
+ */
+public interface RowSource {
+
+    /**
+     * Receives the rows in file order
+     */
+    @FunctionalInterface
+    interface RowHandler {
+        /**
+         * @param rowNumber 1-based row (XLSX) or record (CSV) number in the file
+         * @param cells the row's cells, blank cells as empty strings
+         */
+        void row(int rowNumber, String[] cells) throws IOException;
+    }
+
+    void read(RowHandler handler) throws IOException;
+
+    /**
+     * The name of the sheet that {@link #read} reads, as spelled in the workbook, or null for a
+     * file without sheets (CSV)
+     * @throws IOException if the sheet does not exist
+     */
+    default String sheetName() throws IOException {
+        return null;
+    }
+
+    /**
+     * Opens a .csv or .xlsx file
+     * @param sheetName the XLSX sheet to read, or null for the first one; ignored for CSV
+     * @throws IllegalArgumentException for any other file type
+     */
+    static RowSource open(Path file, String sheetName) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvRowSource(file);
+        }
+        if (name.endsWith(".xlsx")) {
+            return new XlsxRowSource(file, sheetName);
+        }
+        throw new IllegalArgumentException("Unsupported import file (expected .csv or .xlsx): " + file);
+    }
+}
@@ -0,0 +1,190 @@
+package com.nirwan.dentalclinic.importer;
+
+import com.nirwan.dentalclinic.models.Money;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maps the header of a legacy ledger sheet to columns and turns rows into {@link ImportRecord}s.
+ * Stateless after construction, so rows can be validated on several threads at once.
+ *
+ * Recognised headers (case and spacing ignored):
+ * date, patient, treatment, total (or cost, fee, amount), paid, method (or mode), notes.
+ * Date, patient, treatment and one of total / paid are required.
+ */
+final class RowValidator {
+    static final int MAX_NAME_LENGTH = 255;
+
+    private enum Column {
+        DATE("date", "payment date", "visit date", "treatment date"),
+        PATIENT("patient", "patient name", "name"),
+        TREATMENT("treatment", "treatment name", "description"),
+        TOTAL("total", "total amount", "cost", "fee", "fees", "amount"),
+        PAID("paid", "amount paid", "payment", "received"),
+        METHOD("method", "payment method", "mode", "payment mode"),
+        NOTES("notes", "note", "remarks");
+
+        private final List<String> aliases;
+
+        Column(String... aliases) {
+            this.aliases = List.of(aliases);
+        }
+    }
+
+    // Day-first, as written in Indian ledgers; ISO first since XLSX dates arrive in that form.
+    // Strict, so that 31/02/2019 is rejected rather than read as 28 February.
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+        DateTimeFormatter.ISO_LOCAL_DATE,
+        strict("d/M/uuuu"),
+        strict("d-M-uuuu"),
+        strict("d.M.uuuu"),
+        strict("d/M/uu"),
+        strict("d-MMM-uuuu"),
+        strict("d MMM uuuu"),
+    };
+
+    private static DateTimeFormatter strict(String pattern) {
+        return DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH).withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    private final int[] columns = new int[Column.values().length];
+    private final String[] header;
+
+    /**
+     * @throws IllegalArgumentException if a required column is missing
+     */
+    RowValidator(String[] header) {
+        this.header = header;
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.length; i++) {
+            String name = matchKey(header[i]);
+            for (Column column : Column.values()) {
+                if (columns[column.ordinal()] < 0 && column.aliases.contains(name)) {
+                    columns[column.ordinal()] = i;
+                    break;
+                }
+            }
+        }
+        for (Column required : new Column[]{Column.DATE, Column.PATIENT, Column.TREATMENT}) {
+            if (columns[required.ordinal()] < 0) {
+                throw new IllegalArgumentException("Missing column: " + required.aliases.get(0));
+            }
+        }
+        if (columns[Column.TOTAL.ordinal()] < 0 && columns[Column.PAID.ordinal()] < 0) {
+            throw new IllegalArgumentException("Missing column: total or paid");
+        }
+    }
+
+    String[] getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the record, or null for a blank row
+     * @throws IllegalArgumentException with the reason if the row is rejected
+     */
+    ImportRecord validate(int rowNumber, String[] cells) {
+        if (isBlank(cells)) return null;
+
+        String patient = normalizeName(cell(cells, Column.PATIENT));
+        if (patient.isEmpty()) throw new IllegalArgumentException("Patient name is empty");
+        if (patient.length() > MAX_NAME_LENGTH) throw new IllegalArgumentException("Patient name is too long");
+
+        String treatment = normalizeName(cell(cells, Column.TREATMENT));
+        if (treatment.isEmpty()) throw new IllegalArgumentException("Treatment is empty");
+
+        LocalDateTime date = parseDate(cell(cells, Column.DATE));
+        if (date.toLocalDate().isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Date is in the future: " + cell(cells, Column.DATE));
+        }
+
+        String totalText = cell(cells, Column.TOTAL);
+        String paidText = cell(cells, Column.PAID);
+        Long total = totalText.isEmpty() ? null : parseAmount(totalText, "Total");
+        long paid = paidText.isEmpty() ? Money.ZERO : parseAmount(paidText, "Paid");
+        if (total == null && paid == 0) {
+            throw new IllegalArgumentException("Neither a total nor a paid amount");
+        }
+
+        return new ImportRecord(rowNumber, cells, patient, treatment, date, total, paid,
+                parseMethod(cell(cells, Column.METHOD)), cell(cells, Column.NOTES));
+    }
+
+    private String cell(String[] cells, Column column) {
+        int index = columns[column.ordinal()];
+        return index >= 0 && index < cells.length && cells[index] != null ? cells[index].trim() : "";
+    }
+
+    private static boolean isBlank(String[] cells) {
+        for (String cell : cells) {
+            if (cell != null && !cell.isBlank()) return false;
+        }
+        return true;
+    }
+
+    static LocalDateTime parseDate(String text) {
+        if (text.isEmpty()) throw new IllegalArgumentException("Date is empty");
+        if (text.indexOf('T') > 0) {
+            try {
+                return LocalDateTime.parse(text);
+            } catch (DateTimeParseException ignored) {
+                // Fall through to the date-only formats
+            }
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(text, format).atStartOfDay();
+            } catch (DateTimeParseException ignored) {
+                // Try the next format
+            }
+        }
+        throw new IllegalArgumentException("Unrecognised date: " + text);
+    }
+
+    private static long parseAmount(String text, String what) {
+        String cleaned = text.replaceFirst("(?i)^(rs\\.?|inr)\\s*", "");
+        long amount;
+        try {
+            amount = Money.parse(cleaned);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(what + " is not an amount: " + text);
+        }
+        if (amount < 0) throw new IllegalArgumentException(what + " is negative: " + text);
+        return amount;
+    }
+
+    /**
+     * Maps the payment modes found in old ledgers onto the Payment.payment_method values
+     */
+    static String parseMethod(String text) {
+        return switch (matchKey(text)) {
+            case "", "cash" -> "CASH";
+            case "upi", "online", "gpay", "google pay", "phonepe", "paytm" -> "UPI";
+            case "card", "credit card", "debit card" -> "CARD";
+            case "bank", "bank transfer", "neft", "imps", "rtgs", "cheque", "check" -> "BANK_TRANSFER";
+            default -> throw new IllegalArgumentException("Unknown payment method: " + text);
+        };
+    }
+
+    /**
+     * Trims and collapses runs of whitespace, keeping the original capitalisation
+     */
+    static String normalizeName(String name) {
+        return name == null ? "" : name.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Key used to match names: as {@link #normalizeName} but case-insensitive, like the
+     * database's default collation
+     */
+    static String matchKey(String name) {
+        return normalizeName(name).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,137 @@
+package com.nirwan.dentalclinic.importer;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads one sheet of an .xlsx workbook with POI's SAX event API, so that a sheet with hundreds of
+ * thousands of rows is never built in memory. Date cells come out in ISO form (2019-04-01 or
+ * 2019-04-01T10:30) whatever their display format, so "01/04/19" in the sheet is not ambiguous.
+ */
+final class XlsxRowSource implements RowSource {
+    private final Path file;
+    private final String sheetName;
+
+    XlsxRowSource(Path file, String sheetName) {
+        this.file = file;
+        this.sheetName = sheetName;
+    }
+
+    @Override
+    public void read(RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    if (sheetName != null && !sheetName.equalsIgnoreCase(sheets.getSheetName())) {
+                        continue;
+                    }
+                    XMLReader xml = XMLHelper.newXMLReader();
+                    xml.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), strings,
+                            new RowCollector(handler), new IsoDateFormatter(), false));
+                    xml.parse(new InputSource(sheet));
+                    return;
+                }
+            }
+            throw new IOException(sheetName != null ? "No sheet named " + sheetName : "Workbook has no sheets");
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Cannot read " + file.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String sheetName() throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+            while (sheets.hasNext()) {
+                // Only the name is needed, but the iterator opens each sheet's stream
+                sheets.next().close();
+                if (sheetName == null || sheetName.equalsIgnoreCase(sheets.getSheetName())) {
+                    return sheets.getSheetName();
+                }
+            }
+            throw new IOException(sheetName != null ? "No sheet named " + sheetName : "Workbook has no sheets");
+        } catch (OpenXML4JException e) {
+            throw new IOException("Cannot read " + file.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Turns cell events into whole rows; cells missing from the sheet become empty strings
+     */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+
+        RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            try {
+                handler.row(rowNum + 1, cells.toArray(new String[0]));
+            } catch (IOException e) {
+                // SAX callbacks cannot throw IOException; unwrapped in read()
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < col) {
+                cells.add("");
+            }
+            cells.add(formattedValue != null ? formattedValue : "");
+        }
+    }
+
+    /**
+     * Formats numbers as the sheet shows them, except dates, which are written in ISO form
+     */
+    private static final class IsoDateFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString,
+                                            boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                LocalDateTime dateTime = DateUtil.getLocalDateTime(value, use1904Windowing);
+                return dateTime.toLocalTime().equals(LocalTime.MIDNIGHT)
+                        ? dateTime.toLocalDate().toString()
+                        : dateTime.toString();
+            }
+            return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+        }
+    }
+}
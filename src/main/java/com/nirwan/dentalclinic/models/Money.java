@@ -0,0 +1,112 @@
+package com.nirwan.dentalclinic.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Money amounts as a primitive {@code long} number of paise (1 rupee = 100 paise).
+ * Amounts are stored as DECIMAL(12,2) in the database and only converted at the JDBC and
+ * UI boundaries, so sums and comparisons are exact and never box.
+ */
+public final class Money {
+    public static final long ZERO = 0L;
+    public static final int SCALE = 2;
+    private static final long PAISE_PER_RUPEE = 100L;
+
+    private Money() {
+    }
+
+    /**
+     * Converts whole rupees to paise
+     */
+    public static long ofRupees(long rupees) {
+        return Math.multiplyExact(rupees, PAISE_PER_RUPEE);
+    }
+
+    /**
+     * Converts a decimal rupee amount to paise, rounding half-up to two decimal places
+     */
+    public static long fromDecimal(BigDecimal rupees) {
+        if (rupees == null) return ZERO;
+        return rupees.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long paise) {
+        return BigDecimal.valueOf(paise, SCALE);
+    }
+
+    /**
+     * For APIs that only accept a double (e.g. spreadsheet cells); exact for any realistic amount
+     */
+    public static double toDouble(long paise) {
+        return paise / (double) PAISE_PER_RUPEE;
+    }
+
+    /**
+     * Parses user input such as "1500", "1500.5" or "1,500.50" into paise
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new NumberFormatException("Amount is empty");
+        }
+        String cleaned = text.trim().replace(",", "").replace("₹", "");
+        try {
+            return fromDecimal(new BigDecimal(cleaned));
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount is out of range: " + text);
+        }
+    }
+
+    /**
+     * Plain two-decimal form without a currency symbol, e.g. "1500.50", for editable fields
+     */
+    public static String toPlainString(long paise) {
+        StringBuilder sb = new StringBuilder(16);
+        appendPlain(sb, paise);
+        return sb.toString();
+    }
+
+    /**
+     * Display form with the rupee symbol, e.g. "₹1500.50"
+     */
+    public static String format(long paise) {
+        StringBuilder sb = new StringBuilder(16);
+        if (paise < 0) {
+            sb.append('-');
+            paise = -paise;
+        }
+        sb.append('₹');
+        appendPlain(sb, paise);
+        return sb.toString();
+    }
+
+    private static void appendPlain(StringBuilder sb, long paise) {
+        if (paise < 0) {
+            sb.append('-');
+            paise = -paise;
+        }
+        long fraction = paise % PAISE_PER_RUPEE;
+        sb.append(paise / PAISE_PER_RUPEE).append('.');
+        if (fraction < 10) sb.append('0');
+        sb.append(fraction);
+    }
+
+    /**
+     * Reads a DECIMAL money column as paise; SQL NULL reads as zero
+     */
+    public static long read(ResultSet rs, String column) throws SQLException {
+        return fromDecimal(rs.getBigDecimal(column));
+    }
+
+    public static long read(ResultSet rs, int column) throws SQLException {
+        return fromDecimal(rs.getBigDecimal(column));
+    }
+
+    public static void bind(PreparedStatement stmt, int index, long paise) throws SQLException {
+        stmt.setBigDecimal(index, toDecimal(paise));
+    }
+}
@@ -0,0 +1,73 @@
+package com.nirwan.dentalclinic.models;
+
+import java.util.Objects;
+
+/**
+ * Filter and sort order for the paged main patient list. Immutable; the with* methods return copies.
+ */
+public final class PatientListQuery {
+
+    /**
+     * Columns the list can be ordered by. Every order is made unique by the patient ID as a tie-breaker.
+     */
+    public enum SortKey {
+        NAME,
+        TREATMENT_ID,
+        DESCRIPTION,
+        TOTAL_AMOUNT,
+        AMOUNT_PAID,
+        AMOUNT_PENDING,
+        STATUS,
+        TREATMENT_DATE
+    }
+
+    /** All patients ordered by name, the order the list opens in */
+    public static final PatientListQuery DEFAULT = new PatientListQuery("", SortKey.NAME, true);
+
+    private final String filter;
+    private final SortKey sortKey;
+    private final boolean ascending;
+
+    private PatientListQuery(String filter, SortKey sortKey, boolean ascending) {
+        this.filter = filter;
+        this.sortKey = sortKey;
+        this.ascending = ascending;
+    }
+
+    /**
+     * @param filter text the patient name must contain (case-insensitive); null or blank for no filter
+     */
+    public PatientListQuery withFilter(String filter) {
+        return new PatientListQuery(filter == null ? "" : filter.trim(), sortKey, ascending);
+    }
+
+    public PatientListQuery withSort(SortKey sortKey, boolean ascending) {
+        return new PatientListQuery(filter, Objects.requireNonNull(sortKey), ascending);
+    }
+
+    public String getFilter() { return filter; }
+    public SortKey getSortKey() { return sortKey; }
+    public boolean isAscending() { return ascending; }
+
+    public boolean hasFilter() {
+        return !filter.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PatientListQuery)) return false;
+        PatientListQuery that = (PatientListQuery) o;
+        return ascending == that.ascending && filter.equals(that.filter) && sortKey == that.sortKey;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(filter, sortKey, ascending);
+    }
+
+    @Override
+    public String toString() {
+        return "PatientListQuery[filter='" + filter + "', sort=" + sortKey + (ascending ? " ASC" : " DESC") + "]";
+    }
+}
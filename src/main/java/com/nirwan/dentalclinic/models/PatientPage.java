@@ -0,0 +1,31 @@
+package com.nirwan.dentalclinic.models;
+
+import java.util.List;
+
+/**
+ * One keyset page of the main patient list. The sort key and ID of the last row are the
+ * position the next page continues from, so no page ever needs an OFFSET.
+ */
+public final class PatientPage {
+    private final List<PatientTreatmentDto> rows;
+    private final Object lastSortKey;
+    private final long lastId;
+    private final boolean last;
+
+    public PatientPage(List<PatientTreatmentDto> rows, Object lastSortKey, long lastId, boolean last) {
+        this.rows = rows;
+        this.lastSortKey = lastSortKey;
+        this.lastId = lastId;
+        this.last = last;
+    }
+
+    public List<PatientTreatmentDto> getRows() { return rows; }
+
+    /** Value of the sort column in the last row, as read from the database */
+    public Object getLastSortKey() { return lastSortKey; }
+
+    public long getLastId() { return lastId; }
+
+    /** True when there are no rows after this page */
+    public boolean isLast() { return last; }
+}
@@ -0,0 +1,21 @@
+package com.nirwan.dentalclinic.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The searchable text of one patient: their name plus the code and description
+ * of each of their (non-deleted) treatments.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class PatientSearchDocument {
+    private long patientId;
+    private String name;
+    private List<String> treatmentTexts = new ArrayList<>();
+}
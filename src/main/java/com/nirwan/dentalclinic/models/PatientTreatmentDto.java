@@ -8,9 +8,11 @@ public class PatientTreatmentDto {
     private final StringProperty name = new SimpleStringProperty();
     private final StringProperty treatmentId = new SimpleStringProperty();
     private final StringProperty description = new SimpleStringProperty();
-    private final DoubleProperty totalAmount = new SimpleDoubleProperty();
-    private final DoubleProperty amountPaid = new SimpleDoubleProperty();
-    private final DoubleProperty amountPending = new SimpleDoubleProperty();
+    // Money amounts in paise, see Money
+    private final LongProperty totalAmount = new SimpleLongProperty();
+    private final LongProperty amountPaid = new SimpleLongProperty();
+    private final LongProperty amountPending = new SimpleLongProperty();
+    private final LongProperty totalPending = new SimpleLongProperty(); // across all treatments
     private final StringProperty status = new SimpleStringProperty();
     private final ObjectProperty<LocalDate> treatmentDate = new SimpleObjectProperty<>();
 
@@ -19,9 +21,10 @@ public class PatientTreatmentDto {
     public StringProperty nameProperty() { return name; }
     public StringProperty treatmentIdProperty() { return treatmentId; }
     public StringProperty descriptionProperty() { return description; }
-    public DoubleProperty totalAmountProperty() { return totalAmount; }
-    public DoubleProperty amountPaidProperty() { return amountPaid; }
-    public DoubleProperty amountPendingProperty() { return amountPending; }
+    public LongProperty totalAmountProperty() { return totalAmount; }
+    public LongProperty amountPaidProperty() { return amountPaid; }
+    public LongProperty amountPendingProperty() { return amountPending; }
+    public LongProperty totalPendingProperty() { return totalPending; }
     public StringProperty statusProperty() { return status; }
     public ObjectProperty<LocalDate> treatmentDateProperty() { return treatmentDate; }
 
@@ -30,9 +33,10 @@ public class PatientTreatmentDto {
     public String getName() { return name.get(); }
     public String getTreatmentId() { return treatmentId.get(); }
     public String getDescription() { return description.get(); }
-    public double getTotalAmount() { return totalAmount.get(); }
-    public double getAmountPaid() { return amountPaid.get(); }
-    public double getAmountPending() { return amountPending.get(); }
+    public long getTotalAmount() { return totalAmount.get(); }
+    public long getAmountPaid() { return amountPaid.get(); }
+    public long getAmountPending() { return amountPending.get(); }
+    public long getTotalPending() { return totalPending.get(); }
     public String getStatus() { return status.get(); }
     public LocalDate getTreatmentDate() { return treatmentDate.get(); }
 }
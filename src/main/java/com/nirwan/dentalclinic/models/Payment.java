@@ -11,8 +11,9 @@ import java.time.LocalDateTime;
 @Data
 public class Payment {
     private int id;
-    private String treatmentId;
-    private double amount;
+    private int treatmentPk; // Treatment.id
+    private String treatmentId; // treatment code, kept for display
+    private long amount; // paise
     private LocalDateTime paymentDate;
     private String paymentMethod; // CASH, CARD, UPI, BANK_TRANSFER
     private String transactionReference;
@@ -20,4 +21,5 @@ public class Payment {
     private boolean isDeleted;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private int version; // row version, see Treatment.version
 }
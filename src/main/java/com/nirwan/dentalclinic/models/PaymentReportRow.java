@@ -8,7 +8,7 @@ public class PaymentReportRow {
     private final StringProperty patientName = new SimpleStringProperty();
     private final StringProperty treatmentDescription = new SimpleStringProperty();
     private final StringProperty treatmentId = new SimpleStringProperty();
-    private final DoubleProperty amount = new SimpleDoubleProperty();
+    private final LongProperty amount = new SimpleLongProperty(); // paise
     private final StringProperty paymentMethod = new SimpleStringProperty();
     private final ObjectProperty<LocalDateTime> dateTime = new SimpleObjectProperty<>();
 
@@ -24,9 +24,9 @@ public class PaymentReportRow {
     public void setTreatmentId(String value) { treatmentId.set(value); }
     public StringProperty treatmentIdProperty() { return treatmentId; }
 
-    public double getAmount() { return amount.get(); }
-    public void setAmount(double value) { amount.set(value); }
-    public DoubleProperty amountProperty() { return amount; }
+    public long getAmount() { return amount.get(); }
+    public void setAmount(long value) { amount.set(value); }
+    public LongProperty amountProperty() { return amount; }
 
     public String getPaymentMethod() { return paymentMethod.get(); }
     public void setPaymentMethod(String value) { paymentMethod.set(value); }
@@ -0,0 +1,27 @@
+package com.nirwan.dentalclinic.models;
+
+/**
+ * Payment totals over a date range, in paise, as shown in the payments report header
+ */
+public final class PaymentTotals {
+    public static final PaymentTotals EMPTY = new PaymentTotals(Money.ZERO, Money.ZERO, 0);
+
+    private final long cash;
+    private final long online;
+    private final int count;
+
+    public PaymentTotals(long cash, long online, int count) {
+        this.cash = cash;
+        this.online = online;
+        this.count = count;
+    }
+
+    public long getCash() { return cash; }
+
+    /** Every payment method other than cash */
+    public long getOnline() { return online; }
+
+    public long getTotal() { return cash + online; }
+
+    public int getCount() { return count; }
+}
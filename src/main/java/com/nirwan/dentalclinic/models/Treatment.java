@@ -18,9 +18,10 @@ public class Treatment {
     private String treatmentId;
     private int patientId;
     private String treatmentName;
-    private double totalAmount;
-    private double amountPaid;
-    private double amountPending;
+    // Money amounts in paise, see Money
+    private long totalAmount;
+    private long amountPaid;
+    private long amountPending;
     private boolean isActive;
     private boolean isDeleted;
     private LocalDateTime paymentDate;
@@ -28,16 +29,18 @@ public class Treatment {
     private LocalDateTime updatedAt;
     private String paymentMethod;
     private String notes;
+    // Incremented by every update; writes that overwrite read values check it (optimistic locking)
+    private int version;
 
     /**
      * Creates a new active treatment with current timestamps
      */
-    public Treatment(String treatmentId, int patientId, String treatmentName, double initialCost) {
+    public Treatment(String treatmentId, int patientId, String treatmentName, long initialCost) {
         this.treatmentId = treatmentId;
         this.patientId = patientId;
         this.treatmentName = treatmentName;
         this.totalAmount = initialCost;
-        this.amountPaid = 0.0;
+        this.amountPaid = Money.ZERO;
         this.amountPending = initialCost;
         this.isActive = true;
         this.isDeleted = false;
@@ -49,9 +52,9 @@ public class Treatment {
 
     /**
      * Updates the treatment with a new payment
-     * @param paymentAmount amount being paid
+     * @param paymentAmount amount being paid, in paise
      */
-    public void recordPayment(double paymentAmount) {
+    public void recordPayment(long paymentAmount) {
         this.amountPaid += paymentAmount;
         this.amountPending = Math.max(0, this.totalAmount - this.amountPaid);
         this.updatedAt = LocalDateTime.now();
@@ -59,9 +62,9 @@ public class Treatment {
 
     /**
      * Updates the treatment cost
-     * @param newCost new treatment cost
+     * @param newCost new treatment cost, in paise
      */
-    public void updateCost(double newCost) {
+    public void updateCost(long newCost) {
         this.totalAmount = newCost;
         this.amountPending = Math.max(0, this.totalAmount - this.amountPaid);
         this.updatedAt = LocalDateTime.now();
@@ -11,12 +11,15 @@ import java.time.LocalDateTime;
 @Data
 public class TreatmentCost {
     private int id;
-    private String treatmentId;
-    private double cost;
+    private int treatmentPk; // Treatment.id
+    private String treatmentId; // treatment code, kept for display
+    private long cost; // paise
     private String status; // PENDING, PARTIALLY_PAID, PAID
     private String notes;
     private LocalDateTime effectiveFrom;
     private boolean isDeleted;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Treatment.version the cost was entered against; not stored, checked by TreatmentDao.addTreatmentCosts
+    private int treatmentVersion;
 }
@@ -1,19 +1,21 @@
 package com.nirwan.dentalclinic.repository;
 
+import com.nirwan.dentalclinic.database.DatabaseConnection;
 import com.nirwan.dentalclinic.models.Appointment;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Appointments, on the application's configured database like every other DAO. The Appointment
+ * and Patient_Treatment tables are not created by any migration yet, so nothing calls this.
+ */
 public class AppointmentDao {
-    private static final String URL = "jdbc:h2:./database/dentalclinic";
-    private static final String USER = "sa";
-    private static final String PASSWORD = "";
 
     // CREATE a new appointment
     public static void addAppointment(Appointment appointment) {
         String query = "INSERT INTO Appointment (patientTreatmentMappingId, appointmentDate, paymentMade, remarks) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, appointment.getPatientTreatmentMappingId());
             pstmt.setString(2, appointment.getAppointmentDate());
@@ -29,7 +31,7 @@ public class AppointmentDao {
     public static List<Appointment> getAllAppointments() {
         List<Appointment> appointments = new ArrayList<>();
         String query = "SELECT * FROM Appointment";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
@@ -52,7 +54,7 @@ public class AppointmentDao {
         List<Appointment> appointments = new ArrayList<>();
         String query = "SELECT * FROM Appointment WHERE patientTreatmentMappingId IN " +
                 "(SELECT id FROM Patient_Treatment WHERE patient_id = ?)";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, patientId);
             ResultSet rs = pstmt.executeQuery();
@@ -76,7 +78,7 @@ public class AppointmentDao {
         List<Appointment> appointments = new ArrayList<>();
         String query = "SELECT * FROM Appointment WHERE patientTreatmentMappingId IN " +
                 "(SELECT id FROM Patient_Treatment WHERE treatment_id = ?)";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, treatmentId);
             ResultSet rs = pstmt.executeQuery();
@@ -100,7 +102,7 @@ public class AppointmentDao {
         List<Appointment> appointments = new ArrayList<>();
         String query = "SELECT * FROM Appointment WHERE patientTreatmentMappingId IN " +
                 "(SELECT id FROM Patient_Treatment WHERE patient_id = ? AND treatment_id = ?)";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, patientId);
             pstmt.setInt(2, treatmentId);
@@ -123,7 +125,7 @@ public class AppointmentDao {
     // UPDATE an appointment
     public static void updateAppointment(Appointment appointment) {
         String query = "UPDATE Appointment SET patientTreatmentMappingId = ?, appointmentDate = ?, paymentMade = ?, remarks = ? WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, appointment.getPatientTreatmentMappingId());
             pstmt.setString(2, appointment.getAppointmentDate());
@@ -139,7 +141,7 @@ public class AppointmentDao {
     // DELETE an appointment
     public static void deleteAppointment(int id) {
         String query = "DELETE FROM Appointment WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, id);
             pstmt.executeUpdate();
@@ -0,0 +1,67 @@
+package com.nirwan.dentalclinic.repository;
+
+/**
+ * Outcome of one item of a bulk write in {@link TreatmentDao}, at the same index as the item
+ */
+public final class BatchItemResult {
+
+    public enum Status {
+        /** Written; {@link #getGeneratedId()} holds the new row's ID */
+        SAVED,
+        /** The treatment the item refers to does not exist or is deleted; nothing was written */
+        NOT_FOUND,
+        /** The item's chunk was rolled back; see {@link #getMessage()} */
+        FAILED,
+        /**
+         * The item's chunk was rolled back because an item in it (not necessarily this one)
+         * duplicates a unique key, such as an existing treatment code
+         */
+        DUPLICATE,
+        /** The treatment changed after the version the item was based on; nothing was written for it */
+        CONFLICT
+    }
+
+    private final Status status;
+    private final int generatedId;
+    private final String message;
+
+    private BatchItemResult(Status status, int generatedId, String message) {
+        this.status = status;
+        this.generatedId = generatedId;
+        this.message = message;
+    }
+
+    static BatchItemResult saved(int generatedId) {
+        return new BatchItemResult(Status.SAVED, generatedId, null);
+    }
+
+    static BatchItemResult notFound(int treatmentPk) {
+        return new BatchItemResult(Status.NOT_FOUND, 0, "Treatment " + treatmentPk + " not found");
+    }
+
+    static BatchItemResult failed(String message) {
+        return new BatchItemResult(Status.FAILED, 0, message);
+    }
+
+    static BatchItemResult duplicate(String message) {
+        return new BatchItemResult(Status.DUPLICATE, 0, message);
+    }
+
+    static BatchItemResult conflict(String message) {
+        return new BatchItemResult(Status.CONFLICT, 0, message);
+    }
+
+    public Status getStatus() { return status; }
+
+    public boolean isSaved() { return status == Status.SAVED; }
+
+    /** ID of the inserted Treatment, Payment or TreatmentCost row, or 0 if nothing was saved */
+    public int getGeneratedId() { return generatedId; }
+
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+        return status == Status.SAVED ? "SAVED(" + generatedId + ")" : status + ": " + message;
+    }
+}
@@ -0,0 +1,45 @@
+package com.nirwan.dentalclinic.repository;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Positions of a result set's columns by label, looked up once per result set so that row
+ * mappers read every row by index. Labels match case-insensitively and the first column with a
+ * label wins, as with ResultSet.findColumn.
+ */
+final class ColumnIndex {
+    private final Map<String, Integer> positions;
+
+    ColumnIndex(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int count = metaData.getColumnCount();
+        positions = new HashMap<>(count * 2);
+        for (int i = count; i >= 1; i--) {
+            positions.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    /**
+     * Position of a column the mapper cannot do without
+     * @throws SQLException if the result set has no such column
+     */
+    int required(String label) throws SQLException {
+        Integer position = positions.get(label);
+        if (position == null) {
+            throw new SQLException("Result set has no column " + label);
+        }
+        return position;
+    }
+
+    /**
+     * Position of a column, or 0 if the result set does not have it
+     */
+    int optional(String label) {
+        return positions.getOrDefault(label, 0);
+    }
+}
@@ -0,0 +1,16 @@
+package com.nirwan.dentalclinic.repository;
+
+import java.sql.SQLException;
+
+/**
+ * A write was refused because the row's version moved on since the caller read it, through a
+ * change the write cannot simply be reapplied over (typically an edit made on another terminal).
+ * The caller should reload and let the user decide.
+ */
+public class ConcurrentUpdateException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+}
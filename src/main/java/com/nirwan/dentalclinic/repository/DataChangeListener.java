@@ -0,0 +1,21 @@
+package com.nirwan.dentalclinic.repository;
+
+/**
+ * Notified after a DAO commits a change, on the thread that made it (usually a DbExecutor worker).
+ * Implementations must be quick and thread-safe; hand any real work off to their own executor.
+ */
+public interface DataChangeListener {
+
+    /**
+     * A patient was created, renamed or deleted
+     */
+    default void patientChanged(int patientId) {
+    }
+
+    /**
+     * A treatment, or one of its costs or payments, was created, changed or deleted
+     * @param treatmentPk the treatment's numeric ID (Treatment.id)
+     */
+    default void treatmentChanged(int treatmentPk) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.nirwan.dentalclinic.repository;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes committed data changes to in-memory views of the data (search index, caches)
+ * so they can update incrementally instead of reloading everything.
+ */
+public final class DataChanges {
+    private static final List<DataChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private DataChanges() {
+    }
+
+    public static void addListener(DataChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(DataChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    static void patientChanged(int patientId) {
+        for (DataChangeListener listener : listeners) {
+            try {
+                listener.patientChanged(patientId);
+            } catch (RuntimeException e) {
+                System.err.println("Data change listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    static void treatmentChanged(int treatmentPk) {
+        for (DataChangeListener listener : listeners) {
+            try {
+                listener.treatmentChanged(treatmentPk);
+            } catch (RuntimeException e) {
+                System.err.println("Data change listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
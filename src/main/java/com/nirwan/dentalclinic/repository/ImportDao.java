@@ -0,0 +1,191 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Lookups and patient inserts for the legacy ledger import. Treatments and payments themselves
+ * are written through the bulk methods of {@link TreatmentDao}.
+ */
+public class ImportDao {
+    private static final String SELECT_PATIENT_NAMES_SQL = "SELECT id, name, is_deleted FROM Patient";
+
+    private static final String INSERT_PATIENT_SQL =
+        "INSERT INTO Patient (name, is_deleted, created_at, updated_at) VALUES (?, false, ?, ?)";
+
+    private static final String SELECT_TREATMENTS_OF_PATIENTS_SQL =
+        "SELECT id, patient_id, treatment_name FROM Treatment WHERE is_deleted = false AND patient_id IN (";
+
+    // IN lists are built per call; this keeps them well below packet and placeholder limits
+    private static final int IN_CHUNK = 500;
+
+    /**
+     * An existing patient as seen by the import
+     */
+    public static final class PatientRef {
+        private final int id;
+        private final boolean deleted;
+
+        public PatientRef(int id, boolean deleted) {
+            this.id = id;
+            this.deleted = deleted;
+        }
+
+        public int getId() { return id; }
+
+        public boolean isDeleted() { return deleted; }
+    }
+
+    /**
+     * Reads every patient, deleted ones included (Patient.name is unique across both)
+     * @param normalizer turns a name into the key used for matching
+     */
+    public Map<String, PatientRef> loadPatients(Function<String, String> normalizer)
+            throws SQLException {
+        Map<String, PatientRef> patients = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_PATIENT_NAMES_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                patients.put(normalizer.apply(rs.getString("name")),
+                        new PatientRef(rs.getInt("id"), rs.getBoolean("is_deleted")));
+            }
+        }
+        return patients;
+    }
+
+    /**
+     * Inserts new patients in one transaction
+     * @return the generated IDs, in the order of the names
+     */
+    public int[] createPatients(List<String> names) throws SQLException {
+        int[] ids = new int[names.size()];
+        if (names.isEmpty()) return ids;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_PATIENT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                for (String name : names) {
+                    stmt.setString(1, name);
+                    stmt.setTimestamp(2, now);
+                    stmt.setTimestamp(3, now);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                int count = 0;
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    while (count < ids.length && keys.next()) {
+                        ids[count++] = keys.getInt(1);
+                    }
+                }
+                if (count != ids.length) {
+                    throw new SQLException("Expected " + ids.length + " generated keys but got " + count);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        for (int id : ids) {
+            DataChanges.patientChanged(id);
+        }
+        return ids;
+    }
+
+    /**
+     * Finds the newest live treatment of each patient per treatment name
+     * @param nameNormalizer turns a treatment name into the key used for matching
+     * @return Treatment.id keyed by {@link #treatmentKey}
+     */
+    public Map<String, Integer> findLatestTreatments(Collection<Integer> patientIds,
+                                                     Function<String, String> nameNormalizer)
+            throws SQLException {
+        Map<String, Integer> latest = new HashMap<>();
+        if (patientIds.isEmpty()) return latest;
+        Integer[] ids = patientIds.toArray(new Integer[0]);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            for (int start = 0; start < ids.length; start += IN_CHUNK) {
+                int end = Math.min(ids.length, start + IN_CHUNK);
+                String sql = SELECT_TREATMENTS_OF_PATIENTS_SQL + placeholders(end - start) + ") ORDER BY id";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = start; i < end; i++) {
+                        stmt.setInt(i - start + 1, ids[i]);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            // Ordered by id, so the newest treatment wins
+                            latest.put(treatmentKey(rs.getInt("patient_id"),
+                                    nameNormalizer.apply(rs.getString("treatment_name"))), rs.getInt("id"));
+                        }
+                    }
+                }
+            }
+        }
+        return latest;
+    }
+
+    public static String treatmentKey(int patientId, String normalizedName) {
+        return patientId + "\u0000" + normalizedName;
+    }
+
+    /**
+     * Returns which of the given treatment codes already exist
+     */
+    public Set<String> findExistingTreatmentCodes(Collection<String> codes) throws SQLException {
+        return findExisting("SELECT treatment_id FROM Treatment WHERE treatment_id IN (", codes);
+    }
+
+    /**
+     * Returns which of the given transaction references are already on a payment
+     */
+    public Set<String> findExistingPaymentReferences(Collection<String> references) throws SQLException {
+        return findExisting("SELECT transaction_reference FROM Payment WHERE transaction_reference IN (", references);
+    }
+
+    private Set<String> findExisting(String sqlPrefix, Collection<String> values) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        if (values.isEmpty()) return existing;
+        String[] all = values.toArray(new String[0]);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            for (int start = 0; start < all.length; start += IN_CHUNK) {
+                int end = Math.min(all.length, start + IN_CHUNK);
+                try (PreparedStatement stmt = conn.prepareStatement(sqlPrefix + placeholders(end - start) + ")")) {
+                    for (int i = start; i < end; i++) {
+                        stmt.setString(i - start + 1, all[i]);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            existing.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+}
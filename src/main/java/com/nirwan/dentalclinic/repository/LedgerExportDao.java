@@ -0,0 +1,128 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.concurrent.QueryCancellation;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Raw reads of the ledger tables for exports. Rows are handed to a {@link RowSink} straight from
+ * a streaming result set and are never collected in memory.
+ */
+public class LedgerExportDao {
+
+    /**
+     * An exportable table, with its columns and the date column used for range filters
+     */
+    public enum Table {
+        PATIENT("Patient",
+                "id, name, is_deleted, created_at, updated_at",
+                "created_at"),
+        TREATMENT("Treatment",
+                "id, treatment_id, patient_id, treatment_name, total_amount, amount_paid, amount_pending, " +
+                "is_active, is_deleted, created_at, updated_at",
+                "created_at"),
+        TREATMENT_COST("TreatmentCost",
+                "id, treatment_pk, treatment_id, cost, status, notes, effective_from, is_deleted, created_at, updated_at",
+                "effective_from"),
+        PAYMENT("Payment",
+                "id, treatment_pk, treatment_id, amount, payment_date, payment_method, transaction_reference, notes, " +
+                "is_deleted, created_at, updated_at",
+                "payment_date");
+
+        private final String tableName;
+        private final String columns;
+        private final String dateColumn;
+
+        Table(String tableName, String columns, String dateColumn) {
+            this.tableName = tableName;
+            this.columns = columns;
+            this.dateColumn = dateColumn;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        /**
+         * Parses a table name as given on the command line, e.g. "payment" or "treatment-cost"
+         * @throws IllegalArgumentException if there is no such table
+         */
+        public static Table fromName(String name) {
+            String normalized = name.trim().toUpperCase().replace('-', '_');
+            for (Table table : values()) {
+                if (table.name().equals(normalized) || table.tableName.equalsIgnoreCase(name.trim())) {
+                    return table;
+                }
+            }
+            throw new IllegalArgumentException("Unknown table: " + name);
+        }
+    }
+
+    /**
+     * Receives the column layout once, then every row while the result set is positioned on it
+     */
+    public interface RowSink {
+        void begin(ResultSetMetaData meta) throws SQLException, IOException;
+
+        void row(ResultSet rs) throws SQLException, IOException;
+    }
+
+    /**
+     * Streams the rows of a table in ID order.
+     * @param from first day to include by the table's date column, or null for no lower bound
+     * @param to last day to include, or null for no upper bound
+     * @param includeDeleted whether soft-deleted rows are exported too
+     * @return the number of rows handed to the sink
+     */
+    public long stream(Table table, LocalDate from, LocalDate to, boolean includeDeleted,
+                       QueryCancellation cancellation, RowSink sink) throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(table.columns)
+                .append(" FROM ").append(table.tableName).append(" WHERE 1 = 1");
+        if (!includeDeleted) {
+            sql.append(" AND is_deleted = FALSE");
+        }
+        if (from != null) {
+            sql.append(" AND ").append(table.dateColumn).append(" >= ?");
+        }
+        if (to != null) {
+            sql.append(" AND ").append(table.dateColumn).append(" < ?");
+        }
+        sql.append(" ORDER BY id");
+
+        // A streaming connection: the file may take longer to write than the pool's leak timeout
+        try (Connection conn = DatabaseConnection.getInstance().getStreamingConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Streams instead of buffering the whole table, see SqlDialect.streamingFetchSize
+            ps.setFetchSize(DatabaseConnection.getInstance().getDialect().streamingFetchSize());
+            int idx = 1;
+            if (from != null) {
+                ps.setTimestamp(idx++, Timestamp.valueOf(from.atStartOfDay()));
+            }
+            if (to != null) {
+                ps.setTimestamp(idx++, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            }
+
+            cancellation.register(ps);
+            long count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                sink.begin(rs.getMetaData());
+                while (rs.next() && !cancellation.isCancelled()) {
+                    sink.row(rs);
+                    count++;
+                }
+            } finally {
+                cancellation.unregister();
+            }
+            return count;
+        }
+    }
+}
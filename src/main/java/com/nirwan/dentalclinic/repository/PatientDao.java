@@ -1,5 +1,8 @@
 package com.nirwan.dentalclinic.repository;
 
+import com.nirwan.dentalclinic.cache.LruCache;
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.database.DatabaseConfig;
 import com.nirwan.dentalclinic.database.DatabaseConnection;
 import com.nirwan.dentalclinic.models.Patient;
 import java.sql.*;
@@ -7,13 +10,39 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class PatientDao {
     private static final String INSERT_SQL = 
         "INSERT INTO patient (name, is_deleted, created_at, updated_at) " +
         "VALUES (?, ?, ?, ?)";
-    private static final String SELECT_ALL_SQL = "SELECT * FROM patient WHERE is_deleted = false";
-    private static final String SELECT_BY_ID_SQL = "SELECT * FROM patient WHERE id = ? AND is_deleted = false";
+    // mapRow reads these columns by position
+    private static final String PATIENT_COLUMNS = "id, name, is_deleted, created_at, updated_at";
+    private static final String SELECT_ALL_SQL = "SELECT " + PATIENT_COLUMNS + " FROM patient WHERE is_deleted = false";
+    private static final String SELECT_BY_ID_SQL = "SELECT " + PATIENT_COLUMNS + " FROM patient WHERE id = ? AND is_deleted = false";
+
+    /**
+     * Read-through cache for findById, shared by every PatientDao; size from cache.patient-max-size
+     * (0 disables it), entries expired after cache.patient-ttl-seconds. Every write in this class
+     * invalidates the patient it touched; the expiry covers writes from other terminals.
+     */
+    private static final LruCache<Long, Patient> CACHE = createCache();
+
+    private static LruCache<Long, Patient> createCache() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        DatabaseConfig config = db != null ? db.getConfig() : null;
+        int maxSize = config != null ? config.getInt("cache.patient-max-size", 1000) : 1000;
+        int ttlSeconds = config != null ? config.getInt("cache.patient-ttl-seconds", 60) : 60;
+        return new LruCache<>("patients", maxSize, ttlSeconds,
+                p -> new Patient(p.getId(), p.getName(), p.isDeleted(), p.getCreatedAt(), p.getUpdatedAt()));
+    }
+
+    /**
+     * Hit, miss and eviction counts of the patient cache
+     */
+    public static LruCache<Long, Patient> getCache() {
+        return CACHE;
+    }
 
     // CREATE a new patient
     public boolean savePatient(Patient patient) {
@@ -34,6 +63,8 @@ public class PatientDao {
                         if (generatedKeys.next()) {
                             patient.setId(generatedKeys.getInt(1));
                             conn.commit();
+                            CACHE.invalidate((long) patient.getId());
+                            DataChanges.patientChanged(patient.getId());
                             return true;
                         }
                     }
@@ -60,27 +91,25 @@ public class PatientDao {
         }
     }
 
-    // FIND patient by ID
+    // FIND patient by ID (cached)
     public Optional<Patient> findById(Long id) {
+        return Optional.ofNullable(CACHE.get(id, this::loadById));
+    }
+
+    private Patient loadById(Long id) {
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement stmt = conn.prepareStatement(SELECT_BY_ID_SQL)) {
             
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Patient patient = new Patient();
-                    patient.setId(rs.getInt("id"));
-                    patient.setName(rs.getString("name"));
-                    patient.setDeleted(rs.getBoolean("is_deleted"));
-                    patient.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-                    patient.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
-                    return Optional.of(patient);
+                    return mapRow(rs);
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return Optional.empty();
+        return null;
     }
 
     // READ all patients
@@ -91,13 +120,7 @@ public class PatientDao {
              ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
-                Patient patient = new Patient();
-                patient.setId(rs.getInt("id"));
-                patient.setName(rs.getString("name"));
-                patient.setDeleted(rs.getBoolean("is_deleted"));
-                patient.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-                patient.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
-                patients.add(patient);
+                patients.add(mapRow(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -105,6 +128,16 @@ public class PatientDao {
         return patients;
     }
 
+    private static Patient mapRow(ResultSet rs) throws SQLException {
+        Patient patient = new Patient();
+        patient.setId(rs.getInt(1));
+        patient.setName(rs.getString(2));
+        patient.setDeleted(rs.getBoolean(3));
+        patient.setCreatedAt(rs.getTimestamp(4).toLocalDateTime());
+        patient.setUpdatedAt(rs.getTimestamp(5).toLocalDateTime());
+        return patient;
+    }
+
     // UPDATE a patient
     public static void updatePatient(Patient patient) {
         String query = "UPDATE Patient SET name = ?, age = ?, mobile = ?, gender = ? WHERE id = ?";
@@ -113,6 +146,8 @@ public class PatientDao {
             pstmt.setString(1, patient.getName());
             pstmt.setInt(5, patient.getId());
             pstmt.executeUpdate();
+            CACHE.invalidate((long) patient.getId());
+            DataChanges.patientChanged(patient.getId());
         } catch (SQLException e) {
             System.err.println("Error updating patient: " + e.getMessage());
         }
@@ -125,9 +160,32 @@ public class PatientDao {
              PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, id);
             pstmt.executeUpdate();
+            CACHE.invalidate((long) id);
+            DataChanges.patientChanged(id);
         } catch (SQLException e) {
             System.err.println("Error deleting patient: " + e.getMessage());
         }
     }
-}
 
+    // Asynchronous variants: run on DbExecutor, never on the JavaFX thread
+
+    public CompletableFuture<Boolean> savePatientAsync(Patient patient) {
+        return DbExecutor.supply(() -> savePatient(patient));
+    }
+
+    public CompletableFuture<Optional<Patient>> findByIdAsync(Long id) {
+        return DbExecutor.supply(() -> findById(id));
+    }
+
+    public CompletableFuture<List<Patient>> getAllPatientsAsync() {
+        return DbExecutor.supply(this::getAllPatients);
+    }
+
+    public static CompletableFuture<Void> updatePatientAsync(Patient patient) {
+        return DbExecutor.run(() -> updatePatient(patient));
+    }
+
+    public static CompletableFuture<Void> deletePatientAsync(int id) {
+        return DbExecutor.run(() -> deletePatient(id));
+    }
+}
@@ -1,38 +1,215 @@
 package com.nirwan.dentalclinic.repository;
 
 
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
 import com.nirwan.dentalclinic.database.DatabaseConnection;
-import com.nirwan.dentalclinic.models.PatientListDto;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.PatientListQuery;
+import com.nirwan.dentalclinic.models.PatientPage;
+import com.nirwan.dentalclinic.models.PatientTreatmentDto;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Read-only queries behind the main patient list
+ */
 public class PatientListDao {
 
-    private static final String GET_ALL_PATIENTS_LIST = "SELECT * FROM PatientList";
+    // One row per patient from the incrementally maintained PatientSummary table;
+    // Patient is scanned in name order through its unique index and joined by primary key.
+    // mapRow reads these columns by position, so keep the two in step.
+    private static final String SELECT_COLUMNS = """
+            SELECT p.id,
+                   p.name,
+                   s.latest_treatment_code AS treatment_id,
+                   s.latest_treatment_name AS treatment_name,
+                   s.latest_total_amount AS total_amount,
+                   s.latest_amount_paid AS amount_paid,
+                   s.latest_amount_pending AS amount_pending,
+                   s.latest_status AS status,
+                   s.last_activity_date AS treatment_date,
+                   s.total_pending
+            """;
 
-    public static List<PatientListDto> getAllPatientsList() {
-        List<PatientListDto> patientList = new ArrayList<>();
+    private static final String FROM_PATIENTS = """
+            FROM Patient p
+            LEFT JOIN PatientSummary s ON s.patient_id = p.id
+            WHERE p.is_deleted = FALSE
+            """;
+
+    private static final int MAX_IDS_PER_QUERY = 500;
+    /** Position of the sort key findPage selects after SELECT_COLUMNS */
+    private static final int SORT_KEY_COLUMN = 11;
+
+    private static final String SELECT_PATIENT_TREATMENTS = SELECT_COLUMNS + FROM_PATIENTS + "ORDER BY p.name";
+
+    /** Patients with no treatment yet have no summary row; nulls are mapped so keyset comparisons work */
+    private static String sortExpression(PatientListQuery.SortKey key) {
+        switch (key) {
+            case TREATMENT_ID: return "COALESCE(s.latest_treatment_code, '')";
+            case DESCRIPTION: return "COALESCE(s.latest_treatment_name, '')";
+            case TOTAL_AMOUNT: return "COALESCE(s.latest_total_amount, 0)";
+            case AMOUNT_PAID: return "COALESCE(s.latest_amount_paid, 0)";
+            case AMOUNT_PENDING: return "COALESCE(s.latest_amount_pending, 0)";
+            case STATUS: return "COALESCE(s.latest_status, '')";
+            case TREATMENT_DATE: return "COALESCE(s.last_activity_date, TIMESTAMP '1970-01-01 00:00:01')";
+            case NAME:
+            default: return "p.name";
+        }
+    }
+
+    /**
+     * Returns one row per patient with their latest treatment, ordered by name
+     */
+    public List<PatientTreatmentDto> findPatientTreatments() throws SQLException {
+        List<PatientTreatmentDto> rows = new ArrayList<>();
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(GET_ALL_PATIENTS_LIST);
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_PATIENT_TREATMENTS);
              ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
-                patientList.add(new PatientListDto(
-                        rs.getString("patientName"),
-                        rs.getInt("age"),
-                        rs.getString("latestTreatment"),
-                        rs.getString("latestTreatmentDate"),
-                        rs.getDouble("balancePayment")
-                ));
+                rows.add(mapRow(rs));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the page of the patient list that follows {@code after}, using keyset pagination on
+     * (sort column, patient ID) so every page costs the same regardless of how far the user scrolled.
+     * @param query filter and sort order; the filter is applied as a name match in SQL
+     * @param after the previous page, or null for the first page
+     * @param limit maximum rows in the page
+     */
+    public PatientPage findPage(PatientListQuery query, PatientPage after, int limit) throws SQLException {
+        String key = sortExpression(query.getSortKey());
+        String direction = query.isAscending() ? "ASC" : "DESC";
+        String comparison = query.isAscending() ? ">" : "<";
+
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS)
+                .append("     , ").append(key).append(" AS sort_key\n")
+                .append(FROM_PATIENTS);
+        if (query.hasFilter()) {
+            sql.append("  AND p.name LIKE ? ESCAPE '!'\n");
+        }
+        if (after != null) {
+            sql.append("  AND (").append(key).append(' ').append(comparison).append(" ?")
+               .append(" OR (").append(key).append(" = ? AND p.id ").append(comparison).append(" ?))\n");
+        }
+        sql.append("ORDER BY ").append(key).append(' ').append(direction)
+           .append(", p.id ").append(direction).append(" LIMIT ?");
+
+        List<PatientTreatmentDto> rows = new ArrayList<>(limit);
+        Object lastSortKey = null;
+        long lastId = 0;
+        boolean hasMore = false;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            if (query.hasFilter()) {
+                pstmt.setString(i++, "%" + escapeLike(query.getFilter()) + "%");
+            }
+            if (after != null) {
+                pstmt.setObject(i++, after.getLastSortKey());
+                pstmt.setObject(i++, after.getLastSortKey());
+                pstmt.setLong(i++, after.getLastId());
+            }
+            // One extra row tells whether another page exists
+            pstmt.setInt(i, limit + 1);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (rows.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    PatientTreatmentDto dto = mapRow(rs);
+                    rows.add(dto);
+                    lastSortKey = rs.getObject(SORT_KEY_COLUMN);
+                    lastId = dto.getPatientId();
+                }
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching patient list: " + e.getMessage());
         }
-        return patientList;
+        return new PatientPage(rows, lastSortKey, lastId, !hasMore);
+    }
+
+    /**
+     * Returns the rows for the given patients, in the order of the given IDs
+     * (used to show search results, which arrive as IDs from the search index)
+     */
+    public List<PatientTreatmentDto> findByIds(long[] ids) throws SQLException {
+        Map<Long, PatientTreatmentDto> byId = new HashMap<>(ids.length * 2);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            for (int from = 0; from < ids.length; from += MAX_IDS_PER_QUERY) {
+                int to = Math.min(ids.length, from + MAX_IDS_PER_QUERY);
+                StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(FROM_PATIENTS).append("  AND p.id IN (");
+                for (int i = from; i < to; i++) {
+                    sql.append(i == from ? "?" : ", ?");
+                }
+                sql.append(')');
+                try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                    for (int i = from; i < to; i++) {
+                        pstmt.setLong(i - from + 1, ids[i]);
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            PatientTreatmentDto dto = mapRow(rs);
+                            byId.put(dto.getPatientId(), dto);
+                        }
+                    }
+                }
+            }
+        }
+        List<PatientTreatmentDto> rows = new ArrayList<>(byId.size());
+        for (long id : ids) {
+            PatientTreatmentDto dto = byId.get(id);
+            if (dto != null) rows.add(dto);
+        }
+        return rows;
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static PatientTreatmentDto mapRow(ResultSet rs) throws SQLException {
+        PatientTreatmentDto dto = new PatientTreatmentDto();
+        dto.patientIdProperty().set(rs.getLong(1));
+        dto.nameProperty().set(rs.getString(2));
+        dto.treatmentIdProperty().set(rs.getString(3));
+        dto.descriptionProperty().set(rs.getString(4));
+        dto.totalAmountProperty().set(Money.read(rs, 5));
+        dto.amountPaidProperty().set(Money.read(rs, 6));
+        dto.amountPendingProperty().set(Money.read(rs, 7));
+        dto.statusProperty().set(rs.getString(8));
+        dto.totalPendingProperty().set(Money.read(rs, 10));
+
+        // Convert SQL date to LocalDate
+        Timestamp timestamp = rs.getTimestamp(9);
+        if (timestamp != null) {
+            dto.treatmentDateProperty().set(timestamp.toLocalDateTime().toLocalDate());
+        }
+        return dto;
+    }
+
+    public CompletableFuture<List<PatientTreatmentDto>> findPatientTreatmentsAsync() {
+        return DbExecutor.supply(this::findPatientTreatments);
+    }
+
+    public CompletableFuture<List<PatientTreatmentDto>> findByIdsAsync(long[] ids) {
+        return DbExecutor.supply(() -> findByIds(ids));
+    }
+
+    public CompletableFuture<PatientPage> findPageAsync(PatientListQuery query, PatientPage after, int limit) {
+        return DbExecutor.supply(() -> findPage(query, after, limit));
     }
 }
@@ -0,0 +1,164 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.PatientSearchDocument;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the text indexed by the patient search: names, treatment codes and descriptions
+ */
+public class PatientSearchDao {
+
+    private static final String SELECT_DOCUMENTS = """
+            SELECT p.id, p.name, t.treatment_id, t.treatment_name
+            FROM Patient p
+            LEFT JOIN Treatment t ON t.patient_id = p.id AND t.is_deleted = FALSE
+            WHERE p.is_deleted = FALSE
+            """;
+
+    private static final String SELECT_ALL = SELECT_DOCUMENTS + "ORDER BY p.id";
+
+    private static final String SELECT_BY_PATIENT = SELECT_DOCUMENTS + "  AND p.id = ?";
+
+    private static final String SELECT_BY_TREATMENT =
+        SELECT_DOCUMENTS + "  AND p.id = (SELECT patient_id FROM Treatment WHERE id = ?)";
+
+    private static final String SELECT_BY_PATIENTS = SELECT_DOCUMENTS + "  AND p.id IN (%s)\nORDER BY p.id";
+
+    // Deleted rows are included, so that deletions reach the index too
+    private static final String SELECT_CHANGED_SINCE = """
+            SELECT id AS patient_id FROM Patient WHERE updated_at >= ?
+            UNION
+            SELECT patient_id FROM Treatment WHERE updated_at >= ?
+            """;
+
+    private static final String SELECT_LATEST_CHANGE =
+        "SELECT (SELECT MAX(updated_at) FROM Patient), (SELECT MAX(updated_at) FROM Treatment)";
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int IDS_PER_QUERY = 500;
+
+    /**
+     * Returns one document per (non-deleted) patient, ordered by patient ID
+     */
+    public List<PatientSearchDocument> findAll() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_ALL)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return mapDocuments(rs);
+            }
+        }
+    }
+
+    /**
+     * Returns the patient's document, or null if the patient no longer exists or was deleted
+     */
+    public PatientSearchDocument findByPatientId(int patientId) throws SQLException {
+        return findOne(SELECT_BY_PATIENT, patientId);
+    }
+
+    /**
+     * Returns the document of the patient owning the treatment, or null if there is none
+     */
+    public PatientSearchDocument findByTreatmentId(int treatmentPk) throws SQLException {
+        return findOne(SELECT_BY_TREATMENT, treatmentPk);
+    }
+
+    /**
+     * Returns the documents of the given patients, ordered by patient ID; deleted or missing
+     * patients have none
+     */
+    public List<PatientSearchDocument> findByPatientIds(List<Integer> patientIds) throws SQLException {
+        List<PatientSearchDocument> documents = new ArrayList<>(patientIds.size());
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            for (int from = 0; from < patientIds.size(); from += IDS_PER_QUERY) {
+                List<Integer> chunk = patientIds.subList(from, Math.min(from + IDS_PER_QUERY, patientIds.size()));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                try (PreparedStatement stmt = conn.prepareStatement(String.format(SELECT_BY_PATIENTS, placeholders))) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        documents.addAll(mapDocuments(rs));
+                    }
+                }
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Returns the IDs of patients whose row or any of whose treatments was written at or after
+     * the given time, including deleted ones
+     */
+    public List<Integer> findChangedSince(Timestamp since) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_CHANGED_SINCE)) {
+            stmt.setTimestamp(1, since);
+            stmt.setTimestamp(2, since);
+            List<Integer> patientIds = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    patientIds.add(rs.getInt(1));
+                }
+            }
+            return patientIds;
+        }
+    }
+
+    /**
+     * Returns the newest updated_at of any patient or treatment, or null if there are none
+     */
+    public Timestamp findLatestChange() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_LATEST_CHANGE);
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) return null;
+            Timestamp patients = rs.getTimestamp(1);
+            Timestamp treatments = rs.getTimestamp(2);
+            if (patients == null) return treatments;
+            if (treatments == null) return patients;
+            return patients.after(treatments) ? patients : treatments;
+        }
+    }
+
+    private PatientSearchDocument findOne(String sql, int id) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                List<PatientSearchDocument> documents = mapDocuments(rs);
+                return documents.isEmpty() ? null : documents.get(0);
+            }
+        }
+    }
+
+    /**
+     * Folds the one-row-per-treatment result into one document per patient; rows must be grouped by patient
+     */
+    private List<PatientSearchDocument> mapDocuments(ResultSet rs) throws SQLException {
+        List<PatientSearchDocument> documents = new ArrayList<>();
+        PatientSearchDocument current = null;
+        while (rs.next()) {
+            long patientId = rs.getLong("id");
+            if (current == null || current.getPatientId() != patientId) {
+                current = new PatientSearchDocument(patientId, rs.getString("name"), new ArrayList<>(2));
+                documents.add(current);
+            }
+            String code = rs.getString("treatment_id");
+            if (code != null) current.getTreatmentTexts().add(code);
+            String description = rs.getString("treatment_name");
+            if (description != null) current.getTreatmentTexts().add(description);
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,113 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Maintains the PatientSummary table behind the main patient list.
+ * Every method that changes a treatment, cost or payment calls {@link #refreshForTreatment}
+ * on its own connection before committing, so the summary is updated in the same transaction.
+ */
+public class PatientSummaryDao {
+
+    private static final String SUMMARY_SELECT = """
+            SELECT p.id,
+                   lt.id,
+                   lt.treatment_id,
+                   lt.treatment_name,
+                   lt.total_amount,
+                   lt.amount_paid,
+                   lt.amount_pending,
+                   (SELECT tc.status FROM TreatmentCost tc
+                     WHERE tc.treatment_pk = lt.id AND tc.is_deleted = FALSE
+                     ORDER BY tc.effective_from DESC, tc.id DESC LIMIT 1),
+                   COALESCE((SELECT MAX(pay.payment_date) FROM Payment pay
+                              WHERE pay.treatment_pk = lt.id AND pay.is_deleted = FALSE), lt.updated_at),
+                   (SELECT COALESCE(SUM(t.amount_pending), 0) FROM Treatment t
+                     WHERE t.patient_id = p.id AND t.is_deleted = FALSE),
+                   (SELECT COUNT(*) FROM Treatment t WHERE t.patient_id = p.id AND t.is_deleted = FALSE),
+                   CURRENT_TIMESTAMP
+            FROM Patient p
+            LEFT JOIN Treatment lt ON lt.id = (SELECT t.id FROM Treatment t
+                                                WHERE t.patient_id = p.id AND t.is_deleted = FALSE
+                                                ORDER BY t.updated_at DESC, t.id DESC LIMIT 1)
+            """;
+
+    private static final String SUMMARY_INSERT = """
+            INSERT INTO PatientSummary (patient_id, latest_treatment_pk, latest_treatment_code, latest_treatment_name,
+                                        latest_total_amount, latest_amount_paid, latest_amount_pending, latest_status,
+                                        last_activity_date, total_pending, treatment_count, refreshed_at)
+            """;
+
+    private static final String SUMMARY_UPSERT = """
+             ON DUPLICATE KEY UPDATE
+                latest_treatment_pk = VALUES(latest_treatment_pk),
+                latest_treatment_code = VALUES(latest_treatment_code),
+                latest_treatment_name = VALUES(latest_treatment_name),
+                latest_total_amount = VALUES(latest_total_amount),
+                latest_amount_paid = VALUES(latest_amount_paid),
+                latest_amount_pending = VALUES(latest_amount_pending),
+                latest_status = VALUES(latest_status),
+                last_activity_date = VALUES(last_activity_date),
+                total_pending = VALUES(total_pending),
+                treatment_count = VALUES(treatment_count),
+                refreshed_at = VALUES(refreshed_at)
+            """;
+
+    private static final String REFRESH_PATIENT_SQL =
+        SUMMARY_INSERT + SUMMARY_SELECT + "WHERE p.id = ?" + SUMMARY_UPSERT;
+
+    private static final String REFRESH_FOR_TREATMENT_SQL =
+        SUMMARY_INSERT + SUMMARY_SELECT + "WHERE p.id = (SELECT patient_id FROM Treatment WHERE id = ?)" + SUMMARY_UPSERT;
+
+    private static final String DELETE_ALL_SQL = "DELETE FROM PatientSummary";
+
+    private static final String REBUILD_SQL = SUMMARY_INSERT + SUMMARY_SELECT;
+
+    /**
+     * Recomputes the summary row of one patient on the caller's connection
+     */
+    public void refreshForPatient(Connection conn, int patientId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(REFRESH_PATIENT_SQL)) {
+            stmt.setInt(1, patientId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes the summary row of the patient who owns the given treatment
+     * @param treatmentPk the treatment's numeric ID (Treatment.id)
+     */
+    public void refreshForTreatment(Connection conn, int treatmentPk) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(REFRESH_FOR_TREATMENT_SQL)) {
+            stmt.setInt(1, treatmentPk);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Rebuilds the whole table from Patient, Treatment, TreatmentCost and Payment in one transaction.
+     * Used after importing data or if the summary is suspected to be out of date.
+     * @return the number of summary rows written
+     */
+    public int rebuild() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(DELETE_ALL_SQL);
+                int rows = stmt.executeUpdate(REBUILD_SQL);
+                conn.commit();
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.QueryCancellation;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.PaymentReportRow;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Queries behind the payments report
+ */
+public class PaymentReportDao {
+
+    /**
+     * Returns payments in the given range, newest first.
+     * @param paymentMethod payment method to filter on, or null / "All" for every method
+     * @param treatmentLike case-insensitive fragment of the treatment name, or empty for no filter
+     */
+    public List<PaymentReportRow> findPayments(LocalDateTime from, LocalDateTime to,
+                                               String paymentMethod, String treatmentLike) throws SQLException {
+        return findPayments(from, to, paymentMethod, treatmentLike, new QueryCancellation());
+    }
+
+    /**
+     * As {@link #findPayments(LocalDateTime, LocalDateTime, String, String)}, registering the query
+     * with the given cancellation so that a superseded report stops running on the server
+     */
+    public List<PaymentReportRow> findPayments(LocalDateTime from, LocalDateTime to, String paymentMethod,
+                                               String treatmentLike, QueryCancellation cancellation) throws SQLException {
+        List<PaymentReportRow> rows = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = prepareReportQuery(conn, from, to, paymentMethod, treatmentLike)) {
+            readPayments(ps, cancellation, (dateTime, patientName, treatment, amount, method) -> {
+                PaymentReportRow row = new PaymentReportRow();
+                row.setPatientName(patientName);
+                row.setTreatmentDescription(treatment);
+                row.setTreatmentId(treatment);
+                row.setAmount(amount);
+                row.setPaymentMethod(method);
+                row.setDateTime(dateTime);
+                rows.add(row);
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * Receives report rows one at a time while they are streamed from the database
+     */
+    @FunctionalInterface
+    public interface PaymentRowHandler {
+        void onRow(LocalDateTime dateTime, String patientName, String treatment, long amount, String paymentMethod);
+    }
+
+    /**
+     * Streams the same rows as {@link #findPayments} to the handler without holding them in memory,
+     * over a forward-only, read-only result set on a streaming connection, which is not reclaimed
+     * however long the handler takes. Used for exports of any size.
+     * @return the number of rows handed to the handler
+     */
+    public long streamPayments(LocalDateTime from, LocalDateTime to, String paymentMethod, String treatmentLike,
+                               QueryCancellation cancellation, PaymentRowHandler handler) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getStreamingConnection();
+             PreparedStatement ps = prepareReportQuery(conn, from, to, paymentMethod, treatmentLike)) {
+            ps.setFetchSize(DatabaseConnection.getInstance().getDialect().streamingFetchSize());
+            return readPayments(ps, cancellation, handler);
+        }
+    }
+
+    private PreparedStatement prepareReportQuery(Connection conn, LocalDateTime from, LocalDateTime to,
+                                                 String paymentMethod, String treatmentLike) throws SQLException {
+        boolean byMethod = paymentMethod != null && !paymentMethod.equals("All");
+        boolean byTreatment = treatmentLike != null && !treatmentLike.isEmpty();
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT p.name AS patient_name, t.treatment_name AS treatment_desc, ")
+           .append("pay.amount, pay.payment_method, pay.payment_date ")
+           .append("FROM Payment pay ")
+           .append("JOIN Treatment t ON pay.treatment_pk = t.id ")
+           .append("JOIN Patient p ON t.patient_id = p.id ")
+           .append("WHERE pay.is_deleted = false AND pay.payment_date >= ? AND pay.payment_date <= ? ");
+        if (byMethod) {
+            sql.append("AND pay.payment_method = ? ");
+        }
+        if (byTreatment) {
+            sql.append("AND LOWER(t.treatment_name) LIKE ? ");
+        }
+        sql.append("ORDER BY pay.payment_date DESC");
+
+        PreparedStatement ps = conn.prepareStatement(sql.toString(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        int idx = 1;
+        ps.setTimestamp(idx++, Timestamp.valueOf(from));
+        ps.setTimestamp(idx++, Timestamp.valueOf(to));
+        if (byMethod) {
+            ps.setString(idx++, paymentMethod);
+        }
+        if (byTreatment) {
+            ps.setString(idx++, "%" + treatmentLike.toLowerCase() + "%");
+        }
+        return ps;
+    }
+
+    private long readPayments(PreparedStatement ps, QueryCancellation cancellation,
+                              PaymentRowHandler handler) throws SQLException {
+        cancellation.register(ps);
+        long count = 0;
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next() && !cancellation.isCancelled()) {
+                // By position, in the order prepareReportQuery selects them
+                Timestamp ts = rs.getTimestamp(5);
+                handler.onRow(ts != null ? ts.toLocalDateTime() : null,
+                        rs.getString(1),
+                        rs.getString(2),
+                        Money.read(rs, 3),
+                        rs.getString(4));
+                count++;
+            }
+        } finally {
+            cancellation.unregister();
+        }
+        return count;
+    }
+
+    public CompletableFuture<List<PaymentReportRow>> findPaymentsAsync(LocalDateTime from, LocalDateTime to,
+                                                                       String paymentMethod, String treatmentLike) {
+        return DbExecutor.supplyCancellable(
+                cancellation -> findPayments(from, to, paymentMethod, treatmentLike, cancellation));
+    }
+}
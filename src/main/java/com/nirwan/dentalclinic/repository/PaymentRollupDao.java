@@ -0,0 +1,280 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.Payment;
+import com.nirwan.dentalclinic.models.PaymentTotals;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Maintains the PaymentDailyRollup table and answers report totals from it.
+ * Payment writes collect their changes in a {@link Changes} and {@link #apply} it on their own
+ * connection before committing, which adds each amount to the one row of its day, method and
+ * treatment name in the same transaction as the payment change. Renaming a treatment moves its
+ * payments to another row, so {@link #refreshForTreatment} rewrites the days it has payments on.
+ */
+public class PaymentRollupDao {
+
+    private static final String ROLLUP_INSERT = """
+            INSERT INTO PaymentDailyRollup (payment_day, payment_method, treatment_name, total_amount, payment_count)
+            SELECT DATE(pay.payment_date), pay.payment_method, COALESCE(t.treatment_name, ''), SUM(pay.amount), COUNT(*)
+            FROM Payment pay
+            JOIN Treatment t ON pay.treatment_pk = t.id
+            WHERE pay.is_deleted = FALSE
+            """;
+
+    private static final String ROLLUP_GROUP_BY =
+        " GROUP BY DATE(pay.payment_date), pay.payment_method, COALESCE(t.treatment_name, '')";
+
+    private static final String DELETE_DAY_SQL = "DELETE FROM PaymentDailyRollup WHERE payment_day = ?";
+
+    private static final String REFRESH_DAY_SQL =
+        ROLLUP_INSERT + "  AND pay.payment_date >= ? AND pay.payment_date < ?" + ROLLUP_GROUP_BY;
+
+    private static final String DELETE_ALL_SQL = "DELETE FROM PaymentDailyRollup";
+
+    private static final String REBUILD_SQL = ROLLUP_INSERT + ROLLUP_GROUP_BY;
+
+    // The treatment name is read here rather than passed in: callers have already updated the
+    // Treatment row, so this reads the committed name and no rename can commit before ours does
+    private static final String ADJUST_SQL = """
+            INSERT INTO PaymentDailyRollup (payment_day, payment_method, treatment_name, total_amount, payment_count)
+            SELECT ?, ?, COALESCE(t.treatment_name, ''), ?, ?
+            FROM Treatment t WHERE t.id = ?
+            ON DUPLICATE KEY UPDATE
+                total_amount = PaymentDailyRollup.total_amount + ?,
+                payment_count = PaymentDailyRollup.payment_count + ?
+            """;
+
+    private static final String SELECT_LIVE_PAYMENT_SQL =
+        "SELECT treatment_pk, amount, payment_date, payment_method FROM Payment WHERE id = ? AND is_deleted = FALSE";
+
+    private static final String SELECT_TREATMENT_DAYS_SQL =
+        "SELECT DISTINCT DATE(payment_date) FROM Payment WHERE treatment_pk = ? AND is_deleted = FALSE";
+
+    private static final String TOTALS_SQL = """
+            SELECT COALESCE(SUM(CASE WHEN payment_method = 'CASH' THEN total_amount END), 0) AS cash,
+                   COALESCE(SUM(CASE WHEN payment_method <> 'CASH' THEN total_amount END), 0) AS online,
+                   COALESCE(SUM(payment_count), 0) AS payment_count
+            FROM PaymentDailyRollup
+            WHERE payment_day >= ? AND payment_day <= ?
+            """;
+
+    /**
+     * Amounts and counts to add to the rollup, per treatment, day and payment method, collected
+     * over one transaction
+     */
+    public static final class Changes {
+        // Sorted, so that every terminal locks rollup rows in the same order
+        private final Map<Key, long[]> deltas = new TreeMap<>();
+
+        /**
+         * Counts a new payment
+         */
+        public Changes add(int treatmentPk, LocalDateTime paymentDate, String paymentMethod, long amount) {
+            return adjust(new Key(paymentDate.toLocalDate(), paymentMethod, treatmentPk), amount, 1);
+        }
+
+        /**
+         * Takes a deleted payment, or the old values of an edited one, back out
+         */
+        public Changes remove(Payment payment) {
+            Key key = new Key(payment.getPaymentDate().toLocalDate(), payment.getPaymentMethod(), payment.getTreatmentPk());
+            return adjust(key, -payment.getAmount(), -1);
+        }
+
+        private Changes adjust(Key key, long amount, int count) {
+            long[] delta = deltas.computeIfAbsent(key, k -> new long[2]);
+            delta[0] += amount;
+            delta[1] += count;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return deltas.isEmpty();
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator.<Key, LocalDate>comparing(k -> k.day)
+                .thenComparing(k -> k.paymentMethod)
+                .thenComparingInt(k -> k.treatmentPk);
+
+        final LocalDate day;
+        final String paymentMethod;
+        final int treatmentPk;
+
+        Key(LocalDate day, String paymentMethod, int treatmentPk) {
+            this.day = day;
+            this.paymentMethod = paymentMethod;
+            this.treatmentPk = treatmentPk;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * Adds the collected changes to the rollup rows, on the caller's connection. Call after the
+     * Treatment rows involved have been updated in the same transaction.
+     */
+    public void apply(Connection conn, Changes changes) throws SQLException {
+        if (changes.isEmpty()) return;
+        try (PreparedStatement stmt = conn.prepareStatement(ADJUST_SQL)) {
+            int batched = 0;
+            for (Map.Entry<Key, long[]> entry : changes.deltas.entrySet()) {
+                Key key = entry.getKey();
+                long amount = entry.getValue()[0];
+                int count = (int) entry.getValue()[1];
+                if (amount == 0 && count == 0) continue; // e.g. a payment edited without changing its amount
+                stmt.setDate(1, Date.valueOf(key.day));
+                stmt.setString(2, key.paymentMethod);
+                Money.bind(stmt, 3, amount);
+                stmt.setInt(4, count);
+                stmt.setInt(5, key.treatmentPk);
+                Money.bind(stmt, 6, amount);
+                stmt.setInt(7, count);
+                stmt.addBatch();
+                batched++;
+            }
+            if (batched > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Rewrites the rollup rows of one day from the Payment table, on the caller's connection
+     */
+    public void refreshDay(Connection conn, LocalDate day) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement(DELETE_DAY_SQL);
+             PreparedStatement insert = conn.prepareStatement(REFRESH_DAY_SQL)) {
+            delete.setDate(1, Date.valueOf(day));
+            delete.executeUpdate();
+            insert.setTimestamp(1, Timestamp.valueOf(day.atStartOfDay()));
+            insert.setTimestamp(2, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Rewrites every day on which the given treatment has payments, after it is renamed
+     * @param treatmentPk the treatment's numeric ID (Treatment.id)
+     */
+    public void refreshForTreatment(Connection conn, int treatmentPk) throws SQLException {
+        List<LocalDate> days = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_TREATMENT_DAYS_SQL)) {
+            stmt.setInt(1, treatmentPk);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    days.add(rs.getDate(1).toLocalDate());
+                }
+            }
+        }
+        for (LocalDate day : days) {
+            refreshDay(conn, day);
+        }
+    }
+
+    /**
+     * Reads what the rollup holds for a payment (treatment, amount, day and method), before it is
+     * changed or deleted
+     * @return the payment, or null if it does not exist or is already deleted
+     */
+    public Payment findRolledUpPayment(Connection conn, int paymentId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_LIVE_PAYMENT_SQL)) {
+            stmt.setInt(1, paymentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return null;
+                Payment payment = new Payment();
+                payment.setId(paymentId);
+                payment.setTreatmentPk(rs.getInt("treatment_pk"));
+                payment.setAmount(Money.read(rs, "amount"));
+                payment.setPaymentDate(rs.getTimestamp("payment_date").toLocalDateTime());
+                payment.setPaymentMethod(rs.getString("payment_method"));
+                return payment;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the whole table from Payment and Treatment in one transaction.
+     * Used after importing data or if the rollup is suspected to be out of date.
+     * @return the number of rollup rows written
+     */
+    public int rebuild() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(DELETE_ALL_SQL);
+                int rows = stmt.executeUpdate(REBUILD_SQL);
+                conn.commit();
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Sums payments per method over whole days, from the first day to the last day inclusive
+     * @param paymentMethod payment method to filter on, or null / "All" for every method
+     * @param treatmentLike case-insensitive fragment of the treatment name, or empty for no filter
+     */
+    public PaymentTotals findTotals(LocalDate from, LocalDate to,
+                                    String paymentMethod, String treatmentLike) throws SQLException {
+        boolean byMethod = paymentMethod != null && !paymentMethod.equals("All");
+        boolean byTreatment = treatmentLike != null && !treatmentLike.isEmpty();
+
+        StringBuilder sql = new StringBuilder(TOTALS_SQL);
+        if (byMethod) {
+            sql.append("  AND payment_method = ?");
+        }
+        if (byTreatment) {
+            sql.append("  AND LOWER(treatment_name) LIKE ?");
+        }
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int idx = 1;
+            ps.setDate(idx++, Date.valueOf(from));
+            ps.setDate(idx++, Date.valueOf(to));
+            if (byMethod) {
+                ps.setString(idx++, paymentMethod);
+            }
+            if (byTreatment) {
+                ps.setString(idx++, "%" + treatmentLike.toLowerCase() + "%");
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return PaymentTotals.EMPTY;
+                return new PaymentTotals(Money.read(rs, "cash"), Money.read(rs, "online"), rs.getInt("payment_count"));
+            }
+        }
+    }
+
+    public CompletableFuture<PaymentTotals> findTotalsAsync(LocalDate from, LocalDate to,
+                                                           String paymentMethod, String treatmentLike) {
+        return DbExecutor.supply(() -> findTotals(from, to, paymentMethod, treatmentLike));
+    }
+}
@@ -0,0 +1,158 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.cache.LruCache;
+import com.nirwan.dentalclinic.models.Payment;
+import com.nirwan.dentalclinic.models.Treatment;
+import com.nirwan.dentalclinic.models.TreatmentCost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-patient cache of treatments with their payments and cost history, kept by {@link TreatmentDao}.
+ * Every TreatmentDao write reloads the treatment it changed and replaces it here (write-through),
+ * so the patient view and treatment dialog can be reopened without going back to the database.
+ * Entries expire after a fixed time so that changes made from another terminal show up.
+ * Cached objects are never handed out; callers get copies.
+ */
+final class TreatmentCache {
+
+    /**
+     * One treatment with its live payments (newest first) and cost history (newest first)
+     */
+    static final class Entry {
+        final Treatment treatment;
+        final List<Payment> payments;
+        final List<TreatmentCost> costs;
+
+        Entry(Treatment treatment, List<Payment> payments, List<TreatmentCost> costs) {
+            this.treatment = treatment;
+            this.payments = List.copyOf(payments);
+            this.costs = List.copyOf(costs);
+        }
+    }
+
+    /**
+     * All live treatments of one patient, keyed by Treatment.id. Immutable; writes replace it.
+     */
+    static final class PatientEntry {
+        final Map<Integer, Entry> treatments;
+
+        PatientEntry(Map<Integer, Entry> treatments) {
+            this.treatments = Collections.unmodifiableMap(treatments);
+        }
+
+        PatientEntry with(int treatmentPk, Entry entry) {
+            Map<Integer, Entry> copy = new LinkedHashMap<>(treatments);
+            if (entry == null) {
+                copy.remove(treatmentPk);
+            } else {
+                copy.put(treatmentPk, entry);
+            }
+            return new PatientEntry(copy);
+        }
+    }
+
+    // Same order as TreatmentDao.SELECT_TREATMENTS_BY_PATIENT
+    private static final Comparator<Treatment> DISPLAY_ORDER = Comparator
+            .comparing(Treatment::isActive).reversed()
+            .thenComparing(Treatment::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final LruCache<Integer, PatientEntry> patients;
+    // Treatment.id -> patient, to find cached treatments by ID; entries for evicted patients are harmless
+    private final Map<Integer, Integer> owners = new ConcurrentHashMap<>();
+
+    TreatmentCache(int maxPatients, long ttlSeconds) {
+        this.patients = new LruCache<>("treatments", maxPatients, ttlSeconds, UnaryOperator.identity());
+    }
+
+    LruCache<Integer, PatientEntry> getCache() {
+        return patients;
+    }
+
+    /**
+     * Returns the patient's treatments in display order, loading them on a miss or after expiry
+     * @param loader loads the patient's aggregate, or returns null if that failed
+     */
+    List<Treatment> findByPatientId(int patientId, Function<Integer, PatientEntry> loader) {
+        PatientEntry entry = patients.get(patientId, loader);
+        if (entry == null) return null;
+
+        List<Treatment> result = new ArrayList<>(entry.treatments.size());
+        for (Entry e : entry.treatments.values()) {
+            owners.put(e.treatment.getId(), patientId);
+            result.add(copy(e.treatment));
+        }
+        result.sort(DISPLAY_ORDER);
+        return result;
+    }
+
+    /**
+     * Returns the cached treatment aggregate, or null if its patient is not cached (or has expired)
+     */
+    Entry find(int treatmentPk) {
+        Integer patientId = owners.get(treatmentPk);
+        if (patientId == null) return null;
+        PatientEntry entry = patients.get(patientId, id -> null);
+        if (entry == null) return null;
+        return entry.treatments.get(treatmentPk);
+    }
+
+    /**
+     * Replaces one treatment of a cached patient after a write; a null entry removes it (soft delete)
+     */
+    void put(int patientId, int treatmentPk, Entry entry) {
+        if (entry != null) {
+            owners.put(treatmentPk, patientId);
+        }
+        patients.update(patientId, current -> current.with(treatmentPk, entry));
+    }
+
+    void invalidatePatient(int patientId) {
+        patients.invalidate(patientId);
+    }
+
+    /**
+     * Drops the cached patient who owns the treatment, e.g. when a write-through reload failed
+     */
+    void invalidateTreatment(int treatmentPk) {
+        Integer patientId = owners.get(treatmentPk);
+        if (patientId != null) {
+            patients.invalidate(patientId);
+        }
+    }
+
+    static Treatment copy(Treatment t) {
+        return new Treatment(t.getId(), t.getTreatmentId(), t.getPatientId(), t.getTreatmentName(),
+                t.getTotalAmount(), t.getAmountPaid(), t.getAmountPending(), t.isActive(), t.isDeleted(),
+                t.getPaymentDate(), t.getCreatedAt(), t.getUpdatedAt(), t.getPaymentMethod(), t.getNotes(),
+                t.getVersion());
+    }
+
+    static List<Payment> copyPayments(List<Payment> payments) {
+        List<Payment> result = new ArrayList<>(payments.size());
+        for (Payment p : payments) {
+            result.add(new Payment(p.getId(), p.getTreatmentPk(), p.getTreatmentId(), p.getAmount(),
+                    p.getPaymentDate(), p.getPaymentMethod(), p.getTransactionReference(), p.getNotes(),
+                    p.isDeleted(), p.getCreatedAt(), p.getUpdatedAt(), p.getVersion()));
+        }
+        return result;
+    }
+
+    static List<TreatmentCost> copyCosts(List<TreatmentCost> costs) {
+        List<TreatmentCost> result = new ArrayList<>(costs.size());
+        for (TreatmentCost c : costs) {
+            result.add(new TreatmentCost(c.getId(), c.getTreatmentPk(), c.getTreatmentId(), c.getCost(),
+                    c.getStatus(), c.getNotes(), c.getEffectiveFrom(), c.isDeleted(), c.getCreatedAt(),
+                    c.getUpdatedAt(), c.getTreatmentVersion()));
+        }
+        return result;
+    }
+}
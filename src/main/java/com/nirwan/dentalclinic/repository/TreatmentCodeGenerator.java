@@ -0,0 +1,291 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.database.DatabaseConfig;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Issues treatment codes of the form TRMT-yyyyMMdd-HHmmss-NN-SSSS: the UTC time, this terminal's
+ * node id and a sequence within the second (at least four digits). Codes are unique across
+ * terminals without asking the database, and within a terminal without locking.
+ *
+ * Like a Snowflake id, the state is one 64-bit counter: the UTC epoch second in the high bits and
+ * the sequence in the low {@value #SEQUENCE_BITS}. A new second resets the sequence; a sequence that
+ * overflows, or a clock that moves back (time sync), simply carries on from the last second issued,
+ * so the counter never repeats. Local time is not used, as it repeats an hour at DST fall-back.
+ *
+ * Node ids are leased from the IdNode table (migration V10), or fixed with ids.node-id when each
+ * terminal is configured by hand; either way the node's row keeps the seconds it may have issued.
+ * Before issuing from a second past its reservation, the generator reserves the next
+ * {@value #RESERVE_SECONDS} seconds in last_second, and a restarted terminal continues after it,
+ * so a crash followed by a clock step back cannot repeat a code either.
+ */
+public final class TreatmentCodeGenerator {
+    static final int SEQUENCE_BITS = 22;
+    static final int RESERVE_SECONDS = 60;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final DateTimeFormatter SECOND_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final LongSupplier UTC_CLOCK = () -> Instant.now().getEpochSecond();
+
+    private static final String SELECT_RELEASED_NODE_SQL =
+        "SELECT id, last_second FROM IdNode WHERE released = true ORDER BY id LIMIT 1 FOR UPDATE";
+    private static final String CLAIM_NODE_SQL =
+        "UPDATE IdNode SET released = false, holder = ?, claimed_at = CURRENT_TIMESTAMP WHERE id = ?";
+    private static final String INSERT_NODE_SQL =
+        "INSERT INTO IdNode (holder, claimed_at, released) VALUES (?, CURRENT_TIMESTAMP, false)";
+    private static final String SELECT_NODE_SQL =
+        "SELECT last_second FROM IdNode WHERE id = ? FOR UPDATE";
+    private static final String INSERT_CONFIGURED_NODE_SQL =
+        "INSERT INTO IdNode (id, holder, claimed_at, released) VALUES (?, ?, CURRENT_TIMESTAMP, false)";
+    private static final String RESERVE_SECONDS_SQL =
+        "UPDATE IdNode SET last_second = ? WHERE id = ?";
+    private static final String RELEASE_NODE_SQL =
+        "UPDATE IdNode SET released = true, last_second = ? WHERE id = ?";
+
+    private static volatile TreatmentCodeGenerator instance;
+
+    private final int nodeId;
+    private final boolean leased;
+    private final boolean persisted;
+    private final LongSupplier clock;
+    private final AtomicLong state;
+    // Last second recorded in the node's IdNode row; codes up to it may be issued
+    private volatile long reservedUntil;
+    // Text of the last second formatted, reused until the second changes
+    private volatile Prefix prefix = new Prefix(Long.MIN_VALUE, "");
+
+    private static final class Prefix {
+        final long second;
+        final String text;
+
+        Prefix(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Generator for a node id assigned by hand that records nothing in the database, so a restart
+     * may repeat its codes; for benchmarks. Terminals use {@link #getInstance()}.
+     */
+    public TreatmentCodeGenerator(int nodeId) {
+        this(nodeId, false, false, 0, UTC_CLOCK);
+    }
+
+    private TreatmentCodeGenerator(int nodeId, boolean leased, boolean persisted, long lastSecond, LongSupplier clock) {
+        if (nodeId < 0) throw new IllegalArgumentException("Node id must not be negative: " + nodeId);
+        this.nodeId = nodeId;
+        this.leased = leased;
+        this.persisted = persisted;
+        this.clock = clock;
+        this.state = new AtomicLong((lastSecond + 1) << SEQUENCE_BITS);
+        this.reservedUntil = persisted ? lastSecond : Long.MAX_VALUE;
+    }
+
+    /**
+     * The generator of this terminal, leasing its node id on first use
+     */
+    public static TreatmentCodeGenerator getInstance() throws SQLException {
+        TreatmentCodeGenerator result = instance;
+        if (result == null) {
+            synchronized (TreatmentCodeGenerator.class) {
+                result = instance;
+                if (result == null) {
+                    instance = result = create();
+                }
+            }
+        }
+        return result;
+    }
+
+    private static TreatmentCodeGenerator create() throws SQLException {
+        DatabaseConfig config = DatabaseConnection.getInstance().getConfig();
+        int configured = config.getInt("ids.node-id", -1);
+        if (configured >= 0) {
+            TreatmentCodeGenerator generator = claim(configured, UTC_CLOCK);
+            System.out.println("Treatment codes use configured node id " + configured);
+            return generator;
+        }
+        return lease(UTC_CLOCK);
+    }
+
+    /**
+     * Takes the IdNode row of a configured node id, adding it on first use, and continues after
+     * the last second it reserved
+     */
+    static TreatmentCodeGenerator claim(int nodeId, LongSupplier clock) throws SQLException {
+        if (nodeId < 0) throw new IllegalArgumentException("Node id must not be negative: " + nodeId);
+        String holder = holderName();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Long lastSecond = null;
+                try (PreparedStatement select = conn.prepareStatement(SELECT_NODE_SQL)) {
+                    select.setInt(1, nodeId);
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (rs.next()) lastSecond = rs.getLong("last_second");
+                    }
+                }
+                if (lastSecond != null) {
+                    try (PreparedStatement claim = conn.prepareStatement(CLAIM_NODE_SQL)) {
+                        claim.setString(1, holder);
+                        claim.setInt(2, nodeId);
+                        claim.executeUpdate();
+                    }
+                } else {
+                    lastSecond = 0L;
+                    try (PreparedStatement insert = conn.prepareStatement(INSERT_CONFIGURED_NODE_SQL)) {
+                        insert.setInt(1, nodeId);
+                        insert.setString(2, holder);
+                        insert.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return new TreatmentCodeGenerator(nodeId, false, true, lastSecond, clock);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Takes over a released node (continuing after its last second) or adds a new one
+     */
+    static TreatmentCodeGenerator lease(LongSupplier clock) throws SQLException {
+        String holder = holderName();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int nodeId = 0;
+                long lastSecond = 0;
+                try (PreparedStatement select = conn.prepareStatement(SELECT_RELEASED_NODE_SQL);
+                     ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        nodeId = rs.getInt("id");
+                        lastSecond = rs.getLong("last_second");
+                    }
+                }
+                if (nodeId > 0) {
+                    try (PreparedStatement claim = conn.prepareStatement(CLAIM_NODE_SQL)) {
+                        claim.setString(1, holder);
+                        claim.setInt(2, nodeId);
+                        claim.executeUpdate();
+                    }
+                } else {
+                    try (PreparedStatement insert = conn.prepareStatement(INSERT_NODE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                        insert.setString(1, holder);
+                        insert.executeUpdate();
+                        try (ResultSet keys = insert.getGeneratedKeys()) {
+                            if (!keys.next()) throw new SQLException("No node id was generated");
+                            nodeId = keys.getInt(1);
+                        }
+                    }
+                }
+                conn.commit();
+                System.out.println("Treatment codes use node id " + nodeId);
+                return new TreatmentCodeGenerator(nodeId, true, true, lastSecond, clock);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static String holderName() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "/" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Hands this terminal's node id back for reuse, or for a configured one records the last second
+     * actually issued, so the next launch need not skip the rest of the reservation. Call on a clean
+     * shutdown, before the pool closes; a leased node that is never released is simply not reused.
+     */
+    public static void releaseNode() {
+        TreatmentCodeGenerator generator = instance;
+        if (generator == null) return;
+        generator.release();
+        instance = null;
+    }
+
+    void release() {
+        if (!persisted) return;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(leased ? RELEASE_NODE_SQL : RESERVE_SECONDS_SQL)) {
+            stmt.setLong(1, state.get() >>> SEQUENCE_BITS);
+            stmt.setInt(2, nodeId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error releasing treatment code node " + nodeId + ": " + e.getMessage());
+        }
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns a new treatment code
+     * @throws SQLException if the node's next seconds could not be reserved; no code is issued
+     */
+    public String next() throws SQLException {
+        long now = clock.getAsLong();
+        long value = state.updateAndGet(prev -> (prev >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : prev + 1);
+        long second = value >>> SEQUENCE_BITS;
+        if (second > reservedUntil) reserve(second);
+        return format(second, value & SEQUENCE_MASK);
+    }
+
+    /**
+     * Records that this node may issue codes up to RESERVE_SECONDS past the given second. Callers
+     * past the old reservation wait here until the row is written.
+     */
+    private synchronized void reserve(long second) throws SQLException {
+        if (second <= reservedUntil) return;
+        long until = second + RESERVE_SECONDS;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(RESERVE_SECONDS_SQL)) {
+            stmt.setLong(1, until);
+            stmt.setInt(2, nodeId);
+            if (stmt.executeUpdate() != 1) throw new SQLException("Treatment code node " + nodeId + " is missing from IdNode");
+        }
+        reservedUntil = until;
+    }
+
+    private String format(long second, long sequence) {
+        Prefix p = prefix;
+        if (p.second != second) {
+            String text = "TRMT-" + LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC).format(SECOND_FORMAT) + "-"
+                    + (nodeId < 10 ? "0" : "") + nodeId + "-";
+            prefix = p = new Prefix(second, text);
+        }
+        StringBuilder code = new StringBuilder(p.text.length() + 8).append(p.text);
+        for (long pad = 1000; pad > 1 && sequence < pad; pad /= 10) {
+            code.append('0');
+        }
+        return code.append(sequence).toString();
+    }
+}
@@ -1,56 +1,201 @@
 package com.nirwan.dentalclinic.repository;
 
+import com.nirwan.dentalclinic.cache.LruCache;
+import com.nirwan.dentalclinic.concurrent.DbExecutor;
+import com.nirwan.dentalclinic.concurrent.Retry;
+import com.nirwan.dentalclinic.database.DatabaseConfig;
 import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Money;
 import com.nirwan.dentalclinic.models.Payment;
 import com.nirwan.dentalclinic.models.Treatment;
 import com.nirwan.dentalclinic.models.TreatmentCost;
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ObjIntConsumer;
 
 public class TreatmentDao {
+    private final PatientSummaryDao summaryDao = new PatientSummaryDao();
+    private final PaymentRollupDao rollupDao = new PaymentRollupDao();
+    /** Whether recordPayment uses the record_payment procedure; see payments.use-procedure (MySQL only) */
+    private final boolean usePaymentProcedure;
+
+    public TreatmentDao() {
+        this(configuredUseProcedure());
+    }
+
+    TreatmentDao(boolean usePaymentProcedure) {
+        this.usePaymentProcedure = usePaymentProcedure;
+    }
+
+    /**
+     * Treatments, payments and cost history per patient, shared by every TreatmentDao. Sized by
+     * cache.treatment-max-patients (0 disables it) and expired after cache.treatment-ttl-seconds.
+     */
+    private static final TreatmentCache CACHE = createCache();
+
+    private static TreatmentCache createCache() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        DatabaseConfig config = db != null ? db.getConfig() : null;
+        int maxPatients = config != null ? config.getInt("cache.treatment-max-patients", 200) : 200;
+        int ttlSeconds = config != null ? config.getInt("cache.treatment-ttl-seconds", 60) : 60;
+        return new TreatmentCache(maxPatients, ttlSeconds);
+    }
+
+    /**
+     * Hit, miss and eviction counts of the per-patient treatment cache
+     */
+    public static LruCache<Integer, ?> getCache() {
+        return CACHE.getCache();
+    }
+
     private static final String INSERT_TREATMENT_SQL = 
         "INSERT INTO Treatment (treatment_id, patient_id, treatment_name, total_amount, amount_paid, is_active, is_deleted, created_at, updated_at) " +
         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
     
+    // Every query names the columns its mapper reads; the mappers look up their positions once
+    // per result set (see ColumnIndex). Payment and cost timestamps other than their dates are not
+    // shown anywhere, so they are not read.
+    static final String TREATMENT_COLUMNS =
+        "id, treatment_id, patient_id, treatment_name, total_amount, amount_paid, amount_pending, " +
+        "is_active, is_deleted, created_at, updated_at, version";
+    static final String PAYMENT_COLUMNS =
+        "id, treatment_pk, treatment_id, amount, payment_date, payment_method, transaction_reference, notes, " +
+        "is_deleted, version";
+    static final String COST_COLUMNS =
+        "id, treatment_pk, treatment_id, cost, status, notes, effective_from, is_deleted";
+
     private static final String SELECT_TREATMENT_BY_ID = 
-        "SELECT * FROM Treatment WHERE id = ? AND is_deleted = false";
+        "SELECT " + TREATMENT_COLUMNS + " FROM Treatment WHERE id = ? AND is_deleted = false";
     
     private static final String SELECT_TREATMENTS_BY_PATIENT = 
-        "SELECT * FROM Treatment WHERE patient_id = ? AND is_deleted = false ORDER BY is_active DESC, created_at DESC";
+        "SELECT " + TREATMENT_COLUMNS + " FROM Treatment WHERE patient_id = ? AND is_deleted = false " +
+        "ORDER BY is_active DESC, created_at DESC";
     
-    // Note: amount_pending is a generated column in DB, do not set it explicitly
+    // Note: amount_pending is a generated column in DB, do not set it explicitly.
+    // amount_paid is not written here: it only moves with payments, which adjust it relatively.
+    // Every UPDATE of Treatment or Payment increments version (migration V9); the ones that write
+    // values the caller read earlier also check it.
     private static final String UPDATE_TREATMENT_SQL = 
-        "UPDATE Treatment SET treatment_name = ?, total_amount = ?, amount_paid = ?, " +
-        "is_active = ?, updated_at = ? WHERE id = ?";
+        "UPDATE Treatment SET treatment_name = ?, total_amount = ?, " +
+        "is_active = ?, updated_at = ?, version = version + 1 WHERE id = ? AND version = ?";
     
+    private static final String SELECT_TREATMENT_NAME_SQL = "SELECT treatment_name FROM Treatment WHERE id = ?";
+
     private static final String SOFT_DELETE_TREATMENT_SQL = 
-        "UPDATE Treatment SET is_deleted = true, updated_at = ? WHERE id = ?";
+        "UPDATE Treatment SET is_deleted = true, updated_at = ?, version = version + 1 WHERE id = ?";
     
     // Do not update amount_pending (generated). Let DB compute it.
     private static final String ADD_PAYMENT_SQL = 
-        "UPDATE Treatment SET amount_paid = amount_paid + ?, updated_at = ? WHERE id = ?";
+        "UPDATE Treatment SET amount_paid = amount_paid + ?, updated_at = ?, version = version + 1 WHERE id = ?";
+
+    private static final String ADJUST_AMOUNT_PAID_SQL =
+        "UPDATE Treatment SET amount_paid = GREATEST(0, amount_paid + ?), updated_at = ?, version = version + 1 " +
+        "WHERE id = ?";
+
+    private static final String UPDATE_TOTAL_AMOUNT_SQL =
+        "UPDATE Treatment SET total_amount = ?, updated_at = ?, version = version + 1 WHERE id = ? AND version = ?";
     
+    // Cost and payment rows are keyed by Treatment.id (treatment_pk); the treatment code is
+    // still written alongside it (dual-write) and is read from Treatment in the same statement
     private static final String ADD_TREATMENT_COST_SQL = 
-        "INSERT INTO TreatmentCost (treatment_id, cost, status, effective_from, notes) " +
-        "VALUES (?, ?, ?, ?, ?)";
+        "INSERT INTO TreatmentCost (treatment_pk, treatment_id, cost, status, effective_from, notes) " +
+        "SELECT id, treatment_id, ?, ?, ?, ? FROM Treatment WHERE id = ?";
     
     private static final String ADD_PAYMENT_RECORD_SQL = 
-        "INSERT INTO Payment (treatment_id, amount, payment_date, payment_method, notes) " +
-        "VALUES (?, ?, ?, ?, ?)";
+        "INSERT INTO Payment (treatment_pk, treatment_id, amount, payment_date, payment_method, notes) " +
+        "SELECT id, treatment_id, ?, ?, ?, ? FROM Treatment WHERE id = ?";
+
+    private static final String UPDATE_PAYMENT_SQL =
+        "UPDATE Payment SET amount = ?, payment_date = ?, payment_method = ?, notes = ?, updated_at = ?, " +
+        "version = version + 1 WHERE id = ? AND version = ? AND is_deleted = false";
 
     private static final String SOFT_DELETE_PAYMENT_SQL =
-        "UPDATE Payment SET is_deleted = true, updated_at = ? WHERE id = ?";
+        "UPDATE Payment SET is_deleted = true, updated_at = ?, version = version + 1 " +
+        "WHERE id = ? AND version = ? AND is_deleted = false";
 
     private static final String SELECT_PAYMENTS_BY_TREATMENT =
-        "SELECT * FROM Payment WHERE treatment_id = ? AND is_deleted = false ORDER BY payment_date DESC";
+        "SELECT " + PAYMENT_COLUMNS + " FROM Payment WHERE treatment_pk = ? AND is_deleted = false " +
+        "ORDER BY payment_date DESC";
 
     private static final String SELECT_COSTS_BY_TREATMENT =
-        "SELECT * FROM TreatmentCost WHERE treatment_id = ? AND is_deleted = false ORDER BY effective_from DESC";
+        "SELECT " + COST_COLUMNS + " FROM TreatmentCost WHERE treatment_pk = ? AND is_deleted = false " +
+        "ORDER BY effective_from DESC";
+
+    // Whole-patient loads for the treatment cache: three round trips however many treatments there are
+    private static final String SELECT_PAYMENTS_BY_PATIENT =
+        "SELECT " + qualified("pay", PAYMENT_COLUMNS) + " FROM Payment pay JOIN Treatment t ON t.id = pay.treatment_pk " +
+        "WHERE t.patient_id = ? AND t.is_deleted = false AND pay.is_deleted = false ORDER BY pay.payment_date DESC";
+
+    private static final String SELECT_COSTS_BY_PATIENT =
+        "SELECT " + qualified("tc", COST_COLUMNS) + " FROM TreatmentCost tc JOIN Treatment t ON t.id = tc.treatment_pk " +
+        "WHERE t.patient_id = ? AND t.is_deleted = false AND tc.is_deleted = false ORDER BY tc.effective_from DESC";
+
+    private static String qualified(String alias, String columns) {
+        return alias + "." + columns.replace(", ", ", " + alias + ".");
+    }
+
+    // Includes soft-deleted rows, so a write-through can tell that a treatment was deleted
+    private static final String SELECT_ANY_TREATMENT_BY_ID = "SELECT " + TREATMENT_COLUMNS + " FROM Treatment WHERE id = ?";
+
+    // Bulk writes use plain VALUES inserts, which the driver rewrites into multi-row inserts
+    // (rewriteBatchedStatements); the treatment code is looked up once per chunk instead
+    private static final String INSERT_COST_ROW_SQL =
+        "INSERT INTO TreatmentCost (treatment_pk, treatment_id, cost, status, effective_from, notes) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_PAYMENT_ROW_SQL =
+        "INSERT INTO Payment (treatment_pk, treatment_id, amount, payment_date, payment_method, notes, transaction_reference) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SET_TOTAL_AMOUNT_SQL =
+        "UPDATE Treatment SET total_amount = ?, updated_at = ?, version = version + 1 WHERE id = ?";
+
+    private static final String SELECT_TREATMENT_KEYS_SQL =
+        "SELECT id, treatment_id, patient_id, amount_paid, version FROM Treatment WHERE is_deleted = false AND id IN (";
+
+    /** Items written per transaction by the bulk methods; see batch.chunk-size */
+    private static final int BATCH_CHUNK_SIZE = configuredChunkSize();
+
+    private static int configuredChunkSize() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        DatabaseConfig config = db != null ? db.getConfig() : null;
+        int size = config != null ? config.getInt("batch.chunk-size", 200) : 200;
+        return Math.max(1, size);
+    }
+
+    private static final String RECORD_PAYMENT_CALL = "CALL record_payment(?, ?, ?, ?, ?)";
+
+
+    private static boolean configuredUseProcedure() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        DatabaseConfig config = db != null ? db.getConfig() : null;
+        if (db != null && !db.getDialect().supportsStoredProcedures()) return false;
+        return config == null || config.getBoolean("payments.use-procedure", true);
+    }
+
+    // Single-table form (no UPDATE ... JOIN) so it also runs on H2 for the benchmarks. The inner
+    // MAX is wrapped in a derived table, which MySQL materializes, as it may not read the table being updated.
+    private static final String UPDATE_LATEST_COST_STATUS_SQL =
+        "UPDATE TreatmentCost " +
+        // Amounts are DECIMAL, so the comparison is exact
+        "SET status = (SELECT CASE WHEN t.amount_paid >= t.total_amount THEN 'PAID' " +
+        "                          WHEN t.amount_paid > 0 THEN 'PARTIALLY_PAID' " +
+        "                          ELSE 'PENDING' END " +
+        "              FROM Treatment t WHERE t.id = TreatmentCost.treatment_pk) " +
+        "WHERE treatment_pk = ? AND is_deleted = false " +
+        "  AND effective_from = (SELECT max_eff FROM (SELECT MAX(effective_from) AS max_eff FROM TreatmentCost " +
+        "                                             WHERE treatment_pk = ? AND is_deleted = false) latest)";
 
     /**
      * Saves a new treatment to the database
@@ -58,17 +203,13 @@ public class TreatmentDao {
      * @return the saved treatment with generated ID, or null if the operation failed
      */
     /**
-     * Generates a unique treatment ID using timestamp and random number
-     * @return A unique treatment ID in the format TRMT-yyyyMMdd-HHmmss-XXXX
+     * Generates a unique treatment ID, see {@link TreatmentCodeGenerator}
+     * @return A unique treatment ID in the format TRMT-yyyyMMdd-HHmmss-NN-SSSS
      */
-    private String generateTreatmentId() {
-        // Format: TRMT-yyyyMMdd-HHmmss-XXXX
-        // Where XXXX is a random 4-digit number for uniqueness
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
-        int random = ThreadLocalRandom.current().nextInt(1000, 10000);
-        return String.format("TRMT-%s-%04d", timestamp, random);
+    private String generateTreatmentId() throws SQLException {
+        return TreatmentCodeGenerator.getInstance().next();
     }
-    
+
     public Treatment saveTreatment(Treatment treatment) throws SQLException {
         try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
             // Generate a new treatment ID if one isn't provided
@@ -82,9 +223,9 @@ public class TreatmentDao {
                 stmt.setString(1, treatment.getTreatmentId());
                 stmt.setInt(2, treatment.getPatientId());
                 stmt.setString(3, treatment.getTreatmentName());
-                stmt.setDouble(4, treatment.getTotalAmount());
-                stmt.setDouble(5, treatment.getAmountPaid());
-//                stmt.setDouble(6, treatment.getAmountPending());
+                Money.bind(stmt, 4, treatment.getTotalAmount());
+                Money.bind(stmt, 5, treatment.getAmountPaid());
+//                Money.bind(stmt, 6, treatment.getAmountPending());
                 stmt.setBoolean(6, treatment.isActive());
                 stmt.setBoolean(7, false); // is_deleted
                 stmt.setTimestamp(8, Timestamp.valueOf(treatment.getCreatedAt()));
@@ -100,21 +241,13 @@ public class TreatmentDao {
                             
                             // Now add the treatment cost record
                             try (PreparedStatement costStmt = conn.prepareStatement(ADD_TREATMENT_COST_SQL)) {
-                                // Determine status based on payment
-                                String status = "PENDING";
-                                if (treatment.getAmountPaid() >= treatment.getTotalAmount()) {
-                                    treatment.setAmountPending(0.0);
-                                    status = "PAID";
-                                } else if (treatment.getAmountPaid() > 0) {
-                                    treatment.setAmountPending(treatment.getTotalAmount() - treatment.getAmountPaid());
-                                    status = "PARTIALLY_PAID";
-                                }
+                                String status = initialCostStatus(treatment);
                                 
-                                costStmt.setString(1, treatment.getTreatmentId());
-                                costStmt.setDouble(2, treatment.getTotalAmount());
-                                costStmt.setString(3, status);
-                                costStmt.setTimestamp(4, Timestamp.valueOf(treatment.getPaymentDate()));
-                                costStmt.setString(5, "Initial treatment cost");
+                                Money.bind(costStmt, 1, treatment.getTotalAmount());
+                                costStmt.setString(2, status);
+                                costStmt.setTimestamp(3, Timestamp.valueOf(treatment.getPaymentDate()));
+                                costStmt.setString(4, "Initial treatment cost");
+                                costStmt.setInt(5, generatedId);
                                 
                                 int costRows = costStmt.executeUpdate();
                                 if (costRows == 0) {
@@ -124,26 +257,23 @@ public class TreatmentDao {
                             
                             // Record the payment (including zero payments)
                             try (PreparedStatement paymentStmt = conn.prepareStatement(ADD_PAYMENT_RECORD_SQL)) {
-                                paymentStmt.setString(1, treatment.getTreatmentId());
-                                paymentStmt.setDouble(2, treatment.getAmountPaid());
-                                paymentStmt.setTimestamp(3, Timestamp.valueOf(treatment.getPaymentDate()));
-                                paymentStmt.setString(4, treatment.getPaymentMethod() != null ? 
+                                Money.bind(paymentStmt, 1, treatment.getAmountPaid());
+                                paymentStmt.setTimestamp(2, Timestamp.valueOf(treatment.getPaymentDate()));
+                                paymentStmt.setString(3, treatment.getPaymentMethod() != null ? 
                                     treatment.getPaymentMethod() : "CASH");
-                                String paymentNote = "Initial payment";
-                                if (treatment.getNotes() != null && !treatment.getNotes().isEmpty()) {
-                                    paymentNote += ": " + treatment.getNotes();
-                                }
-                                if (treatment.getAmountPaid() == 0) {
-                                    paymentNote = "No initial payment" + 
-                                        (treatment.getNotes() != null && !treatment.getNotes().isEmpty() ? 
-                                        ": " + treatment.getNotes() : "");
-                                }
-                                paymentStmt.setString(5, paymentNote);
+                                paymentStmt.setString(4, initialPaymentNote(treatment));
+                                paymentStmt.setInt(5, generatedId);
                                 
                                 paymentStmt.executeUpdate();
                             }
-                            
+
+                            rollupDao.apply(conn, new PaymentRollupDao.Changes().add(generatedId, treatment.getPaymentDate(),
+                                    treatment.getPaymentMethod() != null ? treatment.getPaymentMethod() : "CASH",
+                                    treatment.getAmountPaid()));
+                            summaryDao.refreshForPatient(conn, treatment.getPatientId());
                             conn.commit();
+                            writeThrough(conn, generatedId);
+                            DataChanges.treatmentChanged(generatedId);
                             return treatment;
                         }
                     }
@@ -163,70 +293,89 @@ public class TreatmentDao {
     }
 
     /**
-     * Updates the status of the latest TreatmentCost row for the given treatment code
+     * Status of the initial cost row of a new treatment; also sets its pending amount
+     */
+    private static String initialCostStatus(Treatment treatment) {
+        if (treatment.getAmountPaid() >= treatment.getTotalAmount()) {
+            treatment.setAmountPending(Money.ZERO);
+            return "PAID";
+        } else if (treatment.getAmountPaid() > 0) {
+            treatment.setAmountPending(treatment.getTotalAmount() - treatment.getAmountPaid());
+            return "PARTIALLY_PAID";
+        }
+        return "PENDING";
+    }
+
+    private static String initialPaymentNote(Treatment treatment) {
+        boolean hasNotes = treatment.getNotes() != null && !treatment.getNotes().isEmpty();
+        if (treatment.getAmountPaid() == 0) {
+            return "No initial payment" + (hasNotes ? ": " + treatment.getNotes() : "");
+        }
+        return "Initial payment" + (hasNotes ? ": " + treatment.getNotes() : "");
+    }
+
+    /**
+     * Updates the status of the latest TreatmentCost row for the given treatment
      * to PAID / PARTIALLY_PAID / PENDING based on Treatment totals.
      */
-    private void updateLatestTreatmentCostStatus(Connection conn, String treatmentCode) throws SQLException {
-        String sql = "UPDATE TreatmentCost tc " +
-                "JOIN Treatment t ON t.treatment_id = tc.treatment_id " +
-                "JOIN (SELECT treatment_id, MAX(effective_from) AS max_eff FROM TreatmentCost WHERE treatment_id = ? AND is_deleted = false) latest " +
-                "  ON tc.treatment_id = latest.treatment_id AND tc.effective_from = latest.max_eff " +
-                // Consider small rounding differences when comparing currency amounts
-                "SET tc.status = CASE WHEN ABS(t.total_amount - t.amount_paid) <= 0.005 OR t.amount_paid > t.total_amount THEN 'PAID' " +
-                "                      WHEN t.amount_paid > 0 THEN 'PARTIALLY_PAID' " +
-                "                      ELSE 'PENDING' END " +
-                "WHERE tc.treatment_id = ? AND tc.is_deleted = false";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, treatmentCode);
-            ps.setString(2, treatmentCode);
+    private void updateLatestTreatmentCostStatus(Connection conn, int treatmentPk) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_LATEST_COST_STATUS_SQL)) {
+            ps.setInt(1, treatmentPk);
+            ps.setInt(2, treatmentPk);
             ps.executeUpdate();
         }
     }
 
     /**
-     * Records a payment for a treatment, using both the numeric primary key (for Treatment update)
-     * and the string code (for Payment.treatment_id foreign key)
+     * Records a payment for a treatment, keyed by the treatment's numeric primary key
      */
-    public boolean recordPayment(Treatment treatment, double amount,
+    public boolean recordPayment(Treatment treatment, long amount,
                                  String paymentMethod, String notes,
                                  LocalDateTime paymentDate) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
-            conn.setAutoCommit(false);
-
-            try (PreparedStatement updateStmt = conn.prepareStatement(ADD_PAYMENT_SQL);
-                 PreparedStatement paymentStmt = conn.prepareStatement(ADD_PAYMENT_RECORD_SQL)) {
-
-                // Update treatment (by numeric id)
-                updateStmt.setDouble(1, amount);
-                updateStmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
-                updateStmt.setInt(3, treatment.getId());
-
-                int updated = updateStmt.executeUpdate();
+        return recordPayment(treatment, treatment.getId(), amount, paymentMethod, notes, paymentDate);
+    }
 
-                if (updated > 0) {
-                    // Record payment (by string treatment code)
-                    paymentStmt.setString(1, treatment.getTreatmentId());
-                    paymentStmt.setDouble(2, amount);
-                    paymentStmt.setTimestamp(3, Timestamp.valueOf(paymentDate));
-                    paymentStmt.setString(4, paymentMethod);
-                    paymentStmt.setString(5, notes);
+    /**
+     * Adds the payment to Treatment.amount_paid and inserts its Payment row, then updates the
+     * rollup, the latest cost status and the patient summary in the same transaction. Only the
+     * first two writes depend on payments.use-procedure: the record_payment procedure does both in
+     * one call, otherwise they are two statements. Everything derived from them is maintained here
+     * for both paths.
+     * @param caller the caller's copy of the treatment, whose version is brought up to date; may be null
+     */
+    private boolean recordPayment(Treatment caller, int treatmentPk, long amount, String paymentMethod,
+                                  String notes, LocalDateTime paymentDate) {
+        try {
+            return Retry.run("recording payment", () -> {
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    conn.setAutoCommit(false);
 
-                    paymentStmt.executeUpdate();
+                    try {
+                        boolean inserted = usePaymentProcedure
+                                ? callRecordPayment(conn, treatmentPk, amount, paymentMethod, notes, paymentDate)
+                                : insertPayment(conn, treatmentPk, amount, paymentMethod, notes, paymentDate);
+                        if (!inserted) {
+                            conn.rollback();
+                            return false;
+                        }
 
-                    // Update latest TreatmentCost status based on current Treatment totals
-                    updateLatestTreatmentCostStatus(conn, treatment.getTreatmentId());
-                    conn.commit();
-                    return true;
+                        rollupDao.apply(conn, new PaymentRollupDao.Changes()
+                                .add(treatmentPk, paymentDate, paymentMethod, amount));
+                        // Update latest TreatmentCost status based on current Treatment totals
+                        updateLatestTreatmentCostStatus(conn, treatmentPk);
+                        summaryDao.refreshForTreatment(conn, treatmentPk);
+                        conn.commit();
+                        syncVersion(caller, writeThrough(conn, treatmentPk));
+                        DataChanges.treatmentChanged(treatmentPk);
+                        return true;
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
                 }
-
-                conn.rollback();
-                return false;
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+            });
         } catch (SQLException e) {
             System.err.println("Error recording payment: " + e.getMessage());
             return false;
@@ -234,57 +383,127 @@ public class TreatmentDao {
     }
 
     /**
-     * Returns all payment records for a given treatment code (treatment_id)
+     * The statement path of recordPayment's first two writes
+     * @return false if the treatment does not exist
+     */
+    private boolean insertPayment(Connection conn, int treatmentPk, long amount, String paymentMethod,
+                                  String notes, LocalDateTime paymentDate) throws SQLException {
+        try (PreparedStatement updateStmt = conn.prepareStatement(ADD_PAYMENT_SQL);
+             PreparedStatement paymentStmt = conn.prepareStatement(ADD_PAYMENT_RECORD_SQL)) {
+            Money.bind(updateStmt, 1, amount);
+            updateStmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            updateStmt.setInt(3, treatmentPk);
+            if (updateStmt.executeUpdate() == 0) return false;
+
+            Money.bind(paymentStmt, 1, amount);
+            paymentStmt.setTimestamp(2, Timestamp.valueOf(paymentDate));
+            paymentStmt.setString(3, paymentMethod);
+            paymentStmt.setString(4, notes);
+            paymentStmt.setInt(5, treatmentPk);
+            paymentStmt.executeUpdate();
+            return true;
+        }
+    }
+
+    /**
+     * The procedure path of recordPayment's first two writes: record_payment (migration V14) runs
+     * the same two statements in the caller's transaction and returns whether the treatment existed.
+     * A plain prepared CALL is used rather than a CallableStatement, which would first look up
+     * the procedure's parameters.
      */
-    public List<Payment> getPaymentsForTreatment(String treatmentId) {
+    private boolean callRecordPayment(Connection conn, int treatmentPk, long amount, String paymentMethod,
+                                      String notes, LocalDateTime paymentDate) throws SQLException {
+        try (PreparedStatement call = conn.prepareStatement(RECORD_PAYMENT_CALL)) {
+            call.setInt(1, treatmentPk);
+            Money.bind(call, 2, amount);
+            call.setTimestamp(3, Timestamp.valueOf(paymentDate));
+            call.setString(4, paymentMethod);
+            call.setString(5, notes);
+            if (!call.execute()) return false;
+            try (ResultSet rs = call.getResultSet()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    /**
+     * Returns all payment records for a given treatment
+     * @param treatmentPk the treatment's numeric ID (Treatment.id)
+     */
+    public List<Payment> getPaymentsForTreatment(int treatmentPk) {
+        TreatmentCache.Entry cached = CACHE.find(treatmentPk);
+        if (cached != null) {
+            return TreatmentCache.copyPayments(cached.payments);
+        }
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return queryPayments(conn, treatmentPk);
+        } catch (SQLException e) {
+            System.err.println("Error fetching payments: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    private List<Payment> queryPayments(Connection conn, int treatmentPk) throws SQLException {
         List<Payment> payments = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SELECT_PAYMENTS_BY_TREATMENT)) {
-            stmt.setString(1, treatmentId);
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_PAYMENTS_BY_TREATMENT)) {
+            stmt.setInt(1, treatmentPk);
             try (ResultSet rs = stmt.executeQuery()) {
+                PaymentColumns columns = new PaymentColumns(rs);
                 while (rs.next()) {
-                    payments.add(mapResultSetToPayment(rs));
+                    payments.add(mapResultSetToPayment(rs, columns));
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching payments: " + e.getMessage());
         }
         return payments;
     }
 
     /**
-     * Returns treatment cost history for a given treatment code (treatment_id)
+     * Returns treatment cost history for a given treatment
+     * @param treatmentPk the treatment's numeric ID (Treatment.id)
      */
-    public List<TreatmentCost> getCostHistoryForTreatment(String treatmentId) {
+    public List<TreatmentCost> getCostHistoryForTreatment(int treatmentPk) {
+        TreatmentCache.Entry cached = CACHE.find(treatmentPk);
+        if (cached != null) {
+            return TreatmentCache.copyCosts(cached.costs);
+        }
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            return queryCosts(conn, treatmentPk);
+        } catch (SQLException e) {
+            System.err.println("Error fetching treatment costs: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    private List<TreatmentCost> queryCosts(Connection conn, int treatmentPk) throws SQLException {
         List<TreatmentCost> costs = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SELECT_COSTS_BY_TREATMENT)) {
-            stmt.setString(1, treatmentId);
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_COSTS_BY_TREATMENT)) {
+            stmt.setInt(1, treatmentPk);
             try (ResultSet rs = stmt.executeQuery()) {
+                CostColumns columns = new CostColumns(rs);
                 while (rs.next()) {
-                    costs.add(mapResultSetToTreatmentCost(rs));
+                    costs.add(mapResultSetToTreatmentCost(rs, columns));
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching treatment costs: " + e.getMessage());
         }
         return costs;
     }
 
     /**
      * Edits an existing payment record and updates the associated treatment's paid amount.
-     * Uses the string treatment code for FK consistency.
+     * Refused if the payment is no longer at oldPayment's version, since the paid amount is
+     * adjusted by the difference from oldPayment's amount.
+     * @throws ConcurrentUpdateException if the payment was edited or deleted on another terminal
      */
-    public boolean editPayment(Payment oldPayment, Payment newPayment) {
+    public boolean editPayment(Payment oldPayment, Payment newPayment) throws ConcurrentUpdateException {
         if (oldPayment == null || newPayment == null) return false;
 
-        String treatmentCode = oldPayment.getTreatmentId();
-        if (treatmentCode == null || !treatmentCode.equals(newPayment.getTreatmentId())) {
-            System.err.println("Payment treatment codes don't match or are missing; cannot edit payment.");
+        int treatmentPk = oldPayment.getTreatmentPk();
+        if (treatmentPk <= 0 || treatmentPk != newPayment.getTreatmentPk()) {
+            System.err.println("Payment treatments don't match or are missing; cannot edit payment.");
             return false;
         }
 
-        double amountDiff = newPayment.getAmount() - oldPayment.getAmount();
+        long amountDiff = newPayment.getAmount() - oldPayment.getAmount();
         if (amountDiff == 0 &&
                 (oldPayment.getPaymentMethod() == null ? newPayment.getPaymentMethod() == null :
                         oldPayment.getPaymentMethod().equals(newPayment.getPaymentMethod())) &&
@@ -294,58 +513,75 @@ public class TreatmentDao {
             return true;
         }
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
-            conn.setAutoCommit(false);
+        try {
+            return Retry.run("updating payment", () -> {
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    conn.setAutoCommit(false);
 
-            try {
-                // Update payment record
-                try (PreparedStatement updateStmt = conn.prepareStatement(
-                        "UPDATE Payment SET amount = ?, payment_date = ?, payment_method = ?, notes = ?, updated_at = ? " +
-                                "WHERE id = ?")) {
-
-                    updateStmt.setDouble(1, newPayment.getAmount());
-                    updateStmt.setTimestamp(2, Timestamp.valueOf(newPayment.getPaymentDate()));
-                    updateStmt.setString(3, newPayment.getPaymentMethod());
-                    updateStmt.setString(4, newPayment.getNotes());
-                    updateStmt.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
-                    updateStmt.setInt(6, oldPayment.getId());
-
-                    int updated = updateStmt.executeUpdate();
-                    if (updated == 0) {
-                        conn.rollback();
-                        return false;
-                    }
-                }
+                    try {
+                        Payment rolledUp = rollupDao.findRolledUpPayment(conn, oldPayment.getId());
 
-                // Update treatment's paid amount if the amount changed
-                if (amountDiff != 0) {
-                    try (PreparedStatement updateTreatment = conn.prepareStatement(
-                            "UPDATE Treatment SET amount_paid = GREATEST(0, amount_paid + ?), updated_at = ? " +
-                                    "WHERE treatment_id = ?")) {
+                        // Update payment record
+                        try (PreparedStatement updateStmt = conn.prepareStatement(UPDATE_PAYMENT_SQL)) {
 
-                        updateTreatment.setDouble(1, amountDiff);
-                        updateTreatment.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
-                        updateTreatment.setString(3, treatmentCode);
+                            Money.bind(updateStmt, 1, newPayment.getAmount());
+                            updateStmt.setTimestamp(2, Timestamp.valueOf(newPayment.getPaymentDate()));
+                            updateStmt.setString(3, newPayment.getPaymentMethod());
+                            updateStmt.setString(4, newPayment.getNotes());
+                            updateStmt.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+                            updateStmt.setInt(6, oldPayment.getId());
+                            updateStmt.setInt(7, oldPayment.getVersion());
 
-                        int updated = updateTreatment.executeUpdate();
-                        if (updated == 0) {
-                            conn.rollback();
-                            return false;
+                            int updated = updateStmt.executeUpdate();
+                            if (updated == 0) {
+                                conn.rollback();
+                                throw paymentConflict(oldPayment);
+                            }
                         }
-                    }
-                }
 
-                // Refresh latest cost status
-                updateLatestTreatmentCostStatus(conn, treatmentCode);
-                conn.commit();
-                return true;
+                        // Update treatment's paid amount if the amount changed
+                        if (amountDiff != 0) {
+                            try (PreparedStatement updateTreatment = conn.prepareStatement(ADJUST_AMOUNT_PAID_SQL)) {
 
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+                                Money.bind(updateTreatment, 1, amountDiff);
+                                updateTreatment.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                                updateTreatment.setInt(3, treatmentPk);
+
+                                int updated = updateTreatment.executeUpdate();
+                                if (updated == 0) {
+                                    conn.rollback();
+                                    return false;
+                                }
+                            }
+                        }
+
+                        // Move the payment's amount from its old rollup row to its new one (often the same row)
+                        PaymentRollupDao.Changes rollup = new PaymentRollupDao.Changes();
+                        if (rolledUp != null) {
+                            rollup.remove(rolledUp);
+                        }
+                        rollup.add(treatmentPk, newPayment.getPaymentDate(), newPayment.getPaymentMethod(), newPayment.getAmount());
+                        rollupDao.apply(conn, rollup);
+
+                        // Refresh latest cost status
+                        updateLatestTreatmentCostStatus(conn, treatmentPk);
+                        summaryDao.refreshForTreatment(conn, treatmentPk);
+                        conn.commit();
+                        writeThrough(conn, treatmentPk);
+                        DataChanges.treatmentChanged(treatmentPk);
+                        return true;
+
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                }
+            });
+        } catch (ConcurrentUpdateException e) {
+            // Not a failure to log: the caller reloads and shows the other terminal's change
+            throw e;
         } catch (SQLException e) {
             System.err.println("Error updating payment: " + e.getMessage());
             return false;
@@ -354,53 +590,70 @@ public class TreatmentDao {
 
     /**
      * Soft deletes the given payment and decrements Treatment.amount_paid accordingly.
-     * Uses the string treatment code for FK consistency.
+     * Refused if the payment is no longer at the given version, so a payment deleted from two
+     * terminals is only subtracted once.
+     * @throws ConcurrentUpdateException if the payment was edited or deleted on another terminal
      */
-    public boolean deletePayment(Payment payment) {
+    public boolean deletePayment(Payment payment) throws ConcurrentUpdateException {
         if (payment == null) return false;
-        String treatmentCode = payment.getTreatmentId();
-        double amount = payment.getAmount();
-        if (treatmentCode == null) {
-            // Fallback: try to resolve code from DB via payment id
-            // For simplicity, require treatmentCode on the Payment object
-            System.err.println("Payment missing treatmentCode; cannot delete reliably.");
+        int treatmentPk = payment.getTreatmentPk();
+        long amount = payment.getAmount();
+        if (treatmentPk <= 0) {
+            System.err.println("Payment missing its treatment; cannot delete reliably.");
             return false;
         }
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
-            conn.setAutoCommit(false);
+        try {
+            return Retry.run("deleting payment", () -> {
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    conn.setAutoCommit(false);
 
-            try (PreparedStatement del = conn.prepareStatement(SOFT_DELETE_PAYMENT_SQL);
-                 PreparedStatement dec = conn.prepareStatement(
-                         "UPDATE Treatment SET amount_paid = GREATEST(0, amount_paid - ?), updated_at = ? WHERE treatment_id = ?")) {
-
-                // Soft delete payment
-                del.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-                del.setInt(2, payment.getId());
-                int d = del.executeUpdate();
-
-                if (d > 0) {
-                    // Decrement treatment.amount_paid by this payment amount
-                    dec.setDouble(1, amount);
-                    dec.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
-                    dec.setString(3, treatmentCode);
-                    int u = dec.executeUpdate();
-                    if (u > 0) {
-                        // Refresh latest cost status
-                        updateLatestTreatmentCostStatus(conn, treatmentCode);
-                        conn.commit();
-                        return true;
+                    try (PreparedStatement del = conn.prepareStatement(SOFT_DELETE_PAYMENT_SQL);
+                         PreparedStatement dec = conn.prepareStatement(ADJUST_AMOUNT_PAID_SQL)) {
+
+                        Payment rolledUp = rollupDao.findRolledUpPayment(conn, payment.getId());
+
+                        // Soft delete payment
+                        del.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                        del.setInt(2, payment.getId());
+                        del.setInt(3, payment.getVersion());
+                        int d = del.executeUpdate();
+                        if (d == 0) {
+                            conn.rollback();
+                            throw paymentConflict(payment);
+                        }
+
+                        // Decrement treatment.amount_paid by this payment amount
+                        Money.bind(dec, 1, -amount);
+                        dec.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                        dec.setInt(3, treatmentPk);
+                        int u = dec.executeUpdate();
+                        if (u > 0) {
+                            if (rolledUp != null) {
+                                rollupDao.apply(conn, new PaymentRollupDao.Changes().remove(rolledUp));
+                            }
+                            // Refresh latest cost status
+                            updateLatestTreatmentCostStatus(conn, treatmentPk);
+                            summaryDao.refreshForTreatment(conn, treatmentPk);
+                            conn.commit();
+                            writeThrough(conn, treatmentPk);
+                            DataChanges.treatmentChanged(treatmentPk);
+                            return true;
+                        }
+
+                        conn.rollback();
+                        return false;
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
                     }
                 }
-
-                conn.rollback();
-                return false;
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+            });
+        } catch (ConcurrentUpdateException e) {
+            // Not a failure to log: the caller reloads and shows the other terminal's change
+            throw e;
         } catch (SQLException e) {
             System.err.println("Error deleting payment: " + e.getMessage());
             return false;
@@ -413,13 +666,17 @@ public class TreatmentDao {
      * @return an Optional containing the treatment if found
      */
     public Optional<Treatment> findById(int id) {
+        TreatmentCache.Entry cached = CACHE.find(id);
+        if (cached != null) {
+            return Optional.of(TreatmentCache.copy(cached.treatment));
+        }
         try (Connection conn = DatabaseConnection.getInstance().getConnection();
              PreparedStatement stmt = conn.prepareStatement(SELECT_TREATMENT_BY_ID)) {
             
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(mapResultSetToTreatment(rs));
+                    return Optional.of(mapResultSetToTreatment(rs, new TreatmentColumns(rs)));
                 }
             }
         } catch (SQLException e) {
@@ -434,39 +691,195 @@ public class TreatmentDao {
      * @return a list of treatments for the patient
      */
     public List<Treatment> findByPatientId(int patientId) {
-        List<Treatment> treatments = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SELECT_TREATMENTS_BY_PATIENT)) {
-            
-            stmt.setInt(1, patientId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    treatments.add(mapResultSetToTreatment(rs));
+        List<Treatment> treatments = CACHE.findByPatientId(patientId, this::loadPatient);
+        return treatments != null ? treatments : new ArrayList<>();
+    }
+
+    /**
+     * Loads every live treatment of a patient with its payments and cost history for the cache
+     * @return the aggregate, or null if the load failed
+     */
+    private TreatmentCache.PatientEntry loadPatient(int patientId) {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            Map<Integer, Treatment> treatments = new LinkedHashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_TREATMENTS_BY_PATIENT)) {
+                stmt.setInt(1, patientId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    TreatmentColumns columns = new TreatmentColumns(rs);
+                    while (rs.next()) {
+                        Treatment treatment = mapResultSetToTreatment(rs, columns);
+                        treatments.put(treatment.getId(), treatment);
+                    }
                 }
             }
+            Map<Integer, List<Payment>> payments = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_PAYMENTS_BY_PATIENT)) {
+                stmt.setInt(1, patientId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    PaymentColumns columns = new PaymentColumns(rs);
+                    while (rs.next()) {
+                        Payment payment = mapResultSetToPayment(rs, columns);
+                        payments.computeIfAbsent(payment.getTreatmentPk(), k -> new ArrayList<>()).add(payment);
+                    }
+                }
+            }
+            Map<Integer, List<TreatmentCost>> costs = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_COSTS_BY_PATIENT)) {
+                stmt.setInt(1, patientId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    CostColumns columns = new CostColumns(rs);
+                    while (rs.next()) {
+                        TreatmentCost cost = mapResultSetToTreatmentCost(rs, columns);
+                        costs.computeIfAbsent(cost.getTreatmentPk(), k -> new ArrayList<>()).add(cost);
+                    }
+                }
+            }
+
+            Map<Integer, TreatmentCache.Entry> entries = new LinkedHashMap<>();
+            for (Treatment treatment : treatments.values()) {
+                entries.put(treatment.getId(), new TreatmentCache.Entry(treatment,
+                        payments.getOrDefault(treatment.getId(), List.of()),
+                        costs.getOrDefault(treatment.getId(), List.of())));
+            }
+            return new TreatmentCache.PatientEntry(entries);
         } catch (SQLException e) {
             System.err.println("Error finding treatments by patient: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reloads a treatment just written, with its payments and costs, into the cache. Called after
+     * commit on the writer's connection; a failure only drops the cached patient.
+     * @return the reloaded treatment, or null if it could not be read
+     */
+    private Treatment writeThrough(Connection conn, int treatmentPk) {
+        try {
+            Treatment treatment = findAnyTreatment(conn, treatmentPk);
+            if (treatment == null) {
+                CACHE.invalidateTreatment(treatmentPk);
+                return null;
+            }
+            TreatmentCache.Entry entry = treatment.isDeleted() ? null
+                    : new TreatmentCache.Entry(treatment, queryPayments(conn, treatmentPk), queryCosts(conn, treatmentPk));
+            CACHE.put(treatment.getPatientId(), treatmentPk, entry);
+            return TreatmentCache.copy(treatment);
+        } catch (SQLException e) {
+            System.err.println("Error refreshing cached treatment " + treatmentPk + ": " + e.getMessage());
+            CACHE.invalidateTreatment(treatmentPk);
+            return null;
         }
-        return treatments;
     }
 
     /**
-     * Updates an existing treatment
+     * Reads a treatment row, including a soft-deleted one
+     */
+    private Treatment findAnyTreatment(Connection conn, int treatmentPk) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_ANY_TREATMENT_BY_ID)) {
+            stmt.setInt(1, treatmentPk);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapResultSetToTreatment(rs, new TreatmentColumns(rs)) : null;
+            }
+        }
+    }
+
+    /**
+     * Copies the version just written into the caller's treatment, so its next checked update
+     * does not fail against the caller's own change
+     */
+    private static void syncVersion(Treatment target, Treatment fresh) {
+        if (target != null && fresh != null) {
+            target.setVersion(fresh.getVersion());
+        }
+    }
+
+    /**
+     * Handles a version check that matched no row. Returns normally if the treatment is gone
+     * (the caller reports it as not found); throws {@link Retry.Conflict} with the fresh version
+     * stored in {@code expectedVersion} if the fields the caller overwrites still hold the values
+     * it read, or {@link ConcurrentUpdateException} otherwise.
+     */
+    private void checkTreatmentConflict(Connection conn, Treatment read, int[] expectedVersion,
+                                        boolean compareName) throws SQLException {
+        Treatment current = findAnyTreatment(conn, read.getId());
+        if (current == null || current.isDeleted()) return;
+        if (current.getTotalAmount() == read.getTotalAmount()
+                && (!compareName || Objects.equals(current.getTreatmentName(), read.getTreatmentName()))) {
+            expectedVersion[0] = current.getVersion();
+            throw new Retry.Conflict("Treatment " + read.getId() + " moved on to version "
+                    + current.getVersion() + " while being written");
+        }
+        CACHE.invalidateTreatment(read.getId());
+        throw new ConcurrentUpdateException("Treatment " + read.getTreatmentId()
+                + " was changed on another terminal; reload it and try again");
+    }
+
+    /**
+     * A payment's version check matched no row: it was edited or deleted since it was read. Payment
+     * fields are all the user's own, so this is never retried.
+     */
+    private ConcurrentUpdateException paymentConflict(Payment read) {
+        CACHE.invalidateTreatment(read.getTreatmentPk());
+        return new ConcurrentUpdateException("Payment " + read.getId()
+                + " was changed or deleted on another terminal; reload it and try again");
+    }
+
+    /**
+     * Updates an existing treatment's name, total and status. The update only applies if the row
+     * is still at the treatment's version; if it moved on because of a payment, with the name and
+     * total unchanged, it is retried against the new version, otherwise it is refused.
      * @param treatment the treatment to update
      * @return true if the update was successful
+     * @throws ConcurrentUpdateException if the name or total was changed on another terminal
      */
-    public boolean updateTreatment(Treatment treatment) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(UPDATE_TREATMENT_SQL)) {
-            
-            stmt.setString(1, treatment.getTreatmentName());
-            stmt.setDouble(2, treatment.getTotalAmount());
-            stmt.setDouble(3, treatment.getAmountPaid());
-            stmt.setBoolean(4, treatment.isActive());
-            stmt.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setInt(6, treatment.getId());
-            
-            return stmt.executeUpdate() > 0;
+    public boolean updateTreatment(Treatment treatment) throws ConcurrentUpdateException {
+        int[] expectedVersion = {treatment.getVersion()};
+        try {
+            return Retry.run("updating treatment", () -> {
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    conn.setAutoCommit(false);
+
+                    try (PreparedStatement nameStmt = conn.prepareStatement(SELECT_TREATMENT_NAME_SQL);
+                         PreparedStatement stmt = conn.prepareStatement(UPDATE_TREATMENT_SQL)) {
+                        // Read before the update; if the version check passes, nothing changed it in between
+                        String oldName = null;
+                        nameStmt.setInt(1, treatment.getId());
+                        try (ResultSet rs = nameStmt.executeQuery()) {
+                            if (rs.next()) oldName = rs.getString(1);
+                        }
+
+                        stmt.setString(1, treatment.getTreatmentName());
+                        Money.bind(stmt, 2, treatment.getTotalAmount());
+                        stmt.setBoolean(3, treatment.isActive());
+                        stmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+                        stmt.setInt(5, treatment.getId());
+                        stmt.setInt(6, expectedVersion[0]);
+
+                        if (stmt.executeUpdate() > 0) {
+                            // The rollup groups by treatment name: a rename moves the payments to other rows
+                            if (!Objects.equals(oldName, treatment.getTreatmentName())) {
+                                rollupDao.refreshForTreatment(conn, treatment.getId());
+                            }
+                            summaryDao.refreshForTreatment(conn, treatment.getId());
+                            conn.commit();
+                            syncVersion(treatment, writeThrough(conn, treatment.getId()));
+                            DataChanges.treatmentChanged(treatment.getId());
+                            return true;
+                        }
+                        conn.rollback();
+                        checkTreatmentConflict(conn, treatment, expectedVersion, true);
+                        return false;
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                }
+            });
+        } catch (ConcurrentUpdateException e) {
+            // Not a failure to log: the caller reloads and shows the other terminal's change
+            throw e;
         } catch (SQLException e) {
             System.err.println("Error updating treatment: " + e.getMessage());
             return false;
@@ -479,13 +892,32 @@ public class TreatmentDao {
      * @return true if the operation was successful
      */
     public boolean softDelete(int id) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SOFT_DELETE_TREATMENT_SQL)) {
-            
-            stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setInt(2, id);
-            
-            return stmt.executeUpdate() > 0;
+        try {
+            return Retry.run("soft deleting treatment", () -> {
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    conn.setAutoCommit(false);
+
+                    try (PreparedStatement stmt = conn.prepareStatement(SOFT_DELETE_TREATMENT_SQL)) {
+                        stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                        stmt.setInt(2, id);
+
+                        if (stmt.executeUpdate() > 0) {
+                            summaryDao.refreshForTreatment(conn, id);
+                            conn.commit();
+                            writeThrough(conn, id);
+                            DataChanges.treatmentChanged(id);
+                            return true;
+                        }
+                        conn.rollback();
+                        return false;
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error soft deleting treatment: " + e.getMessage());
             return false;
@@ -500,169 +932,638 @@ public class TreatmentDao {
      * @param notes optional payment notes
      * @return true if the payment was recorded successfully
      */
-    public boolean recordPayment(int treatmentId, double amount, String paymentMethod, String notes) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
-            conn.setAutoCommit(false);
-            
-            try (PreparedStatement updateStmt = conn.prepareStatement(ADD_PAYMENT_SQL);
-                 PreparedStatement paymentStmt = conn.prepareStatement(ADD_PAYMENT_RECORD_SQL)) {
-                
-                // Update treatment amounts
-                updateStmt.setDouble(1, amount);
-                updateStmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
-                updateStmt.setInt(3, treatmentId);
-                
-                int updated = updateStmt.executeUpdate();
-                
-                if (updated > 0) {
-                    // Lookup string treatment code for Payment FK
-                    String treatmentCode = findById(treatmentId).map(Treatment::getTreatmentId).orElse(null);
-                    if (treatmentCode == null) {
+    public boolean recordPayment(int treatmentId, long amount, String paymentMethod, String notes) {
+        return recordPayment(null, treatmentId, amount, paymentMethod, notes, LocalDateTime.now());
+    }
+
+    /**
+     * Adds a new treatment cost record and updates Treatment.total_amount.
+     * Status is computed based on amount_paid vs new cost.
+     * The total is only replaced if the row is still at the treatment's version, or has moved on
+     * without its total changing (a payment, say); a cost changed meanwhile on another terminal is
+     * refused rather than overwritten.
+     * @throws ConcurrentUpdateException if the total was changed on another terminal
+     */
+    public boolean addTreatmentCost(Treatment treatment, long cost, String notes) throws ConcurrentUpdateException {
+        int[] expectedVersion = {treatment.getVersion()};
+        try {
+            return Retry.run("adding treatment cost", () -> {
+                try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                    conn.setAutoCommit(false);
+
+                    try (PreparedStatement updateStmt = conn.prepareStatement(UPDATE_TOTAL_AMOUNT_SQL);
+                         PreparedStatement stmt = conn.prepareStatement(ADD_TREATMENT_COST_SQL)) {
+                        // Update treatment total_amount first: the version check decides whether anything is written
+                        Money.bind(updateStmt, 1, cost);
+                        updateStmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                        updateStmt.setInt(3, treatment.getId());
+                        updateStmt.setInt(4, expectedVersion[0]);
+
+                        if (updateStmt.executeUpdate() == 0) {
+                            conn.rollback();
+                            checkTreatmentConflict(conn, treatment, expectedVersion, false);
+                            return false;
+                        }
+
+                        String status = treatment.getAmountPaid() >= cost
+                                ? "PAID"
+                                : (treatment.getAmountPaid() > 0 ? "PARTIALLY_PAID" : "PENDING");
+
+                        Money.bind(stmt, 1, cost);
+                        stmt.setString(2, status);
+                        stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                        stmt.setString(4, notes);
+                        stmt.setInt(5, treatment.getId());
+
+                        if (stmt.executeUpdate() > 0) {
+                            // Ensure the latest cost row has correct status after DB update side effects
+                            updateLatestTreatmentCostStatus(conn, treatment.getId());
+                            summaryDao.refreshForTreatment(conn, treatment.getId());
+                            conn.commit();
+                            syncVersion(treatment, writeThrough(conn, treatment.getId()));
+                            DataChanges.treatmentChanged(treatment.getId());
+                            return true;
+                        }
+
                         conn.rollback();
                         return false;
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
                     }
-                    // Record payment with string treatment_id
-                    paymentStmt.setString(1, treatmentCode);
-                    paymentStmt.setDouble(2, amount);
-                    paymentStmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
-                    paymentStmt.setString(4, paymentMethod);
-                    paymentStmt.setString(5, notes);
-                    
-                    paymentStmt.executeUpdate();
-
-                    // Update latest TreatmentCost status based on current Treatment totals
-                    updateLatestTreatmentCostStatus(conn, treatmentCode);
-                    conn.commit();
-                    return true;
                 }
-                
-                conn.rollback();
-                return false;
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+            });
+        } catch (ConcurrentUpdateException e) {
+            // Not a failure to log: the caller reloads and shows the other terminal's change
+            throw e;
         } catch (SQLException e) {
-            System.err.println("Error recording payment: " + e.getMessage());
+            System.err.println("Error adding treatment cost: " + e.getMessage());
             return false;
         }
     }
 
+    // Bulk writes: one transaction and a handful of batched statements per chunk of items,
+    // instead of a connection, a transaction and 4-6 statements per item
+
     /**
-     * Adds a new treatment cost record and updates Treatment.total_amount.
-     * Status is computed based on amount_paid vs new cost.
+     * Treatment columns the bulk writes need, read once per chunk
      */
-    public boolean addTreatmentCost(Treatment treatment, double cost, String notes) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
-            conn.setAutoCommit(false);
-
-            try (PreparedStatement stmt = conn.prepareStatement(ADD_TREATMENT_COST_SQL)) {
-                String status = (Math.abs(cost - treatment.getAmountPaid()) <= 0.005 || treatment.getAmountPaid() > cost)
-                        ? "PAID"
-                        : (treatment.getAmountPaid() > 0 ? "PARTIALLY_PAID" : "PENDING");
+    private static final class TreatmentKey {
+        final String code;
+        final int patientId;
+        final long amountPaid;
+        final int version;
 
-                stmt.setString(1, treatment.getTreatmentId());
-                stmt.setDouble(2, cost);
-                stmt.setString(3, status);
-                stmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
-                stmt.setString(5, notes);
-
-                int inserted = stmt.executeUpdate();
+        TreatmentKey(String code, int patientId, long amountPaid, int version) {
+            this.code = code;
+            this.patientId = patientId;
+            this.amountPaid = amountPaid;
+            this.version = version;
+        }
+    }
 
-                if (inserted > 0) {
-                    // Update treatment total_amount
-                    try (PreparedStatement updateStmt = conn.prepareStatement(
-                            "UPDATE Treatment SET total_amount = ?, updated_at = ? WHERE id = ?")) {
+    /**
+     * Treatments and patients a committed chunk touched, for the cache and change listeners
+     */
+    private static final class ChunkChanges {
+        final Set<Integer> treatments = new LinkedHashSet<>();
+        final Set<Integer> patients = new LinkedHashSet<>();
+    }
 
-                        updateStmt.setDouble(1, cost);
-                        updateStmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
-                        updateStmt.setInt(3, treatment.getId());
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        /**
+         * Writes one chunk on the caller's transaction, filling in a result for every item
+         */
+        void write(Connection conn, List<T> chunk, BatchItemResult[] results, ChunkChanges changes)
+                throws SQLException;
+    }
 
-                        int updated = updateStmt.executeUpdate();
-                        if (updated > 0) {
-                            // Ensure the latest cost row has correct status after DB update side effects
-                            updateLatestTreatmentCostStatus(conn, treatment.getTreatmentId());
+    /**
+     * Runs the writer over the items in chunks of {@link #BATCH_CHUNK_SIZE}, one transaction each.
+     * A chunk that deadlocks is rolled back and written again (see {@link Retry}); one that still
+     * fails is reported as failed (or duplicate) for all its items, and later chunks still run.
+     * Generated IDs are set on the saved items through setId only once their chunk has committed.
+     */
+    private <T> List<BatchItemResult> writeInChunks(List<T> items, String action, ObjIntConsumer<T> setId,
+                                                    ChunkWriter<T> writer) {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        for (int start = 0; start < items.size(); start += BATCH_CHUNK_SIZE) {
+            List<T> chunk = items.subList(start, Math.min(items.size(), start + BATCH_CHUNK_SIZE));
+            BatchItemResult[] chunkResults = new BatchItemResult[chunk.size()];
+            ChunkChanges changes = new ChunkChanges();
+            try {
+                changes = Retry.run(action, () -> {
+                    ChunkChanges attempt = new ChunkChanges();
+                    try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+                        conn.setAutoCommit(false);
+                        try {
+                            writer.write(conn, chunk, chunkResults, attempt);
                             conn.commit();
-                            return true;
+                            return attempt;
+                        } catch (SQLException e) {
+                            conn.rollback();
+                            throw e;
+                        } finally {
+                            conn.setAutoCommit(true);
                         }
                     }
+                });
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (chunkResults[i] != null && chunkResults[i].isSaved()) {
+                        setId.accept(chunk.get(i), chunkResults[i].getGeneratedId());
+                    }
                 }
-
-                conn.rollback();
-                return false;
             } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
+                System.err.println("Error " + action + ": " + e.getMessage());
+                Arrays.fill(chunkResults, DatabaseConnection.getInstance().getDialect().isDuplicateKey(e)
+                        ? BatchItemResult.duplicate(e.getMessage())
+                        : BatchItemResult.failed(e.getMessage()));
+                changes = new ChunkChanges();
             }
-        } catch (SQLException e) {
-            System.err.println("Error adding treatment cost: " + e.getMessage());
-            return false;
+            System.arraycopy(chunkResults, 0, results, start, chunk.size());
+
+            // Reloading every treatment into the cache would cost more than the batch saved
+            for (int patientId : changes.patients) {
+                CACHE.invalidatePatient(patientId);
+            }
+            for (int treatmentPk : changes.treatments) {
+                DataChanges.treatmentChanged(treatmentPk);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Reads the treatments' keys; with forUpdate the rows stay locked until the chunk commits,
+     * so values derived from them cannot go stale before they are written
+     */
+    private Map<Integer, TreatmentKey> findTreatmentKeys(Connection conn, Collection<Integer> treatmentPks,
+                                                         boolean forUpdate) throws SQLException {
+        Map<Integer, TreatmentKey> keys = new HashMap<>();
+        if (treatmentPks.isEmpty()) return keys;
+        StringBuilder sql = new StringBuilder(SELECT_TREATMENT_KEYS_SQL);
+        for (int i = 0; i < treatmentPks.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        if (forUpdate) sql.append(" FOR UPDATE");
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int idx = 1;
+            for (int pk : treatmentPks) {
+                stmt.setInt(idx++, pk);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    keys.put(rs.getInt("id"), new TreatmentKey(rs.getString("treatment_id"),
+                            rs.getInt("patient_id"), Money.read(rs, "amount_paid"), rs.getInt("version")));
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Reads the generated keys of a batch of inserts, in batch order
+     */
+    private static int[] readGeneratedKeys(PreparedStatement stmt, int expected) throws SQLException {
+        int[] ids = new int[expected];
+        int count = 0;
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            while (count < expected && keys.next()) {
+                ids[count++] = keys.getInt(1);
+            }
+        }
+        if (count != expected) {
+            throw new SQLException("Expected " + expected + " generated keys but got " + count);
+        }
+        return ids;
+    }
+
+    private void refreshLatestCostStatuses(Connection conn, Collection<Integer> treatmentPks) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_LATEST_COST_STATUS_SQL)) {
+            for (int pk : treatmentPks) {
+                ps.setInt(1, pk);
+                ps.setInt(2, pk);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void refreshSummaries(Connection conn, Collection<Integer> patientIds) throws SQLException {
+        for (int patientId : patientIds) {
+            summaryDao.refreshForPatient(conn, patientId);
+        }
+    }
+
+    /**
+     * Saves many new treatments, each with its initial cost and payment rows as in
+     * {@link #saveTreatment}. Generated IDs are set on the treatments that were saved.
+     * @return one result per treatment, in the same order
+     */
+    public List<BatchItemResult> saveTreatments(List<Treatment> treatments) {
+        return writeInChunks(treatments, "saving treatments", Treatment::setId, (conn, chunk, results, changes) -> {
+            for (Treatment treatment : chunk) {
+                if (treatment.getTreatmentId() == null || treatment.getTreatmentId().trim().isEmpty()) {
+                    treatment.setTreatmentId(generateTreatmentId());
+                }
+            }
+
+            int[] ids;
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_TREATMENT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Treatment treatment : chunk) {
+                    stmt.setString(1, treatment.getTreatmentId());
+                    stmt.setInt(2, treatment.getPatientId());
+                    stmt.setString(3, treatment.getTreatmentName());
+                    Money.bind(stmt, 4, treatment.getTotalAmount());
+                    Money.bind(stmt, 5, treatment.getAmountPaid());
+                    stmt.setBoolean(6, treatment.isActive());
+                    stmt.setBoolean(7, false); // is_deleted
+                    stmt.setTimestamp(8, Timestamp.valueOf(treatment.getCreatedAt()));
+                    stmt.setTimestamp(9, Timestamp.valueOf(treatment.getUpdatedAt()));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                ids = readGeneratedKeys(stmt, chunk.size());
+            }
+
+            PaymentRollupDao.Changes rollup = new PaymentRollupDao.Changes();
+            try (PreparedStatement costStmt = conn.prepareStatement(INSERT_COST_ROW_SQL);
+                 PreparedStatement paymentStmt = conn.prepareStatement(INSERT_PAYMENT_ROW_SQL)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    Treatment treatment = chunk.get(i);
+                    costStmt.setInt(1, ids[i]);
+                    costStmt.setString(2, treatment.getTreatmentId());
+                    Money.bind(costStmt, 3, treatment.getTotalAmount());
+                    costStmt.setString(4, initialCostStatus(treatment));
+                    costStmt.setTimestamp(5, Timestamp.valueOf(treatment.getPaymentDate()));
+                    costStmt.setString(6, "Initial treatment cost");
+                    costStmt.addBatch();
+
+                    paymentStmt.setInt(1, ids[i]);
+                    paymentStmt.setString(2, treatment.getTreatmentId());
+                    Money.bind(paymentStmt, 3, treatment.getAmountPaid());
+                    String paymentMethod = treatment.getPaymentMethod() != null ? treatment.getPaymentMethod() : "CASH";
+                    paymentStmt.setTimestamp(4, Timestamp.valueOf(treatment.getPaymentDate()));
+                    paymentStmt.setString(5, paymentMethod);
+                    paymentStmt.setString(6, initialPaymentNote(treatment));
+                    paymentStmt.setString(7, null);
+                    paymentStmt.addBatch();
+
+                    rollup.add(ids[i], treatment.getPaymentDate(), paymentMethod, treatment.getAmountPaid());
+                    changes.patients.add(treatment.getPatientId());
+                }
+                costStmt.executeBatch();
+                paymentStmt.executeBatch();
+            }
+
+            rollupDao.apply(conn, rollup);
+            refreshSummaries(conn, changes.patients);
+
+            for (int i = 0; i < chunk.size(); i++) {
+                results[i] = BatchItemResult.saved(ids[i]);
+                changes.treatments.add(ids[i]);
+            }
+        });
+    }
+
+    /**
+     * Records many payments as in {@link #recordPayment(Treatment, long, String, String, LocalDateTime)}.
+     * Each payment needs its treatmentPk, amount and payment method; a missing payment date means now.
+     * The transaction reference is stored as given.
+     * Generated IDs are set on the payments that were saved.
+     * @return one result per payment, in the same order
+     */
+    public List<BatchItemResult> recordPayments(List<Payment> payments) {
+        return writeInChunks(payments, "recording payments", Payment::setId, (conn, chunk, results, changes) -> {
+            Set<Integer> pks = new LinkedHashSet<>();
+            for (Payment payment : chunk) {
+                pks.add(payment.getTreatmentPk());
+            }
+            Map<Integer, TreatmentKey> keys = findTreatmentKeys(conn, pks, false);
+
+            LocalDateTime now = LocalDateTime.now();
+            List<Integer> written = new ArrayList<>();
+            Map<Integer, Long> paidByTreatment = new LinkedHashMap<>();
+            PaymentRollupDao.Changes rollup = new PaymentRollupDao.Changes();
+            try (PreparedStatement paymentStmt = conn.prepareStatement(INSERT_PAYMENT_ROW_SQL,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    Payment payment = chunk.get(i);
+                    TreatmentKey key = keys.get(payment.getTreatmentPk());
+                    if (key == null) {
+                        results[i] = BatchItemResult.notFound(payment.getTreatmentPk());
+                        continue;
+                    }
+                    LocalDateTime paymentDate = payment.getPaymentDate() != null ? payment.getPaymentDate() : now;
+                    paymentStmt.setInt(1, payment.getTreatmentPk());
+                    paymentStmt.setString(2, key.code);
+                    Money.bind(paymentStmt, 3, payment.getAmount());
+                    paymentStmt.setTimestamp(4, Timestamp.valueOf(paymentDate));
+                    paymentStmt.setString(5, payment.getPaymentMethod());
+                    paymentStmt.setString(6, payment.getNotes());
+                    paymentStmt.setString(7, payment.getTransactionReference());
+                    paymentStmt.addBatch();
+
+                    written.add(i);
+                    paidByTreatment.merge(payment.getTreatmentPk(), payment.getAmount(), Long::sum);
+                    rollup.add(payment.getTreatmentPk(), paymentDate, payment.getPaymentMethod(), payment.getAmount());
+                    changes.patients.add(key.patientId);
+                }
+                if (written.isEmpty()) return;
+                paymentStmt.executeBatch();
+                int[] ids = readGeneratedKeys(paymentStmt, written.size());
+                for (int j = 0; j < ids.length; j++) {
+                    results[written.get(j)] = BatchItemResult.saved(ids[j]);
+                }
+            }
+
+            try (PreparedStatement updateStmt = conn.prepareStatement(ADD_PAYMENT_SQL)) {
+                for (Map.Entry<Integer, Long> paid : paidByTreatment.entrySet()) {
+                    Money.bind(updateStmt, 1, paid.getValue());
+                    updateStmt.setTimestamp(2, Timestamp.valueOf(now));
+                    updateStmt.setInt(3, paid.getKey());
+                    updateStmt.addBatch();
+                }
+                updateStmt.executeBatch();
+            }
+            rollupDao.apply(conn, rollup);
+            refreshLatestCostStatuses(conn, paidByTreatment.keySet());
+            refreshSummaries(conn, changes.patients);
+
+            changes.treatments.addAll(paidByTreatment.keySet());
+        });
+    }
+
+    /**
+     * Adds many cost records as in {@link #addTreatmentCost}. Each cost needs its treatmentPk, cost
+     * and treatmentVersion (the version of the treatment it was entered against); a missing
+     * effectiveFrom means now. A cost whose treatment has since been updated gets a CONFLICT result
+     * instead of overwriting the newer total. When one treatment gets several costs, the last one
+     * becomes its total. Generated IDs are set on the costs that were saved.
+     * @return one result per cost, in the same order
+     */
+    public List<BatchItemResult> addTreatmentCosts(List<TreatmentCost> costs) {
+        return writeInChunks(costs, "adding treatment costs", TreatmentCost::setId, (conn, chunk, results, changes) -> {
+            Set<Integer> pks = new LinkedHashSet<>();
+            for (TreatmentCost cost : chunk) {
+                pks.add(cost.getTreatmentPk());
+            }
+            // Locked, so the versions checked and the amount paid behind each status hold until commit
+            Map<Integer, TreatmentKey> keys = findTreatmentKeys(conn, pks, true);
+
+            LocalDateTime now = LocalDateTime.now();
+            List<Integer> written = new ArrayList<>();
+            Map<Integer, Long> totalByTreatment = new LinkedHashMap<>();
+            try (PreparedStatement costStmt = conn.prepareStatement(INSERT_COST_ROW_SQL,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    TreatmentCost cost = chunk.get(i);
+                    TreatmentKey key = keys.get(cost.getTreatmentPk());
+                    if (key == null) {
+                        results[i] = BatchItemResult.notFound(cost.getTreatmentPk());
+                        continue;
+                    }
+                    if (key.version != cost.getTreatmentVersion()) {
+                        results[i] = BatchItemResult.conflict("Treatment " + key.code + " is at version "
+                                + key.version + ", cost was entered against " + cost.getTreatmentVersion());
+                        continue;
+                    }
+                    String status = key.amountPaid >= cost.getCost()
+                            ? "PAID"
+                            : (key.amountPaid > 0 ? "PARTIALLY_PAID" : "PENDING");
+                    costStmt.setInt(1, cost.getTreatmentPk());
+                    costStmt.setString(2, key.code);
+                    Money.bind(costStmt, 3, cost.getCost());
+                    costStmt.setString(4, status);
+                    costStmt.setTimestamp(5, Timestamp.valueOf(
+                            cost.getEffectiveFrom() != null ? cost.getEffectiveFrom() : now));
+                    costStmt.setString(6, cost.getNotes());
+                    costStmt.addBatch();
+
+                    written.add(i);
+                    totalByTreatment.put(cost.getTreatmentPk(), cost.getCost());
+                    changes.patients.add(key.patientId);
+                }
+                if (written.isEmpty()) return;
+                costStmt.executeBatch();
+                int[] ids = readGeneratedKeys(costStmt, written.size());
+                for (int j = 0; j < ids.length; j++) {
+                    results[written.get(j)] = BatchItemResult.saved(ids[j]);
+                }
+            }
+
+            try (PreparedStatement updateStmt = conn.prepareStatement(SET_TOTAL_AMOUNT_SQL)) {
+                for (Map.Entry<Integer, Long> total : totalByTreatment.entrySet()) {
+                    Money.bind(updateStmt, 1, total.getValue());
+                    updateStmt.setTimestamp(2, Timestamp.valueOf(now));
+                    updateStmt.setInt(3, total.getKey());
+                    updateStmt.addBatch();
+                }
+                updateStmt.executeBatch();
+            }
+            refreshLatestCostStatuses(conn, totalByTreatment.keySet());
+            refreshSummaries(conn, changes.patients);
+
+            changes.treatments.addAll(totalByTreatment.keySet());
+        });
+    }
+
+    // Asynchronous variants: run on DbExecutor, never on the JavaFX thread
+
+    public CompletableFuture<Treatment> saveTreatmentAsync(Treatment treatment) {
+        return DbExecutor.supply(() -> saveTreatment(treatment));
+    }
+
+    public CompletableFuture<Boolean> recordPaymentAsync(Treatment treatment, long amount,
+                                                         String paymentMethod, String notes,
+                                                         LocalDateTime paymentDate) {
+        return DbExecutor.supply(() -> recordPayment(treatment, amount, paymentMethod, notes, paymentDate));
+    }
+
+    public CompletableFuture<Boolean> recordPaymentAsync(int treatmentId, long amount, String paymentMethod, String notes) {
+        return DbExecutor.supply(() -> recordPayment(treatmentId, amount, paymentMethod, notes));
+    }
+
+    public CompletableFuture<List<Payment>> getPaymentsForTreatmentAsync(int treatmentPk) {
+        return DbExecutor.supply(() -> getPaymentsForTreatment(treatmentPk));
+    }
+
+    public CompletableFuture<List<TreatmentCost>> getCostHistoryForTreatmentAsync(int treatmentPk) {
+        return DbExecutor.supply(() -> getCostHistoryForTreatment(treatmentPk));
+    }
+
+    public CompletableFuture<Boolean> editPaymentAsync(Payment oldPayment, Payment newPayment) {
+        return DbExecutor.supply(() -> editPayment(oldPayment, newPayment));
+    }
+
+    public CompletableFuture<Boolean> deletePaymentAsync(Payment payment) {
+        return DbExecutor.supply(() -> deletePayment(payment));
+    }
+
+    public CompletableFuture<Optional<Treatment>> findByIdAsync(int id) {
+        return DbExecutor.supply(() -> findById(id));
+    }
+
+    public CompletableFuture<List<Treatment>> findByPatientIdAsync(int patientId) {
+        return DbExecutor.supply(() -> findByPatientId(patientId));
+    }
+
+    public CompletableFuture<Boolean> updateTreatmentAsync(Treatment treatment) {
+        return DbExecutor.supply(() -> updateTreatment(treatment));
+    }
+
+    public CompletableFuture<Boolean> softDeleteAsync(int id) {
+        return DbExecutor.supply(() -> softDelete(id));
+    }
+
+    public CompletableFuture<List<BatchItemResult>> saveTreatmentsAsync(List<Treatment> treatments) {
+        return DbExecutor.supply(() -> saveTreatments(treatments));
+    }
+
+    public CompletableFuture<List<BatchItemResult>> recordPaymentsAsync(List<Payment> payments) {
+        return DbExecutor.supply(() -> recordPayments(payments));
+    }
+
+    public CompletableFuture<List<BatchItemResult>> addTreatmentCostsAsync(List<TreatmentCost> costs) {
+        return DbExecutor.supply(() -> addTreatmentCosts(costs));
+    }
+
+    public CompletableFuture<Boolean> addTreatmentCostAsync(Treatment treatment, long cost, String notes) {
+        return DbExecutor.supply(() -> addTreatmentCost(treatment, cost, notes));
+    }
+
+    /**
+     * Positions of the columns mapResultSetToTreatment reads, resolved once per result set
+     */
+    static final class TreatmentColumns {
+        final int id, treatmentId, patientId, treatmentName, totalAmount, amountPaid, amountPending,
+                active, deleted, createdAt, updatedAt, version;
+
+        TreatmentColumns(ResultSet rs) throws SQLException {
+            ColumnIndex columns = new ColumnIndex(rs);
+            id = columns.required("id");
+            treatmentId = columns.required("treatment_id");
+            patientId = columns.required("patient_id");
+            treatmentName = columns.required("treatment_name");
+            totalAmount = columns.required("total_amount");
+            amountPaid = columns.required("amount_paid");
+            amountPending = columns.required("amount_pending");
+            active = columns.required("is_active");
+            deleted = columns.required("is_deleted");
+            createdAt = columns.required("created_at");
+            updatedAt = columns.required("updated_at");
+            version = columns.required("version");
+        }
+    }
+
+    /**
+     * Positions of the columns mapResultSetToPayment reads; the ones not every query selects are 0 when absent
+     */
+    static final class PaymentColumns {
+        final int id, treatmentPk, treatmentId, amount, paymentDate, paymentMethod, transactionReference,
+                notes, deleted, createdAt, updatedAt, version;
+
+        PaymentColumns(ResultSet rs) throws SQLException {
+            ColumnIndex columns = new ColumnIndex(rs);
+            id = columns.required("id");
+            treatmentPk = columns.required("treatment_pk");
+            treatmentId = columns.optional("treatment_id");
+            amount = columns.required("amount");
+            paymentDate = columns.required("payment_date");
+            paymentMethod = columns.required("payment_method");
+            transactionReference = columns.optional("transaction_reference");
+            notes = columns.required("notes");
+            deleted = columns.optional("is_deleted");
+            createdAt = columns.optional("created_at");
+            updatedAt = columns.optional("updated_at");
+            version = columns.required("version");
+        }
+    }
+
+    /**
+     * Positions of the columns mapResultSetToTreatmentCost reads; optional ones are 0 when absent
+     */
+    static final class CostColumns {
+        final int id, treatmentPk, treatmentId, cost, status, notes, effectiveFrom, deleted, createdAt, updatedAt;
+
+        CostColumns(ResultSet rs) throws SQLException {
+            ColumnIndex columns = new ColumnIndex(rs);
+            id = columns.required("id");
+            treatmentPk = columns.required("treatment_pk");
+            treatmentId = columns.optional("treatment_id");
+            cost = columns.required("cost");
+            status = columns.required("status");
+            notes = columns.required("notes");
+            effectiveFrom = columns.required("effective_from");
+            deleted = columns.optional("is_deleted");
+            createdAt = columns.optional("created_at");
+            updatedAt = columns.optional("updated_at");
         }
     }
 
     /**
-     * Helper method to map a ResultSet to a Treatment object
+     * Helper method to map a ResultSet to a Treatment object.
+     * The mappers are package-private for the row-mapping benchmark.
      */
-    private Treatment mapResultSetToTreatment(ResultSet rs) throws SQLException {
+    Treatment mapResultSetToTreatment(ResultSet rs, TreatmentColumns c) throws SQLException {
         Treatment treatment = new Treatment();
-        treatment.setId(rs.getInt("id"));
-        treatment.setTreatmentId(rs.getString("treatment_id"));
-        treatment.setPatientId(rs.getInt("patient_id"));
-        treatment.setTreatmentName(rs.getString("treatment_name"));
-        treatment.setTotalAmount(rs.getDouble("total_amount"));
-        treatment.setAmountPaid(rs.getDouble("amount_paid"));
-        treatment.setAmountPending(rs.getDouble("amount_pending"));
-        treatment.setActive(rs.getBoolean("is_active"));
-        treatment.setDeleted(rs.getBoolean("is_deleted"));
-        treatment.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-        treatment.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        treatment.setId(rs.getInt(c.id));
+        treatment.setTreatmentId(rs.getString(c.treatmentId));
+        treatment.setPatientId(rs.getInt(c.patientId));
+        treatment.setTreatmentName(rs.getString(c.treatmentName));
+        treatment.setTotalAmount(Money.read(rs, c.totalAmount));
+        treatment.setAmountPaid(Money.read(rs, c.amountPaid));
+        treatment.setAmountPending(Money.read(rs, c.amountPending));
+        treatment.setActive(rs.getBoolean(c.active));
+        treatment.setDeleted(rs.getBoolean(c.deleted));
+        treatment.setCreatedAt(rs.getTimestamp(c.createdAt).toLocalDateTime());
+        treatment.setUpdatedAt(rs.getTimestamp(c.updatedAt).toLocalDateTime());
+        treatment.setVersion(rs.getInt(c.version));
         return treatment;
     }
 
-    private Payment mapResultSetToPayment(ResultSet rs) throws SQLException {
+    Payment mapResultSetToPayment(ResultSet rs, PaymentColumns c) throws SQLException {
         Payment p = new Payment();
-        p.setId(rs.getInt("id"));
-        // Some code paths use string treatment_id, align here
-        try {
-            p.setTreatmentId(rs.getString("treatment_id"));
-        } catch (SQLException ignored) { }
-        p.setAmount(rs.getDouble("amount"));
-        Timestamp ts = rs.getTimestamp("payment_date");
-        if (ts != null) p.setPaymentDate(ts.toLocalDateTime());
-        p.setPaymentMethod(rs.getString("payment_method"));
-        // transaction_reference might not exist; guard it
-        try { p.setTransactionReference(rs.getString("transaction_reference")); } catch (SQLException ignored) {}
-        p.setNotes(rs.getString("notes"));
-        try { p.setDeleted(rs.getBoolean("is_deleted")); } catch (SQLException ignored) {}
-        try {
-            Timestamp c = rs.getTimestamp("created_at");
-            if (c != null) p.setCreatedAt(c.toLocalDateTime());
-            Timestamp u = rs.getTimestamp("updated_at");
-            if (u != null) p.setUpdatedAt(u.toLocalDateTime());
-        } catch (SQLException ignored) {}
+        p.setId(rs.getInt(c.id));
+        p.setTreatmentPk(rs.getInt(c.treatmentPk));
+        if (c.treatmentId > 0) p.setTreatmentId(rs.getString(c.treatmentId));
+        p.setAmount(Money.read(rs, c.amount));
+        p.setPaymentDate(readDateTime(rs, c.paymentDate));
+        p.setPaymentMethod(rs.getString(c.paymentMethod));
+        if (c.transactionReference > 0) p.setTransactionReference(rs.getString(c.transactionReference));
+        p.setNotes(rs.getString(c.notes));
+        if (c.deleted > 0) p.setDeleted(rs.getBoolean(c.deleted));
+        p.setCreatedAt(readDateTime(rs, c.createdAt));
+        p.setUpdatedAt(readDateTime(rs, c.updatedAt));
+        p.setVersion(rs.getInt(c.version));
         return p;
     }
 
-    private TreatmentCost mapResultSetToTreatmentCost(ResultSet rs) throws SQLException {
+    TreatmentCost mapResultSetToTreatmentCost(ResultSet rs, CostColumns c) throws SQLException {
         TreatmentCost tc = new TreatmentCost();
-        tc.setId(rs.getInt("id"));
-        try { tc.setTreatmentId(rs.getString("treatment_id")); } catch (SQLException ignored) {}
-        tc.setCost(rs.getDouble("cost"));
-        tc.setStatus(rs.getString("status"));
-        tc.setNotes(rs.getString("notes"));
-        Timestamp eff = rs.getTimestamp("effective_from");
-        if (eff != null) tc.setEffectiveFrom(eff.toLocalDateTime());
-        try { tc.setDeleted(rs.getBoolean("is_deleted")); } catch (SQLException ignored) {}
-        try {
-            Timestamp c = rs.getTimestamp("created_at");
-            if (c != null) tc.setCreatedAt(c.toLocalDateTime());
-            Timestamp u = rs.getTimestamp("updated_at");
-            if (u != null) tc.setUpdatedAt(u.toLocalDateTime());
-        } catch (SQLException ignored) {}
+        tc.setId(rs.getInt(c.id));
+        tc.setTreatmentPk(rs.getInt(c.treatmentPk));
+        if (c.treatmentId > 0) tc.setTreatmentId(rs.getString(c.treatmentId));
+        tc.setCost(Money.read(rs, c.cost));
+        tc.setStatus(rs.getString(c.status));
+        tc.setNotes(rs.getString(c.notes));
+        tc.setEffectiveFrom(readDateTime(rs, c.effectiveFrom));
+        if (c.deleted > 0) tc.setDeleted(rs.getBoolean(c.deleted));
+        tc.setCreatedAt(readDateTime(rs, c.createdAt));
+        tc.setUpdatedAt(readDateTime(rs, c.updatedAt));
         return tc;
     }
+
+    /**
+     * Reads a nullable timestamp column; a column position of 0 (not selected) reads as null
+     */
+    private static LocalDateTime readDateTime(ResultSet rs, int column) throws SQLException {
+        if (column == 0) return null;
+        Timestamp value = rs.getTimestamp(column);
+        return value != null ? value.toLocalDateTime() : null;
+    }
 }
@@ -0,0 +1,247 @@
+package com.nirwan.dentalclinic.search;
+
+import com.nirwan.dentalclinic.models.PatientSearchDocument;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory trigram index over patient names, treatment codes and treatment descriptions.
+ * <p>
+ * Each document's text is normalized once when it is added (lower case, accents stripped,
+ * punctuation collapsed to single spaces). A query is split into words; every word must occur
+ * in the document. Words of three or more characters are looked up through the trigram posting
+ * lists, which are intersected smallest first, and the few candidates left are verified with a
+ * substring check. Results are ordered by patient name using a precomputed rank.
+ * <p>
+ * Not thread-safe: {@link PatientSearchService} confines it to a single thread.
+ */
+public class PatientSearchIndex {
+    private static final long[] NO_RESULTS = new long[0];
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Compact when more than this share of the slots hold replaced or removed documents */
+    private static final double COMPACT_RATIO = 0.25;
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    // Documents are stored by slot. Slots are only ever appended, so every posting list is sorted
+    // and merge intersection works; a replaced document leaves a dead slot behind until compaction.
+    private long[] patientIds = new long[INITIAL_CAPACITY];
+    private String[] sortKeys = new String[INITIAL_CAPACITY];
+    private String[] texts = new String[INITIAL_CAPACITY];
+    private int slotCount;
+    private final BitSet deadSlots = new BitSet();
+    private int deadCount;
+    private final Map<Long, Integer> slotByPatient = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    // Position of each slot in name order; rebuilt lazily after changes
+    private int[] nameRank = new int[0];
+    private boolean rankDirty = true;
+
+    /**
+     * Adds the document, replacing any earlier version for the same patient
+     */
+    public void put(PatientSearchDocument document) {
+        StringBuilder text = new StringBuilder(normalize(document.getName()));
+        for (String treatmentText : document.getTreatmentTexts()) {
+            String normalized = normalize(treatmentText);
+            if (!normalized.isEmpty()) text.append(' ').append(normalized);
+        }
+        remove(document.getPatientId());
+        addSlot(document.getPatientId(), normalize(document.getName()), text.toString());
+        compactIfNeeded();
+    }
+
+    public void remove(long patientId) {
+        Integer slot = slotByPatient.remove(patientId);
+        if (slot != null) {
+            deadSlots.set(slot);
+            deadCount++;
+            rankDirty = true;
+        }
+    }
+
+    public int size() {
+        return slotByPatient.size();
+    }
+
+    /**
+     * Returns the IDs of patients matching every word of the query, ordered by name.
+     * A blank query matches nothing.
+     */
+    public long[] search(String query) {
+        String[] words = words(query);
+        if (words.length == 0) return NO_RESULTS;
+
+        int[] candidates = null;
+        List<Postings> lists = new ArrayList<>();
+        for (String word : words) {
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                Postings list = postings.get(trigram(word, i));
+                if (list == null) return NO_RESULTS;
+                lists.add(list);
+            }
+        }
+        if (!lists.isEmpty()) {
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+            candidates = Arrays.copyOf(lists.get(0).slots, lists.get(0).size);
+            for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+                candidates = intersect(candidates, lists.get(i));
+            }
+        }
+
+        int[] ranks = rank();
+        int candidateCount = candidates != null ? candidates.length : slotCount;
+        long[] matches = new long[candidateCount];
+        int matchCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int slot = candidates != null ? candidates[i] : i;
+            if (deadSlots.get(slot) || !containsAll(texts[slot], words)) continue;
+            // Pack rank and slot so a primitive sort yields name order
+            matches[matchCount++] = ((long) ranks[slot] << 32) | slot;
+        }
+        Arrays.sort(matches, 0, matchCount);
+
+        long[] ids = new long[matchCount];
+        for (int i = 0; i < matchCount; i++) {
+            ids[i] = patientIds[(int) matches[i]];
+        }
+        return ids;
+    }
+
+    /**
+     * Lower-cases, strips accents and collapses everything that is not a letter or digit to single spaces
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) sb.append(' ');
+                pendingSpace = false;
+                sb.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String[] words(String query) {
+        String normalized = normalize(query);
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private static long trigram(CharSequence text, int i) {
+        return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+
+    private static boolean containsAll(String text, String[] words) {
+        for (String word : words) {
+            if (!text.contains(word)) return false;
+        }
+        return true;
+    }
+
+    private static int[] intersect(int[] a, Postings b) {
+        int[] out = new int[Math.min(a.length, b.size)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.size) {
+            int x = a[i], y = b.slots[j];
+            if (x == y) {
+                out[n++] = x;
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private void addSlot(long patientId, String sortKey, String text) {
+        int slot = slotCount++;
+        if (slot == patientIds.length) {
+            int capacity = patientIds.length * 2;
+            patientIds = Arrays.copyOf(patientIds, capacity);
+            sortKeys = Arrays.copyOf(sortKeys, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        patientIds[slot] = patientId;
+        sortKeys[slot] = sortKey;
+        texts[slot] = text;
+        slotByPatient.put(patientId, slot);
+        rankDirty = true;
+
+        // Trigrams spanning a word boundary are never queried, so they are not indexed
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            if (text.charAt(i) == ' ' || text.charAt(i + 1) == ' ' || text.charAt(i + 2) == ' ') continue;
+            postings.computeIfAbsent(trigram(text, i), k -> new Postings()).add(slot);
+        }
+    }
+
+    private int[] rank() {
+        if (!rankDirty) return nameRank;
+        Integer[] order = new Integer[slotCount];
+        for (int i = 0; i < slotCount; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = sortKeys[a].compareTo(sortKeys[b]);
+            return c != 0 ? c : Long.compare(patientIds[a], patientIds[b]);
+        });
+        nameRank = new int[slotCount];
+        for (int i = 0; i < order.length; i++) nameRank[order[i]] = i;
+        rankDirty = false;
+        return nameRank;
+    }
+
+    /**
+     * Rebuilds the slots and posting lists without the dead documents once they pile up
+     */
+    private void compactIfNeeded() {
+        if (deadCount < COMPACT_MIN_DEAD || deadCount < slotCount * COMPACT_RATIO) return;
+        long[] oldIds = patientIds;
+        String[] oldKeys = sortKeys;
+        String[] oldTexts = texts;
+        int oldCount = slotCount;
+        BitSet oldDead = (BitSet) deadSlots.clone();
+
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, oldCount - deadCount)) * 2);
+        patientIds = new long[capacity];
+        sortKeys = new String[capacity];
+        texts = new String[capacity];
+        slotCount = 0;
+        deadSlots.clear();
+        deadCount = 0;
+        slotByPatient.clear();
+        postings.clear();
+        for (int slot = 0; slot < oldCount; slot++) {
+            if (!oldDead.get(slot)) addSlot(oldIds[slot], oldKeys[slot], oldTexts[slot]);
+        }
+    }
+
+    /**
+     * Growable sorted list of slots containing one trigram
+     */
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            // Slots arrive in increasing order; a repeated trigram within one document is stored once
+            if (size > 0 && slots[size - 1] == slot) return;
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+    }
+}
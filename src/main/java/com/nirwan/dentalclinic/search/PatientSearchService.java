@@ -0,0 +1,187 @@
+package com.nirwan.dentalclinic.search;
+
+import com.nirwan.dentalclinic.database.DatabaseConfig;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.PatientSearchDocument;
+import com.nirwan.dentalclinic.repository.DataChangeListener;
+import com.nirwan.dentalclinic.repository.DataChanges;
+import com.nirwan.dentalclinic.repository.PatientSearchDao;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the application-wide {@link PatientSearchIndex}. The index is built once in the background
+ * and then kept current from {@link DataChanges} notifications, one patient at a time, and by
+ * polling every search.poll-seconds for patients and treatments that other terminals wrote since
+ * the last poll (by updated_at).
+ * All index access happens on a single dedicated thread, so searches never touch the JavaFX thread
+ * and need no locking.
+ */
+public final class PatientSearchService implements DataChangeListener {
+    private static PatientSearchService instance;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "patient-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private final PatientSearchDao dao = new PatientSearchDao();
+    private final PatientSearchIndex index = new PatientSearchIndex();
+    private final long pollSeconds;
+    private final long overlapMillis;
+    private volatile boolean ready;
+    private volatile long syncedAtNanos;
+    // Newest updated_at seen by the last build or poll; only touched on the index thread
+    private Timestamp watermark;
+
+    private PatientSearchService() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        DatabaseConfig config = db != null ? db.getConfig() : null;
+        pollSeconds = Math.max(1, config != null ? config.getInt("search.poll-seconds", 10) : 10);
+        overlapMillis = 1000L * (config != null ? config.getInt("search.poll-overlap-seconds", 60) : 60);
+    }
+
+    /**
+     * Returns the shared service, starting the index build on first use
+     */
+    public static synchronized PatientSearchService getInstance() {
+        if (instance == null) {
+            instance = new PatientSearchService();
+            DataChanges.addListener(instance);
+            instance.executor.execute(instance::build);
+            instance.executor.scheduleWithFixedDelay(instance::sync,
+                    instance.pollSeconds, instance.pollSeconds, TimeUnit.SECONDS);
+        }
+        return instance;
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        try {
+            // Read before the documents, so that anything written during the build is polled again
+            Timestamp latest = dao.findLatestChange();
+            List<PatientSearchDocument> documents = dao.findAll();
+            for (PatientSearchDocument document : documents) {
+                index.put(document);
+            }
+            watermark = latest;
+            syncedAtNanos = System.nanoTime();
+            ready = true;
+            System.out.printf("Patient search index built: %d patients in %d ms%n",
+                    index.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException e) {
+            System.err.println("Error building patient search index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Re-reads the patients written since the last sync. Rows are matched from the watermark
+     * minus search.poll-overlap-seconds, since updated_at comes from each terminal's clock and a
+     * row can commit some time after it was stamped; re-reading a few patients twice is harmless.
+     */
+    private void sync() {
+        if (!ready) {
+            build();
+            return;
+        }
+        try {
+            Timestamp latest = dao.findLatestChange();
+            if (latest == null) {
+                syncedAtNanos = System.nanoTime();
+                return;
+            }
+            Timestamp since = watermark != null ? new Timestamp(watermark.getTime() - overlapMillis) : new Timestamp(0);
+            List<Integer> changed = dao.findChangedSince(since);
+            if (!changed.isEmpty()) {
+                Set<Long> missing = new HashSet<>(changed.size() * 2);
+                for (int patientId : changed) {
+                    missing.add((long) patientId);
+                }
+                for (PatientSearchDocument document : dao.findByPatientIds(changed)) {
+                    index.put(document);
+                    missing.remove(document.getPatientId());
+                }
+                for (long patientId : missing) {
+                    index.remove(patientId); // deleted
+                }
+            }
+            watermark = latest;
+            syncedAtNanos = System.nanoTime();
+        } catch (SQLException e) {
+            System.err.println("Error syncing patient search index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * True while the index is current: it has been built and the last poll succeeded within two
+     * poll intervals. Otherwise it may be missing other terminals' changes, and callers should
+     * fall back to SQL.
+     */
+    public boolean isReady() {
+        return ready && System.nanoTime() - syncedAtNanos <= TimeUnit.SECONDS.toNanos(2 * pollSeconds);
+    }
+
+    /**
+     * Searches on the index thread. Cancelling the returned future before it starts skips the search.
+     * @return matching patient IDs ordered by name
+     */
+    public CompletableFuture<long[]> searchAsync(String query) {
+        return searchAsync(query, false);
+    }
+
+    /**
+     * Searches on the index thread, first syncing the index with the database if asked to, as on
+     * a refresh, so that patients written on other terminals since the last poll are included
+     * @return matching patient IDs ordered by name
+     */
+    public CompletableFuture<long[]> searchAsync(String query, boolean sync) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (sync) sync();
+            return index.search(query);
+        }, executor);
+    }
+
+    @Override
+    public void patientChanged(int patientId) {
+        executor.execute(() -> {
+            try {
+                PatientSearchDocument document = dao.findByPatientId(patientId);
+                if (document != null) {
+                    index.put(document);
+                } else {
+                    index.remove(patientId);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error updating search index for patient " + patientId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void treatmentChanged(int treatmentPk) {
+        executor.execute(() -> {
+            try {
+                PatientSearchDocument document = dao.findByTreatmentId(treatmentPk);
+                if (document != null) index.put(document);
+            } catch (SQLException e) {
+                System.err.println("Error updating search index for treatment " + treatmentPk + ": " + e.getMessage());
+            }
+        });
+    }
+
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            DataChanges.removeListener(instance);
+            instance.executor.shutdownNow();
+            instance = null;
+        }
+    }
+}
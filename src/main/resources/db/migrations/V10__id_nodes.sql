@@ -0,0 +1,11 @@
+-- Node ids for treatment codes (TreatmentCodeGenerator). Every running terminal holds one row.
+-- A row is only handed out again after its holder released it on a clean shutdown, and the next
+-- holder continues after the last second the previous one issued, so codes never repeat.
+
+CREATE TABLE IF NOT EXISTS IdNode (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    holder VARCHAR(255),
+    claimed_at TIMESTAMP NULL,
+    released BOOLEAN NOT NULL DEFAULT FALSE,
+    last_second BIGINT NOT NULL DEFAULT 0
+);
@@ -0,0 +1,5 @@
+-- Rows changed since a point in time, for the patient search index to pick up changes made on
+-- other terminals (PatientSearchDao.findChangedSince)
+
+CREATE INDEX idx_patient_updated ON Patient (updated_at);
+CREATE INDEX idx_treatment_updated ON Treatment (updated_at);
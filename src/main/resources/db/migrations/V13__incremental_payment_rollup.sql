@@ -0,0 +1,115 @@
+-- Payment writes now add their amount to the one PaymentDailyRollup row of their day, method
+-- and treatment name (INSERT ... ON DUPLICATE KEY UPDATE) instead of deleting and re-summing the
+-- whole day, which cost a scan of the day's payments per write and deadlocked between terminals
+-- writing on the same day. Days are still rebuilt when a treatment is renamed.
+
+-- treatment_name is TEXT, so the unique key uses a hash of it
+DELETE FROM PaymentDailyRollup;
+ALTER TABLE PaymentDailyRollup
+    ADD COLUMN treatment_key BINARY(16) AS (UNHEX(MD5(treatment_name))) STORED;
+ALTER TABLE PaymentDailyRollup
+    ADD UNIQUE KEY uk_payment_rollup_day_method_treatment (payment_day, payment_method, treatment_key);
+DROP INDEX idx_payment_rollup_day_method ON PaymentDailyRollup;
+
+INSERT INTO PaymentDailyRollup (payment_day, payment_method, treatment_name, total_amount, payment_count)
+SELECT DATE(pay.payment_date), pay.payment_method, COALESCE(t.treatment_name, ''), SUM(pay.amount), COUNT(*)
+FROM Payment pay
+JOIN Treatment t ON pay.treatment_pk = t.id
+WHERE pay.is_deleted = FALSE
+GROUP BY DATE(pay.payment_date), pay.payment_method, COALESCE(t.treatment_name, '');
+
+-- record_payment (V11) with the incremental rollup
+DROP PROCEDURE IF EXISTS record_payment;
+
+DELIMITER //
+CREATE PROCEDURE record_payment(IN p_treatment_pk INT, IN p_amount DECIMAL(12,2), IN p_payment_date DATETIME,
+                                IN p_payment_method VARCHAR(20), IN p_notes TEXT)
+BEGIN
+    DECLARE v_patient_id INT;
+    DECLARE v_day DATE DEFAULT DATE(p_payment_date);
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
+
+    START TRANSACTION;
+
+    UPDATE Treatment SET amount_paid = amount_paid + p_amount, updated_at = NOW(), version = version + 1
+    WHERE id = p_treatment_pk;
+
+    IF ROW_COUNT() = 0 THEN
+        ROLLBACK;
+    ELSE
+        SELECT patient_id INTO v_patient_id FROM Treatment WHERE id = p_treatment_pk;
+
+        INSERT INTO Payment (treatment_pk, treatment_id, amount, payment_date, payment_method, notes)
+        SELECT id, treatment_id, p_amount, p_payment_date, p_payment_method, p_notes FROM Treatment WHERE id = p_treatment_pk;
+
+        INSERT INTO PaymentDailyRollup (payment_day, payment_method, treatment_name, total_amount, payment_count)
+        SELECT v_day, p_payment_method, COALESCE(t.treatment_name, ''), p_amount, 1
+        FROM Treatment t WHERE t.id = p_treatment_pk
+        ON DUPLICATE KEY UPDATE
+            total_amount = PaymentDailyRollup.total_amount + p_amount,
+            payment_count = PaymentDailyRollup.payment_count + 1;
+
+        UPDATE TreatmentCost tc
+        JOIN Treatment t ON t.id = tc.treatment_pk
+        JOIN (SELECT treatment_pk, MAX(effective_from) AS max_eff FROM TreatmentCost
+              WHERE treatment_pk = p_treatment_pk AND is_deleted = false) latest
+          ON tc.treatment_pk = latest.treatment_pk AND tc.effective_from = latest.max_eff
+        SET tc.status = CASE WHEN t.amount_paid >= t.total_amount THEN 'PAID'
+                             WHEN t.amount_paid > 0 THEN 'PARTIALLY_PAID'
+                             ELSE 'PENDING' END
+        WHERE tc.treatment_pk = p_treatment_pk AND tc.is_deleted = false;
+
+        INSERT INTO PatientSummary (patient_id, latest_treatment_pk, latest_treatment_code, latest_treatment_name,
+                                    latest_total_amount, latest_amount_paid, latest_amount_pending, latest_status,
+                                    last_activity_date, total_pending, treatment_count, refreshed_at)
+        SELECT p.id,
+               lt.id,
+               lt.treatment_id,
+               lt.treatment_name,
+               lt.total_amount,
+               lt.amount_paid,
+               lt.amount_pending,
+               (SELECT tc.status FROM TreatmentCost tc
+                 WHERE tc.treatment_pk = lt.id AND tc.is_deleted = FALSE
+                 ORDER BY tc.effective_from DESC, tc.id DESC LIMIT 1),
+               COALESCE((SELECT MAX(pay.payment_date) FROM Payment pay
+                          WHERE pay.treatment_pk = lt.id AND pay.is_deleted = FALSE), lt.updated_at),
+               (SELECT COALESCE(SUM(t.amount_pending), 0) FROM Treatment t
+                 WHERE t.patient_id = p.id AND t.is_deleted = FALSE),
+               (SELECT COUNT(*) FROM Treatment t WHERE t.patient_id = p.id AND t.is_deleted = FALSE),
+               CURRENT_TIMESTAMP
+        FROM Patient p
+        LEFT JOIN Treatment lt ON lt.id = (SELECT t.id FROM Treatment t
+                                            WHERE t.patient_id = p.id AND t.is_deleted = FALSE
+                                            ORDER BY t.updated_at DESC, t.id DESC LIMIT 1)
+        WHERE p.id = v_patient_id
+        ON DUPLICATE KEY UPDATE
+            latest_treatment_pk = VALUES(latest_treatment_pk),
+            latest_treatment_code = VALUES(latest_treatment_code),
+            latest_treatment_name = VALUES(latest_treatment_name),
+            latest_total_amount = VALUES(latest_total_amount),
+            latest_amount_paid = VALUES(latest_amount_paid),
+            latest_amount_pending = VALUES(latest_amount_pending),
+            latest_status = VALUES(latest_status),
+            last_activity_date = VALUES(last_activity_date),
+            total_pending = VALUES(total_pending),
+            treatment_count = VALUES(treatment_count),
+            refreshed_at = VALUES(refreshed_at);
+
+        COMMIT;
+
+        SELECT id, treatment_id, patient_id, treatment_name, total_amount, amount_paid, amount_pending,
+               is_active, is_deleted, created_at, updated_at, version
+        FROM Treatment WHERE id = p_treatment_pk;
+        SELECT id, treatment_pk, treatment_id, amount, payment_date, payment_method, transaction_reference, notes,
+               is_deleted, version
+        FROM Payment WHERE treatment_pk = p_treatment_pk AND is_deleted = false ORDER BY payment_date DESC;
+        SELECT id, treatment_pk, treatment_id, cost, status, notes, effective_from, is_deleted
+        FROM TreatmentCost WHERE treatment_pk = p_treatment_pk AND is_deleted = false ORDER BY effective_from DESC;
+    END IF;
+END//
+DELIMITER ;
@@ -0,0 +1,27 @@
+-- record_payment is cut down to the two writes that belong to the payment itself: adding it to
+-- Treatment.amount_paid (with the version bump) and inserting the Payment row. It no longer opens
+-- or commits a transaction, so it runs in the caller's, and TreatmentDao.recordPayment maintains
+-- the rollup, the latest cost status and the patient summary after it, exactly as on the
+-- statement path. Those used to be copied into the procedure from PaymentRollupDao and
+-- PatientSummaryDao. Returns one row: recorded = 1, or 0 if the treatment does not exist.
+
+DROP PROCEDURE IF EXISTS record_payment;
+
+DELIMITER //
+CREATE PROCEDURE record_payment(IN p_treatment_pk INT, IN p_amount DECIMAL(12,2), IN p_payment_date DATETIME,
+                                IN p_payment_method VARCHAR(20), IN p_notes TEXT)
+BEGIN
+    DECLARE v_recorded INT;
+
+    UPDATE Treatment SET amount_paid = amount_paid + p_amount, updated_at = NOW(), version = version + 1
+    WHERE id = p_treatment_pk;
+    SET v_recorded = ROW_COUNT();
+
+    IF v_recorded > 0 THEN
+        INSERT INTO Payment (treatment_pk, treatment_id, amount, payment_date, payment_method, notes)
+        SELECT id, treatment_id, p_amount, p_payment_date, p_payment_method, p_notes FROM Treatment WHERE id = p_treatment_pk;
+    END IF;
+
+    SELECT v_recorded AS recorded;
+END//
+DELIMITER ;
@@ -0,0 +1,68 @@
+-- Baseline schema: Patient, Treatment, TreatmentCost, Payment and the PatientList view
+
+CREATE TABLE IF NOT EXISTS Patient (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(255) UNIQUE NOT NULL,
+    is_deleted BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS Treatment (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    treatment_id VARCHAR(255) UNIQUE NOT NULL,
+    patient_id INT NOT NULL,
+    treatment_name TEXT,
+    total_amount DOUBLE NOT NULL,
+    amount_paid DOUBLE DEFAULT 0.0,
+    amount_pending DOUBLE GENERATED ALWAYS AS (total_amount - amount_paid) STORED,
+    is_deleted BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (patient_id) REFERENCES Patient(id) ON DELETE CASCADE
+);
+
+-- Cost history and status per treatment
+CREATE TABLE IF NOT EXISTS TreatmentCost (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    treatment_id VARCHAR(255) NOT NULL,
+    cost DOUBLE NOT NULL,
+    status ENUM('PENDING', 'PARTIALLY_PAID', 'PAID') NOT NULL,
+    notes TEXT,
+    effective_from TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    is_deleted BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (treatment_id) REFERENCES Treatment(treatment_id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS Payment (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    treatment_id VARCHAR(255) NOT NULL,
+    amount DOUBLE NOT NULL,
+    payment_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    payment_method ENUM('CASH', 'CARD', 'UPI', 'BANK_TRANSFER') NOT NULL,
+    transaction_reference VARCHAR(255),
+    notes TEXT,
+    is_deleted BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (treatment_id) REFERENCES Treatment(treatment_id) ON DELETE CASCADE
+);
+
+-- Patient information with their treatments
+CREATE OR REPLACE VIEW PatientList AS
+SELECT
+    p.id as patientId,
+    p.name as patientName,
+    t.id as treatmentId,
+    t.treatment_id as treatmentReference,
+    t.treatment_name as treatmentDescription,
+    t.total_amount as totalAmount,
+    t.amount_paid as amountPaid,
+    t.amount_pending as balancePayment,
+    t.created_at as treatmentDate,
+    p.created_at as patientSince
+FROM Patient p
+LEFT JOIN Treatment t ON p.id = t.patient_id
+WHERE p.is_deleted = FALSE AND (t.is_deleted = FALSE OR t.id IS NULL);
@@ -0,0 +1,13 @@
+-- Composite indexes for the hot read paths
+
+-- Payments of a treatment (treatment details, last payment date on the main list)
+CREATE INDEX idx_payment_treatment_deleted_date ON Payment (treatment_id, is_deleted, payment_date);
+
+-- Payments report: date range scan over live payments
+CREATE INDEX idx_payment_deleted_date ON Payment (is_deleted, payment_date);
+
+-- Latest cost row of a treatment
+CREATE INDEX idx_treatment_cost_treatment_deleted_effective ON TreatmentCost (treatment_id, is_deleted, effective_from);
+
+-- Treatments of a patient, newest first (patient view, latest treatment on the main list)
+CREATE INDEX idx_treatment_patient_deleted_updated ON Treatment (patient_id, is_deleted, updated_at);
@@ -0,0 +1,27 @@
+-- Key Payment and TreatmentCost by the integer Treatment.id instead of the VARCHAR treatment code.
+-- Expand phase: the code column stays and is still written (dual-write) so it remains available
+-- for display and lookups; a later migration can drop it once nothing reads it.
+
+ALTER TABLE Payment ADD COLUMN treatment_pk INT NULL;
+ALTER TABLE TreatmentCost ADD COLUMN treatment_pk INT NULL;
+
+-- Backfill from the existing string references
+UPDATE Payment pay JOIN Treatment t ON t.treatment_id = pay.treatment_id
+SET pay.treatment_pk = t.id
+WHERE pay.treatment_pk IS NULL;
+
+UPDATE TreatmentCost tc JOIN Treatment t ON t.treatment_id = tc.treatment_id
+SET tc.treatment_pk = t.id
+WHERE tc.treatment_pk IS NULL;
+
+ALTER TABLE Payment MODIFY treatment_pk INT NOT NULL, ALGORITHM=INPLACE, LOCK=NONE;
+ALTER TABLE TreatmentCost MODIFY treatment_pk INT NOT NULL, ALGORITHM=INPLACE, LOCK=NONE;
+
+-- Narrow integer versions of the V3 composite indexes; they also back the new foreign keys
+CREATE INDEX idx_payment_treatment_pk_deleted_date ON Payment (treatment_pk, is_deleted, payment_date);
+CREATE INDEX idx_treatment_cost_pk_deleted_effective ON TreatmentCost (treatment_pk, is_deleted, effective_from);
+
+ALTER TABLE Payment ADD CONSTRAINT fk_payment_treatment_pk
+    FOREIGN KEY (treatment_pk) REFERENCES Treatment(id) ON DELETE CASCADE;
+ALTER TABLE TreatmentCost ADD CONSTRAINT fk_treatment_cost_treatment_pk
+    FOREIGN KEY (treatment_pk) REFERENCES Treatment(id) ON DELETE CASCADE;
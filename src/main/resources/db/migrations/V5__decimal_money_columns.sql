@@ -0,0 +1,34 @@
+-- Store money as exact DECIMAL(12,2) instead of DOUBLE. Existing values are rounded to paise.
+
+-- amount_pending is generated from the other two columns, so it is dropped while they change type
+ALTER TABLE Treatment DROP COLUMN amount_pending;
+
+UPDATE Treatment SET amount_paid = 0 WHERE amount_paid IS NULL;
+
+ALTER TABLE Treatment
+    MODIFY total_amount DECIMAL(12,2) NOT NULL,
+    MODIFY amount_paid DECIMAL(12,2) NOT NULL DEFAULT 0.00;
+
+ALTER TABLE Treatment
+    ADD COLUMN amount_pending DECIMAL(12,2) GENERATED ALWAYS AS (total_amount - amount_paid) STORED AFTER amount_paid;
+
+ALTER TABLE TreatmentCost MODIFY cost DECIMAL(12,2) NOT NULL;
+
+ALTER TABLE Payment MODIFY amount DECIMAL(12,2) NOT NULL;
+
+-- Recreate the view so its column types follow the new definitions
+CREATE OR REPLACE VIEW PatientList AS
+SELECT
+    p.id as patientId,
+    p.name as patientName,
+    t.id as treatmentId,
+    t.treatment_id as treatmentReference,
+    t.treatment_name as treatmentDescription,
+    t.total_amount as totalAmount,
+    t.amount_paid as amountPaid,
+    t.amount_pending as balancePayment,
+    t.created_at as treatmentDate,
+    p.created_at as patientSince
+FROM Patient p
+LEFT JOIN Treatment t ON p.id = t.patient_id
+WHERE p.is_deleted = FALSE AND (t.is_deleted = FALSE OR t.id IS NULL);
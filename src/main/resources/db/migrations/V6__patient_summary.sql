@@ -0,0 +1,42 @@
+-- One row per patient with its latest treatment, status, last activity and total pending,
+-- maintained by the application in the same transaction as every treatment/payment change
+
+CREATE TABLE IF NOT EXISTS PatientSummary (
+    patient_id INT PRIMARY KEY,
+    latest_treatment_pk INT NULL,
+    latest_treatment_code VARCHAR(255) NULL,
+    latest_treatment_name TEXT,
+    latest_total_amount DECIMAL(12,2) NULL,
+    latest_amount_paid DECIMAL(12,2) NULL,
+    latest_amount_pending DECIMAL(12,2) NULL,
+    latest_status VARCHAR(20) NULL,
+    last_activity_date TIMESTAMP NULL,
+    total_pending DECIMAL(12,2) NOT NULL DEFAULT 0.00,
+    treatment_count INT NOT NULL DEFAULT 0,
+    refreshed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_patient_summary_patient FOREIGN KEY (patient_id) REFERENCES Patient(id) ON DELETE CASCADE
+);
+
+-- Backfill existing patients (same projection as PatientSummaryDao)
+INSERT INTO PatientSummary (patient_id, latest_treatment_pk, latest_treatment_code, latest_treatment_name,
+                            latest_total_amount, latest_amount_paid, latest_amount_pending, latest_status,
+                            last_activity_date, total_pending, treatment_count)
+SELECT p.id,
+       lt.id,
+       lt.treatment_id,
+       lt.treatment_name,
+       lt.total_amount,
+       lt.amount_paid,
+       lt.amount_pending,
+       (SELECT tc.status FROM TreatmentCost tc
+         WHERE tc.treatment_pk = lt.id AND tc.is_deleted = FALSE
+         ORDER BY tc.effective_from DESC, tc.id DESC LIMIT 1),
+       COALESCE((SELECT MAX(pay.payment_date) FROM Payment pay
+                  WHERE pay.treatment_pk = lt.id AND pay.is_deleted = FALSE), lt.updated_at),
+       (SELECT COALESCE(SUM(t.amount_pending), 0) FROM Treatment t
+         WHERE t.patient_id = p.id AND t.is_deleted = FALSE),
+       (SELECT COUNT(*) FROM Treatment t WHERE t.patient_id = p.id AND t.is_deleted = FALSE)
+FROM Patient p
+LEFT JOIN Treatment lt ON lt.id = (SELECT t.id FROM Treatment t
+                                    WHERE t.patient_id = p.id AND t.is_deleted = FALSE
+                                    ORDER BY t.updated_at DESC, t.id DESC LIMIT 1);
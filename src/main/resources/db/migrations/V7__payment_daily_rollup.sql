@@ -0,0 +1,22 @@
+-- Payment sums and counts per day, payment method and treatment, so report totals do not
+-- have to read every payment in the range. Maintained by the application in the same
+-- transaction as every payment change.
+
+CREATE TABLE IF NOT EXISTS PaymentDailyRollup (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    payment_day DATE NOT NULL,
+    payment_method VARCHAR(20) NOT NULL,
+    treatment_name TEXT NOT NULL,
+    total_amount DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+    payment_count INT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX idx_payment_rollup_day_method ON PaymentDailyRollup (payment_day, payment_method);
+
+-- Backfill existing payments (same projection as PaymentRollupDao)
+INSERT INTO PaymentDailyRollup (payment_day, payment_method, treatment_name, total_amount, payment_count)
+SELECT DATE(pay.payment_date), pay.payment_method, COALESCE(t.treatment_name, ''), SUM(pay.amount), COUNT(*)
+FROM Payment pay
+JOIN Treatment t ON pay.treatment_pk = t.id
+WHERE pay.is_deleted = FALSE
+GROUP BY DATE(pay.payment_date), pay.payment_method, COALESCE(t.treatment_name, '');
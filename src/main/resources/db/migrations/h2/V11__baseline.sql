@@ -0,0 +1,116 @@
+-- The schema of migrations V1-V11 in one script, for H2 in MySQL mode (the embedded,
+-- single-workstation profile). Differences from the MySQL scripts:
+--   * Treatment.amount_pending is a generated column without STORED; H2 keeps it up to date the same way
+--   * TEXT columns are VARCHAR, as H2 maps TEXT to a CLOB that it cannot group or compare
+--   * there is no record_payment procedure (TreatmentDao runs its statements itself on H2)
+--   * the legacy treatment_id foreign keys dropped by V4 never existed
+
+CREATE TABLE Patient (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    name VARCHAR(255) UNIQUE NOT NULL,
+    is_deleted BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+CREATE TABLE Treatment (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    treatment_id VARCHAR(255) UNIQUE NOT NULL,
+    patient_id INT NOT NULL,
+    treatment_name VARCHAR(65535),
+    total_amount DECIMAL(12,2) NOT NULL,
+    amount_paid DECIMAL(12,2) NOT NULL DEFAULT 0.00,
+    amount_pending DECIMAL(12,2) GENERATED ALWAYS AS (total_amount - amount_paid),
+    is_deleted BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    is_active BOOLEAN DEFAULT TRUE,
+    version INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (patient_id) REFERENCES Patient(id) ON DELETE CASCADE
+);
+
+CREATE TABLE TreatmentCost (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    treatment_id VARCHAR(255) NOT NULL,
+    cost DECIMAL(12,2) NOT NULL,
+    status ENUM('PENDING', 'PARTIALLY_PAID', 'PAID') NOT NULL,
+    notes VARCHAR(65535),
+    effective_from TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    is_deleted BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    treatment_pk INT NOT NULL,
+    FOREIGN KEY (treatment_pk) REFERENCES Treatment(id) ON DELETE CASCADE
+);
+
+CREATE TABLE Payment (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    treatment_id VARCHAR(255) NOT NULL,
+    amount DECIMAL(12,2) NOT NULL,
+    payment_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    payment_method ENUM('CASH', 'CARD', 'UPI', 'BANK_TRANSFER') NOT NULL,
+    transaction_reference VARCHAR(255),
+    notes VARCHAR(65535),
+    is_deleted BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    treatment_pk INT NOT NULL,
+    version INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (treatment_pk) REFERENCES Treatment(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_payment_deleted_date ON Payment (is_deleted, payment_date);
+CREATE INDEX idx_treatment_patient_deleted_updated ON Treatment (patient_id, is_deleted, updated_at);
+CREATE INDEX idx_payment_treatment_pk_deleted_date ON Payment (treatment_pk, is_deleted, payment_date);
+CREATE INDEX idx_treatment_cost_pk_deleted_effective ON TreatmentCost (treatment_pk, is_deleted, effective_from);
+
+CREATE TABLE PatientSummary (
+    patient_id INT PRIMARY KEY,
+    latest_treatment_pk INT NULL,
+    latest_treatment_code VARCHAR(255) NULL,
+    latest_treatment_name VARCHAR(65535),
+    latest_total_amount DECIMAL(12,2) NULL,
+    latest_amount_paid DECIMAL(12,2) NULL,
+    latest_amount_pending DECIMAL(12,2) NULL,
+    latest_status VARCHAR(20) NULL,
+    last_activity_date TIMESTAMP NULL,
+    total_pending DECIMAL(12,2) NOT NULL DEFAULT 0.00,
+    treatment_count INT NOT NULL DEFAULT 0,
+    refreshed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_patient_summary_patient FOREIGN KEY (patient_id) REFERENCES Patient(id) ON DELETE CASCADE
+);
+
+CREATE TABLE PaymentDailyRollup (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    payment_day DATE NOT NULL,
+    payment_method VARCHAR(20) NOT NULL,
+    treatment_name VARCHAR(65535) NOT NULL,
+    total_amount DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+    payment_count INT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX idx_payment_rollup_day_method ON PaymentDailyRollup (payment_day, payment_method);
+
+CREATE TABLE IdNode (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    holder VARCHAR(255),
+    claimed_at TIMESTAMP NULL,
+    released BOOLEAN NOT NULL DEFAULT FALSE,
+    last_second BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE OR REPLACE VIEW PatientList AS
+SELECT
+    p.id as patientId,
+    p.name as patientName,
+    t.id as treatmentId,
+    t.treatment_id as treatmentReference,
+    t.treatment_name as treatmentDescription,
+    t.total_amount as totalAmount,
+    t.amount_paid as amountPaid,
+    t.amount_pending as balancePayment,
+    t.created_at as treatmentDate,
+    p.created_at as patientSince
+FROM Patient p
+LEFT JOIN Treatment t ON p.id = t.patient_id
+WHERE p.is_deleted = FALSE AND (t.is_deleted = FALSE OR t.id IS NULL);
@@ -0,0 +1,13 @@
+-- Payment writes add their amount to the one PaymentDailyRollup row of their day, method and
+-- treatment name instead of re-summing the whole day (see the MySQL script of the same version)
+
+DELETE FROM PaymentDailyRollup;
+DROP INDEX idx_payment_rollup_day_method;
+CREATE UNIQUE INDEX uk_payment_rollup_day_method_treatment ON PaymentDailyRollup (payment_day, payment_method, treatment_name);
+
+INSERT INTO PaymentDailyRollup (payment_day, payment_method, treatment_name, total_amount, payment_count)
+SELECT DATE(pay.payment_date), pay.payment_method, COALESCE(t.treatment_name, ''), SUM(pay.amount), COUNT(*)
+FROM Payment pay
+JOIN Treatment t ON pay.treatment_pk = t.id
+WHERE pay.is_deleted = FALSE
+GROUP BY DATE(pay.payment_date), pay.payment_method, COALESCE(t.treatment_name, '');
@@ -0,0 +1 @@
+-- Nothing to do: H2 has no record_payment procedure and always records payments with statements.
@@ -0,0 +1,45 @@
+package com.nirwan.dentalclinic;
+
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * An in-memory H2 database with the embedded profile's schema, shared by the tests of one run.
+ * DAOs read their settings when first loaded, so {@link #start()} must run before any DAO is used.
+ */
+public final class TestDatabase {
+    private TestDatabase() {
+    }
+
+    public static synchronized DatabaseConnection start() {
+        if (DatabaseConnection.getInstance() == null) {
+            System.setProperty("dentalclinic.profile", "embedded");
+            System.setProperty("db.url", "jdbc:h2:mem:tests;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+            DatabaseConnection.initializeDatabase();
+            if (DatabaseConnection.getInstance() == null) {
+                throw new IllegalStateException("Could not start the test database");
+            }
+        }
+        return DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Runs a query returning a single number
+     */
+    public static long queryLong(String sql, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+}
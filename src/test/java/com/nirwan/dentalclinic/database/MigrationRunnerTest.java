@@ -0,0 +1,67 @@
+package com.nirwan.dentalclinic.database;
+
+import com.nirwan.dentalclinic.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A script left unfinished stops later migrations until an operator marks it done or removes it.
+ * Runs against its own in-memory database, migrated from scratch.
+ */
+class MigrationRunnerTest {
+    private static DatabaseConnection database;
+
+    @BeforeAll
+    static void startDatabase() {
+        TestDatabase.start();
+        String testUrl = System.getProperty("db.url");
+        System.setProperty("db.url", "jdbc:h2:mem:migrations;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try {
+            database = new DatabaseConnection(DatabaseConfig.load());
+        } finally {
+            System.setProperty("db.url", testUrl);
+        }
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        database.closeConnection();
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = database.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    @Test
+    void unfinishedScriptBlocksMigrationUntilRecovered() throws SQLException {
+        MigrationRunner runner = new MigrationRunner(database);
+        assertTrue(runner.migrate() > 0);
+        assertEquals(0, runner.migrate());
+
+        // As left by a script that failed, or a terminal that stopped, partway
+        execute("UPDATE schema_version SET execution_ms = -1 WHERE version = 14");
+        SQLException refused = assertThrows(SQLException.class, runner::migrate);
+        assertTrue(refused.getMessage().contains("did not finish"), refused.getMessage());
+        assertTrue(refused.getMessage().contains("WHERE version = 14"), refused.getMessage());
+
+        // The operator checked the schema and marked the script applied
+        execute("UPDATE schema_version SET execution_ms = 0 WHERE version = 14");
+        assertEquals(0, runner.migrate());
+
+        // ... or undid it and removed its row, so it runs again
+        execute("DELETE FROM schema_version WHERE version = 14");
+        assertEquals(1, runner.migrate());
+    }
+}
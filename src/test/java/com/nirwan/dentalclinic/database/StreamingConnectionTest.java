@@ -0,0 +1,80 @@
+package com.nirwan.dentalclinic.database;
+
+import com.nirwan.dentalclinic.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * A stream that outlives the leak-detection timeout must not be reclaimed as abandoned. Runs its
+ * own pool with a one-second timeout and a fast evictor against the shared test database.
+ */
+class StreamingConnectionTest {
+    private static final int ROWS = 30;
+    private static final long PAUSE_MILLIS = 100; // ROWS * PAUSE_MILLIS is well past the timeout
+
+    private static DatabaseConnection pool;
+
+    @BeforeAll
+    static void startPool() {
+        TestDatabase.start();
+        System.setProperty("pool.leak-detection-timeout-seconds", "1");
+        System.setProperty("pool.eviction-interval-millis", "100");
+        try {
+            pool = new DatabaseConnection(DatabaseConfig.load());
+        } finally {
+            System.clearProperty("pool.leak-detection-timeout-seconds");
+            System.clearProperty("pool.eviction-interval-millis");
+        }
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.closeConnection();
+    }
+
+    private static int stream(Connection conn) throws SQLException, InterruptedException {
+        int rows = 0;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT X FROM SYSTEM_RANGE(1, " + ROWS + ")",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(pool.getDialect().streamingFetchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows++;
+                    Thread.sleep(PAUSE_MILLIS);
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void streamingConnectionSurvivesTheLeakTimeout() throws Exception {
+        try (Connection conn = pool.getStreamingConnection()) {
+            assertEquals(ROWS, stream(conn));
+            // Still counted as borrowed, i.e. not reclaimed (and aborted) by the pool
+            assertEquals(1, pool.getStreamingActiveCount());
+            assertFalse(conn.isClosed());
+        }
+        assertEquals(0, pool.getStreamingActiveCount());
+    }
+
+    @Test
+    void pooledConnectionHeldPastTheTimeoutIsReclaimed() throws Exception {
+        // The failure the streaming pool exists to avoid. H2 ignores the abort that follows,
+        // so the reclaim shows in the pool's count rather than as a closed connection.
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(1, pool.getPoolMetrics().getActiveCount());
+            Thread.sleep(ROWS * PAUSE_MILLIS);
+            assertEquals(0, pool.getPoolMetrics().getActiveCount());
+        }
+    }
+}
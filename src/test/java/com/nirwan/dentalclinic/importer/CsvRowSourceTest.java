@@ -0,0 +1,72 @@
+package com.nirwan.dentalclinic.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvRowSourceTest {
+    @TempDir
+    Path dir;
+
+    private List<String[]> read(String content) throws IOException {
+        Path file = dir.resolve("ledger.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        List<String[]> rows = new ArrayList<>();
+        List<Integer> numbers = new ArrayList<>();
+        new CsvRowSource(file).read((rowNumber, cells) -> {
+            numbers.add(rowNumber);
+            rows.add(cells);
+        });
+        for (int i = 0; i < numbers.size(); i++) {
+            assertEquals(i + 1, numbers.get(i), "record numbers count every line");
+        }
+        return rows;
+    }
+
+    @Test
+    void splitsPlainFields() throws IOException {
+        List<String[]> rows = read("date,patient,total\n2020-01-02,Asha,500\n");
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[]{"date", "patient", "total"}, rows.get(0));
+        assertArrayEquals(new String[]{"2020-01-02", "Asha", "500"}, rows.get(1));
+    }
+
+    @Test
+    void quotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        List<String[]> rows = read("\"Kumar, Ravi\",\"said \"\"ouch\"\"\",\"two\nlines\"\n");
+        assertEquals(1, rows.size());
+        assertArrayEquals(new String[]{"Kumar, Ravi", "said \"ouch\"", "two\nlines"}, rows.get(0));
+    }
+
+    @Test
+    void emptyAndTrailingFields() throws IOException {
+        List<String[]> rows = read("a,,c,\n\"\",b\n");
+        assertArrayEquals(new String[]{"a", "", "c", ""}, rows.get(0));
+        assertArrayEquals(new String[]{"", "b"}, rows.get(1));
+    }
+
+    @Test
+    void handlesCrLfBareCrAndBlankLines() throws IOException {
+        List<String[]> rows = read("a,b\r\n\r\nc,d\re,f");
+        assertEquals(4, rows.size());
+        assertArrayEquals(new String[]{"a", "b"}, rows.get(0));
+        assertEquals(0, rows.get(1).length, "a blank line is an empty row");
+        assertArrayEquals(new String[]{"c", "d"}, rows.get(2));
+        assertArrayEquals(new String[]{"e", "f"}, rows.get(3), "the last line needs no line break");
+    }
+
+    @Test
+    void skipsByteOrderMark() throws IOException {
+        List<String[]> rows = read("﻿date,patient\n");
+        assertArrayEquals(new String[]{"date", "patient"}, rows.get(0));
+    }
+}
@@ -0,0 +1,91 @@
+package com.nirwan.dentalclinic.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportCheckpointTest {
+    @TempDir
+    Path dir;
+
+    private Path source(String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.writeString(file, content);
+        return file;
+    }
+
+    @Test
+    void markersAreStableForTheSameSheet() throws IOException {
+        Path file = source("ledger.xlsx", "content");
+        assertEquals(ImportCheckpoint.open(file, "2019", false).marker(7),
+                ImportCheckpoint.open(file, "2019", true).marker(7));
+        assertEquals(ImportCheckpoint.open(file, "2019", false).marker(7),
+                ImportCheckpoint.open(file, "2019", false).marker(7));
+    }
+
+    @Test
+    void everySheetHasItsOwnMarkersAndCheckpoint() throws IOException {
+        Path file = source("ledger.xlsx", "content");
+        ImportCheckpoint first = ImportCheckpoint.open(file, "2019", false);
+        ImportCheckpoint second = ImportCheckpoint.open(file, "2020", false);
+        assertNotEquals(first.marker(2), second.marker(2));
+        assertNotEquals(first.marker(2), ImportCheckpoint.open(file, null, false).marker(2));
+
+        first.rowsDone = 40;
+        first.save();
+        assertTrue(Files.exists(dir.resolve("ledger.xlsx.2019.checkpoint")));
+        assertFalse(ImportCheckpoint.open(file, "2020", false).isResuming());
+    }
+
+    @Test
+    void sheetNamesAreMadeSafeForFileNames() {
+        Path file = dir.resolve("ledger.xlsx");
+        assertEquals(dir.resolve("ledger.xlsx.Apr_Mar_2019.rejected.csv"),
+                ImportCheckpoint.sibling(file, "Apr/Mar 2019", ".rejected.csv"));
+        assertEquals(dir.resolve("ledger.csv.checkpoint"),
+                ImportCheckpoint.sibling(dir.resolve("ledger.csv"), null, ".checkpoint"));
+    }
+
+    @Test
+    void savedProgressIsResumed() throws IOException {
+        Path file = source("ledger.csv", "content");
+        ImportCheckpoint checkpoint = ImportCheckpoint.open(file, null, false);
+        checkpoint.rowsDone = 1000;
+        checkpoint.treatments = 950;
+        checkpoint.payments = 30;
+        checkpoint.patientsCreated = 12;
+        checkpoint.rejected = 20;
+        checkpoint.save();
+
+        ImportCheckpoint resumed = ImportCheckpoint.open(file, null, false);
+        assertTrue(resumed.isResuming());
+        assertEquals(1000, resumed.rowsDone);
+        assertEquals(950, resumed.treatments);
+        assertEquals(30, resumed.payments);
+        assertEquals(12, resumed.patientsCreated);
+        assertEquals(20, resumed.rejected);
+
+        assertFalse(ImportCheckpoint.open(file, null, true).isResuming(), "restart ignores the checkpoint");
+        resumed.delete();
+        assertFalse(ImportCheckpoint.open(file, null, false).isResuming());
+    }
+
+    @Test
+    void changedSourceStartsOver() throws IOException {
+        Path file = source("ledger.csv", "content");
+        ImportCheckpoint checkpoint = ImportCheckpoint.open(file, null, false);
+        checkpoint.rowsDone = 1000;
+        checkpoint.save();
+
+        Files.writeString(file, "content, now longer");
+        assertFalse(ImportCheckpoint.open(file, null, false).isResuming());
+    }
+}
@@ -0,0 +1,142 @@
+package com.nirwan.dentalclinic.importer;
+
+import com.nirwan.dentalclinic.TestDatabase;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Imports into an in-memory H2 database. Each test uses its own patient names, which the
+ * counts below are scoped to.
+ */
+class LedgerImporterTest {
+    private static final String[] HEADER = {"date", "patient", "treatment", "total", "paid", "mode"};
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startDatabase() {
+        TestDatabase.start();
+    }
+
+    private static long treatments(String patientPrefix) throws SQLException {
+        return TestDatabase.queryLong("SELECT COUNT(*) FROM Treatment t JOIN Patient p ON p.id = t.patient_id"
+                + " WHERE p.name LIKE ?", patientPrefix + "%");
+    }
+
+    private static long payments(String patientPrefix) throws SQLException {
+        return TestDatabase.queryLong("SELECT COUNT(*) FROM Payment pay JOIN Treatment t ON t.id = pay.treatment_pk"
+                + " JOIN Patient p ON p.id = t.patient_id WHERE p.name LIKE ?", patientPrefix + "%");
+    }
+
+    private Path csv(String name, String patientPrefix, int rows) throws IOException {
+        StringBuilder sb = new StringBuilder(String.join(",", HEADER)).append('\n');
+        for (int i = 0; i < rows; i++) {
+            sb.append("01/04/2019,").append(patientPrefix).append(i % 5).append(",Filling ").append(i)
+                    .append(",500,200,cash\n");
+        }
+        Path file = dir.resolve(name);
+        Files.writeString(file, sb);
+        return file;
+    }
+
+    @Test
+    void importsEverySheetOfAWorkbook() throws Exception {
+        // One sheet per year, with the same row numbers on every sheet
+        Path file = dir.resolve("ledger.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            for (String year : new String[]{"2019", "2020"}) {
+                Sheet sheet = workbook.createSheet(year);
+                Row header = sheet.createRow(0);
+                for (int c = 0; c < HEADER.length; c++) {
+                    header.createCell(c).setCellValue(HEADER[c]);
+                }
+                for (int r = 1; r <= 10; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue("1/4/" + year);
+                    row.createCell(1).setCellValue("Sheets Patient " + (r % 3));
+                    row.createCell(2).setCellValue("Cleaning " + year);
+                    row.createCell(3).setCellValue("800");
+                    row.createCell(4).setCellValue("800");
+                    row.createCell(5).setCellValue("upi");
+                }
+            }
+            workbook.write(out);
+        }
+
+        LedgerImporter importer = new LedgerImporter();
+        LedgerImporter.Result first = importer.importFile(file, "2019", false, false, null);
+        LedgerImporter.Result second = importer.importFile(file, "2020", false, false, null);
+
+        assertEquals(10, first.getTreatments());
+        assertEquals(10, second.getTreatments());
+        assertEquals(0, second.getAlreadyImported());
+        assertEquals(20, treatments("Sheets Patient"));
+        assertFalse(Files.exists(dir.resolve("ledger.xlsx.2020.checkpoint")));
+
+        // Without --sheet the first sheet is read, which is the 2019 sheet already imported
+        LedgerImporter.Result again = importer.importFile(file, null, false, false, null);
+        assertEquals(0, again.getTreatments());
+        assertEquals(10, again.getAlreadyImported());
+        assertEquals(20, treatments("Sheets Patient"));
+    }
+
+    @Test
+    void resumeSkipsRowsWrittenAfterTheLastCheckpoint() throws Exception {
+        Path file = csv("resume.csv", "Resume Patient ", 50);
+        LedgerImporter importer = new LedgerImporter();
+        assertEquals(50, importer.importFile(file, null, false, false, null).getTreatments());
+
+        // As if the run had crashed after committing the block but before checkpointing it
+        ImportCheckpoint checkpoint = ImportCheckpoint.open(file, null, false);
+        checkpoint.rowsDone = 11;
+        checkpoint.treatments = 10;
+        checkpoint.save();
+
+        LedgerImporter.Result resumed = importer.importFile(file, null, false, false, null);
+        assertEquals(10, resumed.getTreatments(), "nothing is written twice");
+        assertEquals(50, resumed.getAlreadyImported());
+        assertEquals(50, treatments("Resume Patient "));
+        assertEquals(50, payments("Resume Patient "));
+        assertNull(resumed.getRejectedFile());
+    }
+
+    @Test
+    void reimportWithoutCheckpointReportsRowsAsAlreadyImported() throws Exception {
+        Path file = csv("again.csv", "Again Patient ", 30);
+        LedgerImporter importer = new LedgerImporter();
+        assertEquals(30, importer.importFile(file, null, false, false, null).getTreatments());
+
+        LedgerImporter.Result again = importer.importFile(file, null, false, true, null);
+        assertEquals(0, again.getTreatments());
+        assertEquals(30, again.getAlreadyImported());
+        assertEquals(30, treatments("Again Patient "));
+    }
+
+    @Test
+    void rejectedRowsAreReported() throws Exception {
+        Path file = dir.resolve("bad.csv");
+        Files.writeString(file, String.join(",", HEADER) + "\n"
+                + "01/04/2019,Rejects Patient,Filling,500,,cash\n"
+                + "31/02/2019,Rejects Patient,Filling,500,,cash\n"
+                + "01/04/2019,Rejects Patient,Filling,500,,barter\n");
+        LedgerImporter.Result result = new LedgerImporter().importFile(file, null, false, false, null);
+        assertEquals(1, result.getTreatments());
+        assertEquals(2, result.getRejected());
+        assertEquals(3, Files.readAllLines(result.getRejectedFile()).size());
+    }
+}
@@ -0,0 +1,101 @@
+package com.nirwan.dentalclinic.importer;
+
+import com.nirwan.dentalclinic.models.Money;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowValidatorTest {
+    private final RowValidator validator = new RowValidator(
+            new String[]{" Visit Date ", "Patient Name", "Description", "Fees", "Received", "Mode", "Remarks"});
+
+    private ImportRecord validate(String date, String patient, String treatment, String total, String paid,
+                                  String mode) {
+        return validator.validate(2, new String[]{date, patient, treatment, total, paid, mode, ""});
+    }
+
+    @Test
+    void headerAliasesAreMatchedIgnoringCaseAndSpacing() {
+        ImportRecord record = validate("01/04/2019", "  Asha   Rao ", "Root  canal", "1500", "500", "");
+        assertEquals("Asha Rao", record.patientName);
+        assertEquals("Root canal", record.treatmentName);
+        assertEquals(Money.ofRupees(1500), record.total);
+        assertEquals(Money.ofRupees(500), record.paid);
+        assertEquals("CASH", record.paymentMethod);
+    }
+
+    @Test
+    void missingRequiredColumnIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new RowValidator(new String[]{"date", "patient", "total"}));
+        assertEquals("Missing column: treatment", e.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> new RowValidator(new String[]{"date", "patient", "treatment", "notes"}));
+    }
+
+    @Test
+    void datesAreDayFirstInEveryLedgerFormat() {
+        LocalDateTime april1 = LocalDate.of(2019, 4, 1).atStartOfDay();
+        assertEquals(april1, RowValidator.parseDate("2019-04-01"));
+        assertEquals(april1, RowValidator.parseDate("1/4/2019"));
+        assertEquals(april1, RowValidator.parseDate("01-04-2019"));
+        assertEquals(april1, RowValidator.parseDate("1.4.2019"));
+        assertEquals(april1, RowValidator.parseDate("01/04/19"));
+        assertEquals(april1, RowValidator.parseDate("1-Apr-2019"));
+        assertEquals(april1, RowValidator.parseDate("1 Apr 2019"));
+        assertEquals(april1.withHour(10).withMinute(30), RowValidator.parseDate("2019-04-01T10:30"));
+        assertThrows(IllegalArgumentException.class, () -> RowValidator.parseDate("31/02/2019"));
+        assertThrows(IllegalArgumentException.class, () -> RowValidator.parseDate("April first"));
+        assertThrows(IllegalArgumentException.class, () -> RowValidator.parseDate(""));
+    }
+
+    @Test
+    void futureDatesAreRejected() {
+        String tomorrow = LocalDate.now().plusDays(1).toString();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> validate(tomorrow, "Asha", "Filling", "500", "", ""));
+        assertTrue(e.getMessage().startsWith("Date is in the future"));
+    }
+
+    @Test
+    void amountsAcceptRupeePrefixesAndSeparators() {
+        assertEquals(Money.ofRupees(1500) + 50, validate("2019-04-01", "A", "B", "Rs. 1,500.50", "", "").total);
+        assertEquals(Money.ofRupees(200), validate("2019-04-01", "A", "B", "INR 200", "", "").total);
+        assertEquals(Money.ofRupees(300), validate("2019-04-01", "A", "B", "₹300", "", "").total);
+        assertThrows(IllegalArgumentException.class, () -> validate("2019-04-01", "A", "B", "-5", "", ""));
+        assertThrows(IllegalArgumentException.class, () -> validate("2019-04-01", "A", "B", "five", "", ""));
+        assertThrows(IllegalArgumentException.class, () -> validate("2019-04-01", "A", "B", "", "", ""));
+    }
+
+    @Test
+    void rowWithoutTotalIsFollowUpPayment() {
+        ImportRecord record = validate("2019-04-01", "Asha", "Braces", "", "700", "gpay");
+        assertTrue(record.isFollowUpPayment());
+        assertNull(record.total);
+        assertEquals("UPI", record.paymentMethod);
+    }
+
+    @Test
+    void paymentModesMapOntoPaymentMethods() {
+        assertEquals("CASH", RowValidator.parseMethod(""));
+        assertEquals("CASH", RowValidator.parseMethod(" Cash "));
+        assertEquals("UPI", RowValidator.parseMethod("Google  Pay"));
+        assertEquals("UPI", RowValidator.parseMethod("PhonePe"));
+        assertEquals("CARD", RowValidator.parseMethod("Debit Card"));
+        assertEquals("BANK_TRANSFER", RowValidator.parseMethod("NEFT"));
+        assertEquals("BANK_TRANSFER", RowValidator.parseMethod("cheque"));
+        assertThrows(IllegalArgumentException.class, () -> RowValidator.parseMethod("barter"));
+    }
+
+    @Test
+    void blankRowIsSkipped() {
+        assertNull(validator.validate(3, new String[]{"", " ", ""}));
+        assertNull(validator.validate(3, new String[0]));
+    }
+}
@@ -0,0 +1,75 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.TestDatabase;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.Payment;
+import com.nirwan.dentalclinic.models.Treatment;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A write against a stale version reaches the caller as {@link ConcurrentUpdateException}, not as
+ * a plain failure, and leaves the other terminal's change in place.
+ */
+class ConcurrentUpdateTest {
+    private static int patientId;
+    private final TreatmentDao dao = new TreatmentDao();
+
+    @BeforeAll
+    static void createPatient() throws SQLException {
+        TestDatabase.start();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO Patient (name) VALUES ('Conflict Patient')")) {
+            stmt.executeUpdate();
+        }
+        patientId = (int) TestDatabase.queryLong("SELECT id FROM Patient WHERE name = 'Conflict Patient'");
+    }
+
+    private Treatment newTreatment(String name) throws SQLException {
+        Treatment treatment = new Treatment(null, patientId, name, Money.ofRupees(1000));
+        treatment.setPaymentDate(LocalDateTime.of(2024, 3, 1, 10, 0));
+        return dao.saveTreatment(treatment);
+    }
+
+    @Test
+    void staleTreatmentWritesThrow() throws SQLException {
+        Treatment saved = newTreatment("Conflict Crown");
+        Treatment stale = dao.findById(saved.getId()).orElseThrow();
+        Treatment other = dao.findById(saved.getId()).orElseThrow();
+        other.setTotalAmount(Money.ofRupees(1500));
+        assertTrue(dao.updateTreatment(other));
+
+        stale.setActive(false);
+        assertThrows(ConcurrentUpdateException.class, () -> dao.updateTreatment(stale));
+        assertThrows(ConcurrentUpdateException.class, () -> dao.addTreatmentCost(stale, Money.ofRupees(900), null));
+
+        Treatment current = dao.findById(saved.getId()).orElseThrow();
+        assertEquals(Money.ofRupees(1500), current.getTotalAmount());
+        assertTrue(current.isActive());
+    }
+
+    @Test
+    void stalePaymentWritesThrow() throws SQLException {
+        Treatment treatment = newTreatment("Conflict Filling");
+        assertTrue(dao.recordPayment(treatment, Money.ofRupees(200), "CASH", null, LocalDateTime.now()));
+        Payment stale = dao.getPaymentsForTreatment(treatment.getId()).get(0);
+        assertTrue(dao.deletePayment(stale));
+
+        Payment edited = new Payment(stale.getId(), stale.getTreatmentPk(), stale.getTreatmentId(),
+                Money.ofRupees(300), stale.getPaymentDate(), stale.getPaymentMethod(), null, null,
+                false, null, null, stale.getVersion());
+        assertThrows(ConcurrentUpdateException.class, () -> dao.editPayment(stale, edited));
+        assertThrows(ConcurrentUpdateException.class, () -> dao.deletePayment(stale));
+        assertEquals(Money.ZERO, dao.findById(treatment.getId()).orElseThrow().getAmountPaid());
+    }
+}
@@ -0,0 +1,143 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.TestDatabase;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.Treatment;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * recordPayment through the record_payment procedure and through statements must leave the same
+ * Treatment, TreatmentCost, PatientSummary and PaymentDailyRollup rows. H2 has no procedures, so
+ * the procedure is stood in for by {@link #recordPaymentProcedure}, which runs the two statements
+ * of migration V14's record_payment. Public so that H2 can call it.
+ */
+public class PaymentPathsTest {
+    private static final LocalDateTime DAY_1 = LocalDateTime.of(2024, 4, 1, 9, 0);
+    private static final LocalDateTime DAY_2 = LocalDateTime.of(2024, 4, 2, 17, 0);
+
+    @BeforeAll
+    static void createProcedure() throws SQLException {
+        TestDatabase.start();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE ALIAS IF NOT EXISTS record_payment FOR \""
+                    + PaymentPathsTest.class.getName() + ".recordPaymentProcedure\"");
+        }
+    }
+
+    /**
+     * The body of record_payment (V14), on the caller's connection and transaction. CALL returns
+     * the value as a one-row result, like the procedure's final SELECT.
+     */
+    public static int recordPaymentProcedure(Connection conn, int treatmentPk, BigDecimal amount,
+                                             Timestamp paymentDate, String paymentMethod, String notes)
+            throws SQLException {
+        int recorded;
+        try (PreparedStatement update = conn.prepareStatement(
+                "UPDATE Treatment SET amount_paid = amount_paid + ?, updated_at = NOW(), version = version + 1 WHERE id = ?")) {
+            update.setBigDecimal(1, amount);
+            update.setInt(2, treatmentPk);
+            recorded = update.executeUpdate();
+        }
+        if (recorded > 0) {
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO Payment (treatment_pk, treatment_id, amount, payment_date, payment_method, notes) "
+                            + "SELECT id, treatment_id, ?, ?, ?, ? FROM Treatment WHERE id = ?")) {
+                insert.setBigDecimal(1, amount);
+                insert.setTimestamp(2, paymentDate);
+                insert.setString(3, paymentMethod);
+                insert.setString(4, notes);
+                insert.setInt(5, treatmentPk);
+                insert.executeUpdate();
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * Creates a patient with a treatment named after the path and records the same payments on it
+     * @return the patient's ID
+     */
+    private static int recordPayments(String path, boolean useProcedure) throws SQLException {
+        TreatmentDao dao = new TreatmentDao(useProcedure);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO Patient (name) VALUES (?)")) {
+            stmt.setString(1, "Paths " + path);
+            stmt.executeUpdate();
+        }
+        int patientId = (int) TestDatabase.queryLong("SELECT id FROM Patient WHERE name = ?", "Paths " + path);
+
+        Treatment treatment = new Treatment(null, patientId, "Paths " + path, Money.ofRupees(1000));
+        treatment.setPaymentDate(DAY_1);
+        treatment = dao.saveTreatment(treatment);
+        assertTrue(dao.recordPayment(treatment, Money.ofRupees(300), "CASH", "first", DAY_1));
+        assertTrue(dao.recordPayment(treatment, Money.ofRupees(250), "UPI", null, DAY_2));
+        assertTrue(dao.recordPayment(treatment.getId(), Money.ofRupees(450), "CASH", "settled"));
+        assertFalse(dao.recordPayment(Integer.MAX_VALUE, Money.ofRupees(10), "CASH", null));
+        return patientId;
+    }
+
+    /** The query's rows for one path, as text, sorted; the first parameter is bound to the path */
+    private static List<String> rows(String sql, Object param) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, param);
+            try (ResultSet rs = stmt.executeQuery()) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    StringBuilder row = new StringBuilder();
+                    for (int i = 1; i <= columns; i++) {
+                        row.append(rs.getString(i)).append('|');
+                    }
+                    rows.add(row.toString());
+                }
+            }
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    @Test
+    void bothPathsWriteTheSameRows() throws SQLException {
+        int statements = recordPayments("Statements", false);
+        int procedure = recordPayments("Procedure", true);
+
+        String treatments = "SELECT total_amount, amount_paid, amount_pending, is_active, version "
+                + "FROM Treatment WHERE patient_id = ?";
+        String costs = "SELECT tc.cost, tc.status FROM TreatmentCost tc "
+                + "JOIN Treatment t ON t.id = tc.treatment_pk WHERE t.patient_id = ?";
+        String payments = "SELECT pay.amount, pay.payment_method, pay.notes FROM Payment pay "
+                + "JOIN Treatment t ON t.id = pay.treatment_pk WHERE t.patient_id = ?";
+        String summary = "SELECT latest_total_amount, latest_amount_paid, latest_amount_pending, latest_status, "
+                + "total_pending, treatment_count FROM PatientSummary WHERE patient_id = ?";
+        String rollup = "SELECT payment_day, payment_method, total_amount, payment_count "
+                + "FROM PaymentDailyRollup WHERE treatment_name = ?";
+
+        assertEquals(rows(treatments, statements), rows(treatments, procedure));
+        assertEquals(rows(costs, statements), rows(costs, procedure));
+        assertEquals(rows(payments, statements), rows(payments, procedure));
+        assertEquals(rows(summary, statements), rows(summary, procedure));
+        assertEquals(rows(rollup, "Paths Statements"), rows(rollup, "Paths Procedure"));
+        assertEquals(1, rows(summary, procedure).size());
+        assertEquals(List.of("1000.00|1000.00|0.00|TRUE|3|"), rows(treatments, procedure));
+    }
+}
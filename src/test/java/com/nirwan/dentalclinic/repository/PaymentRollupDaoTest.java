@@ -0,0 +1,148 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.TestDatabase;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.Payment;
+import com.nirwan.dentalclinic.models.Treatment;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * After each kind of payment write, the incrementally maintained rollup must hold what a rebuild
+ * from the Payment table would. Rows are scoped to treatment names starting with "Rollup ".
+ */
+class PaymentRollupDaoTest {
+    private static final String ROLLUP_SQL = """
+            SELECT payment_day, payment_method, treatment_name, SUM(total_amount), SUM(payment_count)
+            FROM PaymentDailyRollup WHERE treatment_name LIKE 'Rollup %'
+            GROUP BY payment_day, payment_method, treatment_name
+            HAVING SUM(payment_count) <> 0 OR SUM(total_amount) <> 0
+            """;
+
+    private static final String EXPECTED_SQL = """
+            SELECT DATE(pay.payment_date), pay.payment_method, t.treatment_name, SUM(pay.amount), COUNT(*)
+            FROM Payment pay JOIN Treatment t ON t.id = pay.treatment_pk
+            WHERE pay.is_deleted = FALSE AND t.treatment_name LIKE 'Rollup %'
+            GROUP BY DATE(pay.payment_date), pay.payment_method, t.treatment_name
+            """;
+
+    private static final LocalDateTime DAY_1 = LocalDateTime.of(2024, 3, 1, 10, 0);
+    private static final LocalDateTime DAY_2 = LocalDateTime.of(2024, 3, 2, 16, 30);
+
+    private static int patientId;
+    private final TreatmentDao dao = new TreatmentDao();
+
+    @BeforeAll
+    static void createPatient() throws SQLException {
+        TestDatabase.start();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO Patient (name) VALUES ('Rollup Patient')")) {
+            stmt.executeUpdate();
+        }
+        patientId = (int) TestDatabase.queryLong("SELECT id FROM Patient WHERE name = 'Rollup Patient'");
+    }
+
+    /** The rows as text, sorted (Payment.payment_method is an ENUM, which sorts differently) */
+    private static List<String> rows(String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(rs.getDate(1) + " " + rs.getString(2) + " " + rs.getString(3)
+                        + " " + Money.read(rs, 4) + " " + rs.getLong(5));
+            }
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static void assertRollupMatchesPayments() throws SQLException {
+        assertEquals(rows(EXPECTED_SQL), rows(ROLLUP_SQL));
+    }
+
+    private Treatment newTreatment(String name) throws SQLException {
+        Treatment treatment = new Treatment(null, patientId, name, Money.ofRupees(1000));
+        treatment.setAmountPaid(Money.ofRupees(100));
+        treatment.setPaymentDate(DAY_1);
+        return dao.saveTreatment(treatment);
+    }
+
+    private Payment latestPayment(int treatmentPk) {
+        List<Payment> payments = dao.getPaymentsForTreatment(treatmentPk);
+        return payments.get(0);
+    }
+
+    @Test
+    void singleWritesKeepTheRollupInStep() throws SQLException {
+        Treatment treatment = newTreatment("Rollup Scaling");
+        assertRollupMatchesPayments();
+
+        assertTrue(dao.recordPayment(treatment, Money.ofRupees(200), "CARD", null, DAY_1));
+        assertTrue(dao.recordPayment(treatment, Money.ofRupees(300), "UPI", null, DAY_2));
+        assertRollupMatchesPayments();
+
+        // Amount only, then a move to another day and method
+        Payment payment = latestPayment(treatment.getId());
+        Payment edited = new Payment(payment.getId(), payment.getTreatmentPk(), payment.getTreatmentId(),
+                Money.ofRupees(350), payment.getPaymentDate(), payment.getPaymentMethod(), null, "more",
+                false, null, null, payment.getVersion());
+        assertTrue(dao.editPayment(payment, edited));
+        assertRollupMatchesPayments();
+
+        payment = latestPayment(treatment.getId());
+        edited = new Payment(payment.getId(), payment.getTreatmentPk(), payment.getTreatmentId(),
+                payment.getAmount(), DAY_1.plusHours(1), "CASH", null, "moved",
+                false, null, null, payment.getVersion());
+        assertTrue(dao.editPayment(payment, edited));
+        assertRollupMatchesPayments();
+
+        assertTrue(dao.deletePayment(latestPayment(treatment.getId())));
+        assertRollupMatchesPayments();
+
+        Treatment current = dao.findById(treatment.getId()).orElseThrow();
+        current.setTreatmentName("Rollup Deep Scaling");
+        assertTrue(dao.updateTreatment(current));
+        assertRollupMatchesPayments();
+        assertEquals(0, TestDatabase.queryLong(
+                "SELECT COALESCE(SUM(payment_count), 0) FROM PaymentDailyRollup WHERE treatment_name = 'Rollup Scaling'"));
+    }
+
+    @Test
+    void batchWritesKeepTheRollupInStep() throws SQLException {
+        Treatment first = newTreatment("Rollup Crown");
+        Treatment second = newTreatment("Rollup Crown");
+        Payment a = new Payment();
+        a.setTreatmentPk(first.getId());
+        a.setAmount(Money.ofRupees(50));
+        a.setPaymentMethod("CASH");
+        a.setPaymentDate(DAY_1);
+        Payment b = new Payment();
+        b.setTreatmentPk(second.getId());
+        b.setAmount(Money.ofRupees(70));
+        b.setPaymentMethod("CASH");
+        b.setPaymentDate(DAY_1.plusMinutes(5));
+        Payment c = new Payment();
+        c.setTreatmentPk(second.getId());
+        c.setAmount(Money.ofRupees(90));
+        c.setPaymentMethod("CARD");
+        c.setPaymentDate(DAY_2);
+
+        List<BatchItemResult> results = dao.recordPayments(List.of(a, b, c));
+        assertEquals(3, results.stream().filter(r -> r.getStatus() == BatchItemResult.Status.SAVED).count());
+        assertRollupMatchesPayments();
+    }
+}
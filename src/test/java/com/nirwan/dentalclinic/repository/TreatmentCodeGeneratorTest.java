@@ -0,0 +1,123 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.TestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Codes from one node never repeat and keep increasing: across threads, when the clock steps back,
+ * and across a restart of the terminal, with or without a clean release. The clock is a counter
+ * the test moves by hand; node ids 90 and up are kept clear of the ones leased by other tests.
+ */
+class TreatmentCodeGeneratorTest {
+    private static final long NOW = Instant.parse("2024-11-03T06:30:00Z").getEpochSecond();
+
+    @BeforeAll
+    static void startDatabase() {
+        TestDatabase.start();
+    }
+
+    /** The code as text that sorts in issue order: the second, then the zero-padded sequence */
+    private static String sortKey(String code) {
+        int sequenceStart = code.lastIndexOf('-') + 1;
+        return code.substring(0, sequenceStart) + String.format("%010d", Long.parseLong(code.substring(sequenceStart)));
+    }
+
+    private static List<String> issue(TreatmentCodeGenerator generator, int count) throws SQLException {
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(generator.next());
+        }
+        return codes;
+    }
+
+    private static void assertIncreasing(List<String> codes) {
+        for (int i = 1; i < codes.size(); i++) {
+            assertTrue(sortKey(codes.get(i - 1)).compareTo(sortKey(codes.get(i))) < 0,
+                    codes.get(i - 1) + " then " + codes.get(i));
+        }
+    }
+
+    private static String last(List<String> codes) {
+        return sortKey(codes.get(codes.size() - 1));
+    }
+
+    private static String first(List<String> codes) {
+        return sortKey(codes.get(0));
+    }
+
+    @Test
+    void concurrentCodesAreUniqueAndIncreasingWhileTheClockMoves() throws Exception {
+        AtomicLong clock = new AtomicLong(NOW);
+        TreatmentCodeGenerator generator = TreatmentCodeGenerator.claim(90, clock::get);
+        int threads = 8;
+        int perThread = 20_000;
+        Set<String> all = ConcurrentHashMap.newKeySet();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> issue(generator, perThread)));
+            }
+            // Forward past the reservation, then back by an hour (DST fall-back) and a little more
+            for (long second : new long[] {NOW + 1, NOW + 2 * TreatmentCodeGenerator.RESERVE_SECONDS, NOW - 3600, NOW - 3601}) {
+                Thread.sleep(5);
+                clock.set(second);
+            }
+            for (Future<List<String>> result : results) {
+                List<String> codes = result.get();
+                assertIncreasing(codes);
+                all.addAll(codes);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(threads * perThread, all.size());
+    }
+
+    @Test
+    void restartAfterACrashAndAClockStepBackContinuesAfterTheLastCode() throws SQLException {
+        AtomicLong clock = new AtomicLong(NOW);
+        TreatmentCodeGenerator generator = TreatmentCodeGenerator.claim(91, clock::get);
+        List<String> before = issue(generator, 1000);
+        clock.set(NOW + 10);
+        before.addAll(issue(generator, 1000));
+
+        // The terminal stopped without releasing; its clock is then corrected back an hour
+        clock.set(NOW - 3600);
+        List<String> after = issue(TreatmentCodeGenerator.claim(91, clock::get), 1000);
+
+        assertIncreasing(after);
+        assertTrue(last(before).compareTo(first(after)) < 0, last(before) + " then " + first(after));
+        assertTrue(TestDatabase.queryLong("SELECT last_second FROM IdNode WHERE id = 91") >= NOW);
+    }
+
+    @Test
+    void restartAfterACleanReleaseContinuesAfterTheLastCode() throws SQLException {
+        AtomicLong clock = new AtomicLong(NOW);
+        TreatmentCodeGenerator generator = TreatmentCodeGenerator.claim(92, clock::get);
+        List<String> before = issue(generator, 1000);
+        generator.release();
+        assertEquals(NOW, TestDatabase.queryLong("SELECT last_second FROM IdNode WHERE id = 92"));
+
+        // Relaunched within the same second: the counter moves on to the next one
+        List<String> after = issue(TreatmentCodeGenerator.claim(92, clock::get), 1000);
+        assertIncreasing(after);
+        assertTrue(last(before).compareTo(first(after)) < 0, last(before) + " then " + first(after));
+    }
+}
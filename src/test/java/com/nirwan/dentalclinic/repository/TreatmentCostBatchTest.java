@@ -0,0 +1,69 @@
+package com.nirwan.dentalclinic.repository;
+
+import com.nirwan.dentalclinic.TestDatabase;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import com.nirwan.dentalclinic.models.Money;
+import com.nirwan.dentalclinic.models.Treatment;
+import com.nirwan.dentalclinic.models.TreatmentCost;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bulk cost updates must not overwrite a total that changed after the cost was entered.
+ */
+class TreatmentCostBatchTest {
+    private static int patientId;
+    private final TreatmentDao dao = new TreatmentDao();
+
+    @BeforeAll
+    static void createPatient() throws SQLException {
+        TestDatabase.start();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO Patient (name) VALUES ('Cost Batch Patient')")) {
+            stmt.executeUpdate();
+        }
+        patientId = (int) TestDatabase.queryLong("SELECT id FROM Patient WHERE name = 'Cost Batch Patient'");
+    }
+
+    private Treatment newTreatment(String name) throws SQLException {
+        Treatment treatment = new Treatment(null, patientId, name, Money.ofRupees(1000));
+        treatment.setPaymentDate(LocalDateTime.of(2024, 3, 1, 10, 0));
+        return dao.saveTreatment(treatment);
+    }
+
+    private static TreatmentCost cost(Treatment treatment, long cost) {
+        TreatmentCost tc = new TreatmentCost();
+        tc.setTreatmentPk(treatment.getId());
+        tc.setCost(cost);
+        tc.setTreatmentVersion(treatment.getVersion());
+        return tc;
+    }
+
+    @Test
+    void staleVersionIsAConflictAndKeepsTheNewerTotal() throws SQLException {
+        Treatment current = newTreatment("Cost Batch Current");
+        Treatment stale = newTreatment("Cost Batch Stale");
+        Treatment staleRead = dao.findById(stale.getId()).orElseThrow();
+        Treatment edited = dao.findById(stale.getId()).orElseThrow();
+        edited.setTotalAmount(Money.ofRupees(1500));
+        assertTrue(dao.updateTreatment(edited));
+
+        List<BatchItemResult> results = dao.addTreatmentCosts(List.of(
+                cost(dao.findById(current.getId()).orElseThrow(), Money.ofRupees(1200)),
+                cost(staleRead, Money.ofRupees(800))));
+
+        assertEquals(BatchItemResult.Status.SAVED, results.get(0).getStatus());
+        assertEquals(BatchItemResult.Status.CONFLICT, results.get(1).getStatus());
+        assertEquals(Money.ofRupees(1200), dao.findById(current.getId()).orElseThrow().getTotalAmount());
+        assertEquals(Money.ofRupees(1500), dao.findById(stale.getId()).orElseThrow().getTotalAmount());
+    }
+}
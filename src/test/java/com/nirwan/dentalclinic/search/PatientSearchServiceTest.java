@@ -0,0 +1,71 @@
+package com.nirwan.dentalclinic.search;
+
+import com.nirwan.dentalclinic.TestDatabase;
+import com.nirwan.dentalclinic.database.DatabaseConnection;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Changes are written with plain SQL, as another terminal would, so the index only learns of
+ * them by syncing with the database.
+ */
+class PatientSearchServiceTest {
+    private static PatientSearchService service;
+
+    @BeforeAll
+    static void startService() throws Exception {
+        TestDatabase.start();
+        service = PatientSearchService.getInstance();
+        service.searchAsync("").get(); // waits for the build
+    }
+
+    @AfterAll
+    static void stopService() {
+        PatientSearchService.shutdown();
+    }
+
+    private static void execute(String sql, Object... params) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    private static long[] search(String query) throws Exception {
+        return service.searchAsync(query, true).get();
+    }
+
+    @Test
+    void syncPicksUpPatientsWrittenElsewhere() throws Exception {
+        execute("INSERT INTO Patient (name) VALUES ('Zephyrine Okonkwo')");
+        long id = TestDatabase.queryLong("SELECT id FROM Patient WHERE name = 'Zephyrine Okonkwo'");
+        assertArrayEquals(new long[]{id}, search("zephyrine"));
+
+        execute("UPDATE Patient SET name = 'Zephyrine Adeyemi', updated_at = CURRENT_TIMESTAMP WHERE id = ?", id);
+        assertEquals(0, search("okonkwo").length);
+        assertArrayEquals(new long[]{id}, search("adeyemi"));
+
+        execute("UPDATE Patient SET is_deleted = TRUE, updated_at = CURRENT_TIMESTAMP WHERE id = ?", id);
+        assertEquals(0, search("zephyrine").length);
+    }
+
+    @Test
+    void syncPicksUpTreatmentsWrittenElsewhere() throws Exception {
+        execute("INSERT INTO Patient (name) VALUES ('Quillon Marsh')");
+        long id = TestDatabase.queryLong("SELECT id FROM Patient WHERE name = 'Quillon Marsh'");
+        execute("INSERT INTO Treatment (treatment_id, patient_id, treatment_name, total_amount)"
+                + " VALUES ('SYNC-TEST-1', ?, 'Gingivectomy', 100)", id);
+        assertArrayEquals(new long[]{id}, search("gingivectomy"));
+    }
+}